@@ -0,0 +1,84 @@
+package org.example.benchmark;
+
+import org.example.publishon.AdaptivePublishOn;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 생산자가 BURST 개씩 몰아서 내보내고 잠깐 쉬는(bursty) 시퀀스를 다른 스레드로 넘길 때의 초당 처리 요소 수
+ *  * prefetch  : publishOn(scheduler, 2 / 32 / 256) 또는 AdaptivePublishOn(2 ~ 256)
+ *  * consumerWork : 소비자가 요소 하나에 Blackhole.consumeCPU 로 쓰는 시간. 0 은 빠른 소비자, 500 은 느린 소비자
+ * 생산자는 subscribeOn 으로 다른 스레드에서 실행하므로 다시 요청할 때마다 스레드를 오간다.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AdaptivePublishOnBenchmark
+{
+    static final int ITEMS = 20_000;
+    static final int BURST = 500;
+
+    @Param({"2", "32", "256", "adaptive"})
+    public String prefetch;
+
+    @Param({"0", "500"})
+    public long consumerWork;
+
+    Scheduler producer;
+    Scheduler consumer;
+
+    @Setup
+    public void setUp() {
+        producer = Schedulers.newSingle("producer");
+        consumer = Schedulers.newSingle("consumer");
+    }
+
+    @TearDown
+    public void tearDown() {
+        producer.dispose();
+        consumer.dispose();
+    }
+
+    Flux<Integer> bursty() {
+        return Flux.<Integer, Integer>generate(() -> 0, (i, sink) -> {
+                if (i % BURST == BURST - 1) {
+                    LockSupport.parkNanos(50_000);
+                }
+                sink.next(i);
+                return i + 1;
+            })
+            .take(ITEMS)
+            .subscribeOn(producer);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ITEMS)
+    public Integer publishOn() {
+        Flux<Integer> source = bursty();
+        Flux<Integer> hop = "adaptive".equals(prefetch)
+            ? source.transform(AdaptivePublishOn.create(consumer, 2, 256))
+            : source.publishOn(consumer, Integer.parseInt(prefetch));
+        return hop.doOnNext(i -> Blackhole.consumeCPU(consumerWork)).blockLast();
+    }
+}
@@ -0,0 +1,124 @@
+package org.example.benchmark;
+
+import org.example.publisher.ArrayPublisher;
+import org.example.publisher.RangePublisher;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.reactivestreams.Subscription;
+import reactor.core.publisher.BaseSubscriber;
+import reactor.core.publisher.Flux;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 크기 1, 16, 1024 인 소스를 끝까지 읽는 시간 (ns / 구독)
+ *  * xxxReactor  : Flux.fromArray / Flux.fromIterable / Flux.range
+ *  * xxxCustom   : ArrayPublisher / RangePublisher (asFlux)
+ *  * unbounded   : 무제한 요청하는 구독자 (빠른 경로)
+ *  * flatMap     : Flux.range(0, 64).flatMap(i -> 소스) 의 내부 소스. 퓨전된 큐로 poll 한다. (ns / 64 구독)
+ *
+ * 배열과 범위는 Reactor 의 소스와 같은 구조라 차이가 작아야 한다.
+ * List 는 Flux.fromIterable 이 구독마다 Iterator 를 만들고 hasNext / next 를 부르는 데 비해 get(i) 만 부르므로 차이가 난다.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ArrayPublisherBenchmark
+{
+    @Param({"1", "16", "1024"})
+    public int size;
+
+    Flux<Integer> arrayReactor;
+    Flux<Integer> arrayCustom;
+    Flux<Integer> listReactor;
+    Flux<Integer> listCustom;
+    Flux<Integer> rangeReactor;
+    Flux<Integer> rangeCustom;
+    Flux<Integer> outer;
+
+    @Setup
+    public void setUp() {
+        Integer[] array = new Integer[size];
+        List<Integer> list = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            array[i] = i;
+            list.add(i);
+        }
+        arrayReactor = Flux.fromArray(array);
+        arrayCustom = ArrayPublisher.fromArray(array).asFlux();
+        listReactor = Flux.fromIterable(list);
+        listCustom = ArrayPublisher.fromList(list).asFlux();
+        rangeReactor = Flux.range(0, size);
+        rangeCustom = RangePublisher.range(0, size).asFlux();
+        outer = Flux.range(0, 64);
+    }
+
+    static BaseSubscriber<Integer> consumer(Blackhole bh) {
+        return new BaseSubscriber<>() {
+            @Override
+            protected void hookOnSubscribe(Subscription subscription) {
+                requestUnbounded();
+            }
+
+            @Override
+            protected void hookOnNext(Integer value) {
+                bh.consume(value);
+            }
+        };
+    }
+
+    @Benchmark
+    public void arrayReactor(Blackhole bh) {
+        arrayReactor.subscribe(consumer(bh));
+    }
+
+    @Benchmark
+    public void arrayCustom(Blackhole bh) {
+        arrayCustom.subscribe(consumer(bh));
+    }
+
+    @Benchmark
+    public void listReactor(Blackhole bh) {
+        listReactor.subscribe(consumer(bh));
+    }
+
+    @Benchmark
+    public void listCustom(Blackhole bh) {
+        listCustom.subscribe(consumer(bh));
+    }
+
+    @Benchmark
+    public void rangeReactor(Blackhole bh) {
+        rangeReactor.subscribe(consumer(bh));
+    }
+
+    @Benchmark
+    public void rangeCustom(Blackhole bh) {
+        rangeCustom.subscribe(consumer(bh));
+    }
+
+    @Benchmark
+    public void flatMapListReactor(Blackhole bh) {
+        outer.flatMap(i -> listReactor).subscribe(consumer(bh));
+    }
+
+    @Benchmark
+    public void flatMapListCustom(Blackhole bh) {
+        outer.flatMap(i -> listCustom).subscribe(consumer(bh));
+    }
+}
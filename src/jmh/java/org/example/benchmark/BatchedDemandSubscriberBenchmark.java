@@ -0,0 +1,88 @@
+package org.example.benchmark;
+
+import org.example.subscriber.BatchedDemandSubscriber;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.reactivestreams.Subscription;
+import reactor.core.publisher.BaseSubscriber;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.SignalType;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * request(1)을 요소마다 보내는 MyCustomSubscriberSafety 방식과 BatchedDemandSubscriber 의 초당 처리 요소 수를 비교한다.
+ * 요청 왕복 비용은 publishOn 처럼 큐를 가진 드레인 루프에서 크게 드러나므로 동기/비동기 두 경우를 모두 잰다.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BatchedDemandSubscriberBenchmark
+{
+    static final int ITEMS = 1_000_000;
+
+    @Param({"false", "true"})
+    public boolean async;
+
+    Flux<Integer> source() {
+        Flux<Integer> flux = Flux.range(0, ITEMS);
+        return async ? flux.publishOn(Schedulers.single()) : flux;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ITEMS)
+    public void requestOne(Blackhole bh) throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(1);
+        source().subscribe(new BaseSubscriber<Integer>() {
+            @Override
+            protected void hookOnSubscribe(Subscription subscription) {
+                request(1);
+            }
+
+            @Override
+            protected void hookOnNext(Integer value) {
+                bh.consume(value);
+                request(1);
+            }
+
+            @Override
+            protected void hookFinally(SignalType type) {
+                latch.countDown();
+            }
+        });
+        latch.await();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ITEMS)
+    public void batched256(Blackhole bh) throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(1);
+        source().subscribe(new BatchedDemandSubscriber<Integer>(256) {
+            @Override
+            protected void hookOnItem(Integer value) {
+                bh.consume(value);
+            }
+
+            @Override
+            protected void hookFinally(SignalType type) {
+                latch.countDown();
+            }
+        });
+        latch.await();
+    }
+}
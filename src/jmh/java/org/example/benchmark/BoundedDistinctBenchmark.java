@@ -0,0 +1,76 @@
+package org.example.benchmark;
+
+import org.example.distinct.BoundedDistinct;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Flux.distinct() 와 BoundedDistinct 의 처리량(요소/s)을 비교한다.
+ *
+ * 키는 0 ~ keySpace 범위를 돌며 반복되므로, keySpace 가 창(maxKeys)보다 크면 BoundedDistinct 는 잊었던 키를 다시 방출한다.
+ * gc.alloc.rate.norm 은 요소당 할당 바이트이다. 키당 유지 메모리는 BoundedDistinct 의 javadoc 참고
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BoundedDistinctBenchmark
+{
+    static final int ITEMS = 1_000_000;
+
+    @Param({"1024", "65536"})
+    public int keySpace;
+
+    @Param({"65536"})
+    public int maxKeys;
+
+    Flux<Long> keys() {
+        return Flux.range(0, ITEMS).map(i -> (long) (i % keySpace));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ITEMS)
+    public long stockDistinct() {
+        return keys().distinct().count().block();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ITEMS)
+    public long window() {
+        return keys().transform(BoundedDistinct.window(maxKeys)).count().block();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ITEMS)
+    public long windowWithTtl() {
+        return keys().transform(BoundedDistinct.window(Function.identity(), maxKeys, Duration.ofMinutes(1))).count().block();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ITEMS)
+    public long windowLong() {
+        return keys().transform(BoundedDistinct.windowLong(Long::longValue, maxKeys)).count().block();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ITEMS)
+    public long probabilisticLong() {
+        return keys().transform(BoundedDistinct.probabilisticLong(Long::longValue, maxKeys, 0.01)).count().block();
+    }
+}
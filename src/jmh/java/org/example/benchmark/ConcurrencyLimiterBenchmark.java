@@ -0,0 +1,66 @@
+package org.example.benchmark;
+
+import org.example.concurrency.ConcurrencyLimiter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 내부 Publisher 하나에 더해지는 비용 (ns). 내부는 바로 끝나는 Mono 이므로 차이가 곧 limiter 의 비용이다.
+ *  * flatMap           : flatMap(mapper, 256)
+ *  * limitedGradient   : ConcurrencyLimiter (gradient) 의 flatMap
+ *  * limitedAimd       : ConcurrencyLimiter (aimd) 의 flatMap
+ * 시간 측정(now() 두 번)과 표본 기록(lock)이 대부분이며, 실제 원격 호출의 응답 시간에 비하면 작다.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ConcurrencyLimiterBenchmark
+{
+    static final int ITEMS = 100_000;
+
+    Flux<Integer> source;
+    ConcurrencyLimiter gradient;
+    ConcurrencyLimiter aimd;
+
+    @Setup
+    public void setUp() {
+        source = Flux.range(0, ITEMS);
+        gradient = ConcurrencyLimiter.builder().build();
+        aimd = ConcurrencyLimiter.builder().aimd(0.9, Duration.ofSeconds(1)).build();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ITEMS)
+    public Integer flatMap() {
+        return source.flatMap(i -> Mono.just(i).hide(), 256).blockLast();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ITEMS)
+    public Integer limitedGradient() {
+        return source.transform(gradient.<Integer, Integer>flatMap(i -> Mono.just(i).hide())).blockLast();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ITEMS)
+    public Integer limitedAimd() {
+        return source.transform(aimd.<Integer, Integer>flatMap(i -> Mono.just(i).hide())).blockLast();
+    }
+}
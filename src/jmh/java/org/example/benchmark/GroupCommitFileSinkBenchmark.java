@@ -0,0 +1,94 @@
+package org.example.benchmark;
+
+import org.example.file.GroupCommitFileSink;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import reactor.core.publisher.Flux;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 100 바이트 요소 1,000 개를 파일에 쓰고 디스크에 기록될 때까지 기다리는 속도 (초당 요소 수)
+ *  * elementFsync : doOnNext 에서 요소마다 write + force. 지금 subscribe 람다로 쓰는 방식이다.
+ *  * elementWrite : doOnNext 에서 요소마다 write 만 한다. (fsync 없음, 참고용)
+ *  * groupCommit  : GroupCommitFileSink.write. 배치마다 gathering write 한 번과 force 한 번
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GroupCommitFileSinkBenchmark
+{
+    static final int ELEMENTS = 1_000;
+
+    @Param({"elementFsync", "elementWrite", "groupCommit"})
+    public String writer;
+
+    Path file;
+    FileChannel channel;
+    GroupCommitFileSink sink;
+    Flux<ByteBuffer> source;
+
+    @Setup
+    public void setUp() throws IOException {
+        file = Files.createTempFile("group-commit-bench", ".log");
+        channel = FileChannel.open(file, StandardOpenOption.WRITE);
+        sink = GroupCommitFileSink.builder(file).build();
+        byte[] element = ("x".repeat(99) + "\n").getBytes(StandardCharsets.US_ASCII);
+        source = Flux.range(0, ELEMENTS).map(i -> ByteBuffer.wrap(element));
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        channel.close();
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ELEMENTS)
+    public Object write() throws IOException {
+        switch (writer) {
+            case "elementFsync":
+                channel.truncate(0);
+                return source.doOnNext(buffer -> write(buffer, true)).then().block();
+            case "elementWrite":
+                channel.truncate(0);
+                return source.doOnNext(buffer -> write(buffer, false)).then().block();
+            default:
+                return sink.write(source).block();
+        }
+    }
+
+    void write(ByteBuffer buffer, boolean fsync) {
+        try {
+            channel.write(buffer);
+            if (fsync) {
+                channel.force(false);
+            }
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
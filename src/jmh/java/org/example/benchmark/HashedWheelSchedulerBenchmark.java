@@ -0,0 +1,88 @@
+package org.example.benchmark;
+
+import org.example.scheduler.HashedWheelScheduler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import reactor.core.Disposable;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 대기 중인 타이머가 pending 개(기본 1,000,000) 있을 때 타이머를 등록하고 바로 취소하는 초당 횟수
+ *  * single : Schedulers.newSingle(). 지연 작업은 ScheduledThreadPoolExecutor 의 힙에 들어간다.
+ *  * wheel  : HashedWheelScheduler (tick 1ms, 칸 512 개)
+ *
+ * 등록 후 취소는 delayElements/timeout 이 요소마다 하는 일과 같다.
+ * 대기 타이머가 차지하는 메모리(바이트/타이머)는 JMH 결과에 들어가지 않으므로 setup 에서 콘솔에 출력한다.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = "-Xmx2g")
+public class HashedWheelSchedulerBenchmark
+{
+    static final int BATCH = 1_000;
+
+    @Param({"single", "wheel"})
+    public String scheduler;
+
+    @Param({"1000000"})
+    public int pending;
+
+    Scheduler target;
+    Disposable[] batch = new Disposable[BATCH];
+    long delay;
+
+    @Setup
+    public void setUp() {
+        long before = usedHeap();
+        target = scheduler.equals("wheel") ? HashedWheelScheduler.create("bench-wheel") : Schedulers.newSingle("bench-single");
+        Runnable task = () -> { };
+        for (int i = 0; i < pending; i++) {
+            target.schedule(task, 1_000 + i % 3_600, TimeUnit.SECONDS);
+        }
+        long after = usedHeap();
+        System.out.printf("%n%s: %,d pending timers use about %d bytes/timer%n", scheduler, pending, (after - before) / pending);
+    }
+
+    @TearDown
+    public void tearDown() {
+        target.dispose();
+    }
+
+    static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public Disposable[] scheduleThenCancel() {
+        Runnable task = () -> { };
+        for (int i = 0; i < BATCH; i++) {
+            batch[i] = target.schedule(task, 1 + (delay++ & 1_023), TimeUnit.MILLISECONDS);
+        }
+        for (Disposable d : batch) {
+            d.dispose();
+        }
+        return batch;
+    }
+}
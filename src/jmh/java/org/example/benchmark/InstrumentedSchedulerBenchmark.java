@@ -0,0 +1,95 @@
+package org.example.benchmark;
+
+import org.example.scheduler.InstrumentedScheduler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * InstrumentedScheduler 로 감쌌을 때 작업 하나에 더해지는 비용(ns)을 잰다.
+ *  * scheduleImmediate : Schedulers.immediate() 는 호출한 스레드에서 바로 실행하므로 차이가 곧 감싸는 비용이다.
+ *                       Instrumented 는 모든 작업의 시간을 재고, Sampled 는 16 개 중 하나만 잰다.
+ *  * nanoTime          : 이 환경에서 System.nanoTime() 한 번의 비용 (시간을 재는 작업은 세 번 부른다.)
+ *  * publishOn         : publishOn(single) 로 요소 10만 개를 넘길 때 요소 하나당 시간 (Worker 작업 수는 요소 수보다 적다.)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class InstrumentedSchedulerBenchmark
+{
+    static final int ITEMS = 100_000;
+
+    Scheduler immediate;
+    InstrumentedScheduler instrumentedImmediate;
+    InstrumentedScheduler sampledImmediate;
+    Scheduler single;
+    InstrumentedScheduler instrumentedSingle;
+    Runnable task;
+
+    @Setup
+    public void setUp(Blackhole bh) {
+        immediate = Schedulers.immediate();
+        instrumentedImmediate = InstrumentedScheduler.wrap(Schedulers.immediate());
+        sampledImmediate = InstrumentedScheduler.wrap(Schedulers.immediate(), 16);
+        single = Schedulers.newSingle("bench");
+        instrumentedSingle = InstrumentedScheduler.wrap(Schedulers.newSingle("bench-instrumented"));
+        task = () -> bh.consume(1);
+    }
+
+    @TearDown
+    public void tearDown() {
+        single.dispose();
+        instrumentedSingle.dispose();
+    }
+
+    @Benchmark
+    public Disposable scheduleImmediate() {
+        return immediate.schedule(task);
+    }
+
+    @Benchmark
+    public Disposable scheduleImmediateInstrumented() {
+        return instrumentedImmediate.schedule(task);
+    }
+
+    @Benchmark
+    public Disposable scheduleImmediateSampled() {
+        return sampledImmediate.schedule(task);
+    }
+
+    @Benchmark
+    public long nanoTime() {
+        return System.nanoTime();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ITEMS)
+    public Integer publishOn() {
+        return Flux.range(0, ITEMS).publishOn(single).blockLast();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ITEMS)
+    public Integer publishOnInstrumented() {
+        return Flux.range(0, ITEMS).publishOn(instrumentedSingle).blockLast();
+    }
+}
@@ -0,0 +1,106 @@
+package org.example.benchmark;
+
+import org.example.file.MappedFileSource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import reactor.core.publisher.Flux;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * 64MB 로그 파일(한 줄 평균 80 바이트)을 끝까지 읽는 속도 (MB/s)
+ *  * filesLines   : Flux.fromStream(Files.lines(path)). 줄마다 String 을 만든다.
+ *  * mappedLines  : MappedFileSource.lines(path). 줄마다 LineView 를 만들고 바이트는 복사하지 않는다.
+ *  * mappedChunks : MappedFileSource.chunks(path). 64KB 조각의 모든 바이트를 8 바이트씩 읽는다.
+ *
+ * 줄 단위 소스는 줄 수와 줄 길이의 합을 구한다. 파일은 setup 에서 한 번 만들므로 측정 중에는 페이지 캐시에 올라가 있다.
+ * gc.alloc.rate.norm 은 1MB 를 읽을 때 할당하는 바이트 수다.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MappedFileSourceBenchmark
+{
+    static final int FILE_MB = 64;
+
+    @Param({"filesLines", "mappedLines", "mappedChunks"})
+    public String source;
+
+    Path file;
+
+    @Setup
+    public void setUp() throws IOException {
+        file = Files.createTempFile("mapped-bench", ".log");
+        Random random = new Random(42);
+        long target = FILE_MB * 1024L * 1024L;
+        long written = 0;
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            for (long i = 0; written < target; i++) {
+                String line = "2024-01-01T00:00:00.000Z INFO  request id=" + i + " path=/api/items/" + random.nextInt(100_000)
+                    + " latency=" + random.nextInt(1_000) + "ms";
+                int length = (int) Math.min(line.length(), target - written - 1);
+                writer.write(line, 0, length);
+                writer.write('\n');
+                written += length + 1;
+            }
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(FILE_MB)
+    public long read() {
+        switch (source) {
+            case "filesLines":
+                return Flux.using(() -> Files.lines(file), Flux::fromStream, Stream::close)
+                    .reduce(0L, (sum, line) -> sum + 1 + line.length())
+                    .block();
+            case "mappedLines":
+                return MappedFileSource.lines(file)
+                    .reduce(0L, (sum, line) -> sum + 1 + line.length())
+                    .block();
+            default:
+                return MappedFileSource.chunks(file)
+                    .reduce(0L, (sum, chunk) -> sum ^ fold(chunk))
+                    .block();
+        }
+    }
+
+    static long fold(ByteBuffer chunk) {
+        long acc = 0;
+        int i = chunk.position();
+        for (; i + Long.BYTES <= chunk.limit(); i += Long.BYTES) {
+            acc ^= chunk.getLong(i);
+        }
+        for (; i < chunk.limit(); i++) {
+            acc ^= chunk.get(i);
+        }
+        return acc;
+    }
+}
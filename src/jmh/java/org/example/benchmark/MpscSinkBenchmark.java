@@ -0,0 +1,141 @@
+package org.example.benchmark;
+
+import org.example.sink.MpscSink;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.reactivestreams.Subscription;
+import reactor.core.publisher.BaseSubscriber;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * 생산자 스레드 1, 4, 16, 64 개가 하나의 구독자에게 요소를 보낼 때의 처리량 (모든 생산자 합, 요소/s)
+ *  * mpsc    : MpscSink (capacity 1024) 의 emitNext
+ *  * unicast : Sinks.many().unicast().onBackpressureBuffer() 의 emitNext(busyLooping).
+ *              동시에 호출하면 FAIL_NON_SERIALIZED 로 실패하므로 돌면서 다시 시도한다.
+ *  * create  : Flux.create 의 FluxSink.next (SerializedFluxSink, 경쟁이 생기면 큐에 넣는다.)
+ *
+ * 구독자는 무제한 요청하는 동기 구독자라서 전달은 생산자 스레드 중 하나에서 일어난다.
+ * 생산자는 미리 만든 스레드 풀에서 돌며, 측정에는 ITEMS 개를 나눠 보내고 구독자가 완료를 받을 때까지가 포함된다.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MpscSinkBenchmark
+{
+    static final int ITEMS = 1 << 18;
+    static final Integer ITEM = 42;
+
+    @Param({"1", "4", "16", "64"})
+    public int producers;
+
+    ExecutorService executor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        executor = Executors.newFixedThreadPool(producers);
+        // 스레드를 미리 만들어 둔다.
+        produce(value -> { });
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    static BaseSubscriber<Integer> consumer(Blackhole bh, CountDownLatch completed) {
+        return new BaseSubscriber<>() {
+            @Override
+            protected void hookOnSubscribe(Subscription subscription) {
+                requestUnbounded();
+            }
+
+            @Override
+            protected void hookOnNext(Integer value) {
+                bh.consume(value);
+            }
+
+            @Override
+            protected void hookOnComplete() {
+                completed.countDown();
+            }
+        };
+    }
+
+    /**
+     * producers 개 스레드가 ITEMS / producers 개씩 emit 을 부르고 모두 끝날 때까지 기다린다.
+     */
+    void produce(Consumer<Integer> emit) {
+        int perProducer = ITEMS / producers;
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[producers];
+        for (int p = 0; p < producers; p++) {
+            futures[p] = CompletableFuture.runAsync(() -> {
+                for (int i = 0; i < perProducer; i++) {
+                    emit.accept(ITEM);
+                }
+            }, executor);
+        }
+        CompletableFuture.allOf(futures).join();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ITEMS)
+    public void mpsc(Blackhole bh) throws InterruptedException {
+        CountDownLatch completed = new CountDownLatch(1);
+        MpscSink<Integer> sink = new MpscSink<>(1024);
+        sink.asFlux().subscribe(consumer(bh, completed));
+        produce(sink::emitNext);
+        sink.tryEmitComplete();
+        completed.await();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ITEMS)
+    public void unicast(Blackhole bh) throws InterruptedException {
+        CountDownLatch completed = new CountDownLatch(1);
+        Sinks.Many<Integer> sink = Sinks.many().unicast().onBackpressureBuffer();
+        sink.asFlux().subscribe(consumer(bh, completed));
+        Sinks.EmitFailureHandler retry = Sinks.EmitFailureHandler.busyLooping(Duration.ofSeconds(10));
+        produce(value -> sink.emitNext(value, retry));
+        sink.tryEmitComplete();
+        completed.await();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ITEMS)
+    public void create(Blackhole bh) throws InterruptedException {
+        CountDownLatch completed = new CountDownLatch(1);
+        AtomicReference<FluxSink<Integer>> ref = new AtomicReference<>();
+        Flux.<Integer>create(ref::set).subscribe(consumer(bh, completed));
+        FluxSink<Integer> sink = ref.get();
+        produce(sink::next);
+        sink.complete();
+        completed.await();
+    }
+}
@@ -0,0 +1,95 @@
+package org.example.benchmark;
+
+import org.example.sink.RingBufferMulticastSink;
+import org.example.sink.SlowConsumerPolicy;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.reactivestreams.Subscription;
+import reactor.core.publisher.BaseSubscriber;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 구독자 1, 8, 64 명에게 같은 요소를 나눠줄 때의 처리량(생산 요소/s)을 비교한다.
+ *  * share      : Flux.range(..).publish().autoConnect(n). share() 는 publish().refCount() 이며,
+ *                 동기 소스가 첫 구독자에게 다 흘러가 버리지 않도록 n 명이 모두 구독한 뒤 연결한다.
+ *  * sinks      : Sinks.many().multicast().onBackpressureBuffer()
+ *  * ringBuffer : RingBufferMulticastSink (BLOCK)
+ *
+ * 구독자는 모두 무제한 요청하는 동기 구독자라서 순수한 팬아웃 비용을 잰다.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MulticastSinkBenchmark
+{
+    static final int ITEMS = 100_000;
+    static final Integer ITEM = 42;
+
+    @Param({"1", "8", "64"})
+    public int subscribers;
+
+    static BaseSubscriber<Integer> consumer(Blackhole bh) {
+        return new BaseSubscriber<>() {
+            @Override
+            protected void hookOnSubscribe(Subscription subscription) {
+                requestUnbounded();
+            }
+
+            @Override
+            protected void hookOnNext(Integer value) {
+                bh.consume(value);
+            }
+        };
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ITEMS)
+    public void share(Blackhole bh) {
+        Flux<Integer> shared = Flux.range(0, ITEMS).publish().autoConnect(subscribers);
+        for (int i = 0; i < subscribers; i++) {
+            shared.subscribe(consumer(bh));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ITEMS)
+    public void sinks(Blackhole bh) {
+        Sinks.Many<Integer> sink = Sinks.many().multicast().onBackpressureBuffer();
+        for (int i = 0; i < subscribers; i++) {
+            sink.asFlux().subscribe(consumer(bh));
+        }
+        for (int i = 0; i < ITEMS; i++) {
+            sink.tryEmitNext(ITEM);
+        }
+        sink.tryEmitComplete();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ITEMS)
+    public void ringBuffer(Blackhole bh) {
+        RingBufferMulticastSink<Integer> sink = new RingBufferMulticastSink<>(1024, SlowConsumerPolicy.BLOCK);
+        for (int i = 0; i < subscribers; i++) {
+            sink.asFlux().subscribe(consumer(bh));
+        }
+        for (int i = 0; i < ITEMS; i++) {
+            sink.emitNext(ITEM);
+        }
+        sink.tryEmitComplete();
+    }
+}
@@ -0,0 +1,103 @@
+package org.example.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.function.Tuple2;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * TransferOperationTest, CombinationOperationTest 에서 사용하는 오퍼레이터 체인을 그대로 측정한다.
+ *
+ * 한 번의 op 는 size 개의 요소를 끝까지 흘려보내는 것이다.
+ * 따라서 ops/s 에 size 를 곱하면 초당 요소 처리량이 되고,
+ * gc 프로파일러가 남기는 gc.alloc.rate.norm(B/op)을 size 로 나누면 요소당 할당 바이트가 된다.
+ *
+ * delayElements, delaySubscription 은 시간을 재는 것이므로 제외했다.
+ * 요소는 고정된 단어 배열을 순환하므로 distinct 가 유지하는 키 수는 size 와 무관하게 일정하다.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class OperatorChainBenchmark
+{
+    static final String[] WORDS = {
+        "Micheal Jordan", "Scottie Pippen", "Steve Kerr", "Yellowstone",
+        "Grand Canyon", "dog", "cat", "bird"
+    };
+
+    @Param({"1000", "1000000", "100000000"})
+    public int size;
+
+    Flux<String> words(int count) {
+        return Flux.range(0, count).map(i -> WORDS[i & (WORDS.length - 1)]);
+    }
+
+    static void drain(Flux<?> flux, Blackhole bh) {
+        flux.doOnNext(bh::consume).blockLast();
+    }
+
+    @Benchmark
+    public void baseline(Blackhole bh) {
+        drain(words(size), bh);
+    }
+
+    @Benchmark
+    public void map(Blackhole bh) {
+        drain(words(size).map(p -> p + "kk"), bh);
+    }
+
+    @Benchmark
+    public void filter(Blackhole bh) {
+        drain(words(size).filter(np -> !np.contains(" ")), bh);
+    }
+
+    @Benchmark
+    public void distinct(Blackhole bh) {
+        drain(words(size).distinct(), bh);
+    }
+
+    @Benchmark
+    public void flatMap(Blackhole bh) {
+        drain(words(size).flatMap(n -> Mono.just(n).map(p -> p + "kk")), bh);
+    }
+
+    @Benchmark
+    public void flatMapSubscribeOnParallel(Blackhole bh) {
+        drain(words(size)
+            .flatMap(n -> Mono.just(n).map(p -> p + "kk"))
+            .subscribeOn(Schedulers.parallel()), bh);
+    }
+
+    @Benchmark
+    public void mergeWith(Blackhole bh) {
+        int half = size / 2;
+        drain(words(half).mergeWith(words(size - half)), bh);
+    }
+
+    @Benchmark
+    public void zip(Blackhole bh) {
+        Flux<Tuple2<String, String>> zipped = Flux.zip(words(size), words(size));
+        drain(zipped, bh);
+    }
+
+    @Benchmark
+    public void zipWithCombinator(Blackhole bh) {
+        drain(Flux.zip(words(size), words(size), (c, f) -> c + " eats " + f), bh);
+    }
+}
@@ -0,0 +1,94 @@
+package org.example.benchmark;
+
+import org.example.parallel.OrderedParallelMap;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CPU 를 쓰는 map 을 코어 수만큼 나눠 실행할 때의 초당 처리 요소 수를 비교한다.
+ *  * orderedParallelMap : OrderedParallelMap (순서 유지)
+ *  * flatMapSequential  : flatMapSequential(i -> Mono.fromCallable(..).subscribeOn(..)) (순서 유지)
+ *  * parallelRunOn      : parallel().runOn(..).map(..).sequential() (순서가 섞인다. 상한 참고용)
+ *
+ * work 는 요소 하나에 Blackhole.consumeCPU 로 쓰는 시간의 크기다.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OrderedParallelMapBenchmark
+{
+    static final int ITEMS = 10_000;
+
+    @Param({"100", "1000"})
+    public long work;
+
+    @Param({"256"})
+    public int window;
+
+    int parallelism;
+    Scheduler scheduler;
+
+    @Setup
+    public void setUp() {
+        parallelism = Runtime.getRuntime().availableProcessors();
+        scheduler = Schedulers.newParallel("bench", parallelism);
+    }
+
+    @TearDown
+    public void tearDown() {
+        scheduler.dispose();
+    }
+
+    Integer cpuHeavy(Integer i) {
+        Blackhole.consumeCPU(work);
+        return i;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ITEMS)
+    public Integer orderedParallelMap() {
+        return Flux.range(0, ITEMS)
+            .transform(OrderedParallelMap.map(this::cpuHeavy, parallelism, window, scheduler))
+            .blockLast();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ITEMS)
+    public Integer flatMapSequential() {
+        return Flux.range(0, ITEMS)
+            .flatMapSequential(i -> Mono.fromCallable(() -> cpuHeavy(i)).subscribeOn(scheduler), window)
+            .blockLast();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ITEMS)
+    public Integer parallelRunOn() {
+        return Flux.range(0, ITEMS)
+            .parallel(parallelism)
+            .runOn(scheduler)
+            .map(this::cpuHeavy)
+            .sequential()
+            .blockLast();
+    }
+}
@@ -0,0 +1,67 @@
+package org.example.benchmark;
+
+import org.example.primitive.IntFlux;
+import org.example.primitive.LongFlux;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import reactor.core.publisher.Flux;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Flux.range(..).map(i -> i + 10) 형태의 카운터 파이프라인을 박싱된 Flux 와 IntFlux/LongFlux 로 비교한다.
+ * gc.alloc.rate.norm 을 size 로 나누면 요소당 할당 바이트가 된다.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PrimitiveFluxBenchmark
+{
+    @Param({"1000", "1000000"})
+    public int size;
+
+    @Benchmark
+    public long boxedFlux() {
+        return Flux.range(0, size)
+            .map(i -> i + 10)
+            .filter(i -> (i & 1) == 0)
+            .reduce(0L, (acc, i) -> acc + i)
+            .block();
+    }
+
+    @Benchmark
+    public long intFlux() {
+        return IntFlux.range(0, size)
+            .map(i -> i + 10)
+            .filter(i -> (i & 1) == 0)
+            .sum()
+            .block();
+    }
+
+    @Benchmark
+    public long boxedLongFlux() {
+        return Flux.range(0, size)
+            .map(i -> i * 31L)
+            .reduce(Long.MIN_VALUE, Math::max)
+            .block();
+    }
+
+    @Benchmark
+    public long longFlux() {
+        return LongFlux.range(0, size)
+            .map(i -> i * 31L)
+            .max()
+            .block();
+    }
+}
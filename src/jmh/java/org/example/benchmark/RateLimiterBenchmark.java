@@ -0,0 +1,123 @@
+package org.example.benchmark;
+
+import org.example.ratelimit.RateLimitPolicy;
+import org.example.ratelimit.RateLimiter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * 16 개 스레드가 하나의 제한기를 함께 쓸 때의 처리량 (초당 시도 수, 모든 스레드 합)
+ *  * open      : 제한이 걸리지 않을 만큼 허용량이 많다. 모든 시도가 허용량을 받는다. (RateLimiter 는 CAS)
+ *  * saturated : 초당 1 개만 허용한다. 거의 모든 시도가 거절된다. (RateLimiter 는 읽기만 한다.)
+ *  * synchronized : 비교용. 토큰 수와 마지막 충전 시각을 synchronized 로 고치는 흔한 토큰 버킷
+ *  * drop      : Flux.range(0, 1,000).transform(limit(DROP)) 의 요소당 처리량. Leased 는 lease(64)
+ * 시간은 모두 같은 스케줄러의 now() 로 잰다.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(16)
+public class RateLimiterBenchmark
+{
+    static final int ELEMENTS = 1_000;
+
+    RateLimiter open;
+    RateLimiter saturated;
+    SynchronizedTokenBucket synchronizedOpen;
+    SynchronizedTokenBucket synchronizedSaturated;
+    Function<Flux<Integer>, Flux<Integer>> drop;
+    Function<Flux<Integer>, Flux<Integer>> dropLeased;
+    Flux<Integer> source;
+
+    @Setup
+    public void setUp() {
+        Scheduler clock = Schedulers.parallel();
+        open = RateLimiter.builder(1_000_000_000, Duration.ofSeconds(1)).scheduler(clock).build();
+        saturated = RateLimiter.builder(1, Duration.ofSeconds(1)).scheduler(clock).build();
+        synchronizedOpen = new SynchronizedTokenBucket(1_000_000_000, clock);
+        synchronizedSaturated = new SynchronizedTokenBucket(1, clock);
+        drop = open.limit(RateLimitPolicy.DROP);
+        dropLeased = RateLimiter.builder(1_000_000_000, Duration.ofSeconds(1)).lease(64).scheduler(clock).build().limit(RateLimitPolicy.DROP);
+        source = Flux.range(0, ELEMENTS);
+    }
+
+    @Benchmark
+    public boolean open() {
+        return open.tryAcquire();
+    }
+
+    @Benchmark
+    public boolean openSynchronized() {
+        return synchronizedOpen.tryAcquire();
+    }
+
+    @Benchmark
+    public boolean saturated() {
+        return saturated.tryAcquire();
+    }
+
+    @Benchmark
+    public boolean saturatedSynchronized() {
+        return synchronizedSaturated.tryAcquire();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ELEMENTS)
+    public Long drop() {
+        return source.transform(drop).count().block();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ELEMENTS)
+    public Long dropLeased() {
+        return source.transform(dropLeased).count().block();
+    }
+
+    static final class SynchronizedTokenBucket
+    {
+        final long capacity;
+        final double permitsPerNano;
+        final Scheduler clock;
+        double tokens;
+        long lastRefill;
+
+        SynchronizedTokenBucket(long permitsPerSecond, Scheduler clock) {
+            this.capacity = permitsPerSecond;
+            this.permitsPerNano = permitsPerSecond / 1e9;
+            this.clock = clock;
+            this.tokens = permitsPerSecond;
+            this.lastRefill = clock.now(TimeUnit.NANOSECONDS);
+        }
+
+        synchronized boolean tryAcquire() {
+            long now = clock.now(TimeUnit.NANOSECONDS);
+            tokens = Math.min(capacity, tokens + (now - lastRefill) * permitsPerNano);
+            lastRefill = now;
+            if (tokens >= 1) {
+                tokens -= 1;
+                return true;
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package org.example.benchmark;
+
+import org.example.primitive.LongFlux;
+import org.example.zip.ReusableZip;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import reactor.core.publisher.Flux;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 가격(price)과 수량(quantity) 스트림을 짝지어 거래대금 합계를 구할 때의 초당 처리 쌍 수
+ *  * fluxZip           : Flux.zip(a, b). 쌍마다 Tuple2 를 할당한다.
+ *  * fluxZipCombinator : Flux.zip(a, b, combinator). 쌍마다 combinator 결과(Long)를 할당한다.
+ *  * reusableZip       : ReusableZip.zip. 같은 ZipSlot 을 재사용한다.
+ *  * zipLongs          : ReusableZip.zipLongs. 박싱 없이 256 쌍씩 long[] 두 개에 담는다.
+ * 박싱된 소스는 미리 만든 Long[] 를 내보내므로 소스 쪽 할당은 측정에 들어가지 않는다.
+ * 할당량은 -prof gc 의 gc.alloc.rate.norm 을 쌍 수로 나눠서 본다.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReusableZipBenchmark
+{
+    static final int ITEMS = 100_000;
+
+    Long[] prices;
+    Long[] quantities;
+    long[][] priceChunks;
+    long[][] quantityChunks;
+
+    long notional;
+
+    @Setup
+    public void setUp() {
+        prices = new Long[ITEMS];
+        quantities = new Long[ITEMS];
+        long[] rawPrices = new long[ITEMS];
+        long[] rawQuantities = new long[ITEMS];
+        for (int i = 0; i < ITEMS; i++) {
+            rawPrices[i] = 10_000 + i % 97;
+            rawQuantities[i] = 1 + i % 13;
+            prices[i] = rawPrices[i];
+            quantities[i] = rawQuantities[i];
+        }
+        priceChunks = chunk(rawPrices);
+        quantityChunks = chunk(rawQuantities);
+    }
+
+    static long[][] chunk(long[] values) {
+        int size = LongFlux.DEFAULT_CHUNK_SIZE;
+        long[][] chunks = new long[(values.length + size - 1) / size][];
+        for (int i = 0; i < chunks.length; i++) {
+            chunks[i] = Arrays.copyOfRange(values, i * size, Math.min(values.length, (i + 1) * size));
+        }
+        return chunks;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ITEMS)
+    public long fluxZip() {
+        notional = 0;
+        Flux.zip(Flux.fromArray(prices), Flux.fromArray(quantities))
+            .doOnNext(t -> notional += t.getT1() * t.getT2())
+            .blockLast();
+        return notional;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ITEMS)
+    public long fluxZipCombinator() {
+        notional = 0;
+        Flux.zip(Flux.fromArray(prices), Flux.fromArray(quantities), (p, q) -> p * q)
+            .doOnNext(n -> notional += n)
+            .blockLast();
+        return notional;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ITEMS)
+    public long reusableZip() {
+        notional = 0;
+        ReusableZip.zip(Flux.fromArray(prices), Flux.fromArray(quantities))
+            .doOnNext(slot -> notional += slot.getT1() * slot.getT2())
+            .blockLast();
+        return notional;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ITEMS)
+    public long zipLongs() {
+        notional = 0;
+        ReusableZip.zipLongs(LongFlux.fromChunks(Flux.fromArray(priceChunks)),
+                LongFlux.fromChunks(Flux.fromArray(quantityChunks)))
+            .doOnNext(batch -> {
+                long[] p = batch.t1();
+                long[] q = batch.t2();
+                long sum = 0;
+                for (int i = 0; i < batch.size(); i++) {
+                    sum += p[i] * q[i];
+                }
+                notional += sum;
+            })
+            .blockLast();
+        return notional;
+    }
+}
@@ -0,0 +1,84 @@
+package org.example.benchmark;
+
+import org.example.log.SegmentLog;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import reactor.core.publisher.Flux;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * SegmentLog 에 100 바이트 레코드를 쓰고 읽는 속도 (초당 레코드 수)
+ *  * append : 1,000 개를 append(Flux) 로 쓰고 fsync 가 끝날 때까지 기다린다. 16MB 마다 세그먼트를 바꾸고 64MB 만 남긴다.
+ *  * replay : 미리 써 둔 100,000 개(약 10MB, 세그먼트 여럿)를 처음부터 mmap 으로 다시 읽는다.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SegmentLogBenchmark
+{
+    static final int APPEND_RECORDS = 1_000;
+    static final int REPLAY_RECORDS = 100_000;
+
+    Path appendDir;
+    Path replayDir;
+    SegmentLog appendLog;
+    SegmentLog replayLog;
+    Flux<ByteBuffer> records;
+
+    @Setup
+    public void setUp() throws IOException {
+        byte[] record = "x".repeat(100).getBytes(StandardCharsets.US_ASCII);
+        records = Flux.range(0, APPEND_RECORDS).map(i -> ByteBuffer.wrap(record));
+        appendDir = Files.createTempDirectory("segment-log-append");
+        appendLog = SegmentLog.builder(appendDir).segmentBytes(16 * 1024 * 1024).retentionBytes(64 * 1024 * 1024).open();
+        replayDir = Files.createTempDirectory("segment-log-replay");
+        replayLog = SegmentLog.builder(replayDir).segmentBytes(4 * 1024 * 1024).open();
+        replayLog.append(Flux.range(0, REPLAY_RECORDS).map(i -> ByteBuffer.wrap(record))).blockLast();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        appendLog.dispose();
+        replayLog.dispose();
+        for (Path dir : new Path[] {appendDir, replayDir}) {
+            try (Stream<Path> files = Files.walk(dir)) {
+                for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                    Files.delete(file);
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(APPEND_RECORDS)
+    public Object append() {
+        return appendLog.append(records).blockLast();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(REPLAY_RECORDS)
+    public Object replay() {
+        return replayLog.read(0, REPLAY_RECORDS).count().block();
+    }
+}
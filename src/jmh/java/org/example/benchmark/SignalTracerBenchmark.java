@@ -0,0 +1,64 @@
+package org.example.benchmark;
+
+import org.example.trace.SignalTracer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import reactor.core.publisher.Flux;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Flux.range(0, 100_000) 에 추적 연산자를 하나 붙였을 때 요소 하나당 시간(ns)
+ *  * plain   : 추적 없음
+ *  * traced  : 모든 onNext 기록 (System.nanoTime() 한 번 + 링 버퍼 쓰기 + 히스토그램 기록)
+ *  * sampled : 64 개 중 하나만 기록
+ * gc.alloc.rate.norm 으로 추적 연산자가 요소마다 할당하지 않는 것을 확인한다.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SignalTracerBenchmark
+{
+    static final int ITEMS = 100_000;
+
+    Flux<Integer> plain;
+    Flux<Integer> traced;
+    Flux<Integer> sampled;
+
+    @Setup
+    public void setUp() {
+        plain = Flux.range(0, ITEMS);
+        traced = Flux.range(0, ITEMS).transform(SignalTracer.create().trace("range"));
+        sampled = Flux.range(0, ITEMS).transform(SignalTracer.create(SignalTracer.DEFAULT_RECORDS_PER_THREAD, 64).trace("range"));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ITEMS)
+    public Integer plain() {
+        return plain.blockLast();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ITEMS)
+    public Integer traced() {
+        return traced.blockLast();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ITEMS)
+    public Integer sampled() {
+        return sampled.blockLast();
+    }
+}
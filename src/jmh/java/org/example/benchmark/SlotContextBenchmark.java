@@ -0,0 +1,100 @@
+package org.example.benchmark;
+
+import org.example.context.SlotContext;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import reactor.core.publisher.Mono;
+import reactor.util.context.Context;
+import reactor.util.context.ContextView;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * 키가 keys 개인 Context 를 쓰는 Mono 를 한 번 구독하는 데 걸리는 비용 (초당 구독 수)
+ *  * reactor : 문자열 키와 Reactor 기본 Context. 키가 5 개를 넘으면 ContextN(LinkedHashMap) 이 된다.
+ *  * slot    : SlotContext 에 미리 등록한 키
+ *
+ * read  : 미리 만든 Context 아래에서 deferContextual 과 transformDeferredContextual 이 각각 모든 키를 읽는다.
+ * write : contextWrite(ctx -&gt; ctx.put(...)) 를 keys 번 이어 붙인 체인을 구독한다. 단계마다 Context 를 새로 만든다.
+ *
+ * 조립은 setup 에서 한 번만 하므로 측정값에는 구독과 Context 읽기/쓰기만 들어간다.
+ * 구독 한 번이 만드는 바이트 수는 gc.alloc.rate.norm 으로 확인한다.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SlotContextBenchmark
+{
+    @Param({"reactor", "slot"})
+    public String context;
+
+    @Param({"4", "12"})
+    public int keys;
+
+    Mono<Integer> read;
+    Mono<Integer> write;
+    int result;
+
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        boolean slot = context.equals("slot");
+        Object[] keyArray = new Object[keys];
+        for (int i = 0; i < keys; i++) {
+            keyArray[i] = slot ? SlotContext.key("bench.key" + i) : "bench.key" + i;
+        }
+
+        Context full = slot ? SlotContext.empty() : Context.empty();
+        for (int i = 0; i < keys; i++) {
+            full = full.put(keyArray[i], "value" + i);
+        }
+        Context prebuilt = full;
+        read = Mono.deferContextual(ctx -> Mono.just(readAll(ctx, keyArray)))
+            .transformDeferredContextual((mono, ctx) -> mono.map(sum -> sum + readAll(ctx, keyArray)))
+            .contextWrite(ctx -> prebuilt);
+
+        Mono<Integer> chain = Mono.deferContextual(ctx -> Mono.just(ctx.size()));
+        for (int i = keys - 1; i >= 1; i--) {
+            Object key = keyArray[i];
+            String value = "value" + i;
+            chain = chain.contextWrite(ctx -> ctx.put(key, value));
+        }
+        Function<Context, Context> first = slot
+            ? SlotContext.write((SlotContext.Key<String>) keyArray[0], "value0")
+            : ctx -> ctx.put(keyArray[0], "value0");
+        write = chain.contextWrite(first);
+    }
+
+    static int readAll(ContextView ctx, Object[] keys) {
+        int sum = 0;
+        for (Object key : keys) {
+            sum += ctx.<String>get(key).length();
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public int read() {
+        read.subscribe(v -> result = v);
+        return result;
+    }
+
+    @Benchmark
+    public int write() {
+        write.subscribe(v -> result = v);
+        return result;
+    }
+}
@@ -0,0 +1,68 @@
+package org.example.benchmark;
+
+import org.example.merge.SortedMerge;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import reactor.core.publisher.Flux;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 이미 정렬된 K 개의 소스를 하나의 정렬된 시퀀스로 합칠 때의 초당 처리 요소 수
+ *  * mergeComparing : Flux.mergeComparing. 요소마다 K 개의 머리를 모두 비교한다.
+ *  * sortedMerge    : SortedMerge. loser tree 로 요소마다 log K 번 비교한다.
+ * i 번째 소스는 i, i + K, i + 2K, ... 를 내보내므로 매번 다른 소스가 이긴다.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SortedMergeBenchmark
+{
+    static final int ITEMS = 102_400;
+
+    @Param({"2", "64", "1024"})
+    public int sources;
+
+    List<Flux<Integer>> partitions;
+    Flux<Integer>[] partitionArray;
+
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        partitions = new ArrayList<>(sources);
+        int perSource = ITEMS / sources;
+        for (int i = 0; i < sources; i++) {
+            int start = i;
+            partitions.add(Flux.range(0, perSource).map(n -> n * sources + start));
+        }
+        partitionArray = partitions.toArray(new Flux[0]);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ITEMS)
+    public Integer mergeComparing() {
+        return Flux.mergeComparing(Comparator.<Integer>naturalOrder(), partitionArray).blockLast();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ITEMS)
+    public Integer sortedMerge() {
+        return SortedMerge.merge(Comparator.<Integer>naturalOrder(), partitions).blockLast();
+    }
+}
@@ -0,0 +1,76 @@
+package org.example.benchmark;
+
+import org.example.replay.ReplayCodec;
+import org.example.replay.TieredReplay;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import reactor.core.publisher.Flux;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 이미 받아 둔 문자열 1,000,000 개를 늦게 온 구독자가 처음부터 다시 받는 속도 (초당 요소 수)
+ *  * cache    : Flux.cache(). 1,000,000 개 모두 힙에 객체로 남아 있다.
+ *  * offHeap  : TieredReplay. 힙에 1,024 개, 나머지는 off-heap 블록 (offHeapBytes 제한 없음)
+ *  * disk     : TieredReplay. 힙에 1,024 개, off-heap 에 1MB, 나머지는 임시 파일
+ * TieredReplay 의 처리량은 decode 비용만큼 낮아지는 대신 힙에 남는 것은 최근 요소와 블록 목록뿐이다.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TieredReplayBenchmark
+{
+    static final int ELEMENTS = 1_000_000;
+
+    @Param({"cache", "offHeap", "disk"})
+    public String replay;
+
+    Flux<String> flux;
+    TieredReplay<String> tiered;
+
+    @Setup
+    public void setUp() {
+        Flux<String> source = Flux.range(0, ELEMENTS).map(i -> "value-" + i);
+        switch (replay) {
+            case "cache":
+                flux = source.cache();
+                break;
+            case "offHeap":
+                tiered = TieredReplay.builder(source, ReplayCodec.utf8()).heapElements(1024).offHeapBytes(Long.MAX_VALUE).build();
+                flux = tiered.asFlux();
+                break;
+            default:
+                tiered = TieredReplay.builder(source, ReplayCodec.utf8()).heapElements(1024).offHeapBytes(1024 * 1024).build();
+                flux = tiered.asFlux();
+                break;
+        }
+        flux.blockLast();
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (tiered != null) {
+            tiered.dispose();
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ELEMENTS)
+    public Object lateSubscriber() {
+        return flux.count().block();
+    }
+}
@@ -0,0 +1,117 @@
+package org.example.benchmark;
+
+import org.example.scheduler.VirtualThreadScheduler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 1ms 씩 블로킹되는 호출 10,000 개를 한꺼번에 subscribeOn 으로 넘겼을 때의 처리량(호출/s)과 p99 지연을 비교한다.
+ *  * boundedElastic : Schedulers.boundedElastic(). 스레드가 코어 수 x 10 개로 묶여 있어 나머지는 큐에서 기다린다.
+ *  * virtual        : VirtualThreadScheduler (maxConcurrency = 10,000)
+ *
+ * 지연은 호출을 구독한 시점부터 결과가 나온 시점까지이며, 큐에서 기다린 시간이 포함된다.
+ * p50/p99 는 JMH 결과에 들어가지 않으므로 iteration 마다 콘솔에 출력한다.
+ * JDK 21 미만에서는 VirtualThreadScheduler 가 플랫폼 스레드로 동작한다는 점에 주의한다. (출력에 함께 표시한다.)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class VirtualThreadSchedulerBenchmark
+{
+    static final int CALLS = 10_000;
+
+    @Param({"boundedElastic", "virtual"})
+    public String scheduler;
+
+    @Param({"1"})
+    public long blockMillis;
+
+    Scheduler target;
+    long[] latencies = new long[CALLS];
+    long[] p99s = new long[0];
+    long[] p50s = new long[0];
+
+    @Setup
+    public void setUp() {
+        target = scheduler.equals("virtual")
+            ? VirtualThreadScheduler.create("bench-vt", CALLS)
+            : Schedulers.boundedElastic();
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (target instanceof VirtualThreadScheduler) {
+            target.dispose();
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void resetLatencies() {
+        p50s = new long[0];
+        p99s = new long[0];
+    }
+
+    @TearDown(Level.Iteration)
+    public void printLatencies() {
+        if (p99s.length == 0) {
+            return;
+        }
+        Arrays.sort(p50s);
+        Arrays.sort(p99s);
+        System.out.printf("%n%s%s: median of p50 = %.2f ms, median of p99 = %.2f ms (%d invocations)%n",
+            scheduler, target instanceof VirtualThreadScheduler ? (VirtualThreadScheduler.isVirtual() ? "(virtual)" : "(platform)") : "",
+            p50s[p50s.length / 2] / 1e6, p99s[p99s.length / 2] / 1e6, p99s.length);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CALLS)
+    public long blockingCalls() {
+        long[] latencies = this.latencies;
+        Long total = Flux.range(0, CALLS)
+            .flatMap(i -> {
+                long start = System.nanoTime();
+                return Mono.fromCallable(() -> {
+                        Thread.sleep(blockMillis); // 블로킹 I/O 흉내
+                        return i;
+                    })
+                    .subscribeOn(target)
+                    .doOnNext(n -> latencies[n] = System.nanoTime() - start);
+            }, CALLS)
+            .count()
+            .block();
+
+        long[] sorted = latencies.clone();
+        Arrays.sort(sorted);
+        p50s = append(p50s, sorted[CALLS / 2]);
+        p99s = append(p99s, sorted[CALLS * 99 / 100]);
+        return total;
+    }
+
+    private static long[] append(long[] values, long value) {
+        long[] copy = Arrays.copyOf(values, values.length + 1);
+        copy[values.length] = value;
+        return copy;
+    }
+}
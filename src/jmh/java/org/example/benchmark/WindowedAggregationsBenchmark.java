@@ -0,0 +1,87 @@
+package org.example.benchmark;
+
+import org.example.window.WindowSpec;
+import org.example.window.WindowStats;
+import org.example.window.WindowedAggregations;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import reactor.core.publisher.Flux;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 1,000,000 개의 double 을 100,000 개씩 10 개 윈도우로 나누어 개수/합/최솟값/최댓값/평균/p99 를 구하는 속도 (초당 요소 수)
+ *  * collectList : buffer(100,000) 으로 모은 뒤 정렬해서 계산한다. 윈도우 하나만큼의 요소가 힙에 쌓인다.
+ *  * tumbling    : WindowedAggregations.stats(tumbling(100,000)). 윈도우마다 t-digest 하나
+ *  * sliding     : WindowedAggregations.stats(sliding(100,000, 10,000)). 결과가 10 배 많고 pane 10 개를 두 스택으로 합친다.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WindowedAggregationsBenchmark
+{
+    static final int ELEMENTS = 1_000_000;
+    static final int WINDOW = 100_000;
+
+    @Param({"collectList", "tumbling", "sliding"})
+    public String aggregation;
+
+    Flux<Double> source;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        double[] values = new double[ELEMENTS];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = Math.exp(random.nextGaussian());
+        }
+        source = Flux.range(0, ELEMENTS).map(i -> values[i]);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ELEMENTS)
+    public double stats() {
+        switch (aggregation) {
+            case "collectList":
+                return source.buffer(WINDOW).map(WindowedAggregationsBenchmark::exact).reduce(0.0, Double::sum).block();
+            case "tumbling":
+                return source.transform(WindowedAggregations.stats(WindowSpec.tumbling(WINDOW), Double::doubleValue))
+                    .map(stats -> stats.quantile(0.99) + stats.mean())
+                    .reduce(0.0, Double::sum)
+                    .block();
+            default:
+                return source.transform(WindowedAggregations.stats(WindowSpec.sliding(WINDOW, WINDOW / 10), Double::doubleValue))
+                    .map(stats -> stats.quantile(0.99) + stats.mean())
+                    .reduce(0.0, Double::sum)
+                    .block();
+        }
+    }
+
+    static double exact(List<Double> window) {
+        double[] values = new double[window.size()];
+        double sum = 0;
+        for (int i = 0; i < values.length; i++) {
+            values[i] = window.get(i);
+            sum += values[i];
+        }
+        Arrays.sort(values);
+        WindowStats stats = new WindowStats(values.length, sum, values[0], values[values.length - 1], null);
+        return values[(int) (values.length * 0.99)] + stats.mean();
+    }
+}
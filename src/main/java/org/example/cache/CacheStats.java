@@ -0,0 +1,46 @@
+package org.example.cache;
+
+import java.time.Duration;
+
+/**
+ * ReactiveCache 의 누적 통계 스냅샷
+ *
+ * @param hitCount         캐시에 값이 있어 바로 반환한 횟수
+ * @param missCount        값이 없거나 만료되어 로딩을 기다린 횟수 (진행 중인 로딩에 합류한 경우 포함)
+ * @param loadSuccessCount 로딩이 값을 내고 끝난 횟수 (refresh 포함)
+ * @param loadFailureCount 로딩이 에러로 끝나거나 값 없이 끝난 횟수 (refresh 포함)
+ * @param totalLoadTime    모든 로딩에 걸린 시간의 합
+ * @param maxLoadTime      가장 오래 걸린 로딩 시간
+ * @param evictionCount    크기(무게) 제한 때문에 쫓겨난 항목 수
+ * @param expirationCount  expireAfterWrite 로 만료되어 제거된 항목 수
+ */
+public record CacheStats(long hitCount,
+                         long missCount,
+                         long loadSuccessCount,
+                         long loadFailureCount,
+                         Duration totalLoadTime,
+                         Duration maxLoadTime,
+                         long evictionCount,
+                         long expirationCount)
+{
+    public long requestCount() {
+        return hitCount + missCount;
+    }
+
+    public double hitRate() {
+        long requests = requestCount();
+        return requests == 0 ? 1.0 : (double) hitCount / requests;
+    }
+
+    public long loadCount() {
+        return loadSuccessCount + loadFailureCount;
+    }
+
+    /**
+     * 로딩 한 번에 걸린 평균 시간
+     */
+    public Duration averageLoadPenalty() {
+        long loads = loadCount();
+        return loads == 0 ? Duration.ZERO : totalLoadTime.dividedBy(loads);
+    }
+}
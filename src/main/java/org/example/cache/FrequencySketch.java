@@ -0,0 +1,76 @@
+package org.example.cache;
+
+/**
+ * TinyLFU 의 빈도 추정기 (4비트 카운터를 쓰는 Count-Min sketch)
+ *
+ * long 하나에 카운터 16개를 담고, 키마다 서로 다른 4개의 카운터를 올린 뒤 그 최솟값을 빈도로 본다.
+ * 추가 횟수가 sampleSize 에 이르면 모든 카운터를 절반으로 줄여(aging) 오래된 인기도가 점점 사라지게 한다.
+ *
+ * 스레드 안전하지 않다. ReactiveCache 의 evictionLock 안에서만 사용한다.
+ */
+final class FrequencySketch
+{
+    private static final long[] SEEDS = {
+        0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L
+    };
+    private static final long RESET_MASK = 0x7777777777777777L;
+
+    private final long[] table;
+    private final int counterMask;
+    private final int sampleSize;
+    private int additions;
+
+    FrequencySketch(long expectedEntries) {
+        int entries = (int) Math.min(Math.max(expectedEntries, 16), 1 << 20);
+        int words = Integer.highestOneBit(entries - 1) << 1; // entries 이상인 2의 거듭제곱
+        this.table = new long[words];
+        this.counterMask = (words << 4) - 1;
+        this.sampleSize = 10 * entries;
+    }
+
+    static int spread(int hashCode) {
+        long h = hashCode * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 29));
+    }
+
+    private int counterIndex(int hash, int row) {
+        long h = (hash + SEEDS[row]) * SEEDS[row];
+        h += h >>> 32;
+        return (int) h & counterMask;
+    }
+
+    int frequency(int hashCode) {
+        int hash = spread(hashCode);
+        int frequency = Integer.MAX_VALUE;
+        for (int row = 0; row < 4; row++) {
+            int index = counterIndex(hash, row);
+            int count = (int) ((table[index >>> 4] >>> ((index & 15) << 2)) & 0xF);
+            frequency = Math.min(frequency, count);
+        }
+        return frequency;
+    }
+
+    void increment(int hashCode) {
+        int hash = spread(hashCode);
+        boolean added = false;
+        for (int row = 0; row < 4; row++) {
+            int index = counterIndex(hash, row);
+            int word = index >>> 4;
+            int shift = (index & 15) << 2;
+            if (((table[word] >>> shift) & 0xF) != 0xF) {
+                table[word] += 1L << shift;
+                added = true;
+            }
+        }
+        if (added && ++additions == sampleSize) {
+            reset();
+        }
+    }
+
+    private void reset() {
+        for (int i = 0; i < table.length; i++) {
+            table[i] = (table[i] >>> 1) & RESET_MASK;
+        }
+        additions = sampleSize >>> 1;
+    }
+}
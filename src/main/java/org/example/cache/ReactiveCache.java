@@ -0,0 +1,645 @@
+package org.example.cache;
+
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.ToIntBiFunction;
+
+/**
+ * 키별로 Mono 의 결과를 캐싱하는 비동기 로딩 캐시
+ *
+ * Mono.cache() 는 값 하나를 영원히 기억할 뿐 키도, 제거 정책도 없다.
+ * ReactiveCache 는 key -> Mono&lt;V&gt; 형태로 값을 조회하고, 없으면 loader 로 불러와 보관한다.
+ *  * 개수 또는 무게(weigher) 제한을 넘으면 W-TinyLFU 정책으로 제거할 항목을 고른다.
+ *  * expireAfterWrite 가 지나면 만료되고, refreshAfterWrite 가 지나면 기존 값을 반환하면서 뒤에서 다시 불러온다.
+ *  * 같은 키에 대한 동시 miss 는 하나의 loader 구독으로 합쳐진다. 만료 직후 몰려드는 요청도 upstream 에는 한 번만 간다.
+ *  * 적중/실패/로딩 시간 통계를 stats() 로 확인할 수 있다.
+ *
+ * <pre>
+ * ReactiveCache&lt;String, User&gt; cache = ReactiveCache.builder()
+ *     .maximumSize(10_000)
+ *     .expireAfterWrite(Duration.ofMinutes(10))
+ *     .refreshAfterWrite(Duration.ofMinutes(1))
+ *     .build(userClient::findById);
+ *
+ * cache.get("devljh").subscribe(...);
+ * </pre>
+ *
+ * W-TinyLFU
+ *  * 새 항목은 작은 window(전체의 1%) LRU 에 들어간다.
+ *  * window 에서 밀려난 항목은 main 영역의 probation 에서 기존 항목과 경쟁한다.
+ *    FrequencySketch 가 추정한 접근 빈도가 더 높은 쪽이 살아남는다.
+ *  * probation 에서 다시 접근된 항목은 protected(main 의 80%)로 승격된다.
+ *
+ * loader 가 빈 Mono 를 반환하면 캐싱하지 않고 빈 Mono 를 돌려준다. 에러도 캐싱하지 않는다.
+ * 진행 중인 로딩은 구독자가 모두 취소해도 끝까지 진행되어 캐시에 저장된다.
+ *
+ * 읽기는 ConcurrentHashMap 조회만으로 끝나며, 접근 기록은 잠금을 얻을 수 있을 때만 남긴다. (경합 시에는 기록을 버린다.)
+ */
+public final class ReactiveCache<K, V>
+{
+    private static final byte WINDOW = 0;
+    private static final byte PROBATION = 1;
+    private static final byte PROTECTED = 2;
+    private static final byte DEAD = 3;
+
+    private final ConcurrentHashMap<K, Node<K, V>> data = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<K, CompletableFuture<V>> loading = new ConcurrentHashMap<>();
+
+    private final Function<? super K, ? extends Mono<? extends V>> loader;
+    private final ToIntBiFunction<? super K, ? super V> weigher;
+    private final long maximumWeight;
+    private final long windowMaximum;
+    private final long protectedMaximum;
+    private final long expireNanos;  // 0 이면 만료 없음
+    private final long refreshNanos; // 0 이면 refresh 없음
+    private final Scheduler clock; // null 이면 System.nanoTime()
+
+    // 아래 필드는 evictionLock 으로 보호된다.
+    private final ReentrantLock evictionLock = new ReentrantLock();
+    private final FrequencySketch sketch;
+    private final AccessDeque<K, V> window = new AccessDeque<>();
+    private final AccessDeque<K, V> probation = new AccessDeque<>();
+    private final AccessDeque<K, V> protectedDeque = new AccessDeque<>();
+    private final WriteDeque<K, V> writeOrder = new WriteDeque<>();
+    private long windowWeight;
+    private long protectedWeight;
+    private long weightedSize;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder loadSuccesses = new LongAdder();
+    private final LongAdder loadFailures = new LongAdder();
+    private final LongAdder totalLoadNanos = new LongAdder();
+    private final AtomicLong maxLoadNanos = new AtomicLong();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+
+    private ReactiveCache(Builder<K, V> builder, Function<? super K, ? extends Mono<? extends V>> loader) {
+        this.loader = loader;
+        this.weigher = builder.weigher;
+        this.maximumWeight = builder.maximumWeight;
+        this.windowMaximum = Math.max(1, maximumWeight / 100);
+        this.protectedMaximum = (maximumWeight - windowMaximum) * 8 / 10;
+        this.expireNanos = builder.expireAfterWrite.toNanos();
+        this.refreshNanos = builder.refreshAfterWrite.toNanos();
+        this.clock = builder.clock;
+        this.sketch = new FrequencySketch(maximumWeight);
+    }
+
+    public static Builder<Object, Object> builder() {
+        return new Builder<>();
+    }
+
+    /**
+     * 캐시에 값이 있으면 바로, 없으면 loader 의 결과를 반환한다.
+     * 구독할 때 조회하므로 같은 Mono 를 다시 구독하면 그 시점의 캐시를 본다.
+     */
+    public Mono<V> get(K key) {
+        Objects.requireNonNull(key, "key");
+        return Mono.defer(() -> {
+            long now = now();
+            Node<K, V> node = data.get(key);
+            recordRead(key, node);
+            if (node != null && !isExpired(node, now)) {
+                hits.increment();
+                V value = node.value; // refresh 가 동기적으로 끝나더라도 이번 조회는 기존 값을 반환한다.
+                if (refreshNanos > 0 && now - node.writeTime >= refreshNanos) {
+                    refresh(key);
+                }
+                return Mono.just(value);
+            }
+            misses.increment();
+            return Mono.fromFuture(load(key), true);
+        });
+    }
+
+    /**
+     * 로딩 없이 캐시에 있는 값만 조회한다. 통계와 접근 기록에는 남지 않는다.
+     */
+    public V getIfPresent(K key) {
+        Node<K, V> node = data.get(key);
+        return node == null || isExpired(node, now()) ? null : node.value;
+    }
+
+    public void put(K key, V value) {
+        Objects.requireNonNull(key, "key");
+        Objects.requireNonNull(value, "value");
+        evictionLock.lock();
+        try {
+            write(key, value);
+        }
+        finally {
+            evictionLock.unlock();
+        }
+    }
+
+    /**
+     * 값을 제거한다. 진행 중인 로딩이 있다면 그 결과도 캐시에 저장되지 않는다.
+     */
+    public void invalidate(K key) {
+        evictionLock.lock();
+        try {
+            loading.remove(key);
+            Node<K, V> node = data.get(key);
+            if (node != null) {
+                remove(node);
+            }
+        }
+        finally {
+            evictionLock.unlock();
+        }
+    }
+
+    public void invalidateAll() {
+        evictionLock.lock();
+        try {
+            loading.clear();
+            for (Node<K, V> node : data.values()) {
+                remove(node);
+            }
+        }
+        finally {
+            evictionLock.unlock();
+        }
+    }
+
+    /**
+     * 만료된 항목을 지금 정리한다. 평소에는 쓰기가 일어날 때 정리된다.
+     */
+    public void cleanUp() {
+        evictionLock.lock();
+        try {
+            expire(now());
+        }
+        finally {
+            evictionLock.unlock();
+        }
+    }
+
+    public long estimatedSize() {
+        return data.size();
+    }
+
+    public long weightedSize() {
+        evictionLock.lock();
+        try {
+            return weightedSize;
+        }
+        finally {
+            evictionLock.unlock();
+        }
+    }
+
+    public CacheStats stats() {
+        return new CacheStats(
+            hits.sum(),
+            misses.sum(),
+            loadSuccesses.sum(),
+            loadFailures.sum(),
+            Duration.ofNanos(totalLoadNanos.sum()),
+            Duration.ofNanos(maxLoadNanos.get()),
+            evictions.sum(),
+            expirations.sum());
+    }
+
+    private long now() {
+        if (expireNanos == 0 && refreshNanos == 0) {
+            return 0L;
+        }
+        Scheduler clock = this.clock;
+        return clock == null ? System.nanoTime() : clock.now(TimeUnit.NANOSECONDS);
+    }
+
+    private boolean isExpired(Node<K, V> node, long now) {
+        return expireNanos > 0 && now - node.writeTime >= expireNanos;
+    }
+
+    private void refresh(K key) {
+        if (!loading.containsKey(key)) {
+            load(key);
+        }
+    }
+
+    /**
+     * 같은 키의 로딩이 이미 진행 중이면 그 결과를 함께 기다린다.
+     */
+    private CompletableFuture<V> load(K key) {
+        CompletableFuture<V> future = new CompletableFuture<>();
+        CompletableFuture<V> existing = loading.putIfAbsent(key, future);
+        if (existing != null) {
+            return existing;
+        }
+        long start = System.nanoTime();
+        Mono.<V>defer(() -> loader.apply(key))
+            .toFuture()
+            .whenComplete((value, error) -> onLoaded(key, future, value, error, start));
+        return future;
+    }
+
+    private void onLoaded(K key, CompletableFuture<V> future, V value, Throwable error, long start) {
+        long elapsed = System.nanoTime() - start;
+        totalLoadNanos.add(elapsed);
+        maxLoadNanos.accumulateAndGet(elapsed, Math::max);
+
+        if (error == null) {
+            evictionLock.lock();
+            try {
+                if (loading.get(key) == future) { // invalidate 되지 않았을 때만 반영
+                    if (value != null) {
+                        write(key, value);
+                    }
+                    else {
+                        Node<K, V> node = data.get(key); // 빈 결과는 값이 없어졌다는 뜻
+                        if (node != null) {
+                            remove(node);
+                        }
+                    }
+                }
+            }
+            catch (Throwable ex) {
+                // weigher 가 실패해도 loading 을 비우고 future 를 끝내야 같은 키의 이후 get 이 멈추지 않는다.
+                error = ex;
+            }
+            finally {
+                evictionLock.unlock();
+            }
+        }
+        if (error == null && value != null) {
+            loadSuccesses.increment();
+        }
+        else {
+            loadFailures.increment();
+        }
+        // refresh 실패 시에는 기존 값을 유지한다.
+        loading.remove(key, future);
+
+        if (error != null) {
+            future.completeExceptionally(error);
+        }
+        else {
+            future.complete(value);
+        }
+    }
+
+    private void recordRead(K key, Node<K, V> node) {
+        if (evictionLock.tryLock()) {
+            try {
+                sketch.increment(key.hashCode());
+                if (node != null && node.queue != DEAD) {
+                    onAccess(node);
+                }
+            }
+            finally {
+                evictionLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * evictionLock 을 잡은 상태에서 호출한다.
+     */
+    private void write(K key, V value) {
+        int weight = weigher.applyAsInt(key, value);
+        if (weight < 0) {
+            throw new IllegalStateException("weigher returned a negative weight " + weight + " for " + key);
+        }
+        long now = now();
+        Node<K, V> node = data.get(key);
+        if (node != null) {
+            long delta = (long) weight - node.weight;
+            weightedSize += delta;
+            if (node.queue == WINDOW) {
+                windowWeight += delta;
+            }
+            else if (node.queue == PROTECTED) {
+                protectedWeight += delta;
+            }
+            node.weight = weight;
+            node.value = value;
+            node.writeTime = now;
+            writeOrder.moveToBack(node);
+            onAccess(node);
+        }
+        else {
+            node = new Node<>(key, value, weight, now);
+            data.put(key, node);
+            window.addLast(node);
+            writeOrder.addLast(node);
+            windowWeight += weight;
+            weightedSize += weight;
+        }
+        expire(now);
+        evict();
+    }
+
+    private void onAccess(Node<K, V> node) {
+        switch (node.queue) {
+            case WINDOW -> window.moveToBack(node);
+            case PROTECTED -> protectedDeque.moveToBack(node);
+            case PROBATION -> {
+                probation.remove(node);
+                node.queue = PROTECTED;
+                protectedDeque.addLast(node);
+                protectedWeight += node.weight;
+                while (protectedWeight > protectedMaximum) {
+                    Node<K, V> demoted = protectedDeque.poll();
+                    protectedWeight -= demoted.weight;
+                    demoted.queue = PROBATION;
+                    probation.addLast(demoted);
+                }
+            }
+            default -> {
+            }
+        }
+    }
+
+    private void expire(long now) {
+        if (expireNanos <= 0) {
+            return;
+        }
+        Node<K, V> node;
+        while ((node = writeOrder.head) != null && now - node.writeTime >= expireNanos) {
+            remove(node);
+            expirations.increment();
+        }
+    }
+
+    /**
+     * window 에서 넘친 항목을 probation 으로 보내고(후보), 전체 무게가 넘치면
+     * probation 의 가장 오래된 항목(희생자)과 후보의 빈도를 비교해 낮은 쪽을 제거한다.
+     */
+    private void evict() {
+        int candidates = 0;
+        while (windowWeight > windowMaximum) {
+            Node<K, V> node = window.poll();
+            windowWeight -= node.weight;
+            node.queue = PROBATION;
+            probation.addLast(node);
+            candidates++;
+        }
+        while (weightedSize > maximumWeight) {
+            Node<K, V> victim = probation.head;
+            Node<K, V> candidate = candidates > 0 ? probation.tail : null;
+            if (candidate == null || victim == candidate) {
+                Node<K, V> evictee = victim != null ? victim : protectedDeque.head != null ? protectedDeque.head : window.head;
+                if (evictee == null) {
+                    break;
+                }
+                if (evictee == candidate) {
+                    candidates--;
+                }
+                remove(evictee);
+                evictions.increment();
+                continue;
+            }
+            if (sketch.frequency(candidate.key.hashCode()) > sketch.frequency(victim.key.hashCode())) {
+                remove(victim);
+            }
+            else {
+                remove(candidate);
+                candidates--;
+            }
+            evictions.increment();
+        }
+    }
+
+    private void remove(Node<K, V> node) {
+        if (node.queue == DEAD) {
+            return;
+        }
+        data.remove(node.key, node);
+        switch (node.queue) {
+            case WINDOW -> {
+                window.remove(node);
+                windowWeight -= node.weight;
+            }
+            case PROBATION -> probation.remove(node);
+            default -> {
+                protectedDeque.remove(node);
+                protectedWeight -= node.weight;
+            }
+        }
+        writeOrder.remove(node);
+        weightedSize -= node.weight;
+        node.queue = DEAD;
+    }
+
+    static final class Node<K, V>
+    {
+        final K key;
+        volatile V value;
+        volatile long writeTime;
+        int weight;
+        byte queue = WINDOW;
+
+        Node<K, V> accessPrev;
+        Node<K, V> accessNext;
+        Node<K, V> writePrev;
+        Node<K, V> writeNext;
+
+        Node(K key, V value, int weight, long writeTime) {
+            this.key = key;
+            this.value = value;
+            this.weight = weight;
+            this.writeTime = writeTime;
+        }
+    }
+
+    /**
+     * window, probation, protected 영역의 접근 순서 (head 가 가장 오래됨)
+     */
+    static final class AccessDeque<K, V>
+    {
+        Node<K, V> head;
+        Node<K, V> tail;
+
+        void addLast(Node<K, V> node) {
+            node.accessPrev = tail;
+            node.accessNext = null;
+            if (tail == null) {
+                head = node;
+            }
+            else {
+                tail.accessNext = node;
+            }
+            tail = node;
+        }
+
+        void remove(Node<K, V> node) {
+            if (node.accessPrev == null) {
+                head = node.accessNext;
+            }
+            else {
+                node.accessPrev.accessNext = node.accessNext;
+            }
+            if (node.accessNext == null) {
+                tail = node.accessPrev;
+            }
+            else {
+                node.accessNext.accessPrev = node.accessPrev;
+            }
+            node.accessPrev = null;
+            node.accessNext = null;
+        }
+
+        void moveToBack(Node<K, V> node) {
+            if (node != tail) {
+                remove(node);
+                addLast(node);
+            }
+        }
+
+        Node<K, V> poll() {
+            Node<K, V> node = head;
+            if (node != null) {
+                remove(node);
+            }
+            return node;
+        }
+    }
+
+    /**
+     * 쓰기 순서 (head 가 가장 먼저 쓰인 항목). expireAfterWrite 를 앞에서부터 확인한다.
+     */
+    static final class WriteDeque<K, V>
+    {
+        Node<K, V> head;
+        Node<K, V> tail;
+
+        void addLast(Node<K, V> node) {
+            node.writePrev = tail;
+            node.writeNext = null;
+            if (tail == null) {
+                head = node;
+            }
+            else {
+                tail.writeNext = node;
+            }
+            tail = node;
+        }
+
+        void remove(Node<K, V> node) {
+            if (node.writePrev == null) {
+                head = node.writeNext;
+            }
+            else {
+                node.writePrev.writeNext = node.writeNext;
+            }
+            if (node.writeNext == null) {
+                tail = node.writePrev;
+            }
+            else {
+                node.writeNext.writePrev = node.writePrev;
+            }
+            node.writePrev = null;
+            node.writeNext = null;
+        }
+
+        void moveToBack(Node<K, V> node) {
+            if (node != tail) {
+                remove(node);
+                addLast(node);
+            }
+        }
+    }
+
+    public static final class Builder<K, V>
+    {
+        static final ToIntBiFunction<Object, Object> SINGLETON_WEIGHER = (k, v) -> 1;
+
+        long maximumWeight = -1;
+        ToIntBiFunction<? super K, ? super V> weigher;
+        Duration expireAfterWrite = Duration.ZERO;
+        Duration refreshAfterWrite = Duration.ZERO;
+        Scheduler clock;
+
+        Builder() {
+        }
+
+        /**
+         * 항목 개수를 제한한다.
+         */
+        @SuppressWarnings("unchecked")
+        public Builder<K, V> maximumSize(long maximumSize) {
+            checkMaximum(maximumSize);
+            this.maximumWeight = maximumSize;
+            this.weigher = (ToIntBiFunction<? super K, ? super V>) (ToIntBiFunction<?, ?>) SINGLETON_WEIGHER;
+            return this;
+        }
+
+        /**
+         * weigher 로 계산한 무게의 합을 제한한다. 무게는 저장(또는 갱신)할 때 한 번만 계산된다.
+         */
+        @SuppressWarnings("unchecked")
+        public <K1 extends K, V1 extends V> Builder<K1, V1> maximumWeight(long maximumWeight, ToIntBiFunction<? super K1, ? super V1> weigher) {
+            checkMaximum(maximumWeight);
+            Builder<K1, V1> self = (Builder<K1, V1>) this;
+            self.maximumWeight = maximumWeight;
+            self.weigher = Objects.requireNonNull(weigher, "weigher");
+            return self;
+        }
+
+        private void checkMaximum(long maximum) {
+            if (maximum <= 0) {
+                throw new IllegalArgumentException("maximum > 0 required but it was " + maximum);
+            }
+            if (this.maximumWeight != -1) {
+                throw new IllegalStateException("maximum size or weight was already set to " + this.maximumWeight);
+            }
+        }
+
+        /**
+         * 저장된 지 duration 이 지나면 만료된다.
+         */
+        public Builder<K, V> expireAfterWrite(Duration duration) {
+            this.expireAfterWrite = positive(duration, "expireAfterWrite");
+            return this;
+        }
+
+        /**
+         * 저장된 지 duration 이 지난 뒤 조회되면 기존 값을 반환하고 뒤에서 다시 불러온다.
+         * expireAfterWrite 보다 짧아야 의미가 있다.
+         */
+        public Builder<K, V> refreshAfterWrite(Duration duration) {
+            this.refreshAfterWrite = positive(duration, "refreshAfterWrite");
+            return this;
+        }
+
+        /**
+         * 만료 시간을 잴 스케줄러. 기본은 System.nanoTime() 이며 테스트에서 VirtualTimeScheduler 를 넘길 때 쓴다.
+         * Schedulers.parallel() 같은 일반 스케줄러의 now() 는 벽시계(ms 단위)라서 시계가 바뀌면 만료가 앞당겨지거나 밀린다.
+         */
+        public Builder<K, V> clock(Scheduler clock) {
+            this.clock = Objects.requireNonNull(clock, "clock");
+            return this;
+        }
+
+        private static Duration positive(Duration duration, String name) {
+            Objects.requireNonNull(duration, name);
+            if (duration.isNegative() || duration.isZero()) {
+                throw new IllegalArgumentException(name + " > 0 required but it was " + duration);
+            }
+            return duration;
+        }
+
+        public <K1 extends K, V1 extends V> ReactiveCache<K1, V1> build(Function<? super K1, ? extends Mono<? extends V1>> loader) {
+            Objects.requireNonNull(loader, "loader");
+            if (maximumWeight == -1) {
+                throw new IllegalStateException("maximumSize or maximumWeight is required");
+            }
+            @SuppressWarnings("unchecked")
+            Builder<K1, V1> self = (Builder<K1, V1>) this;
+            return new ReactiveCache<>(self, loader);
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package org.example.concurrency;
+
+/**
+ * AIMD (additive increase, multiplicative decrease)
+ *
+ * 성공하면 limit 당 1 / limit 씩, 즉 응답 한 바퀴(RTT)마다 1 씩 늘린다.
+ * drop 이 나면 backoffRatio 를 곱해 줄인다. 줄인 뒤에는 그 전에 시작한 요청의 drop 으로는 다시 줄이지 않는다.
+ * 한꺼번에 느려진 요청들이 줄줄이 끝나면서 limit 를 바닥까지 끌어내리지 않게 하려는 것이다. (TCP 가 RTT 당 한 번만 줄이는 것과 같다.)
+ * 실행 중인 요청이 limit 의 절반도 안 되면(상류가 느리면) 늘리지 않는다.
+ */
+final class AimdLimit implements LimitAlgorithm
+{
+    private final double backoffRatio;
+
+    private long lastDecreaseNanos = Long.MIN_VALUE;
+
+    AimdLimit(double backoffRatio) {
+        this.backoffRatio = backoffRatio;
+    }
+
+    @Override
+    public double update(double limit, long startNanos, long rttNanos, int inFlight, boolean dropped) {
+        if (dropped) {
+            if (startNanos <= lastDecreaseNanos) {
+                return limit;
+            }
+            lastDecreaseNanos = startNanos + rttNanos;
+            return limit * backoffRatio;
+        }
+        if (inFlight * 2 < limit) {
+            return limit;
+        }
+        return limit + 1 / limit;
+    }
+}
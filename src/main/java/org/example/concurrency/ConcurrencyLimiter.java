@@ -0,0 +1,551 @@
+package org.example.concurrency;
+
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import reactor.core.CoreSubscriber;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Operators;
+import reactor.core.publisher.SignalType;
+import reactor.core.scheduler.Scheduler;
+import reactor.util.concurrent.Queues;
+import reactor.util.context.Context;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * 내부 Publisher 의 응답 시간을 보고 flatMap 의 동시 실행 수(limit)를 스스로 조절한다.
+ *
+ * flatMap(mapper) 의 concurrency 는 고정값(기본 256)이다. 상대 서비스가 느려지면 그만큼의 요청이 상대 큐에 쌓여 타임아웃이 나고,
+ * 작게 잡으면 상대가 더 받을 수 있을 때도 놀게 된다. 알맞은 값은 상대의 상태에 따라 계속 바뀐다.
+ *
+ * <pre>
+ * ConcurrencyLimiter limiter = ConcurrencyLimiter.builder()
+ *     .limits(1, 256)
+ *     .gradient(1.5, 4)
+ *     .build();
+ *
+ * orders.transform(limiter.flatMap(order -&gt; client.submit(order).timeout(Duration.ofSeconds(1))))...
+ * limiter.stats(); // 모니터링
+ * </pre>
+ *
+ * 동작
+ *  * 상류에는 limit 에서 실행 중인 수를 뺀 만큼만 요청하고, 받은 요소는 flatMap 에 그대로 넘긴다. 요소를 따로 쌓아 두지 않는다.
+ *  * 내부 Publisher 를 구독한 때부터 끝날 때까지의 시간을 표본으로 LimitAlgorithm 이 새 limit 를 정한다.
+ *    에러로 끝나면 drop 으로 친다. (timeout 을 걸어 두면 너무 느린 요청이 drop 이 된다.) 취소된 것은 표본에서 뺀다.
+ *  * 알고리즘
+ *    - gradient (기본) : minRtt 대비 지금 응답 시간으로 줄이고 늘린다. GradientLimit 참고
+ *    - aimd            : 응답 한 바퀴마다 1 씩 늘리고, drop(에러 또는 latencyThreshold 초과)이 나면 비율로 줄인다. AimdLimit 참고
+ *  * limit 가 줄어도 이미 실행 중인 내부 Publisher 는 취소하지 않는다. 그것들이 끝나서 새 limit 아래로 내려올 때까지 새로 요청하지 않는다.
+ *
+ * 하나의 ConcurrencyLimiter 를 여러 구독이 함께 쓰면 limit 도 함께 쓴다. (상대 서비스 하나를 보호하려면 이렇게 쓴다.)
+ * 자리가 나면 구독들을 돌아가며 깨워서, 자리가 남아 있는 동안 요청이 남은 구독이 상류에 요청하게 한다.
+ * 시간은 System.nanoTime() 으로 재고, 테스트에서는 scheduler(VirtualTimeScheduler) 로 바꿀 수 있다.
+ */
+public final class ConcurrencyLimiter
+{
+    static final int STATS_WINDOW = 1_000;
+    static final double RTT_SMOOTHING = 0.05;
+
+    private static final Gate[] EMPTY = new Gate[0];
+
+    @SuppressWarnings("rawtypes")
+    static final AtomicIntegerFieldUpdater<ConcurrencyLimiter> IN_FLIGHT =
+        AtomicIntegerFieldUpdater.newUpdater(ConcurrencyLimiter.class, "inFlight");
+    static final AtomicReferenceFieldUpdater<ConcurrencyLimiter, Gate[]> GATES =
+        AtomicReferenceFieldUpdater.newUpdater(ConcurrencyLimiter.class, Gate[].class, "gates");
+
+    final int minLimit;
+    final int maxLimit;
+    final long latencyThresholdNanos;
+    final Scheduler scheduler;
+
+    private volatile int limit;
+    private volatile int inFlight;
+    private volatile Gate<?>[] gates = EMPTY;
+    private int nextGate; // 깨우기 시작할 구독. 경쟁해도 순서가 조금 바뀔 뿐이다.
+
+    // 아래 필드는 lock 으로 보호된다.
+    private final ReentrantLock lock = new ReentrantLock();
+    private final LimitAlgorithm algorithm;
+    private double estimate;
+    private long completed;
+    private long dropped;
+    private long windowMin = Long.MAX_VALUE;
+    private long previousMin = Long.MAX_VALUE;
+    private int windowSamples;
+    private double averageRtt;
+
+    private ConcurrencyLimiter(Builder builder) {
+        this.minLimit = builder.minLimit;
+        this.maxLimit = builder.maxLimit;
+        this.latencyThresholdNanos = builder.latencyThreshold.toNanos();
+        this.scheduler = builder.scheduler;
+        this.algorithm = builder.aimd
+            ? new AimdLimit(builder.backoffRatio)
+            : new GradientLimit(builder.tolerance, builder.queueSize, builder.probeWindow);
+        this.estimate = Math.max(minLimit, Math.min(maxLimit, builder.initialLimit));
+        this.limit = (int) estimate;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * flatMap(mapper, limit) 와 같지만 limit 가 실행 중에 바뀐다. 결과의 순서는 flatMap 처럼 끝나는 순서다.
+     */
+    public <T, R> Function<Flux<T>, Flux<R>> flatMap(Function<? super T, ? extends Publisher<? extends R>> mapper) {
+        Objects.requireNonNull(mapper, "mapper");
+        return source -> Flux.<T>from(actual -> source.subscribe(new Gate<>(Operators.toCoreSubscriber(actual), this)))
+            .flatMap(value -> {
+                Publisher<? extends R> inner;
+                try {
+                    inner = Objects.requireNonNull(mapper.apply(value), "The mapper returned a null Publisher");
+                }
+                catch (Throwable e) {
+                    release();
+                    throw e;
+                }
+                return new Sampled<R>(inner, this);
+            }, maxLimit, Queues.XS_BUFFER_SIZE);
+    }
+
+    /**
+     * 지금 동시에 실행할 수 있는 내부 Publisher 수
+     */
+    public int currentLimit() {
+        return limit;
+    }
+
+    public ConcurrencyStats stats() {
+        lock.lock();
+        try {
+            long min = Math.min(windowMin, previousMin);
+            return new ConcurrencyStats(limit, inFlight, completed, dropped,
+                Duration.ofNanos(min == Long.MAX_VALUE ? 0 : min), Duration.ofNanos((long) averageRtt));
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    long now() {
+        Scheduler clock = scheduler;
+        return clock == null ? System.nanoTime() : clock.now(TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 최대 n 개의 자리를 받는다. 받은 수를 반환한다.
+     */
+    int tryReserve(int n) {
+        for (;;) {
+            int current = inFlight;
+            int free = Math.min(n, limit - current);
+            if (free <= 0) {
+                return 0;
+            }
+            if (IN_FLIGHT.compareAndSet(this, current, current + free)) {
+                return free;
+            }
+        }
+    }
+
+    void release() {
+        release(1);
+    }
+
+    void release(int n) {
+        if (n <= 0) {
+            return;
+        }
+        IN_FLIGHT.addAndGet(this, -n);
+        // 자리가 났다. 자리가 남아 있는 동안 구독들을 돌아가며 깨운다. 요청이 남지 않은 구독은 아무것도 하지 않는다.
+        Gate<?>[] a = gates;
+        int length = a.length;
+        if (length == 0) {
+            return;
+        }
+        int start = nextGate;
+        nextGate = start + 1;
+        for (int i = 0; i < length && inFlight < limit; i++) {
+            a[Math.floorMod(start + i, length)].drain();
+        }
+    }
+
+    void add(Gate<?> gate) {
+        for (;;) {
+            Gate<?>[] a = gates;
+            Gate<?>[] b = Arrays.copyOf(a, a.length + 1);
+            b[a.length] = gate;
+            if (GATES.compareAndSet(this, a, b)) {
+                return;
+            }
+        }
+    }
+
+    void remove(Gate<?> gate) {
+        for (;;) {
+            Gate<?>[] a = gates;
+            int index = Arrays.asList(a).indexOf(gate);
+            if (index < 0) {
+                return;
+            }
+            Gate<?>[] b;
+            if (a.length == 1) {
+                b = EMPTY;
+            }
+            else {
+                b = new Gate[a.length - 1];
+                System.arraycopy(a, 0, b, 0, index);
+                System.arraycopy(a, index + 1, b, index, a.length - index - 1);
+            }
+            if (GATES.compareAndSet(this, a, b)) {
+                return;
+            }
+        }
+    }
+
+    void record(long start, long rtt, boolean error) {
+        boolean drop = error || rtt > latencyThresholdNanos;
+        lock.lock();
+        try {
+            completed++;
+            if (drop) {
+                dropped++;
+            }
+            if (rtt < windowMin) {
+                windowMin = rtt;
+            }
+            if (++windowSamples == STATS_WINDOW) {
+                previousMin = windowMin;
+                windowMin = Long.MAX_VALUE;
+                windowSamples = 0;
+            }
+            averageRtt = averageRtt == 0 ? rtt : averageRtt + (rtt - averageRtt) * RTT_SMOOTHING;
+
+            double next = algorithm.update(estimate, start, rtt, inFlight, drop);
+            estimate = Math.max(minLimit, Math.min(maxLimit, next));
+            limit = (int) estimate;
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 내부 Publisher 를 구독한 때부터 끝날 때까지 시간을 재서 limiter 에 기록하고, 끝나거나 취소되면 자리를 돌려준다.
+     * (Flux.from(inner).doFinally(..) 와 같지만 내부 Publisher 하나에 객체 하나만 만든다.)
+     */
+    static final class Sampled<R> implements CoreSubscriber<R>, Subscription, Publisher<R>
+    {
+        @SuppressWarnings("rawtypes")
+        static final AtomicIntegerFieldUpdater<Sampled> FINISHED =
+            AtomicIntegerFieldUpdater.newUpdater(Sampled.class, "finished");
+
+        final Publisher<? extends R> source;
+        final ConcurrencyLimiter limiter;
+
+        CoreSubscriber<? super R> actual;
+        Subscription upstream;
+        long start;
+        volatile int finished;
+
+        Sampled(Publisher<? extends R> source, ConcurrencyLimiter limiter) {
+            this.source = source;
+            this.limiter = limiter;
+        }
+
+        @Override
+        public void subscribe(Subscriber<? super R> s) {
+            actual = Operators.toCoreSubscriber(s);
+            start = limiter.now();
+            source.subscribe(this);
+        }
+
+        @Override
+        public void onSubscribe(Subscription s) {
+            if (Operators.validate(upstream, s)) {
+                upstream = s;
+                actual.onSubscribe(this);
+            }
+        }
+
+        @Override
+        public void onNext(R r) {
+            actual.onNext(r);
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            actual.onError(t);
+            finish(SignalType.ON_ERROR);
+        }
+
+        @Override
+        public void onComplete() {
+            actual.onComplete();
+            finish(SignalType.ON_COMPLETE);
+        }
+
+        @Override
+        public void request(long n) {
+            upstream.request(n);
+        }
+
+        @Override
+        public void cancel() {
+            upstream.cancel();
+            finish(SignalType.CANCEL);
+        }
+
+        @Override
+        public Context currentContext() {
+            return actual.currentContext();
+        }
+
+        void finish(SignalType signal) {
+            if (finished != 0 || !FINISHED.compareAndSet(this, 0, 1)) {
+                return;
+            }
+            if (signal != SignalType.CANCEL) {
+                limiter.record(start, limiter.now() - start, signal == SignalType.ON_ERROR);
+            }
+            limiter.release();
+        }
+    }
+
+    /**
+     * 상류와 flatMap 사이에서 limit 만큼만 상류에 요청한다.
+     * flatMap 의 요청(requested)과 limiter 에서 받은 자리 중 작은 만큼 요청한다. 자리가 모자라면 자리가 날 때 limiter 가 다시 깨운다.
+     */
+    static final class Gate<T> implements CoreSubscriber<T>, Subscription
+    {
+        @SuppressWarnings("rawtypes")
+        static final AtomicIntegerFieldUpdater<Gate> WIP =
+            AtomicIntegerFieldUpdater.newUpdater(Gate.class, "wip");
+        @SuppressWarnings("rawtypes")
+        static final AtomicLongFieldUpdater<Gate> REQUESTED =
+            AtomicLongFieldUpdater.newUpdater(Gate.class, "requested");
+        @SuppressWarnings("rawtypes")
+        static final AtomicLongFieldUpdater<Gate> RECEIVED =
+            AtomicLongFieldUpdater.newUpdater(Gate.class, "received");
+
+        final CoreSubscriber<? super T> actual;
+        final ConcurrencyLimiter limiter;
+
+        Subscription upstream;
+
+        volatile long requested;
+        volatile int wip;
+        volatile long received; // onNext 에서만 올린다.
+        volatile boolean done;
+        volatile boolean cancelled;
+
+        // drain 에서만 접근한다.
+        long upstreamRequested;
+        boolean released;
+
+        Gate(CoreSubscriber<? super T> actual, ConcurrencyLimiter limiter) {
+            this.actual = actual;
+            this.limiter = limiter;
+        }
+
+        @Override
+        public void onSubscribe(Subscription s) {
+            if (Operators.validate(upstream, s)) {
+                upstream = s;
+                limiter.add(this);
+                actual.onSubscribe(this);
+            }
+        }
+
+        @Override
+        public void onNext(T t) {
+            RECEIVED.lazySet(this, received + 1);
+            actual.onNext(t);
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            done = true;
+            actual.onError(t);
+            drain();
+        }
+
+        @Override
+        public void onComplete() {
+            done = true;
+            actual.onComplete();
+            drain();
+        }
+
+        @Override
+        public void request(long n) {
+            if (Operators.validate(n)) {
+                Operators.addCap(REQUESTED, this, n);
+                drain();
+            }
+        }
+
+        @Override
+        public void cancel() {
+            if (cancelled) {
+                return;
+            }
+            cancelled = true;
+            upstream.cancel();
+            drain();
+        }
+
+        @Override
+        public Context currentContext() {
+            return actual.currentContext();
+        }
+
+        boolean isTerminated() {
+            return done || cancelled;
+        }
+
+        void drain() {
+            if (WIP.getAndIncrement(this) != 0) {
+                return;
+            }
+            int missed = 1;
+            for (;;) {
+                if (isTerminated()) {
+                    // 요청했지만 오지 않은 요소의 자리를 돌려준다.
+                    if (!released) {
+                        released = true;
+                        limiter.remove(this);
+                        limiter.release((int) (upstreamRequested - received));
+                    }
+                }
+                else {
+                    long want = Math.min(requested - upstreamRequested, Integer.MAX_VALUE);
+                    if (want > 0) {
+                        int granted = limiter.tryReserve((int) want);
+                        if (granted > 0) {
+                            upstreamRequested += granted;
+                            upstream.request(granted);
+                        }
+                    }
+                }
+                missed = WIP.addAndGet(this, -missed);
+                if (missed == 0) {
+                    return;
+                }
+            }
+        }
+    }
+
+    public static final class Builder
+    {
+        int initialLimit = 10;
+        int minLimit = 1;
+        int maxLimit = Queues.SMALL_BUFFER_SIZE;
+        boolean aimd;
+        double backoffRatio = 0.9;
+        Duration latencyThreshold = Duration.ofNanos(Long.MAX_VALUE);
+        double tolerance = 1.5;
+        int queueSize = 4;
+        int probeWindow = 1_000;
+        Scheduler scheduler;
+
+        Builder() {
+        }
+
+        /**
+         * 처음 limit. 기본 10
+         */
+        public Builder initialLimit(int initialLimit) {
+            if (initialLimit <= 0) {
+                throw new IllegalArgumentException("initialLimit > 0 required but it was " + initialLimit);
+            }
+            this.initialLimit = initialLimit;
+            return this;
+        }
+
+        /**
+         * limit 의 범위. 기본 1 ~ 256 (flatMap 의 기본 concurrency)
+         */
+        public Builder limits(int minLimit, int maxLimit) {
+            if (minLimit <= 0 || maxLimit < minLimit) {
+                throw new IllegalArgumentException("0 < minLimit <= maxLimit required but it was " + minLimit + ", " + maxLimit);
+            }
+            this.minLimit = minLimit;
+            this.maxLimit = maxLimit;
+            return this;
+        }
+
+        /**
+         * AIMD 로 조절한다. drop 이 나면 limit 에 backoffRatio 를 곱한다.
+         *
+         * @param latencyThreshold 이보다 오래 걸린 요청도 drop 으로 친다.
+         */
+        public Builder aimd(double backoffRatio, Duration latencyThreshold) {
+            Objects.requireNonNull(latencyThreshold, "latencyThreshold");
+            if (!(backoffRatio >= 0.5 && backoffRatio < 1)) {
+                throw new IllegalArgumentException("0.5 <= backoffRatio < 1 required but it was " + backoffRatio);
+            }
+            if (latencyThreshold.isNegative() || latencyThreshold.isZero()) {
+                throw new IllegalArgumentException("latencyThreshold > 0 required but it was " + latencyThreshold);
+            }
+            this.aimd = true;
+            this.backoffRatio = backoffRatio;
+            this.latencyThreshold = latencyThreshold;
+            return this;
+        }
+
+        /**
+         * gradient 로 조절한다. (기본, tolerance 1.5, queueSize 4)
+         *
+         * @param tolerance 응답 시간이 minRtt 의 이 배수를 넘으면 줄이기 시작한다.
+         * @param queueSize 상대 서비스에 쌓여도 되는 요청 수. limit 는 응답이 느려지지 않는 동안 이만큼씩 늘어나려 한다.
+         */
+        public Builder gradient(double tolerance, int queueSize) {
+            if (!(tolerance >= 1)) {
+                throw new IllegalArgumentException("tolerance >= 1 required but it was " + tolerance);
+            }
+            if (queueSize <= 0) {
+                throw new IllegalArgumentException("queueSize > 0 required but it was " + queueSize);
+            }
+            this.aimd = false;
+            this.tolerance = tolerance;
+            this.queueSize = queueSize;
+            return this;
+        }
+
+        /**
+         * gradient 가 minRtt 를 새로 재는 주기(표본 수). 기본 1,000
+         */
+        public Builder probeWindow(int probeWindow) {
+            if (probeWindow <= 0) {
+                throw new IllegalArgumentException("probeWindow > 0 required but it was " + probeWindow);
+            }
+            this.probeWindow = probeWindow;
+            return this;
+        }
+
+        /**
+         * 시간을 잴 스케줄러. 기본은 System.nanoTime() 이며 테스트에서 VirtualTimeScheduler 를 넘길 때 쓴다.
+         * (Scheduler.now(NANOSECONDS) 는 호출마다 Instant 를 만들므로 요소마다 두 번 부르기에는 비싸다.)
+         */
+        public Builder scheduler(Scheduler scheduler) {
+            this.scheduler = Objects.requireNonNull(scheduler, "scheduler");
+            return this;
+        }
+
+        public ConcurrencyLimiter build() {
+            return new ConcurrencyLimiter(this);
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package org.example.concurrency;
+
+import java.time.Duration;
+
+/**
+ * ConcurrencyLimiter 의 통계 스냅샷
+ *
+ * @param limit        지금 동시에 실행할 수 있는 내부 Publisher 수
+ * @param inFlight     실행 중이거나 상류에 요청해 둔 요소 수
+ * @param completed    완료된 내부 Publisher 수 (drop 포함, 취소 제외)
+ * @param dropped      에러로 끝났거나 latencyThreshold 를 넘은 수
+ * @param minRtt       부하가 없을 때의 응답 시간 추정 (최근 구간의 최솟값)
+ * @param averageRtt   응답 시간의 지수 이동 평균
+ */
+public record ConcurrencyStats(int limit,
+                               int inFlight,
+                               long completed,
+                               long dropped,
+                               Duration minRtt,
+                               Duration averageRtt)
+{
+    /**
+     * 상대 서비스의 큐에서 기다리고 있을 것으로 보이는 요청 수. (Vegas 추정: inFlight x (1 - minRtt / averageRtt))
+     * 응답 시간이 부하 없는 값에 가까우면 0 에 가깝다.
+     */
+    public double estimatedQueue() {
+        if (averageRtt.isZero()) {
+            return 0;
+        }
+        double ratio = (double) minRtt.toNanos() / averageRtt.toNanos();
+        return Math.max(0, inFlight * (1 - ratio));
+    }
+}
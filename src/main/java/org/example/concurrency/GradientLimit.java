@@ -0,0 +1,96 @@
+package org.example.concurrency;
+
+/**
+ * 부하 없는 응답 시간과 지금 응답 시간의 비율(gradient)로 limit 를 정한다. (TCP Vegas 와 같은 발상)
+ *
+ *   gradient = clamp(tolerance x minRtt / rtt, 0.5, 1)
+ *   newLimit = limit x gradient + queueSize
+ *   limit    = limit x (1 - smoothing) + newLimit x smoothing
+ *
+ * 응답 시간이 minRtt 의 tolerance 배 안이면 gradient 는 1 이고 limit 는 queueSize 만큼 늘어나는 쪽으로 움직인다.
+ * 그보다 느려지면 느려진 비율만큼 줄인다. 그래서 상대 서비스에 큐가 queueSize 정도만 생기는 지점에서 멈춘다.
+ *
+ * 표본마다 바꾸지 않고 limit 개의 표본(대략 응답 한 바퀴)을 모아 평균 응답 시간으로 한 번 바꾼다.
+ * 표본은 limit 를 바꾸기 전에 시작한 요청의 것이라 한 바퀴 늦게 도착하는데, 표본마다 바꾸면 한 바퀴 동안 limit 번 같은 방향으로 움직여서
+ * 목표를 크게 지나쳤다가 되돌아오기를 반복한다. 구간 안에 drop 이 있으면 gradient 0.5 로 친다.
+ *
+ * minRtt 는 지금까지의 최솟값이다. 다만 limit 가 안정되면 모든 표본이 큐를 거친 값이라, 상대의 기본 응답 시간이 정말 늘어났는지 알 수 없다.
+ * 그래서 probeWindow 개의 표본마다 limit 를 절반으로 낮춰 큐를 비우고, 그 뒤에 시작한 요청 한 바퀴의 최솟값을 새 minRtt 로 삼은 다음 limit 를 되돌린다.
+ * (최근 표본의 최솟값을 그대로 쓰면 큐를 거친 응답 시간이 새 기준이 되어 limit 가 끝없이 오른다.)
+ */
+final class GradientLimit implements LimitAlgorithm
+{
+    static final double SMOOTHING = 0.2;
+    static final double MIN_GRADIENT = 0.5;
+
+    private final double tolerance;
+    private final int queueSize;
+    private final int probeWindow;
+
+    private long minRtt = Long.MAX_VALUE;
+    private int sinceProbe;
+
+    private boolean probing;
+    private long probeStartNanos;
+    private long probeMin;
+    private int probeSamples;
+    private double limitBeforeProbe;
+
+    private double rttSum;
+    private int samples;
+    private boolean dropped;
+
+    GradientLimit(double tolerance, int queueSize, int probeWindow) {
+        this.tolerance = tolerance;
+        this.queueSize = queueSize;
+        this.probeWindow = probeWindow;
+    }
+
+    @Override
+    public double update(double limit, long startNanos, long rttNanos, int inFlight, boolean dropped) {
+        if (probing) {
+            if (startNanos >= probeStartNanos) {
+                probeMin = Math.min(probeMin, rttNanos);
+                if (++probeSamples >= limit) {
+                    minRtt = probeMin;
+                    probing = false;
+                    return limitBeforeProbe;
+                }
+            }
+            return limit;
+        }
+        if (rttNanos < minRtt) {
+            minRtt = rttNanos;
+        }
+        if (++sinceProbe >= probeWindow) {
+            sinceProbe = 0;
+            probing = true;
+            probeStartNanos = startNanos + rttNanos;
+            probeMin = Long.MAX_VALUE;
+            probeSamples = 0;
+            limitBeforeProbe = limit;
+            rttSum = 0;
+            samples = 0;
+            this.dropped = false;
+            return limit / 2;
+        }
+
+        rttSum += rttNanos;
+        this.dropped |= dropped;
+        if (++samples < limit) {
+            return limit;
+        }
+        double rtt = Math.max(1, rttSum / samples);
+        boolean drop = this.dropped;
+        rttSum = 0;
+        samples = 0;
+        this.dropped = false;
+
+        double gradient = drop ? MIN_GRADIENT : Math.max(MIN_GRADIENT, Math.min(1, tolerance * Math.max(1, minRtt) / rtt));
+        if (gradient == 1 && inFlight * 2 < limit) {
+            return limit; // 상류가 느려서 limit 까지 채우지 못하고 있다. 늘려도 확인할 수 없다.
+        }
+        double newLimit = limit * gradient + queueSize;
+        return limit * (1 - SMOOTHING) + newLimit * SMOOTHING;
+    }
+}
@@ -0,0 +1,17 @@
+package org.example.concurrency;
+
+/**
+ * 내부 Publisher 하나가 끝날 때마다 새 limit 를 정한다. ConcurrencyLimiter 의 lock 안에서만 호출된다.
+ */
+interface LimitAlgorithm
+{
+    /**
+     * @param limit      지금 limit (소수점 아래를 포함한 추정값)
+     * @param startNanos 내부 Publisher 를 구독한 시각
+     * @param rttNanos   구독부터 끝날 때까지 걸린 시간
+     * @param inFlight   지금 실행 중이거나 요청해 둔 요소 수
+     * @param dropped    에러로 끝났거나 latencyThreshold 를 넘었다.
+     * @return 새 limit. ConcurrencyLimiter 가 [minLimit, maxLimit] 로 자른다.
+     */
+    double update(double limit, long startNanos, long rttNanos, int inFlight, boolean dropped);
+}
@@ -0,0 +1,318 @@
+package org.example.context;
+
+import reactor.util.context.Context;
+import reactor.util.context.ContextView;
+
+import java.util.AbstractMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * 자주 쓰는 키를 미리 배열 칸(slot)에 등록해 두는 Context
+ *
+ * Reactor 의 기본 Context 는 키가 5 개까지는 필드에 담지만, 그 이상이면 LinkedHashMap 기반의 ContextN 으로 바뀐다.
+ * ContextN 은 put 할 때마다 맵 전체를 복사하므로, 키가 8~15 개(tenant, trace id, deadline, 인증 정보 ...)인 요청 파이프라인은
+ * contextWrite 를 거칠 때마다 엔트리 수만큼의 객체를 새로 만든다.
+ *
+ * SlotContext 는 key() 로 등록한 키마다 고정된 배열 칸을 하나씩 배정한다.
+ *  * 읽기는 키에 들어 있는 칸 번호로 배열을 바로 읽는다. 해시 계산도 equals 비교도 없다.
+ *  * put 은 참조 배열 하나를 복사한다. (copy-on-write) 엔트리 객체를 만들지 않는다.
+ *  * 등록하지 않은 키(문자열 등)는 기본 Context 에 그대로 보관하므로 기존 코드와 섞어 써도 된다.
+ *
+ * <pre>
+ * static final SlotContext.Key&lt;String&gt; TENANT = SlotContext.key("tenant");
+ *
+ * Mono.deferContextual(ctx -&gt; Mono.just(TENANT.get(ctx)))
+ *     .contextWrite(SlotContext.write(TENANT, "acme"));
+ * </pre>
+ *
+ * 파이프라인 맨 아래(구독자 쪽)의 Context 는 Reactor 가 만든 빈 Context 이므로,
+ * 첫 contextWrite 는 write() 나 from() 으로 SlotContext 로 바꿔 줘야 한다. 그 위의 contextWrite(ctx -&gt; ctx.put(...)) 는
+ * SlotContext.put 을 그대로 호출하게 된다.
+ *
+ * 칸은 JVM 전체에서 공유하며 최대 MAX_SLOTS 개까지 등록할 수 있다. 키는 보통 static final 필드로 한 번만 만든다.
+ */
+public final class SlotContext implements Context
+{
+    public static final int MAX_SLOTS = 64;
+
+    private static final ConcurrentHashMap<String, Key<?>> KEYS_BY_NAME = new ConcurrentHashMap<>();
+    private static final AtomicReferenceArray<Key<?>> KEYS = new AtomicReferenceArray<>(MAX_SLOTS);
+    private static final AtomicInteger REGISTERED = new AtomicInteger();
+
+    private static final SlotContext EMPTY = new SlotContext(new Object[0], 0, Context.empty());
+
+    private final Object[] slots;  // 값이 없는 칸은 null. 만든 뒤에는 바꾸지 않는다.
+    private final int slotCount;   // slots 에서 null 이 아닌 칸의 개수
+    private final Context rest;    // 등록하지 않은 키
+
+    private SlotContext(Object[] slots, int slotCount, Context rest) {
+        this.slots = slots;
+        this.slotCount = slotCount;
+        this.rest = rest;
+    }
+
+    /**
+     * name 에 칸을 하나 배정한 키를 반환한다. 같은 name 으로 다시 호출하면 같은 키를 반환한다.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> Key<T> key(String name) {
+        Objects.requireNonNull(name, "name");
+        return (Key<T>) KEYS_BY_NAME.computeIfAbsent(name, n -> {
+            int index = REGISTERED.getAndIncrement();
+            if (index >= MAX_SLOTS) {
+                throw new IllegalStateException("SlotContext can register at most " + MAX_SLOTS + " keys, cannot add " + n);
+            }
+            Key<?> key = new Key<>(n, index);
+            KEYS.set(key.index, key);
+            return key;
+        });
+    }
+
+    public static SlotContext empty() {
+        return EMPTY;
+    }
+
+    /**
+     * view 의 내용을 담은 SlotContext. view 가 이미 SlotContext 이면 그대로 반환한다.
+     */
+    public static SlotContext from(ContextView view) {
+        Objects.requireNonNull(view, "view");
+        if (view instanceof SlotContext) {
+            return (SlotContext) view;
+        }
+        return EMPTY.putAll(view);
+    }
+
+    /**
+     * contextWrite 에 넘길 함수. 아래쪽 Context 를 SlotContext 로 바꾼 뒤 key 에 value 를 넣는다.
+     */
+    public static <T> Function<Context, Context> write(Key<T> key, T value) {
+        Objects.requireNonNull(key, "key");
+        Objects.requireNonNull(value, "value");
+        return ctx -> from(ctx).put(key, value);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key) {
+        if (key instanceof Key) {
+            Object value = slotValue((Key<?>) key);
+            if (value == null) {
+                throw new NoSuchElementException("Context does not contain key: " + key);
+            }
+            return (T) value;
+        }
+        return rest.get(key);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T getOrDefault(Object key, T defaultValue) {
+        if (key instanceof Key) {
+            Object value = slotValue((Key<?>) key);
+            return value == null ? defaultValue : (T) value;
+        }
+        return rest.getOrDefault(key, defaultValue);
+    }
+
+    @Override
+    public boolean hasKey(Object key) {
+        if (key instanceof Key) {
+            return slotValue((Key<?>) key) != null;
+        }
+        return rest.hasKey(key);
+    }
+
+    private Object slotValue(Key<?> key) {
+        int index = key.index;
+        return index < slots.length ? slots[index] : null;
+    }
+
+    @Override
+    public int size() {
+        return slotCount + rest.size();
+    }
+
+    @Override
+    public Stream<Map.Entry<Object, Object>> stream() {
+        Stream<Map.Entry<Object, Object>> slotEntries = IntStream.range(0, slots.length)
+            .filter(i -> slots[i] != null)
+            .mapToObj(i -> new AbstractMap.SimpleImmutableEntry<>(KEYS.get(i), slots[i]));
+        return Stream.concat(slotEntries, rest.stream());
+    }
+
+    @Override
+    public void forEach(BiConsumer<Object, Object> action) {
+        for (int i = 0; i < slots.length; i++) {
+            if (slots[i] != null) {
+                action.accept(KEYS.get(i), slots[i]);
+            }
+        }
+        rest.forEach(action);
+    }
+
+    @Override
+    public SlotContext put(Object key, Object value) {
+        Objects.requireNonNull(key, "key");
+        Objects.requireNonNull(value, "value");
+        if (key instanceof Key) {
+            int index = ((Key<?>) key).index;
+            Object[] copy = copySlots(index + 1);
+            int count = copy[index] == null ? slotCount + 1 : slotCount;
+            copy[index] = value;
+            return new SlotContext(copy, count, rest);
+        }
+        return new SlotContext(slots, slotCount, rest.put(key, value));
+    }
+
+    @Override
+    public SlotContext delete(Object key) {
+        Objects.requireNonNull(key, "key");
+        if (key instanceof Key) {
+            int index = ((Key<?>) key).index;
+            if (index >= slots.length || slots[index] == null) {
+                return this;
+            }
+            Object[] copy = slots.clone();
+            copy[index] = null;
+            return new SlotContext(copy, slotCount - 1, rest);
+        }
+        Context deleted = rest.delete(key);
+        return deleted == rest ? this : new SlotContext(slots, slotCount, deleted);
+    }
+
+    /**
+     * 기본 구현은 ContextN 으로 합치므로, 배열을 한 번만 복사해 SlotContext 로 합친다.
+     */
+    @Override
+    public SlotContext putAll(ContextView other) {
+        if (other.isEmpty()) {
+            return this;
+        }
+        Merge merge = new Merge(this);
+        other.forEach(merge);
+        return merge.result();
+    }
+
+    @Override
+    public SlotContext putAllMap(Map<?, ?> from) {
+        if (from.isEmpty()) {
+            return this;
+        }
+        Merge merge = new Merge(this);
+        from.forEach(merge);
+        return merge.result();
+    }
+
+    private Object[] copySlots(int minLength) {
+        Object[] copy = new Object[Math.max(slots.length, minLength)];
+        System.arraycopy(slots, 0, copy, 0, slots.length);
+        return copy;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("SlotContext{");
+        forEach((key, value) -> sb.append(key).append('=').append(value).append(", "));
+        if (sb.length() > "SlotContext{".length()) {
+            sb.setLength(sb.length() - 2);
+        }
+        return sb.append('}').toString();
+    }
+
+    /**
+     * 미리 칸을 배정받은 Context 키. 같은 이름의 키는 JVM 안에 하나뿐이므로 동일성으로 비교한다.
+     */
+    public static final class Key<T>
+    {
+        final String name;
+        final int index;
+
+        Key(String name, int index) {
+            this.name = name;
+            this.index = index;
+        }
+
+        public String name() {
+            return name;
+        }
+
+        /**
+         * deferContextual 등에서 받은 ContextView 에서 값을 읽는다. SlotContext 가 아니면 일반 조회를 한다.
+         */
+        @SuppressWarnings("unchecked")
+        public T get(ContextView view) {
+            if (view instanceof SlotContext) {
+                Object value = ((SlotContext) view).slotValue(this);
+                if (value == null) {
+                    throw new NoSuchElementException("Context does not contain key: " + name);
+                }
+                return (T) value;
+            }
+            return view.get(this);
+        }
+
+        @SuppressWarnings("unchecked")
+        public T getOrDefault(ContextView view, T defaultValue) {
+            if (view instanceof SlotContext) {
+                Object value = ((SlotContext) view).slotValue(this);
+                return value == null ? defaultValue : (T) value;
+            }
+            return view.getOrDefault(this, defaultValue);
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+
+    private static final class Merge implements BiConsumer<Object, Object>
+    {
+        Object[] slots;
+        int slotCount;
+        Context rest;
+        boolean copied;
+
+        Merge(SlotContext base) {
+            this.slots = base.slots;
+            this.slotCount = base.slotCount;
+            this.rest = base.rest;
+        }
+
+        @Override
+        public void accept(Object key, Object value) {
+            Objects.requireNonNull(key, "key");
+            Objects.requireNonNull(value, "value");
+            if (key instanceof Key) {
+                int index = ((Key<?>) key).index;
+                if (!copied || index >= slots.length) {
+                    Object[] copy = new Object[Math.max(slots.length, Math.max(index + 1, Math.min(REGISTERED.get(), MAX_SLOTS)))];
+                    System.arraycopy(slots, 0, copy, 0, slots.length);
+                    slots = copy;
+                    copied = true;
+                }
+                if (slots[index] == null) {
+                    slotCount++;
+                }
+                slots[index] = value;
+            }
+            else {
+                rest = rest.put(key, value);
+            }
+        }
+
+        SlotContext result() {
+            return new SlotContext(slots, slotCount, rest);
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package org.example.distinct;
+
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Scheduler;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+/**
+ * 메모리가 제한된 distinct() 오퍼레이터 모음
+ *
+ * Flux.distinct() 는 지금까지 본 모든 키를 HashSet 에 보관하므로 끝나지 않는 스트림에서는 메모리가 계속 늘어난다.
+ * 여기의 오퍼레이터는 최근 maxKeys 개의 키만, 또는 ttl 동안만 기억하고 그보다 오래된 키는 잊는다.
+ * 잊힌 키가 다시 들어오면 새 키로 취급하여 다시 방출한다.
+ *
+ * transform() 과 함께 사용한다.
+ * <pre>
+ * flux.transform(BoundedDistinct.window(Event::id, 100_000, Duration.ofMinutes(5)))
+ * </pre>
+ *
+ * 키 하나당 메모리 (키 객체 제외, 압축 참조 기준)
+ *  * window        : 테이블 8~16B + 순서 4B (+ ttl 사용 시 8B)
+ *  * windowLong    : 테이블 16~32B + 순서 8B (+ ttl 사용 시 8B), 박싱 없음
+ *  * probabilistic : fpp 1% 기준 keysPerGeneration 당 약 2.8B (세대 두 개 합), 키 객체를 보관하지 않음
+ *  * Flux.distinct : HashMap.Node 32B + 테이블 4~8B + 키 객체, 그리고 제한 없이 증가
+ *
+ * 상태는 구독마다 따로 만들어진다.
+ */
+public final class BoundedDistinct
+{
+    private BoundedDistinct() {
+    }
+
+    /**
+     * 요소 자체를 키로, 최근 maxKeys 개의 키를 기억한다.
+     */
+    public static <T> Function<Flux<T>, Flux<T>> window(int maxKeys) {
+        return window(Function.identity(), maxKeys);
+    }
+
+    public static <T, K> Function<Flux<T>, Flux<T>> window(Function<? super T, K> keySelector, int maxKeys) {
+        return window(keySelector, maxKeys, Duration.ZERO);
+    }
+
+    /**
+     * 최근 maxKeys 개의 키를 기억하되, ttl 이 지난 키는 그 전에라도 잊는다.
+     * 키의 수명은 처음 방출된 시점부터 계산하며, 중복이 들어와도 연장되지 않는다. 시간은 System.nanoTime() 으로 잰다.
+     */
+    public static <T, K> Function<Flux<T>, Flux<T>> window(Function<? super T, K> keySelector, int maxKeys, Duration ttl) {
+        return window0(keySelector, maxKeys, ttl, null);
+    }
+
+    /**
+     * 시간은 clock 스케줄러의 now() 로 잰다. 테스트에서 VirtualTimeScheduler 를 넘길 때 쓴다.
+     * Schedulers.parallel() 같은 일반 스케줄러의 now() 는 벽시계(ms 단위)라서 시계가 바뀌면 키를 너무 일찍 또는 늦게 잊는다.
+     */
+    public static <T, K> Function<Flux<T>, Flux<T>> window(Function<? super T, K> keySelector, int maxKeys, Duration ttl, Scheduler clock) {
+        return window0(keySelector, maxKeys, ttl, Objects.requireNonNull(clock, "clock"));
+    }
+
+    private static <T, K> Function<Flux<T>, Flux<T>> window0(Function<? super T, K> keySelector, int maxKeys, Duration ttl, Scheduler clock) {
+        Objects.requireNonNull(keySelector, "keySelector");
+        long ttlNanos = ttlNanos(ttl);
+        KeyWindow.checkMaxKeys(maxKeys);
+        return flux -> Flux.defer(() -> {
+            KeyWindow keys = new KeyWindow(maxKeys, ttlNanos);
+            return flux.filter(value -> keys.add(Objects.requireNonNull(keySelector.apply(value), "key"), now(clock, ttlNanos)));
+        });
+    }
+
+    /**
+     * long 키 전용. 키를 박싱하지 않고 long[] 기반 테이블에 저장한다.
+     */
+    public static <T> Function<Flux<T>, Flux<T>> windowLong(ToLongFunction<? super T> keySelector, int maxKeys) {
+        return windowLong(keySelector, maxKeys, Duration.ZERO);
+    }
+
+    public static <T> Function<Flux<T>, Flux<T>> windowLong(ToLongFunction<? super T> keySelector, int maxKeys, Duration ttl) {
+        return windowLong0(keySelector, maxKeys, ttl, null);
+    }
+
+    public static <T> Function<Flux<T>, Flux<T>> windowLong(ToLongFunction<? super T> keySelector, int maxKeys, Duration ttl, Scheduler clock) {
+        return windowLong0(keySelector, maxKeys, ttl, Objects.requireNonNull(clock, "clock"));
+    }
+
+    private static <T> Function<Flux<T>, Flux<T>> windowLong0(ToLongFunction<? super T> keySelector, int maxKeys, Duration ttl, Scheduler clock) {
+        Objects.requireNonNull(keySelector, "keySelector");
+        long ttlNanos = ttlNanos(ttl);
+        KeyWindow.checkMaxKeys(maxKeys);
+        return flux -> Flux.defer(() -> {
+            LongKeyWindow keys = new LongKeyWindow(maxKeys, ttlNanos);
+            return flux.filter(value -> keys.add(keySelector.applyAsLong(value), now(clock, ttlNanos)));
+        });
+    }
+
+    /**
+     * 블룸 필터 기반. 키를 보관하지 않으므로 메모리는 keysPerGeneration 과 fpp 로만 정해진다.
+     * 대략 최근 keysPerGeneration ~ 2 * keysPerGeneration 개의 키를 기억하며,
+     * 처음 보는 요소가 fpp 확률로 중복으로 오인되어 버려질 수 있다.
+     *
+     * 키의 hashCode()(32비트)로 판별하므로 hashCode 가 같은 키는 항상 중복으로 본다.
+     * 키가 long 이라면 probabilisticLong 을 사용한다.
+     */
+    public static <T, K> Function<Flux<T>, Flux<T>> probabilistic(Function<? super T, K> keySelector, long keysPerGeneration, double fpp) {
+        Objects.requireNonNull(keySelector, "keySelector");
+        RotatingBloomFilter.words(keysPerGeneration, fpp);
+        return flux -> Flux.defer(() -> {
+            RotatingBloomFilter filter = new RotatingBloomFilter(keysPerGeneration, fpp);
+            return flux.filter(value -> filter.add(RotatingBloomFilter.hash(keySelector.apply(value).hashCode())));
+        });
+    }
+
+    public static <T> Function<Flux<T>, Flux<T>> probabilisticLong(ToLongFunction<? super T> keySelector, long keysPerGeneration, double fpp) {
+        Objects.requireNonNull(keySelector, "keySelector");
+        RotatingBloomFilter.words(keysPerGeneration, fpp);
+        return flux -> Flux.defer(() -> {
+            RotatingBloomFilter filter = new RotatingBloomFilter(keysPerGeneration, fpp);
+            return flux.filter(value -> filter.add(RotatingBloomFilter.hash(keySelector.applyAsLong(value))));
+        });
+    }
+
+    static long ttlNanos(Duration ttl) {
+        Objects.requireNonNull(ttl, "ttl");
+        if (ttl.isNegative()) {
+            throw new IllegalArgumentException("ttl >= 0 required but it was " + ttl);
+        }
+        return ttl.toNanos(); // 0 이면 시간으로는 잊지 않는다.
+    }
+
+    /**
+     * clock 이 null 이면 System.nanoTime()
+     */
+    static long now(Scheduler clock, long ttlNanos) {
+        if (ttlNanos == 0) {
+            return 0L;
+        }
+        return clock == null ? System.nanoTime() : clock.now(TimeUnit.NANOSECONDS);
+    }
+}
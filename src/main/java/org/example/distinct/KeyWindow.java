@@ -0,0 +1,125 @@
+package org.example.distinct;
+
+/**
+ * 최근에 본 키를 최대 maxKeys 개, ttl 동안만 기억하는 집합
+ *
+ * 키는 선형 탐사(open addressing) 테이블에 저장하고, 삽입 순서는 원형 배열로 따로 기록한다.
+ * 가득 차거나 ttl 이 지나면 가장 먼저 들어온 키부터 지운다. (삭제는 backward shift 로 처리해 tombstone 이 남지 않는다.)
+ * HashSet 과 달리 키마다 Entry 객체를 만들지 않으며, 배열은 생성 시점에 모두 할당되어 더 커지지 않는다.
+ *
+ * 한 구독 안에서만 사용하므로 스레드 안전하지 않다.
+ */
+final class KeyWindow
+{
+    private final Object[] table;
+    private final int mask;
+
+    private final Object[] order;
+    private final long[] insertedAt; // ttl 이 없으면 null
+    private final long ttlNanos;
+
+    private int head;
+    private int size;
+
+    static final int MAX_KEYS = 1 << 28;
+
+    KeyWindow(int maxKeys, long ttlNanos) {
+        checkMaxKeys(maxKeys);
+        this.table = new Object[tableSize(maxKeys)];
+        this.mask = table.length - 1;
+        this.order = new Object[maxKeys];
+        this.insertedAt = ttlNanos > 0 ? new long[maxKeys] : null;
+        this.ttlNanos = ttlNanos;
+    }
+
+    static void checkMaxKeys(int maxKeys) {
+        if (maxKeys <= 0 || maxKeys > MAX_KEYS) {
+            throw new IllegalArgumentException("0 < maxKeys <= 2^28 required but it was " + maxKeys);
+        }
+    }
+
+    /**
+     * 부하율이 0.5 를 넘지 않는 2의 거듭제곱 크기
+     */
+    static int tableSize(int maxKeys) {
+        return Integer.highestOneBit(Math.max(2, maxKeys) - 1) << 2;
+    }
+
+    static int mix(int h) {
+        h *= 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * 처음 보는 키이면 기억하고 true 를 반환한다.
+     */
+    boolean add(Object key, long now) {
+        expire(now);
+        int i = mix(key.hashCode()) & mask;
+        for (Object k; (k = table[i]) != null; i = (i + 1) & mask) {
+            if (k.equals(key)) {
+                return false;
+            }
+        }
+        if (size == order.length) {
+            evictOldest();
+            // 삭제로 빈 칸 위치가 바뀌었을 수 있으므로 다시 찾는다.
+            i = mix(key.hashCode()) & mask;
+            while (table[i] != null) {
+                i = (i + 1) & mask;
+            }
+        }
+        table[i] = key;
+        int tail = (head + size) % order.length;
+        order[tail] = key;
+        if (insertedAt != null) {
+            insertedAt[tail] = now;
+        }
+        size++;
+        return true;
+    }
+
+    private void expire(long now) {
+        if (insertedAt == null) {
+            return;
+        }
+        while (size > 0 && now - insertedAt[head] >= ttlNanos) {
+            evictOldest();
+        }
+    }
+
+    private void evictOldest() {
+        Object key = order[head];
+        order[head] = null;
+        head = (head + 1) % order.length;
+        size--;
+        remove(key);
+    }
+
+    private void remove(Object key) {
+        int i = mix(key.hashCode()) & mask;
+        while (!table[i].equals(key)) {
+            i = (i + 1) & mask;
+        }
+        // backward shift deletion
+        for (int j = (i + 1) & mask; table[j] != null; j = (j + 1) & mask) {
+            int home = mix(table[j].hashCode()) & mask;
+            if (((j - home) & mask) >= ((j - i) & mask)) {
+                table[i] = table[j];
+                i = j;
+            }
+        }
+        table[i] = null;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * 키 객체 자체를 제외하고, 이 집합이 차지하는 배열의 크기 (압축 참조 4바이트 기준)
+     */
+    long memoryBytes() {
+        return 4L * table.length + 4L * order.length + (insertedAt == null ? 0 : 8L * insertedAt.length);
+    }
+}
@@ -0,0 +1,119 @@
+package org.example.distinct;
+
+/**
+ * long 키 전용 KeyWindow
+ * 키를 long[] 에 그대로 저장하므로 박싱도, 키 객체 참조도 없다.
+ * 0 은 빈 칸 표시로 쓰기 때문에 키 0 의 존재 여부는 별도 필드로 관리한다.
+ */
+final class LongKeyWindow
+{
+    private final long[] table;
+    private final int mask;
+    private boolean hasZero;
+
+    private final long[] order;
+    private final long[] insertedAt; // ttl 이 없으면 null
+    private final long ttlNanos;
+
+    private int head;
+    private int size;
+
+    LongKeyWindow(int maxKeys, long ttlNanos) {
+        KeyWindow.checkMaxKeys(maxKeys);
+        this.table = new long[KeyWindow.tableSize(maxKeys)];
+        this.mask = table.length - 1;
+        this.order = new long[maxKeys];
+        this.insertedAt = ttlNanos > 0 ? new long[maxKeys] : null;
+        this.ttlNanos = ttlNanos;
+    }
+
+    static int mix(long key) {
+        key *= 0x9E3779B97F4A7C15L;
+        return (int) (key ^ (key >>> 32));
+    }
+
+    /**
+     * 처음 보는 키이면 기억하고 true 를 반환한다.
+     */
+    boolean add(long key, long now) {
+        expire(now);
+        if (key == 0) {
+            if (hasZero) {
+                return false;
+            }
+            if (size == order.length) {
+                evictOldest();
+            }
+            hasZero = true;
+        }
+        else {
+            if (indexOf(key) >= 0) {
+                return false;
+            }
+            if (size == order.length) {
+                evictOldest();
+            }
+            int i = mix(key) & mask;
+            while (table[i] != 0) {
+                i = (i + 1) & mask;
+            }
+            table[i] = key;
+        }
+        int tail = (head + size) % order.length;
+        order[tail] = key;
+        if (insertedAt != null) {
+            insertedAt[tail] = now;
+        }
+        size++;
+        return true;
+    }
+
+    private int indexOf(long key) {
+        for (int i = mix(key) & mask; table[i] != 0; i = (i + 1) & mask) {
+            if (table[i] == key) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private void expire(long now) {
+        if (insertedAt == null) {
+            return;
+        }
+        while (size > 0 && now - insertedAt[head] >= ttlNanos) {
+            evictOldest();
+        }
+    }
+
+    private void evictOldest() {
+        long key = order[head];
+        head = (head + 1) % order.length;
+        size--;
+        if (key == 0) {
+            hasZero = false;
+            return;
+        }
+        int i = indexOf(key);
+        // backward shift deletion
+        for (int j = (i + 1) & mask; table[j] != 0; j = (j + 1) & mask) {
+            int home = mix(table[j]) & mask;
+            if (((j - home) & mask) >= ((j - i) & mask)) {
+                table[i] = table[j];
+                i = j;
+            }
+        }
+        table[i] = 0;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * 이 집합이 차지하는 배열의 크기
+     */
+    long memoryBytes() {
+        return 8L * table.length + 8L * order.length + (insertedAt == null ? 0 : 8L * insertedAt.length);
+    }
+}
@@ -0,0 +1,110 @@
+package org.example.distinct;
+
+import java.util.Arrays;
+
+/**
+ * 메모리가 고정된 확률적 중복 판별기
+ *
+ * 블룸 필터 두 개(current, previous)를 세대처럼 번갈아 쓴다.
+ * current 에 keysPerGeneration 개가 쌓이면 previous 를 비워 새 current 로 삼는다.
+ * 그래서 최근 keysPerGeneration ~ 2 * keysPerGeneration 개의 키를 기억하며, 메모리는 처음 크기에서 늘어나지 않는다.
+ *
+ * 두 필터를 함께 조회하므로 각 필터는 fpp / 2 로 설계한다.
+ * 거짓 양성(false positive)이 나면 처음 보는 키를 중복으로 판단하여 버리게 된다. 거짓 음성은 없다.
+ */
+final class RotatingBloomFilter
+{
+    private final long keysPerGeneration;
+    private final int hashes;
+    private final long bits;
+
+    private long[] current;
+    private long[] previous;
+    private long inserted;
+
+    RotatingBloomFilter(long keysPerGeneration, double fpp) {
+        long words = words(keysPerGeneration, fpp);
+        this.keysPerGeneration = keysPerGeneration;
+        this.bits = words << 6;
+        this.hashes = Math.max(1, (int) Math.round((double) bits / keysPerGeneration * Math.log(2)));
+        this.current = new long[(int) words];
+        this.previous = new long[(int) words];
+    }
+
+    /**
+     * 필터 하나에 필요한 long 개수. 인자가 잘못되었으면 IllegalArgumentException
+     */
+    static long words(long keysPerGeneration, double fpp) {
+        if (keysPerGeneration <= 0) {
+            throw new IllegalArgumentException("keysPerGeneration > 0 required but it was " + keysPerGeneration);
+        }
+        if (!(fpp > 0 && fpp < 1)) {
+            throw new IllegalArgumentException("0 < fpp < 1 required but it was " + fpp);
+        }
+        double p = fpp / 2;
+        long m = (long) Math.ceil(-keysPerGeneration * Math.log(p) / (Math.log(2) * Math.log(2)));
+        long words = Math.max(1, (m + 63) >>> 6);
+        if (words > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("keysPerGeneration is too large for fpp " + fpp);
+        }
+        return words;
+    }
+
+    /**
+     * 이미 본 것으로 판단되면 false, 아니면 기억하고 true 를 반환한다.
+     */
+    boolean add(long hash) {
+        // Kirsch-Mitzenmacher 이중 해싱으로 k 개의 위치를 만든다.
+        long h1 = hash;
+        long h2 = Long.rotateLeft(hash, 32) | 1; // 0 이면 모든 위치가 같아지므로 홀수로 만든다.
+        if (contains(current, h1, h2) || contains(previous, h1, h2)) {
+            return false;
+        }
+        for (int i = 1; i <= hashes; i++) {
+            long index = index(h1 + i * h2);
+            current[(int) (index >>> 6)] |= 1L << index;
+        }
+        if (++inserted == keysPerGeneration) {
+            long[] recycled = previous;
+            Arrays.fill(recycled, 0L);
+            previous = current;
+            current = recycled;
+            inserted = 0;
+        }
+        return true;
+    }
+
+    /**
+     * 나눗셈 대신 곱셈으로 [0, bits) 범위에 대응시킨다.
+     */
+    private long index(long combined) {
+        return Math.multiplyHigh(combined & Long.MAX_VALUE, bits << 1);
+    }
+
+    private boolean contains(long[] filter, long h1, long h2) {
+        for (int i = 1; i <= hashes; i++) {
+            long index = index(h1 + i * h2);
+            if ((filter[(int) (index >>> 6)] & (1L << index)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 64비트 해시를 만든다. (SplitMix64 의 finalizer)
+     */
+    static long hash(long key) {
+        key = (key ^ (key >>> 30)) * 0xBF58476D1CE4E5B9L;
+        key = (key ^ (key >>> 27)) * 0x94D049BB133111EBL;
+        return key ^ (key >>> 31);
+    }
+
+    long memoryBytes() {
+        return 8L * (current.length + previous.length);
+    }
+
+    int hashes() {
+        return hashes;
+    }
+}
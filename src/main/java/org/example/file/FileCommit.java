@@ -0,0 +1,13 @@
+package org.example.file;
+
+/**
+ * GroupCommitFileSink 가 배치 하나를 파일에 쓰고 fsync 까지 끝냈다는 확인
+ *
+ * @param batch    구독 안에서 0 부터 매기는 배치 번호
+ * @param elements 이 배치에 들어간 요소 수
+ * @param bytes    이 배치가 쓴 바이트 수
+ * @param position 이 배치를 쓴 뒤의 파일 끝 위치. 이 위치 전까지는 디스크에 기록되었다.
+ */
+public record FileCommit(long batch, int elements, long bytes, long position)
+{
+}
@@ -0,0 +1,27 @@
+package org.example.file;
+
+/**
+ * 파일의 바이트 구간 [start, end)
+ *
+ * MappedFileSource.split 이 만든 구간은 줄 경계에서 나뉘므로, 구간마다 따로 lines 를 구독해도 줄이 잘리거나 겹치지 않는다.
+ *
+ * @param start 첫 바이트의 위치 (포함)
+ * @param end   마지막 바이트 다음 위치 (제외). 파일 크기보다 크면 파일 끝까지 읽는다.
+ */
+public record FileRange(long start, long end)
+{
+    public static final FileRange WHOLE_FILE = new FileRange(0, Long.MAX_VALUE);
+
+    public FileRange {
+        if (start < 0) {
+            throw new IllegalArgumentException("start >= 0 required but it was " + start);
+        }
+        if (end < start) {
+            throw new IllegalArgumentException("end >= start required but it was " + end + " < " + start);
+        }
+    }
+
+    public long length() {
+        return end - start;
+    }
+}
@@ -0,0 +1,523 @@
+package org.example.file;
+
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscription;
+import reactor.core.CoreSubscriber;
+import reactor.core.Disposable;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Operators;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.concurrent.Queues;
+import reactor.util.context.Context;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.OpenOption;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
+/**
+ * ByteBuffer 스트림을 파일에 모아서 쓰고, 배치마다 한 번만 fsync 하는 싱크 (group commit)
+ *
+ * subscribe(buffer -&gt; channel.write(buffer)) 처럼 요소마다 쓰면 write 시스템 콜이 요소 수만큼 일어나고,
+ * 요소마다 force 를 부르면 처리량이 디스크의 fsync 속도(초당 수백~수천 번)로 묶인다.
+ *
+ * GroupCommitFileSink 는 받은 요소를 배치에 모았다가 한 번의 gathering write(FileChannel.write(ByteBuffer[]))와 한 번의 fsync 로 쓴다.
+ *  * 작은 요소(COPY_THRESHOLD 미만)는 64KB direct 버퍼에 이어 붙이고, 큰 요소는 복사하지 않고 그대로 write 배열에 넣는다.
+ *  * 배치는 maxBatchBytes 를 넘거나, 첫 요소를 받은 뒤 maxBatchDelay 가 지나거나, 상류가 끝나면 쓴다.
+ *  * 쓰기와 fsync 는 스케줄러의 워커 하나에서 차례로 한다. fsync 하는 동안 도착한 요소는 다음 배치에 모이므로,
+ *    maxBatchDelay 가 0 이어도 바쁠수록 배치가 커진다.
+ *
+ * <pre>
+ * GroupCommitFileSink sink = GroupCommitFileSink.builder(path)
+ *     .append(true)
+ *     .maxBatchBytes(1024 * 1024)
+ *     .maxBatchDelay(Duration.ofMillis(2))
+ *     .build();
+ *
+ * sink.write(events.map(Event::encode))           // Mono&lt;Void&gt;: 모두 디스크에 기록되면 완료
+ * sink.commits(events.map(Event::encode))         // Flux&lt;FileCommit&gt;: 배치마다 확인
+ * </pre>
+ *
+ * 규칙
+ *  * 구독할 때 파일을 열고, 끝나면 닫는다. 상류로는 prefetch 개씩 요청하고, 꺼낸 만큼 다시 요청한다.
+ *  * 상류가 에러로 끝나면 그때까지 받은 요소를 쓰고 fsync 한 뒤 에러를 전달한다.
+ *  * 쓰기나 fsync 가 실패하면 상류를 취소하고 IOException 으로 끝난다. 실패한 배치는 일부만 기록되었을 수 있다.
+ *  * 취소하면 아직 쓰지 않은 배치는 버린다.
+ *  * 큰 요소는 쓸 때까지 참조만 하므로, 내보낸 ByteBuffer 의 내용을 바꾸면 안 된다. 요소의 position 은 바꾸지 않는다.
+ *  * commits 의 확인은 하류가 요청할 때까지 쌓아 둔다. (배치 하나에 객체 하나)
+ */
+public final class GroupCommitFileSink
+{
+    public static final int DEFAULT_MAX_BATCH_BYTES = 1024 * 1024;
+    public static final int DEFAULT_PREFETCH = Queues.SMALL_BUFFER_SIZE;
+
+    /**
+     * 이보다 작은 요소는 스테이징 버퍼에 복사한다.
+     */
+    static final int COPY_THRESHOLD = 8 * 1024;
+    static final int STAGING_BUFFER_SIZE = 64 * 1024;
+
+    private static final ByteBuffer[] NO_BUFFERS = new ByteBuffer[0];
+
+    final Path path;
+    final OpenOption[] openOptions;
+    final int maxBatchBytes;
+    final long maxBatchDelayNanos;
+    final boolean fsync;
+    final int prefetch;
+    final Scheduler scheduler;
+
+    private GroupCommitFileSink(Builder builder) {
+        this.path = builder.path;
+        this.openOptions = builder.append
+            ? new OpenOption[] {StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND}
+            : new OpenOption[] {StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING};
+        this.maxBatchBytes = builder.maxBatchBytes;
+        this.maxBatchDelayNanos = builder.maxBatchDelay.toNanos();
+        this.fsync = builder.fsync;
+        this.prefetch = builder.prefetch;
+        this.scheduler = builder.scheduler;
+    }
+
+    public static Builder builder(Path path) {
+        return new Builder(path);
+    }
+
+    /**
+     * source 를 모두 쓰고 fsync 까지 끝나면 완료되는 Mono
+     */
+    public Mono<Void> write(Publisher<? extends ByteBuffer> source) {
+        return commits(source).then();
+    }
+
+    /**
+     * source 를 배치로 나눠 쓰고, 배치가 디스크에 기록될 때마다 FileCommit 을 내보낸다.
+     */
+    public Flux<FileCommit> commits(Publisher<? extends ByteBuffer> source) {
+        Objects.requireNonNull(source, "source");
+        return Flux.from(actual -> {
+            CommitSubscriber parent = new CommitSubscriber(Operators.toCoreSubscriber(actual), this, scheduler.createWorker());
+            actual.onSubscribe(parent);
+            source.subscribe(parent);
+        });
+    }
+
+    static final class CommitSubscriber implements CoreSubscriber<ByteBuffer>, Subscription, Runnable
+    {
+        final CoreSubscriber<? super FileCommit> actual;
+        final GroupCommitFileSink parent;
+        final Scheduler.Worker worker;
+        final Queue<ByteBuffer> queue;
+        final Queue<FileCommit> commits = Queues.<FileCommit>unbounded().get();
+        final int limit;
+
+        volatile Subscription upstream;
+        @SuppressWarnings("rawtypes")
+        static final AtomicReferenceFieldUpdater<CommitSubscriber, Subscription> UPSTREAM =
+            AtomicReferenceFieldUpdater.newUpdater(CommitSubscriber.class, Subscription.class, "upstream");
+
+        volatile boolean done;
+        Throwable error;
+        volatile boolean cancelled;
+        volatile boolean timerFired;
+
+        volatile int wip;
+        static final AtomicIntegerFieldUpdater<CommitSubscriber> WIP =
+            AtomicIntegerFieldUpdater.newUpdater(CommitSubscriber.class, "wip");
+
+        volatile long requested;
+        static final AtomicLongFieldUpdater<CommitSubscriber> REQUESTED =
+            AtomicLongFieldUpdater.newUpdater(CommitSubscriber.class, "requested");
+
+        // 아래는 워커에서만 읽고 쓴다.
+        FileChannel channel;
+        long position;
+        long batchIndex;
+        final List<ByteBuffer> entries = new ArrayList<>();
+        final List<ByteBuffer> staged = new ArrayList<>();
+        final ArrayDeque<ByteBuffer> pool = new ArrayDeque<>();
+        ByteBuffer current;  // 작은 요소를 이어 붙이는 중인 스테이징 버퍼. entries 의 마지막이 아니면 null
+        long batchBytes;
+        int batchElements;
+        Disposable timer;
+        int consumed;
+        long emitted;
+        boolean terminated;  // 파일을 닫았다. 남은 확인을 내보내면 종료 신호를 보낸다.
+        Throwable terminalError;
+        boolean signalled;
+
+        CommitSubscriber(CoreSubscriber<? super FileCommit> actual, GroupCommitFileSink parent, Scheduler.Worker worker) {
+            this.actual = actual;
+            this.parent = parent;
+            this.worker = worker;
+            this.queue = Queues.<ByteBuffer>get(parent.prefetch).get();
+            this.limit = parent.prefetch - (parent.prefetch >> 2);
+        }
+
+        @Override
+        public void onSubscribe(Subscription s) {
+            if (Operators.setOnce(UPSTREAM, this, s)) {
+                s.request(parent.prefetch);
+            }
+        }
+
+        @Override
+        public void onNext(ByteBuffer buffer) {
+            if (done) {
+                Operators.onNextDropped(buffer, actual.currentContext());
+                return;
+            }
+            if (!queue.offer(buffer)) {
+                Operators.terminate(UPSTREAM, this);
+                onError(Operators.onOperatorError(null, Exceptions.failWithOverflow(), buffer, actual.currentContext()));
+                return;
+            }
+            trySchedule();
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            if (done) {
+                Operators.onErrorDropped(t, actual.currentContext());
+                return;
+            }
+            error = t;
+            done = true;
+            trySchedule();
+        }
+
+        @Override
+        public void onComplete() {
+            if (done) {
+                return;
+            }
+            done = true;
+            trySchedule();
+        }
+
+        @Override
+        public void request(long n) {
+            if (Operators.validate(n)) {
+                Operators.addCap(REQUESTED, this, n);
+                trySchedule();
+            }
+        }
+
+        @Override
+        public void cancel() {
+            if (cancelled) {
+                return;
+            }
+            cancelled = true;
+            Operators.terminate(UPSTREAM, this);
+            trySchedule();
+        }
+
+        @Override
+        public Context currentContext() {
+            return actual.currentContext();
+        }
+
+        void trySchedule() {
+            if (WIP.getAndIncrement(this) != 0) {
+                return;
+            }
+            try {
+                worker.schedule(this);
+            }
+            catch (RejectedExecutionException e) {
+                // 종료 신호를 보낸 뒤 늦게 도착한 request 는 무시한다.
+                if (!signalled && !cancelled) {
+                    Operators.terminate(UPSTREAM, this);
+                    actual.onError(Operators.onRejectedExecution(e, actual.currentContext()));
+                }
+            }
+        }
+
+        @Override
+        public void run() {
+            int missed = 1;
+            for (;;) {
+                if (cancelled) {
+                    Operators.onDiscardQueueWithClear(queue, actual.currentContext(), null);
+                    close();
+                    worker.dispose();
+                    return;
+                }
+                if (!terminated) {
+                    process();
+                }
+                emitCommits();
+                missed = WIP.addAndGet(this, -missed);
+                if (missed == 0) {
+                    return;
+                }
+            }
+        }
+
+        void process() {
+            if (channel == null) {
+                try {
+                    channel = FileChannel.open(parent.path, parent.openOptions);
+                    position = channel.size();
+                }
+                catch (IOException | RuntimeException e) {
+                    fail(e);
+                    return;
+                }
+            }
+            boolean d = done;
+            for (;;) {
+                if (batchBytes >= parent.maxBatchBytes && !flush()) {
+                    return;
+                }
+                ByteBuffer buffer = queue.poll();
+                if (buffer == null) {
+                    break;
+                }
+                add(buffer);
+                if (++consumed == limit) {
+                    consumed = 0;
+                    upstream.request(limit);
+                }
+            }
+            if (d) {
+                // 상류의 에러보다 먼저 받은 요소도 기록한 뒤에 에러를 전달한다.
+                if (batchElements > 0 && !flush()) {
+                    return;
+                }
+                finish(error);
+                return;
+            }
+            if (batchElements > 0) {
+                if (timerFired || parent.maxBatchDelayNanos == 0) {
+                    flush();
+                }
+                else if (timer == null) {
+                    timer = worker.schedule(() -> {
+                        timerFired = true;
+                        trySchedule();
+                    }, parent.maxBatchDelayNanos, TimeUnit.NANOSECONDS);
+                }
+            }
+        }
+
+        void add(ByteBuffer buffer) {
+            int n = buffer.remaining();
+            if (n >= COPY_THRESHOLD) {
+                entries.add(buffer.slice());
+                current = null;
+            }
+            else if (n > 0) {
+                if (current == null || current.remaining() < n) {
+                    ByteBuffer staging = pool.poll();
+                    current = staging != null ? staging : ByteBuffer.allocateDirect(STAGING_BUFFER_SIZE);
+                    staged.add(current);
+                    entries.add(current);
+                }
+                current.put(current.position(), buffer, buffer.position(), n);
+                current.position(current.position() + n);
+            }
+            batchBytes += n;
+            batchElements++;
+        }
+
+        /**
+         * 모은 배치를 한 번에 쓰고 fsync 한다. 실패하면 fail 로 끝내고 false 를 반환한다.
+         */
+        boolean flush() {
+            for (ByteBuffer staging : staged) {
+                staging.flip();
+            }
+            ByteBuffer[] sources = entries.toArray(NO_BUFFERS);
+            try {
+                long remaining = batchBytes;
+                int offset = 0;
+                while (remaining > 0) {
+                    remaining -= channel.write(sources, offset, sources.length - offset);
+                    while (offset < sources.length && !sources[offset].hasRemaining()) {
+                        offset++;
+                    }
+                }
+                if (parent.fsync) {
+                    channel.force(false);
+                }
+            }
+            catch (IOException | RuntimeException e) {
+                fail(e);
+                return false;
+            }
+            position += batchBytes;
+            commits.offer(new FileCommit(batchIndex++, batchElements, batchBytes, position));
+
+            int maxPooled = parent.maxBatchBytes / STAGING_BUFFER_SIZE + 1;
+            for (ByteBuffer staging : staged) {
+                if (pool.size() < maxPooled) {
+                    pool.offer(staging.clear());
+                }
+            }
+            staged.clear();
+            entries.clear();
+            current = null;
+            batchBytes = 0;
+            batchElements = 0;
+            if (timer != null) {
+                timer.dispose();
+                timer = null;
+            }
+            timerFired = false;
+            return true;
+        }
+
+        void fail(Throwable e) {
+            Operators.terminate(UPSTREAM, this);
+            Operators.onDiscardQueueWithClear(queue, actual.currentContext(), null);
+            finish(e);
+        }
+
+        void finish(Throwable e) {
+            close();
+            terminated = true;
+            terminalError = e;
+        }
+
+        void close() {
+            if (timer != null) {
+                timer.dispose();
+                timer = null;
+            }
+            if (channel != null) {
+                try {
+                    channel.close();
+                }
+                catch (IOException e) {
+                    if (terminalError == null && !cancelled) {
+                        terminalError = e;
+                    }
+                }
+                channel = null;
+            }
+        }
+
+        void emitCommits() {
+            if (signalled) {
+                return;
+            }
+            long r = requested;
+            long e = emitted;
+            while (e != r) {
+                FileCommit commit = commits.poll();
+                if (commit == null) {
+                    break;
+                }
+                actual.onNext(commit);
+                e++;
+            }
+            emitted = e;
+            if (terminated && commits.isEmpty()) {
+                signalled = true;
+                worker.dispose();
+                if (terminalError != null) {
+                    actual.onError(terminalError);
+                }
+                else {
+                    actual.onComplete();
+                }
+            }
+        }
+    }
+
+    public static final class Builder
+    {
+        final Path path;
+        boolean append;
+        int maxBatchBytes = DEFAULT_MAX_BATCH_BYTES;
+        Duration maxBatchDelay = Duration.ZERO;
+        boolean fsync = true;
+        int prefetch = DEFAULT_PREFETCH;
+        Scheduler scheduler = Schedulers.boundedElastic();
+
+        Builder(Path path) {
+            this.path = Objects.requireNonNull(path, "path");
+        }
+
+        /**
+         * true 면 파일 끝에 이어 쓴다. 기본 false 이며, 이때는 구독할 때 파일을 비운다.
+         */
+        public Builder append(boolean append) {
+            this.append = append;
+            return this;
+        }
+
+        /**
+         * 배치가 이 크기를 넘으면 바로 쓴다. 기본 1MB
+         */
+        public Builder maxBatchBytes(int maxBatchBytes) {
+            if (maxBatchBytes <= 0) {
+                throw new IllegalArgumentException("maxBatchBytes > 0 required but it was " + maxBatchBytes);
+            }
+            this.maxBatchBytes = maxBatchBytes;
+            return this;
+        }
+
+        /**
+         * 배치의 첫 요소를 받은 뒤 이 시간이 지나면 크기와 상관없이 쓴다.
+         * 기본 0 이며, 이때는 받은 요소가 더 없을 때마다 쓴다. (앞 배치의 fsync 동안 모인 요소가 다음 배치가 된다.)
+         */
+        public Builder maxBatchDelay(Duration maxBatchDelay) {
+            Objects.requireNonNull(maxBatchDelay, "maxBatchDelay");
+            if (maxBatchDelay.isNegative()) {
+                throw new IllegalArgumentException("maxBatchDelay >= 0 required but it was " + maxBatchDelay);
+            }
+            this.maxBatchDelay = maxBatchDelay;
+            return this;
+        }
+
+        /**
+         * false 면 배치를 쓰기만 하고 fsync 하지 않는다. (FileCommit 은 OS 페이지 캐시에 들어갔다는 뜻이 된다.) 기본 true
+         */
+        public Builder fsync(boolean fsync) {
+            this.fsync = fsync;
+            return this;
+        }
+
+        /**
+         * 상류에 미리 요청할 요소 수. 기본 256
+         */
+        public Builder prefetch(int prefetch) {
+            if (prefetch <= 0) {
+                throw new IllegalArgumentException("prefetch > 0 required but it was " + prefetch);
+            }
+            this.prefetch = prefetch;
+            return this;
+        }
+
+        /**
+         * 쓰기와 fsync, 배치 타이머에 쓸 스케줄러. 블로킹 호출을 하므로 기본은 Schedulers.boundedElastic() 이다.
+         */
+        public Builder scheduler(Scheduler scheduler) {
+            this.scheduler = Objects.requireNonNull(scheduler, "scheduler");
+            return this;
+        }
+
+        public GroupCommitFileSink build() {
+            return new GroupCommitFileSink(this);
+        }
+    }
+}
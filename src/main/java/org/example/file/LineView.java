@@ -0,0 +1,76 @@
+package org.example.file;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 매핑된 파일 안의 한 줄을 가리키는 CharSequence. 바이트를 복사하지 않는다.
+ *
+ * length()/charAt() 은 바이트 하나를 문자 하나로 본다. (ISO-8859-1) ASCII 로그를 파싱하는 데는 그대로 쓰면 되고,
+ * UTF-8 등 멀티바이트 문자가 섞여 있으면 toString() 이나 toString(Charset) 으로 디코딩한다. 디코딩할 때 처음으로 복사가 일어난다.
+ *
+ * 뷰는 매핑된 영역을 참조하므로 뷰가 살아 있는 동안 그 영역도 GC 되지 않는다.
+ * 오래 보관할 값이라면 toString() 으로 꺼내서 보관한다.
+ */
+public final class LineView implements CharSequence
+{
+    final ByteBuffer region;
+    final int offset;
+    final int length;
+
+    LineView(ByteBuffer region, int offset, int length) {
+        this.region = region;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public char charAt(int index) {
+        if (index < 0 || index >= length) {
+            throw new IndexOutOfBoundsException("index " + index + " out of bounds for length " + length);
+        }
+        return (char) (region.get(offset + index) & 0xFF);
+    }
+
+    public byte byteAt(int index) {
+        if (index < 0 || index >= length) {
+            throw new IndexOutOfBoundsException("index " + index + " out of bounds for length " + length);
+        }
+        return region.get(offset + index);
+    }
+
+    @Override
+    public LineView subSequence(int start, int end) {
+        if (start < 0 || end > length || start > end) {
+            throw new IndexOutOfBoundsException("begin " + start + ", end " + end + ", length " + length);
+        }
+        return new LineView(region, offset + start, end - start);
+    }
+
+    /**
+     * 줄 내용을 담은 읽기 전용 ByteBuffer. 바이트는 복사하지 않는다.
+     */
+    public ByteBuffer buffer() {
+        return region.slice(offset, length);
+    }
+
+    public String toString(Charset charset) {
+        byte[] bytes = new byte[length];
+        region.get(offset, bytes);
+        return new String(bytes, charset);
+    }
+
+    /**
+     * UTF-8 로 디코딩한 문자열
+     */
+    @Override
+    public String toString() {
+        return toString(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,343 @@
+package org.example.file;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.ParallelFlux;
+import reactor.core.publisher.SynchronousSink;
+import reactor.core.scheduler.Scheduler;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * 파일을 메모리 매핑해서 ByteBuffer 조각이나 줄 단위로 내보내는 소스
+ *
+ * Flux.fromStream(Files.lines(path)) 는 BufferedReader 로 읽어서 줄마다 char[] 로 디코딩하고 String 을 만든다.
+ * 수 GB 짜리 로그 파일이면 읽은 바이트를 두세 번 복사하게 되고, 요청(request)과 상관없이 버퍼 단위로 읽는다.
+ *
+ * MappedFileSource 는 파일을 regionSize 단위로 나눠 필요할 때 매핑한다.
+ *  * chunks : 매핑된 영역을 chunkSize 씩 자른 읽기 전용 ByteBuffer 를 내보낸다. 바이트는 복사하지 않는다.
+ *  * lines  : 줄을 가리키는 LineView 를 내보낸다. 줄 끝(\n, \r\n)은 8 바이트씩 한꺼번에 찾는다.
+ *  * split  : 파일을 줄 경계에서 n 개의 FileRange 로 나눈다. 구간마다 lines 를 구독하면 여러 rail 에서 나눠 읽을 수 있다.
+ *
+ * <pre>
+ * MappedFileSource.lines(path)
+ *     .filter(line -&gt; line.length() &gt; 0 &amp;&amp; line.charAt(0) == 'E')
+ *     .map(LineView::toString)
+ *
+ * MappedFileSource.parallelLines(path, 4, Schedulers.parallel())
+ *     .filter(...)
+ *     .sequential()
+ * </pre>
+ *
+ * 규칙
+ *  * 요청한 만큼만 만든다. (Flux.generate) 구독할 때 파일을 열고, 완료/에러/취소 시 닫는다.
+ *  * 매핑된 영역의 페이지를 처음 읽을 때 디스크 I/O 가 일어날 수 있다. 이벤트 루프에서는 subscribeOn(boundedElastic) 으로 구독한다.
+ *  * 줄은 \n 과 \r\n 으로만 나눈다. BufferedReader 와 달리 \r 하나만 있는 줄 끝(옛 Mac 형식)은 줄 끝으로 보지 않고 줄 내용에 남긴다.
+ *    BufferedReader 처럼 마지막 줄에 줄바꿈이 없어도 내보내고, 파일 끝의 줄바꿈 뒤에는 빈 줄을 만들지 않는다.
+ *  * 한 줄은 regionSize 보다 길 수 없다. 더 긴 줄을 만나면 IOException 으로 끝난다.
+ *  * 매핑은 명시적으로 해제하지 않는다. 내보낸 버퍼와 뷰가 모두 GC 되면 함께 해제되므로 해제된 메모리를 읽을 일은 없다.
+ *  * 파일을 읽는 도중에 다른 프로세스가 파일을 줄이면 SIGBUS 대신 InternalError 가 날 수 있다. 추가만 되는(append-only) 파일에 쓴다.
+ */
+public final class MappedFileSource
+{
+    public static final int DEFAULT_REGION_SIZE = 64 * 1024 * 1024;
+    public static final int DEFAULT_CHUNK_SIZE = 64 * 1024;
+
+    private static final long NEWLINES = 0x0A0A0A0A0A0A0A0AL;
+    private static final long LOW_BITS = 0x0101010101010101L;
+    private static final long HIGH_BITS = 0x8080808080808080L;
+
+    private MappedFileSource() {
+    }
+
+    public static Flux<ByteBuffer> chunks(Path path) {
+        return chunks(path, FileRange.WHOLE_FILE, DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * range 구간을 chunkSize 바이트씩 자른 읽기 전용 ByteBuffer. 마지막 조각만 chunkSize 보다 작을 수 있다.
+     */
+    public static Flux<ByteBuffer> chunks(Path path, FileRange range, int chunkSize) {
+        Objects.requireNonNull(path, "path");
+        Objects.requireNonNull(range, "range");
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("chunkSize > 0 required but it was " + chunkSize);
+        }
+        // 조각이 영역 경계에 걸치지 않도록 영역을 chunkSize 의 배수로 맞춘다.
+        int regionSize = Math.max(1, DEFAULT_REGION_SIZE / chunkSize) * chunkSize;
+        return generate(path, channel -> new ChunkReader(channel, range, regionSize, chunkSize));
+    }
+
+    public static Flux<LineView> lines(Path path) {
+        return lines(path, FileRange.WHOLE_FILE, DEFAULT_REGION_SIZE);
+    }
+
+    public static Flux<LineView> lines(Path path, FileRange range) {
+        return lines(path, range, DEFAULT_REGION_SIZE);
+    }
+
+    /**
+     * range.start 에서 range.end 전 사이에서 시작하는 줄. 마지막 줄은 range.end 를 넘어가더라도 끝까지 읽는다.
+     * range.start 는 줄의 시작이어야 한다. (split 이 만든 구간이면 항상 그렇다.)
+     */
+    public static Flux<LineView> lines(Path path, FileRange range, int regionSize) {
+        Objects.requireNonNull(path, "path");
+        Objects.requireNonNull(range, "range");
+        if (regionSize <= 0) {
+            throw new IllegalArgumentException("regionSize > 0 required but it was " + regionSize);
+        }
+        return generate(path, channel -> new LineReader(channel, range, regionSize));
+    }
+
+    /**
+     * 파일을 줄 경계에서 크기가 비슷한 parts 개 이하의 구간으로 나눈다. 구간들은 겹치지 않고 파일 전체를 덮는다.
+     * 경계 근처의 바이트를 조금 읽으므로 블로킹 호출이다.
+     */
+    public static List<FileRange> split(Path path, int parts) throws IOException {
+        Objects.requireNonNull(path, "path");
+        if (parts <= 0) {
+            throw new IllegalArgumentException("parts > 0 required but it was " + parts);
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            List<FileRange> ranges = new ArrayList<>(parts);
+            ByteBuffer buffer = ByteBuffer.allocate(8 * 1024);
+            long start = 0;
+            for (int i = 1; i < parts && start < size; i++) {
+                long boundary = Math.max(start, nextLineStart(channel, buffer, size * i / parts, size));
+                if (boundary > start) {
+                    ranges.add(new FileRange(start, boundary));
+                    start = boundary;
+                }
+            }
+            if (start < size) {
+                ranges.add(new FileRange(start, size));
+            }
+            return ranges;
+        }
+    }
+
+    /**
+     * split 으로 나눈 구간을 rail 마다 하나씩 맡아 읽는다. rail 안에서는 파일 순서를 지킨다.
+     */
+    public static ParallelFlux<LineView> parallelLines(Path path, int rails, Scheduler scheduler) {
+        Objects.requireNonNull(scheduler, "scheduler");
+        return Mono.fromCallable(() -> split(path, rails))
+            .flatMapIterable(ranges -> ranges)
+            .parallel(rails)
+            .runOn(scheduler, 1)
+            .concatMap(range -> lines(path, range));
+    }
+
+    /**
+     * position 바로 앞 바이트부터 처음 나오는 \n 의 다음 위치. 없으면 size.
+     */
+    private static long nextLineStart(FileChannel channel, ByteBuffer buffer, long position, long size) throws IOException {
+        if (position == 0) {
+            return 0;
+        }
+        long offset = position - 1;
+        while (offset < size) {
+            buffer.clear();
+            int read = channel.read(buffer, offset);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == '\n') {
+                    return offset + i + 1;
+                }
+            }
+            offset += read;
+        }
+        return size;
+    }
+
+    private static <T> Flux<T> generate(Path path, Function<FileChannel, Reader<T>> factory) {
+        return Flux.generate(() -> factory.apply(FileChannel.open(path, StandardOpenOption.READ)),
+            MappedFileSource::emit,
+            Reader::close);
+    }
+
+    private static <T> Reader<T> emit(Reader<T> reader, SynchronousSink<T> sink) {
+        T next;
+        try {
+            next = reader.next();
+        }
+        catch (IOException e) {
+            sink.error(e);
+            return reader;
+        }
+        if (next == null) {
+            sink.complete();
+        }
+        else {
+            sink.next(next);
+        }
+        return reader;
+    }
+
+    /**
+     * from 부터 limit 전까지에서 처음 나오는 \n 의 위치. 없으면 -1.
+     * 8 바이트씩 읽어서 '\n' 과 XOR 한 뒤 0 인 바이트를 찾는다. (region 은 little endian 이어야 한다.)
+     */
+    static int indexOfNewline(ByteBuffer region, int from, int limit) {
+        int i = from;
+        for (; i + Long.BYTES <= limit; i += Long.BYTES) {
+            long word = region.getLong(i) ^ NEWLINES;
+            long found = (word - LOW_BITS) & ~word & HIGH_BITS;
+            if (found != 0) {
+                return i + (Long.numberOfTrailingZeros(found) >>> 3);
+            }
+        }
+        for (; i < limit; i++) {
+            if (region.get(i) == '\n') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 구독 하나가 파일을 읽는 상태. Flux.generate 가 한 번에 한 스레드에서만 호출한다.
+     * 파일 크기는 첫 next() 에서 읽으므로 생성자는 예외를 던지지 않는다. (열린 채널이 새지 않도록)
+     */
+    abstract static class Reader<T>
+    {
+        final FileChannel channel;
+        final FileRange range;
+        final int regionSize;
+
+        long fileSize = -1;
+        long end;
+        MappedByteBuffer region;
+        long regionStart;
+        int position;
+
+        Reader(FileChannel channel, FileRange range, int regionSize) {
+            this.channel = channel;
+            this.range = range;
+            this.regionSize = regionSize;
+        }
+
+        /**
+         * 다음 요소. 더 없으면 null.
+         */
+        abstract T next() throws IOException;
+
+        /**
+         * 처음 호출되면 파일 크기를 읽는다. 읽을 것이 없으면 false.
+         */
+        final boolean init() throws IOException {
+            if (fileSize < 0) {
+                fileSize = channel.size();
+                end = Math.min(range.end(), fileSize);
+            }
+            return range.start() < end;
+        }
+
+        final void map(long start, long limit) throws IOException {
+            region = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(regionSize, limit - start));
+            region.order(ByteOrder.LITTLE_ENDIAN);
+            regionStart = start;
+            position = 0;
+        }
+
+        final void close() {
+            try {
+                channel.close();
+            }
+            catch (IOException ignored) {
+                // 읽기 전용 채널은 닫다가 실패해도 잃을 데이터가 없다.
+            }
+        }
+    }
+
+    static final class ChunkReader extends Reader<ByteBuffer>
+    {
+        final int chunkSize;
+
+        ChunkReader(FileChannel channel, FileRange range, int regionSize, int chunkSize) {
+            super(channel, range, regionSize);
+            this.chunkSize = chunkSize;
+        }
+
+        @Override
+        ByteBuffer next() throws IOException {
+            if (region == null) {
+                if (!init()) {
+                    return null;
+                }
+                map(range.start(), end);
+            }
+            long absolute = regionStart + position;
+            if (absolute >= end) {
+                return null;
+            }
+            if (position == region.limit()) {
+                map(absolute, end);
+            }
+            int length = Math.min(chunkSize, region.limit() - position);
+            ByteBuffer chunk = region.slice(position, length);
+            position += length;
+            return chunk;
+        }
+    }
+
+    static final class LineReader extends Reader<LineView>
+    {
+        LineReader(FileChannel channel, FileRange range, int regionSize) {
+            super(channel, range, regionSize);
+        }
+
+        @Override
+        LineView next() throws IOException {
+            if (region == null) {
+                if (!init()) {
+                    return null;
+                }
+                // 마지막 줄은 range.end 를 넘어갈 수 있으므로 파일 끝까지 매핑할 수 있게 둔다.
+                map(range.start(), fileSize);
+            }
+            for (;;) {
+                if (regionStart + position >= end) {
+                    return null;
+                }
+                int limit = region.limit();
+                int newline = indexOfNewline(region, position, limit);
+                if (newline >= 0) {
+                    LineView line = view(position, newline);
+                    position = newline + 1;
+                    return line;
+                }
+                if (regionStart + limit >= fileSize) {
+                    LineView line = view(position, limit);
+                    position = limit;
+                    return line;
+                }
+                if (position == 0) {
+                    throw new IOException("line at " + regionStart + " is longer than regionSize " + regionSize);
+                }
+                // 줄이 영역 경계에 걸쳤다. 줄의 시작부터 다시 매핑한다.
+                map(regionStart + position, fileSize);
+            }
+        }
+
+        private LineView view(int from, int to) {
+            if (to > from && region.get(to - 1) == '\r') {
+                to--;
+            }
+            return new LineView(region, from, to - from);
+        }
+    }
+}
@@ -0,0 +1,415 @@
+package org.example.hedge;
+
+import org.example.scheduler.LatencyHistogram;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscription;
+import reactor.core.CoreSubscriber;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Operators;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.context.Context;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * 느린 요청에만 예비 소스를 추가로 구독하는 헤징(hedged request) 정책
+ *
+ * Flux.first(primary, backup) 은 두 소스를 동시에 구독하므로 upstream 부하가 항상 두 배가 된다.
+ * first(primary, backup) 은 primary 만 먼저 구독하고, 지연 시간(delay) 안에 첫 신호가 오지 않을 때만 backup 을 구독한다.
+ * 그 뒤로는 Flux.first 처럼 먼저 신호를 보낸 쪽을 따르고 나머지는 취소한다.
+ *
+ * <pre>
+ * HedgePolicy hedge = HedgePolicy.builder()
+ *     .percentile(95)
+ *     .budgetPercent(5)
+ *     .build();
+ *
+ * Flux&lt;Quote&gt; quote = hedge.first(replicaA.quote(symbol), replicaB.quote(symbol));
+ * </pre>
+ *
+ * 지연 시간
+ *  * primary 를 구독한 뒤 (어느 쪽이든) 첫 신호까지 걸린 시간을 히스토그램에 기록하고, 그 percentile 값(기본 p95)을 지연 시간으로 쓴다.
+ *    backup 이 이기면 primary 의 응답 시간은 적어도 그만큼이라는 것만 알 수 있으므로 그 하한을 기록한다.
+ *    backup 자신의 (짧은) 응답 시간을 기록하면 느린 요청일수록 빠른 값으로 바뀌어 기록되므로 지연 시간이 점점 줄고 헤징이 늘어난다.
+ *  * 히스토그램은 window 개(기본 1,000)를 기록할 때마다 새로 시작한다. 지연 시간은 그때 한 번 다시 계산하므로 최근 window 개를 따른다.
+ *    첫 window 가 차기 전에는 32, 64, 128 ... 개째에 미리 계산하고, 기록이 32 개보다 적으면 maxDelay 를 쓴다.
+ *  * 계산한 값은 [minDelay, maxDelay] 로 자른다.
+ *  * 시간은 System.nanoTime() 으로 잰다. (Scheduler.now() 는 1ms 단위라 수 ms 이하의 지연 시간을 제대로 나누지 못한다.)
+ *
+ * 예산(budget)
+ *  * 구독마다 budgetPercent / 100 개의 토큰이 쌓이고, backup 을 구독할 때 토큰 1 개를 쓴다. 토큰은 최대 MAX_BURST 개까지 쌓인다.
+ *  * 토큰이 없으면 헤징하지 않고 primary 를 계속 기다린다. 따라서 backup 구독은 전체의 budgetPercent% (+ MAX_BURST) 를 넘지 않는다.
+ *    upstream 전체가 느려져도 부하가 두 배가 되지 않는다.
+ *
+ * 규칙
+ *  * Flux.first 처럼 onNext 뿐 아니라 onError, onComplete 도 첫 신호다. primary 가 지연 시간 안에 에러를 내면 헤징 없이 에러로 끝난다.
+ *  * 하나의 정책을 여러 요청이 공유해야 통계와 예산이 의미가 있다. 모든 메서드는 여러 스레드에서 호출해도 된다.
+ */
+public final class HedgePolicy
+{
+    /**
+     * 예산 토큰의 최대 개수. 한동안 헤징하지 않았다가 갑자기 느려져도 이만큼만 몰아서 헤징한다.
+     */
+    public static final int MAX_BURST = 10;
+
+    static final int MIN_SAMPLES = 32;
+    static final long TOKEN = 1_000; // 예산은 1/1000 토큰 단위로 센다.
+
+    private final double percentile;
+    private final long minDelayNanos;
+    private final long maxDelayNanos;
+    private final long deposit;
+    private final int window;
+    private final Scheduler scheduler;
+    private final Scheduler clock; // null 이면 System.nanoTime()
+
+    private final AtomicLong budget = new AtomicLong();
+    private final AtomicLong windowCount = new AtomicLong();
+    private volatile LatencyHistogram latencies = new LatencyHistogram();
+    private volatile long delayNanos;
+    private volatile boolean windowCompleted;
+
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder hedges = new LongAdder();
+    private final LongAdder backupWins = new LongAdder();
+
+    private HedgePolicy(Builder builder) {
+        this.percentile = builder.percentile;
+        this.minDelayNanos = builder.minDelay.toNanos();
+        this.maxDelayNanos = builder.maxDelay.toNanos();
+        this.deposit = Math.round(builder.budgetPercent * TOKEN / 100);
+        this.window = builder.window;
+        this.scheduler = builder.scheduler;
+        this.clock = builder.clock;
+        this.delayNanos = maxDelayNanos;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * primary 를 구독하고, 지연 시간 안에 첫 신호가 없으면 예산이 허락할 때 backup 도 구독한다.
+     * 먼저 신호를 보낸 쪽의 요소만 내보내고 다른 쪽은 취소한다.
+     */
+    public <T> Flux<T> first(Publisher<? extends T> primary, Publisher<? extends T> backup) {
+        Objects.requireNonNull(primary, "primary");
+        Objects.requireNonNull(backup, "backup");
+        return Flux.from(actual -> {
+            HedgeSubscription<T> parent = new HedgeSubscription<>(Operators.toCoreSubscriber(actual), this, backup);
+            actual.onSubscribe(parent);
+            parent.subscribePrimary(primary);
+        });
+    }
+
+    /**
+     * transform 용. source.transform(policy.hedgeWith(backup)) 은 policy.first(source, backup) 과 같다.
+     */
+    public <T> Function<Flux<T>, Flux<T>> hedgeWith(Publisher<? extends T> backup) {
+        Objects.requireNonNull(backup, "backup");
+        return source -> first(source, backup);
+    }
+
+    /**
+     * 지금 시작하는 요청이 backup 을 구독하기까지 기다릴 시간
+     */
+    public Duration currentDelay() {
+        return Duration.ofNanos(delayNanos);
+    }
+
+    /**
+     * first 로 구독한 횟수
+     */
+    public long requestCount() {
+        return requests.sum();
+    }
+
+    /**
+     * backup 을 구독한 횟수
+     */
+    public long hedgeCount() {
+        return hedges.sum();
+    }
+
+    /**
+     * backup 이 먼저 신호를 보내서 이긴 횟수
+     */
+    public long backupWinCount() {
+        return backupWins.sum();
+    }
+
+    void onRequest() {
+        requests.increment();
+        long cap = MAX_BURST * TOKEN;
+        budget.accumulateAndGet(deposit, (balance, d) -> Math.min(cap, balance + d));
+    }
+
+    boolean tryAcquireHedge() {
+        for (;;) {
+            long balance = budget.get();
+            if (balance < TOKEN) {
+                return false;
+            }
+            if (budget.compareAndSet(balance, balance - TOKEN)) {
+                hedges.increment();
+                return true;
+            }
+        }
+    }
+
+    void recordLatency(long nanos) {
+        LatencyHistogram current = latencies;
+        current.record(nanos);
+        long n = windowCount.incrementAndGet();
+        if (n == window) {
+            // window 가 찼다. 이 window 로 지연 시간을 정하고 새 window 를 시작한다.
+            delayNanos = delayOf(current);
+            windowCompleted = true;
+            latencies = new LatencyHistogram();
+            windowCount.set(0);
+        }
+        else if (!windowCompleted && n >= MIN_SAMPLES && Long.bitCount(n) == 1) {
+            delayNanos = delayOf(current); // 첫 window 가 차기 전의 예비 추정
+        }
+    }
+
+    private long delayOf(LatencyHistogram histogram) {
+        long value = histogram.snapshot().valueAtPercentile(percentile);
+        return Math.max(minDelayNanos, Math.min(maxDelayNanos, value));
+    }
+
+    long now() {
+        Scheduler clock = this.clock;
+        return clock == null ? System.nanoTime() : clock.now(TimeUnit.NANOSECONDS);
+    }
+
+    static final class HedgeSubscription<T> implements Subscription
+    {
+        static final int UNDECIDED = -1;
+        static final int PRIMARY = 0;
+        static final int BACKUP = 1;
+
+        @SuppressWarnings("rawtypes")
+        static final AtomicIntegerFieldUpdater<HedgeSubscription> WINNER =
+            AtomicIntegerFieldUpdater.newUpdater(HedgeSubscription.class, "winner");
+
+        final CoreSubscriber<? super T> actual;
+        final HedgePolicy policy;
+        final Publisher<? extends T> backup;
+        final HedgeInner<T> primaryInner;
+        final HedgeInner<T> backupInner;
+        final Disposable.Swap timer = Disposables.swap();
+
+        volatile int winner = UNDECIDED;
+        volatile boolean cancelled;
+
+        long startNanos; // primary 를 구독한 시각. tryWin 은 구독 이후에만 불리므로 volatile 이 아니어도 보인다.
+
+        HedgeSubscription(CoreSubscriber<? super T> actual, HedgePolicy policy, Publisher<? extends T> backup) {
+            this.actual = actual;
+            this.policy = policy;
+            this.backup = backup;
+            this.primaryInner = new HedgeInner<>(this, PRIMARY);
+            this.backupInner = new HedgeInner<>(this, BACKUP);
+        }
+
+        void subscribePrimary(Publisher<? extends T> primary) {
+            policy.onRequest();
+            startNanos = policy.now();
+            primary.subscribe(primaryInner);
+            if (winner == UNDECIDED && !cancelled) {
+                timer.update(policy.scheduler.schedule(this::hedge, policy.delayNanos, TimeUnit.NANOSECONDS));
+            }
+        }
+
+        void hedge() {
+            if (winner != UNDECIDED || cancelled || !policy.tryAcquireHedge()) {
+                return;
+            }
+            backup.subscribe(backupInner);
+        }
+
+        /**
+         * index 쪽이 첫 신호를 보냈다. 처음이면 이기고 다른 쪽을 취소한다.
+         */
+        boolean tryWin(int index) {
+            int w = winner;
+            if (w == index) {
+                return true;
+            }
+            if (w != UNDECIDED || !WINNER.compareAndSet(this, UNDECIDED, index)) {
+                return false;
+            }
+            timer.dispose();
+            HedgeInner<T> lost = index == PRIMARY ? backupInner : primaryInner;
+            lost.cancel();
+            policy.recordLatency(policy.now() - startNanos); // backup 이 이겼으면 primary 응답 시간의 하한
+            if (index == BACKUP) {
+                policy.backupWins.increment();
+            }
+            return true;
+        }
+
+        @Override
+        public void request(long n) {
+            int w = winner;
+            if (w == PRIMARY) {
+                primaryInner.request(n);
+            }
+            else if (w == BACKUP) {
+                backupInner.request(n);
+            }
+            else {
+                // 아직 승자가 없다. 나중에 구독하는 backup 도 처음부터 받아야 하므로 양쪽에 모두 요청해 둔다.
+                primaryInner.request(n);
+                backupInner.request(n);
+            }
+        }
+
+        @Override
+        public void cancel() {
+            if (cancelled) {
+                return;
+            }
+            cancelled = true;
+            timer.dispose();
+            primaryInner.cancel();
+            backupInner.cancel();
+        }
+    }
+
+    /**
+     * 구독 전에 받은 요청은 DeferredSubscription 이 모아 두었다가 구독하면 한 번에 전달한다.
+     */
+    static final class HedgeInner<T> extends Operators.DeferredSubscription implements CoreSubscriber<T>
+    {
+        final HedgeSubscription<T> parent;
+        final int index;
+
+        HedgeInner(HedgeSubscription<T> parent, int index) {
+            this.parent = parent;
+            this.index = index;
+        }
+
+        @Override
+        public void onSubscribe(Subscription s) {
+            set(s);
+        }
+
+        @Override
+        public void onNext(T t) {
+            if (parent.tryWin(index)) {
+                parent.actual.onNext(t);
+            }
+            else {
+                Operators.onDiscard(t, currentContext());
+            }
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            if (parent.tryWin(index)) {
+                parent.actual.onError(t);
+            }
+            else {
+                Operators.onErrorDropped(t, currentContext());
+            }
+        }
+
+        @Override
+        public void onComplete() {
+            if (parent.tryWin(index)) {
+                parent.actual.onComplete();
+            }
+        }
+
+        @Override
+        public Context currentContext() {
+            return parent.actual.currentContext();
+        }
+    }
+
+    public static final class Builder
+    {
+        double percentile = 95;
+        Duration minDelay = Duration.ofMillis(1);
+        Duration maxDelay = Duration.ofSeconds(1);
+        double budgetPercent = 10;
+        int window = 1_000;
+        Scheduler scheduler = Schedulers.parallel();
+        Scheduler clock;
+
+        Builder() {
+        }
+
+        /**
+         * 지연 시간으로 쓸 백분위수. 기본 95
+         */
+        public Builder percentile(double percentile) {
+            if (!(percentile > 0 && percentile < 100)) {
+                throw new IllegalArgumentException("0 < percentile < 100 required but it was " + percentile);
+            }
+            this.percentile = percentile;
+            return this;
+        }
+
+        /**
+         * 지연 시간의 범위. 기본 1ms ~ 1s 이며, 통계가 모이기 전에는 maxDelay 를 쓴다.
+         */
+        public Builder delayBounds(Duration minDelay, Duration maxDelay) {
+            Objects.requireNonNull(minDelay, "minDelay");
+            Objects.requireNonNull(maxDelay, "maxDelay");
+            if (minDelay.isNegative() || maxDelay.compareTo(minDelay) < 0) {
+                throw new IllegalArgumentException("0 <= minDelay <= maxDelay required but it was " + minDelay + ", " + maxDelay);
+            }
+            this.minDelay = minDelay;
+            this.maxDelay = maxDelay;
+            return this;
+        }
+
+        /**
+         * 전체 요청 중 backup 을 구독할 수 있는 비율(%). 기본 10
+         */
+        public Builder budgetPercent(double budgetPercent) {
+            if (!(budgetPercent >= 0 && budgetPercent <= 100)) {
+                throw new IllegalArgumentException("0 <= budgetPercent <= 100 required but it was " + budgetPercent);
+            }
+            this.budgetPercent = budgetPercent;
+            return this;
+        }
+
+        /**
+         * 지연 시간을 다시 계산하는 주기(기록 수). 기본 1,000
+         */
+        public Builder window(int window) {
+            if (window < MIN_SAMPLES) {
+                throw new IllegalArgumentException("window >= " + MIN_SAMPLES + " required but it was " + window);
+            }
+            this.window = window;
+            return this;
+        }
+
+        /**
+         * backup 구독 타이머와 시간 측정에 쓸 스케줄러. 기본은 타이머에 Schedulers.parallel(), 시간에 System.nanoTime()
+         * 넘기면 시간도 이 스케줄러의 now() 로 잰다. 테스트에서 VirtualTimeScheduler 를 넘길 때 쓴다.
+         */
+        public Builder scheduler(Scheduler scheduler) {
+            this.scheduler = Objects.requireNonNull(scheduler, "scheduler");
+            this.clock = scheduler;
+            return this;
+        }
+
+        public HedgePolicy build() {
+            return new HedgePolicy(this);
+        }
+    }
+}
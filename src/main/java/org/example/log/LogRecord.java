@@ -0,0 +1,16 @@
+package org.example.log;
+
+import java.nio.ByteBuffer;
+
+/**
+ * SegmentLog 에서 읽은 레코드
+ *
+ * payload 는 매핑된 세그먼트를 가리키는 읽기 전용 ByteBuffer 이며 복사본이 아니다.
+ * 세그먼트 파일이 보존 정책으로 지워져도 payload 를 참조하는 동안에는 읽을 수 있다.
+ *
+ * @param offset  로그 전체에서 0 부터 매기는 레코드 번호
+ * @param payload 레코드 내용
+ */
+public record LogRecord(long offset, ByteBuffer payload)
+{
+}
@@ -0,0 +1,346 @@
+package org.example.log;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.zip.CRC32C;
+
+/**
+ * 로그 세그먼트 파일 하나와 희소 오프셋 인덱스
+ *
+ * 파일 이름은 첫 레코드의 오프셋(baseOffset)을 20 자리로 채운 것이다. (00000000000000000042.log / .index)
+ * 레코드 형식은 [길이 int][CRC32C int][내용] 이며, CRC 는 길이 4 바이트와 내용을 함께 계산한다.
+ * 쓰는 중인 세그먼트는 segmentBytes 크기로 미리 늘려 두므로 읽는 쪽은 세그먼트 전체를 한 번만 매핑하면 된다.
+ * 봉인(seal)할 때 실제 크기로 줄인다. 미리 늘린 영역은 0 이고, 길이 0 과 CRC 0 은 올바른 레코드가 아니므로 복구할 때 끝을 알 수 있다.
+ *
+ * 인덱스는 indexIntervalBytes 마다 (상대 오프셋, 위치) 를 long 하나에 담아 기록한다. 메모리에도 같은 배열을 둔다.
+ * 인덱스 파일에는 가리키는 레코드가 fsync 된 뒤에만 쓴다. (flushIndex) 그래도 fsync 를 끄면 인덱스가 내구성 있는 끝보다 앞설 수 있으므로
+ * 다시 열 때 마지막 항목이 가리키는 레코드가 올바르지 않으면 그 항목을 버린다.
+ *
+ * size / nextOffset 은 fsync 가 끝난 뒤에 쓰는 쪽이 갱신한다. 읽는 쪽은 이 두 값 안쪽만 읽는다.
+ * size 를 먼저 쓰고 nextOffset 을 나중에 쓰므로 nextOffset 을 본 쪽은 그 앞의 레코드를 모두 읽을 수 있다.
+ */
+final class Segment
+{
+    static final int HEADER_BYTES = 8;
+    static final int INDEX_ENTRY_BYTES = 8;
+
+    final long baseOffset;
+    final Path logFile;
+    final Path indexFile;
+
+    volatile long size;
+    volatile long nextOffset;
+    volatile boolean sealed;
+    volatile long sealedAtMillis;
+
+    private volatile long[] index = new long[16];
+    private volatile int indexCount;
+    private int persistedIndexCount; // 인덱스 파일에 쓴 항목 수
+
+    // 아래는 쓰는 쪽(SegmentLog 의 writeLock)만 쓴다.
+    FileChannel writer;
+    FileChannel indexWriter;
+    long writePosition;
+    long writeOffset;
+    long lastIndexedPosition;
+
+    private Segment(Path dir, long baseOffset) {
+        this.baseOffset = baseOffset;
+        this.logFile = dir.resolve(fileName(baseOffset, ".log"));
+        this.indexFile = dir.resolve(fileName(baseOffset, ".index"));
+        this.nextOffset = baseOffset;
+        this.writeOffset = baseOffset;
+        addIndexEntry(baseOffset, 0);
+    }
+
+    static String fileName(long baseOffset, String suffix) {
+        return String.format("%020d%s", baseOffset, suffix);
+    }
+
+    /**
+     * 새 활성 세그먼트를 만든다. 파일은 capacity 크기로 미리 늘린다.
+     */
+    static Segment create(Path dir, long baseOffset, int capacity) throws IOException {
+        Segment segment = new Segment(dir, baseOffset);
+        segment.writeIndexFile();
+        segment.openForAppend(capacity, true);
+        return segment;
+    }
+
+    /**
+     * 디렉터리에 있던 세그먼트를 연다.
+     * 인덱스 파일의 마지막 항목부터 끝까지 훑어서 CRC 가 맞지 않는 꼬리(쓰다 만 레코드, 미리 늘려 둔 0 영역)를 잘라낸다.
+     * 인덱스 파일이 없거나 손상되었으면 처음부터 훑어 다시 만든다.
+     *
+     * @param active true 면 이어 쓸 수 있도록 capacity 까지 다시 늘리고, false 면 봉인된 세그먼트로 연다.
+     */
+    static Segment open(Path dir, long baseOffset, boolean active, int capacity, int indexIntervalBytes) throws IOException {
+        Segment segment = new Segment(dir, baseOffset);
+        long fileSize = Files.size(segment.logFile);
+        if (!segment.loadIndex(fileSize)) {
+            segment.index = new long[16];
+            segment.indexCount = 0;
+            segment.addIndexEntry(baseOffset, 0);
+        }
+        segment.recover(indexIntervalBytes, fileSize);
+        segment.writeIndexFile();
+        if (active) {
+            segment.openForAppend(capacity, false);
+        }
+        else {
+            if (fileSize > segment.size) {
+                try (FileChannel channel = FileChannel.open(segment.logFile, StandardOpenOption.WRITE)) {
+                    channel.truncate(segment.size);
+                }
+            }
+            segment.sealedAtMillis = Files.getLastModifiedTime(segment.logFile).toMillis();
+            segment.sealed = true;
+        }
+        return segment;
+    }
+
+    private void openForAppend(int capacity, boolean truncate) throws IOException {
+        writer = truncate
+            ? FileChannel.open(logFile, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)
+            : FileChannel.open(logFile, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        // 뒤쪽의 쓰다 만 바이트를 지우고 capacity 까지 0 으로 늘린다. (sparse)
+        writer.truncate(size);
+        if (writer.size() < capacity) {
+            writer.write(ByteBuffer.wrap(new byte[1]), capacity - 1);
+        }
+        writer.position(size);
+        indexWriter = FileChannel.open(indexFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        writePosition = size;
+        writeOffset = nextOffset;
+        lastIndexedPosition = indexPositionAt(indexCount - 1);
+    }
+
+    /**
+     * 인덱스의 마지막 항목부터 레코드를 읽어 size, nextOffset 을 계산하고 인덱스를 채운다. 올바르지 않은 레코드를 만나면 거기서 멈춘다.
+     * 마지막 항목이 가리키는 레코드부터 올바르지 않으면 (레코드보다 인덱스가 먼저 디스크에 닿았다) 그 항목을 버리고 앞 항목부터 다시 본다.
+     */
+    private void recover(int indexIntervalBytes, long fileSize) throws IOException {
+        try (FileChannel channel = FileChannel.open(logFile, StandardOpenOption.READ)) {
+            MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_ONLY, 0, fileSize);
+            CRC32C crc = new CRC32C();
+            while (indexCount > 1 && recordLength(map, indexPositionAt(indexCount - 1), fileSize, crc) < 0) {
+                indexCount--;
+            }
+            long last = index[indexCount - 1];
+            long offset = baseOffset + (last >>> 32);
+            int position = (int) (last & 0xFFFF_FFFFL);
+            int lastIndexed = position;
+            for (;;) {
+                int length = recordLength(map, position, fileSize, crc);
+                if (length < 0) {
+                    break;
+                }
+                if (position - lastIndexed >= indexIntervalBytes) {
+                    addIndexEntry(offset, position);
+                    lastIndexed = position;
+                }
+                position += HEADER_BYTES + length;
+                offset++;
+            }
+            size = position;
+            nextOffset = offset;
+        }
+    }
+
+    /**
+     * position 의 레코드가 파일 안에 온전히 있고 CRC 가 맞으면 내용의 길이, 아니면 -1
+     */
+    private static int recordLength(MappedByteBuffer map, long position, long fileSize, CRC32C crc) {
+        if (position + HEADER_BYTES > fileSize) {
+            return -1;
+        }
+        int at = (int) position;
+        int length = map.getInt(at);
+        if (length < 0 || position + HEADER_BYTES + (long) length > fileSize) {
+            return -1;
+        }
+        crc.reset();
+        crc.update(map.slice(at, 4));
+        crc.update(map.slice(at + HEADER_BYTES, length));
+        return (int) crc.getValue() == map.getInt(at + 4) ? length : -1;
+    }
+
+    private boolean loadIndex(long fileSize) throws IOException {
+        if (!Files.exists(indexFile)) {
+            return false;
+        }
+        ByteBuffer bytes = ByteBuffer.wrap(Files.readAllBytes(indexFile));
+        int count = bytes.remaining() / INDEX_ENTRY_BYTES;
+        if (count == 0) {
+            return false;
+        }
+        long previous = -1;
+        long[] entries = new long[count];
+        for (int i = 0; i < count; i++) {
+            long entry = bytes.getLong();
+            if (entry <= previous || (entry & 0xFFFF_FFFFL) > fileSize) {
+                return false;
+            }
+            entries[i] = previous = entry;
+        }
+        if (entries[0] != 0) {
+            return false;
+        }
+        index = entries;
+        indexCount = count;
+        return true;
+    }
+
+    private void writeIndexFile() throws IOException {
+        ByteBuffer bytes = ByteBuffer.allocate(indexCount * INDEX_ENTRY_BYTES);
+        for (int i = 0; i < indexCount; i++) {
+            bytes.putLong(index[i]);
+        }
+        bytes.flip();
+        try (FileChannel channel = FileChannel.open(indexFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+        }
+        persistedIndexCount = indexCount;
+    }
+
+    /**
+     * 인덱스에 (offset, position) 을 추가한다. 배열을 늘릴 때는 복사본을 만든 뒤 바꾸므로 읽는 쪽은 잠금 없이 읽는다.
+     */
+    void addIndexEntry(long offset, long position) {
+        long[] entries = index;
+        int count = indexCount;
+        if (count == entries.length) {
+            entries = Arrays.copyOf(entries, count * 2);
+            index = entries;
+        }
+        entries[count] = (offset - baseOffset) << 32 | position;
+        indexCount = count + 1;
+    }
+
+    /**
+     * 쓰는 중인 레코드의 인덱스 항목을 메모리에만 추가한다. 파일에는 레코드를 fsync 한 뒤 flushIndex 로 쓴다.
+     */
+    void appendIndexEntry(long offset, long position) {
+        addIndexEntry(offset, position);
+        lastIndexedPosition = position;
+    }
+
+    /**
+     * 아직 파일에 쓰지 않은 인덱스 항목을 쓴다. 가리키는 레코드가 fsync 된 뒤에 부른다.
+     */
+    void flushIndex() throws IOException {
+        int count = indexCount;
+        if (persistedIndexCount == count) {
+            return;
+        }
+        long[] entries = index;
+        ByteBuffer bytes = ByteBuffer.allocate((count - persistedIndexCount) * INDEX_ENTRY_BYTES);
+        for (int i = persistedIndexCount; i < count; i++) {
+            bytes.putLong(entries[i]);
+        }
+        bytes.flip();
+        while (bytes.hasRemaining()) {
+            indexWriter.write(bytes);
+        }
+        persistedIndexCount = count;
+    }
+
+    /**
+     * 공개하지 못한 쓰기를 버리고 마지막으로 공개한 상태(size, nextOffset)로 되돌린다.
+     * 쓰다 만 바이트가 다음 복구 때 레코드로 보이지 않도록 size 뒤를 잘라내고 capacity 까지 0 으로 다시 늘린다.
+     */
+    void rollback(int capacity) throws IOException {
+        indexCount = persistedIndexCount;
+        lastIndexedPosition = indexPositionAt(indexCount - 1);
+        writePosition = size;
+        writeOffset = nextOffset;
+        writer.truncate(size);
+        if (writer.size() < capacity) {
+            writer.write(ByteBuffer.wrap(new byte[1]), capacity - 1);
+        }
+        writer.position(size);
+    }
+
+    private long indexPositionAt(int i) {
+        return index[i] & 0xFFFF_FFFFL;
+    }
+
+    /**
+     * offset 이하인 가장 가까운 인덱스 항목. 상위 32 비트가 상대 오프셋, 하위 32 비트가 위치다.
+     */
+    long floorEntry(long offset) {
+        int count = indexCount;
+        long[] entries = index;
+        long relative = offset - baseOffset;
+        int low = 0;
+        int high = count - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if ((entries[mid] >>> 32) <= relative) {
+                low = mid;
+            }
+            else {
+                high = mid - 1;
+            }
+        }
+        return entries[low];
+    }
+
+    /**
+     * 세그먼트 전체를 읽기 전용으로 매핑한다. 그 사이 봉인되면서 파일이 줄어들 수 있으므로 몇 번 다시 시도한다.
+     */
+    ByteBuffer map() throws IOException {
+        IOException last = null;
+        for (int attempt = 0; attempt < 3; attempt++) {
+            try (FileChannel channel = FileChannel.open(logFile, StandardOpenOption.READ)) {
+                return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            }
+            catch (IOException e) {
+                last = e;
+            }
+        }
+        throw last;
+    }
+
+    /**
+     * 쓰기를 끝내고 파일을 실제 크기로 줄인다. 호출하기 전에 fsync 와 publish 가 끝나 있어야 한다.
+     * 파일 작업이 실패해도 채널을 닫고 봉인 표시는 남긴 뒤 예외를 던진다. 이 세그먼트를 따라 읽던 쪽이 멈추지 않고 다음 세그먼트로 넘어간다.
+     */
+    void seal(long nowMillis) throws IOException {
+        try (FileChannel log = writer; FileChannel index = indexWriter) {
+            log.truncate(size);
+            log.force(true);
+            index.force(true);
+        }
+        finally {
+            sealedAtMillis = nowMillis;
+            sealed = true;
+        }
+    }
+
+    void closeWriter() throws IOException {
+        if (writer != null && writer.isOpen()) {
+            writer.force(true);
+            writer.close();
+            indexWriter.close();
+        }
+    }
+
+    void delete() throws IOException {
+        Files.deleteIfExists(logFile);
+        Files.deleteIfExists(indexFile);
+    }
+
+    @Override
+    public String toString() {
+        return "Segment[" + baseOffset + ", " + nextOffset + ") " + size + " bytes" + (sealed ? " sealed" : "");
+    }
+}
@@ -0,0 +1,640 @@
+package org.example.log;
+
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscription;
+import reactor.core.CoreSubscriber;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Operators;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.concurrent.Queues;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * 세그먼트 파일로 이루어진 로컬 append-only 로그. 원하는 오프셋부터 다시 읽을 수 있는 Publisher 를 제공한다.
+ *
+ * share() 는 늦게 온 구독자에게 지난 요소를 주지 않고, cache() 는 메모리에 있는 것만 재생하며 프로세스가 재시작하면 사라진다.
+ * SegmentLog 는 레코드를 디렉터리의 세그먼트 파일에 이어 쓰고, 구독자마다 원하는 위치부터 mmap 으로 읽게 한다.
+ *  * 레코드에는 0 부터 증가하는 오프셋이 붙는다. append 는 fsync 가 끝난 뒤 오프셋을 돌려준다.
+ *  * 세그먼트가 segmentBytes 를 넘으면 봉인하고 새 세그먼트를 만든다. 봉인할 때 보존 정책(retentionBytes, retentionTime)을 넘는
+ *    오래된 세그먼트를 지운다.
+ *  * 세그먼트마다 indexIntervalBytes 간격의 희소 인덱스를 두어, 임의의 오프셋을 찾을 때 인덱스 한 칸 분량만 훑는다.
+ *  * read(offset) 은 끝까지 읽은 뒤에도 새 레코드를 기다렸다가 이어서 내보낸다. (tail -f) read(from, to) 는 to 에서 완료한다.
+ *  * 다시 열면 마지막 세그먼트를 CRC 로 검사해 쓰다 만 레코드를 잘라내고 이어 쓴다.
+ *
+ * <pre>
+ * SegmentLog log = SegmentLog.builder(dir).segmentBytes(64 * 1024 * 1024).retentionBytes(10L &lt;&lt; 30).open();
+ *
+ * log.append(events.map(Event::encode)).subscribe();          // Flux&lt;Long&gt;: 기록된 오프셋
+ * log.read(0).map(record -&gt; Event.decode(record.payload()))   // 처음부터 재생하고 계속 따라간다.
+ * log.tail()                                                   // 지금 이후에 쓰이는 레코드만
+ * </pre>
+ *
+ * 규칙
+ *  * 한 디렉터리는 한 프로세스의 한 SegmentLog 만 열어야 한다. (파일 잠금은 하지 않는다.)
+ *  * 쓰기는 잠금으로 직렬화된다. append(Publisher) 는 받은 레코드를 모아 한 번에 쓰고 fsync 한다.
+ *  * 읽는 쪽은 fsync 가 끝난 레코드만 본다. 요청한 만큼만 읽으며, 레코드의 payload 는 복사하지 않는다.
+ *  * 보존 정책으로 지워진 오프셋을 읽으려 하면 IllegalStateException, 아직 쓰이지 않은 오프셋이면 IllegalArgumentException 으로 끝난다.
+ *  * dispose 하면 파일을 닫고, 따라가던 구독자는 남은 레코드를 내보낸 뒤 완료한다.
+ */
+public final class SegmentLog implements Disposable
+{
+    public static final int DEFAULT_SEGMENT_BYTES = 64 * 1024 * 1024;
+    public static final int DEFAULT_INDEX_INTERVAL_BYTES = 4 * 1024;
+
+    final Path dir;
+    final int segmentBytes;
+    final int indexIntervalBytes;
+    final long retentionBytes;
+    final long retentionMillis;
+    final boolean fsync;
+    final int maxBatchRecords;
+    final Scheduler scheduler;
+    final Scheduler clock;
+
+    final ConcurrentSkipListMap<Long, Segment> segments = new ConcurrentSkipListMap<>();
+    final Queue<LogReader> waiters = new ConcurrentLinkedQueue<>();
+
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final ByteBuffer header = ByteBuffer.allocate(Segment.HEADER_BYTES);
+    private final CRC32C crc = new CRC32C();
+    private volatile Segment active;
+    private volatile boolean closed;
+
+    private SegmentLog(Builder builder) {
+        this.dir = builder.dir;
+        this.segmentBytes = builder.segmentBytes;
+        this.indexIntervalBytes = builder.indexIntervalBytes;
+        this.retentionBytes = builder.retentionBytes;
+        this.retentionMillis = builder.retentionTime == null ? 0 : builder.retentionTime.toMillis();
+        this.fsync = builder.fsync;
+        this.maxBatchRecords = builder.maxBatchRecords;
+        this.scheduler = builder.scheduler;
+        this.clock = builder.clock;
+    }
+
+    public static Builder builder(Path dir) {
+        return new Builder(dir);
+    }
+
+    private void load() throws IOException {
+        Files.createDirectories(dir);
+        List<Long> bases = new ArrayList<>();
+        try (Stream<Path> files = Files.list(dir)) {
+            files.map(file -> file.getFileName().toString())
+                .filter(name -> name.matches("\\d{20}\\.log"))
+                .forEach(name -> bases.add(Long.parseLong(name.substring(0, 20))));
+        }
+        bases.sort(Long::compare);
+        for (int i = 0; i < bases.size(); i++) {
+            boolean last = i == bases.size() - 1;
+            Segment segment = Segment.open(dir, bases.get(i), last, segmentBytes, indexIntervalBytes);
+            segments.put(segment.baseOffset, segment);
+            if (last) {
+                active = segment;
+            }
+        }
+        if (active == null) {
+            active = Segment.create(dir, 0, segmentBytes);
+            segments.put(0L, active);
+        }
+    }
+
+    /**
+     * 가장 오래된 레코드의 오프셋. 보존 정책으로 세그먼트가 지워지면 커진다.
+     */
+    public long startOffset() {
+        return segments.firstKey();
+    }
+
+    /**
+     * 다음에 쓰일 레코드의 오프셋. 읽을 수 있는 마지막 레코드는 endOffset() - 1 이다.
+     */
+    public long endOffset() {
+        return active.nextOffset;
+    }
+
+    public int segmentCount() {
+        return segments.size();
+    }
+
+    /**
+     * record 하나를 쓰고 fsync 가 끝나면 오프셋을 내보낸다.
+     */
+    public Mono<Long> append(ByteBuffer record) {
+        Objects.requireNonNull(record, "record");
+        return Mono.fromCallable(() -> appendBatch(List.of(record)).get(0)).subscribeOn(scheduler);
+    }
+
+    /**
+     * records 를 차례로 쓰고, 기록된 오프셋을 같은 순서로 내보낸다.
+     * 한 번에 도착한 레코드(최대 maxBatchRecords 개)는 한 번의 fsync 로 묶는다.
+     */
+    public Flux<Long> append(Publisher<? extends ByteBuffer> records) {
+        Objects.requireNonNull(records, "records");
+        return Flux.<ByteBuffer>from(records)
+            .bufferTimeout(maxBatchRecords, Duration.ofMillis(1), scheduler, true)
+            .publishOn(scheduler, 2)
+            .<List<Long>>handle((batch, sink) -> {
+                try {
+                    sink.next(appendBatch(batch));
+                }
+                catch (IOException e) {
+                    sink.error(e);
+                }
+            })
+            .flatMapIterable(offsets -> offsets);
+    }
+
+    List<Long> appendBatch(List<? extends ByteBuffer> records) throws IOException {
+        List<Long> offsets = new ArrayList<>(records.size());
+        writeLock.lock();
+        try {
+            if (closed) {
+                throw new IOException("SegmentLog is closed: " + dir);
+            }
+            // 배치의 일부만 쓰이는 일이 없도록 먼저 모두 검사한다.
+            for (ByteBuffer record : records) {
+                if (Segment.HEADER_BYTES + (long) record.remaining() > segmentBytes) {
+                    throw new IllegalArgumentException("record of " + record.remaining() + " bytes does not fit in segmentBytes " + segmentBytes);
+                }
+            }
+            for (ByteBuffer record : records) {
+                int length = record.remaining();
+                long recordBytes = Segment.HEADER_BYTES + (long) length;
+                Segment segment = active;
+                if (segment.writePosition + recordBytes > segmentBytes) {
+                    commit(segment);
+                    segment = roll(segment);
+                }
+                if (segment.writePosition - segment.lastIndexedPosition >= indexIntervalBytes) {
+                    segment.appendIndexEntry(segment.writeOffset, segment.writePosition);
+                }
+                write(segment, record, length);
+                offsets.add(segment.writeOffset);
+                segment.writePosition += recordBytes;
+                segment.writeOffset++;
+            }
+            commit(active);
+        }
+        catch (IOException | RuntimeException e) {
+            // 실패한 배치가 다음 commit 에서 공개되거나 다음 레코드가 엉뚱한 위치에 쓰이지 않도록 공개된 끝으로 되돌린다.
+            // 배치 중간에 세그먼트를 넘겼다면 앞 세그먼트에 쓴 레코드는 이미 fsync 되고 공개되어 남는다.
+            try {
+                active.rollback(segmentBytes);
+            }
+            catch (IOException | RuntimeException r) {
+                e.addSuppressed(r);
+            }
+            throw e;
+        }
+        finally {
+            writeLock.unlock();
+        }
+        signalWaiters();
+        return offsets;
+    }
+
+    private void write(Segment segment, ByteBuffer record, int length) throws IOException {
+        ByteBuffer payload = record.duplicate();
+        header.clear();
+        header.putInt(0, length);
+        crc.reset();
+        crc.update(header.slice(0, 4));
+        crc.update(payload.duplicate());
+        header.putInt(4, (int) crc.getValue());
+        ByteBuffer[] sources = {header, payload};
+        long remaining = Segment.HEADER_BYTES + (long) length;
+        while (remaining > 0) {
+            remaining -= segment.writer.write(sources);
+        }
+    }
+
+    /**
+     * 쓴 레코드를 fsync 하고 읽는 쪽에 공개한다.
+     */
+    private void commit(Segment segment) throws IOException {
+        if (segment.writePosition == segment.size) {
+            return;
+        }
+        if (fsync) {
+            segment.writer.force(false);
+        }
+        segment.flushIndex();
+        segment.size = segment.writePosition;
+        segment.nextOffset = segment.writeOffset;
+    }
+
+    /**
+     * 새 세그먼트를 먼저 등록한 뒤 이전 세그먼트를 봉인한다. 봉인된 것을 본 읽는 쪽은 항상 다음 세그먼트를 찾을 수 있다.
+     * 봉인 중 I/O 가 실패해도 봉인 표시는 남으므로(Segment.seal) 이전 세그먼트를 따라 읽던 쪽은 다음 세그먼트로 넘어가고, 예외는 append 로 전파된다.
+     */
+    private Segment roll(Segment previous) throws IOException {
+        Segment next = Segment.create(dir, previous.writeOffset, segmentBytes);
+        segments.put(next.baseOffset, next);
+        active = next;
+        previous.seal(clock.now(TimeUnit.MILLISECONDS));
+        applyRetentionLocked();
+        return next;
+    }
+
+    /**
+     * 보존 정책을 넘은 오래된 봉인 세그먼트를 지우고 지운 개수를 반환한다. 세그먼트를 봉인할 때마다 자동으로 불린다.
+     */
+    public int applyRetention() throws IOException {
+        writeLock.lock();
+        try {
+            return applyRetentionLocked();
+        }
+        finally {
+            writeLock.unlock();
+        }
+    }
+
+    private int applyRetentionLocked() throws IOException {
+        long total = 0;
+        for (Segment segment : segments.values()) {
+            total += segment == active ? segment.writePosition : segment.size;
+        }
+        long now = clock.now(TimeUnit.MILLISECONDS);
+        int removed = 0;
+        for (;;) {
+            Map.Entry<Long, Segment> oldest = segments.firstEntry();
+            Segment segment = oldest.getValue();
+            if (segment == active) {
+                return removed;
+            }
+            boolean tooLarge = total > retentionBytes;
+            boolean expired = retentionMillis > 0 && now - segment.sealedAtMillis > retentionMillis;
+            if (!tooLarge && !expired) {
+                return removed;
+            }
+            segments.remove(oldest.getKey());
+            total -= segment.size;
+            segment.delete();
+            removed++;
+        }
+    }
+
+    private void signalWaiters() {
+        LogReader reader;
+        while ((reader = waiters.poll()) != null) {
+            LogReader.WAITING.set(reader, 0);
+            reader.trySchedule();
+        }
+    }
+
+    /**
+     * fromOffset 부터 읽고, 끝에 닿으면 새 레코드를 기다렸다가 이어서 내보낸다. dispose 되면 완료한다.
+     */
+    public Flux<LogRecord> read(long fromOffset) {
+        return read(fromOffset, Long.MAX_VALUE);
+    }
+
+    /**
+     * fromOffset 부터 toOffset 전까지 읽고 완료한다. toOffset 이 아직 쓰이지 않았으면 쓰일 때까지 기다린다.
+     */
+    public Flux<LogRecord> read(long fromOffset, long toOffset) {
+        if (fromOffset < 0 || toOffset < fromOffset) {
+            throw new IllegalArgumentException("0 <= fromOffset <= toOffset required but it was " + fromOffset + ", " + toOffset);
+        }
+        return Flux.from(actual -> {
+            LogReader reader = new LogReader(Operators.toCoreSubscriber(actual), this, scheduler.createWorker(), fromOffset, toOffset);
+            actual.onSubscribe(reader);
+        });
+    }
+
+    /**
+     * 구독한 시점 이후에 쓰이는 레코드만 내보낸다.
+     */
+    public Flux<LogRecord> tail() {
+        return Flux.defer(() -> read(endOffset()));
+    }
+
+    @Override
+    public void dispose() {
+        writeLock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            active.closeWriter();
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        finally {
+            writeLock.unlock();
+            signalWaiters();
+        }
+    }
+
+    @Override
+    public boolean isDisposed() {
+        return closed;
+    }
+
+    static final class LogReader implements Subscription, Runnable
+    {
+        final CoreSubscriber<? super LogRecord> actual;
+        final SegmentLog log;
+        final Scheduler.Worker worker;
+        final long toOffset;
+
+        volatile boolean cancelled;
+
+        volatile int wip;
+        static final AtomicIntegerFieldUpdater<LogReader> WIP =
+            AtomicIntegerFieldUpdater.newUpdater(LogReader.class, "wip");
+
+        volatile int waiting;
+        static final AtomicIntegerFieldUpdater<LogReader> WAITING =
+            AtomicIntegerFieldUpdater.newUpdater(LogReader.class, "waiting");
+
+        volatile long requested;
+        static final AtomicLongFieldUpdater<LogReader> REQUESTED =
+            AtomicLongFieldUpdater.newUpdater(LogReader.class, "requested");
+
+        // 아래는 워커에서만 읽고 쓴다.
+        long nextOffset;
+        Segment segment;
+        ByteBuffer map;
+        int position;
+        long emitted;
+
+        LogReader(CoreSubscriber<? super LogRecord> actual, SegmentLog log, Scheduler.Worker worker, long fromOffset, long toOffset) {
+            this.actual = actual;
+            this.log = log;
+            this.worker = worker;
+            this.nextOffset = fromOffset;
+            this.toOffset = toOffset;
+        }
+
+        @Override
+        public void request(long n) {
+            if (Operators.validate(n)) {
+                Operators.addCap(REQUESTED, this, n);
+                trySchedule();
+            }
+        }
+
+        @Override
+        public void cancel() {
+            if (cancelled) {
+                return;
+            }
+            cancelled = true;
+            log.waiters.remove(this);
+            trySchedule();
+        }
+
+        void trySchedule() {
+            if (WIP.getAndIncrement(this) != 0) {
+                return;
+            }
+            try {
+                worker.schedule(this);
+            }
+            catch (RejectedExecutionException e) {
+                if (!cancelled) {
+                    cancelled = true;
+                    actual.onError(Operators.onRejectedExecution(e, actual.currentContext()));
+                }
+            }
+        }
+
+        @Override
+        public void run() {
+            int missed = 1;
+            for (;;) {
+                if (!drain()) {
+                    worker.dispose();
+                    return;
+                }
+                missed = WIP.addAndGet(this, -missed);
+                if (missed == 0) {
+                    return;
+                }
+            }
+        }
+
+        /**
+         * 요청한 만큼 내보낸다. 끝났으면(완료, 에러, 취소) false
+         */
+        boolean drain() {
+            long r = requested;
+            long e = emitted;
+            for (;;) {
+                if (cancelled) {
+                    return false;
+                }
+                if (nextOffset >= toOffset) {
+                    actual.onComplete();
+                    return false;
+                }
+                try {
+                    if (segment == null && !locate()) {
+                        return false;
+                    }
+                }
+                catch (IOException | RuntimeException ex) {
+                    actual.onError(ex);
+                    return false;
+                }
+                if (position < segment.size) {
+                    if (e == r) {
+                        break;
+                    }
+                    int length = map.getInt(position);
+                    ByteBuffer payload = map.slice(position + Segment.HEADER_BYTES, length);
+                    position += Segment.HEADER_BYTES + length;
+                    actual.onNext(new LogRecord(nextOffset++, payload));
+                    e++;
+                    continue;
+                }
+                if (segment.sealed) {
+                    // 봉인된 세그먼트를 다 읽었다. 다음 세그먼트는 봉인 전에 등록되어 있다.
+                    segment = null;
+                    continue;
+                }
+                if (log.closed) {
+                    actual.onComplete();
+                    return false;
+                }
+                if (WAITING.compareAndSet(this, 0, 1)) {
+                    log.waiters.offer(this);
+                }
+                // 등록하는 사이에 쓰인 레코드를 놓치지 않도록 한 번 더 확인한다.
+                if (position >= segment.size && !segment.sealed && !log.closed) {
+                    break;
+                }
+            }
+            emitted = e;
+            return true;
+        }
+
+        /**
+         * nextOffset 이 들어 있는 세그먼트를 매핑하고, 인덱스에서 가까운 위치부터 레코드를 건너뛰어 nextOffset 의 위치를 찾는다.
+         */
+        boolean locate() throws IOException {
+            long start = log.startOffset();
+            if (nextOffset < start) {
+                actual.onError(new IllegalStateException("offset " + nextOffset + " was removed by retention, log starts at " + start));
+                return false;
+            }
+            long end = log.endOffset();
+            if (nextOffset > end) {
+                actual.onError(new IllegalArgumentException("offset " + nextOffset + " is beyond the end of the log " + end));
+                return false;
+            }
+            Map.Entry<Long, Segment> entry = log.segments.floorEntry(nextOffset);
+            if (entry == null) {
+                actual.onError(new IllegalStateException("offset " + nextOffset + " was removed by retention"));
+                return false;
+            }
+            Segment found = entry.getValue();
+            ByteBuffer mapped = found.map();
+            long floor = found.floorEntry(nextOffset);
+            long offset = found.baseOffset + (floor >>> 32);
+            int pos = (int) (floor & 0xFFFF_FFFFL);
+            while (offset < nextOffset) {
+                pos += Segment.HEADER_BYTES + mapped.getInt(pos);
+                offset++;
+            }
+            segment = found;
+            map = mapped;
+            position = pos;
+            return true;
+        }
+    }
+
+    public static final class Builder
+    {
+        final Path dir;
+        int segmentBytes = DEFAULT_SEGMENT_BYTES;
+        int indexIntervalBytes = DEFAULT_INDEX_INTERVAL_BYTES;
+        long retentionBytes = Long.MAX_VALUE;
+        Duration retentionTime;
+        boolean fsync = true;
+        int maxBatchRecords = Queues.SMALL_BUFFER_SIZE;
+        Scheduler scheduler = Schedulers.boundedElastic();
+        Scheduler clock = Schedulers.parallel();
+
+        Builder(Path dir) {
+            this.dir = Objects.requireNonNull(dir, "dir");
+        }
+
+        /**
+         * 세그먼트 하나의 최대 크기. 기본 64MB, 최대 1GB
+         */
+        public Builder segmentBytes(int segmentBytes) {
+            if (segmentBytes < 1024 || segmentBytes > (1 << 30)) {
+                throw new IllegalArgumentException("1KB <= segmentBytes <= 1GB required but it was " + segmentBytes);
+            }
+            this.segmentBytes = segmentBytes;
+            return this;
+        }
+
+        /**
+         * 희소 인덱스 항목 사이의 바이트 수. 작을수록 인덱스가 커지고 오프셋을 찾을 때 훑는 양은 줄어든다. 기본 4KB
+         */
+        public Builder indexIntervalBytes(int indexIntervalBytes) {
+            if (indexIntervalBytes <= 0) {
+                throw new IllegalArgumentException("indexIntervalBytes > 0 required but it was " + indexIntervalBytes);
+            }
+            this.indexIntervalBytes = indexIntervalBytes;
+            return this;
+        }
+
+        /**
+         * 모든 세그먼트 크기의 합이 이를 넘으면 오래된 봉인 세그먼트부터 지운다. 기본은 제한 없음
+         */
+        public Builder retentionBytes(long retentionBytes) {
+            if (retentionBytes <= 0) {
+                throw new IllegalArgumentException("retentionBytes > 0 required but it was " + retentionBytes);
+            }
+            this.retentionBytes = retentionBytes;
+            return this;
+        }
+
+        /**
+         * 봉인된 지 이 시간이 지난 세그먼트를 지운다. 기본은 제한 없음
+         */
+        public Builder retentionTime(Duration retentionTime) {
+            Objects.requireNonNull(retentionTime, "retentionTime");
+            if (retentionTime.isNegative() || retentionTime.isZero()) {
+                throw new IllegalArgumentException("retentionTime > 0 required but it was " + retentionTime);
+            }
+            this.retentionTime = retentionTime;
+            return this;
+        }
+
+        /**
+         * false 면 fsync 하지 않는다. 프로세스가 죽어도 데이터는 남지만 OS 가 죽으면 마지막 레코드들을 잃을 수 있다. 기본 true
+         */
+        public Builder fsync(boolean fsync) {
+            this.fsync = fsync;
+            return this;
+        }
+
+        /**
+         * append(Publisher) 가 fsync 한 번으로 묶을 최대 레코드 수. 기본 256
+         */
+        public Builder maxBatchRecords(int maxBatchRecords) {
+            if (maxBatchRecords <= 0) {
+                throw new IllegalArgumentException("maxBatchRecords > 0 required but it was " + maxBatchRecords);
+            }
+            this.maxBatchRecords = maxBatchRecords;
+            return this;
+        }
+
+        /**
+         * 쓰기와 읽기에 쓸 스케줄러. 파일 I/O 와 페이지 폴트가 블로킹이므로 기본은 Schedulers.boundedElastic() 이다.
+         */
+        public Builder scheduler(Scheduler scheduler) {
+            this.scheduler = Objects.requireNonNull(scheduler, "scheduler");
+            return this;
+        }
+
+        /**
+         * retentionTime 을 잴 때 쓸 시계. 테스트에서는 VirtualTimeScheduler 를 넘길 수 있다.
+         */
+        public Builder clock(Scheduler clock) {
+            this.clock = Objects.requireNonNull(clock, "clock");
+            return this;
+        }
+
+        /**
+         * 디렉터리를 열고(없으면 만든다) 남아 있던 세그먼트를 복구한다. 블로킹 호출이다.
+         */
+        public SegmentLog open() throws IOException {
+            SegmentLog log = new SegmentLog(this);
+            log.load();
+            log.applyRetention();
+            return log;
+        }
+    }
+}
@@ -0,0 +1,406 @@
+package org.example.merge;
+
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscription;
+import reactor.core.CoreSubscriber;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Operators;
+import reactor.util.concurrent.Queues;
+import reactor.util.context.Context;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
+/**
+ * 각각 정렬된 K 개의 Publisher 를 하나의 정렬된 Flux 로 합친다. (K-way merge)
+ *
+ * merge/mergeWith 는 도착한 순서대로 섞고, Flux.mergeComparing 은 요소를 하나 내보낼 때마다 K 개 소스의 머리를 모두 비교한다. (O(K))
+ * 여기서는 소스들의 머리 요소로 루저 트리(loser tree, 토너먼트 트리)를 만들어 두고,
+ * 요소를 내보낸 소스의 다음 요소만 리프에서 루트까지 다시 겨루게 하므로 요소 하나에 비교는 약 log2(K) 번이다.
+ *
+ * <pre>
+ * Flux&lt;Event&gt; ordered = SortedMerge.merge(Comparator.comparing(Event::timestamp), partitions);
+ * </pre>
+ *
+ * 규칙
+ *  * 각 소스는 comparator 순서로 정렬되어 있어야 한다. 정렬되어 있지 않으면 결과도 정렬되지 않는다. (검사하지 않는다)
+ *  * 같은 값이면 앞쪽(목록에서 먼저 나온) 소스의 요소가 먼저 나온다.
+ *  * 모든 소스가 머리 요소를 하나씩 가져왔거나 끝나야 첫 요소를 내보낼 수 있다. 느린 소스 하나가 전체를 기다리게 한다.
+ *  * 소스마다 prefetch 개를 미리 요청하고, 그 3/4 를 꺼낼 때마다 그만큼 다시 요청한다.
+ *  * 한 소스가 에러를 내면 나머지를 모두 취소하고 바로 onError 로 끝난다.
+ */
+public final class SortedMerge
+{
+    public static final int DEFAULT_PREFETCH = 32;
+
+    private SortedMerge() {
+    }
+
+    public static <T> Flux<T> merge(Comparator<? super T> comparator, List<? extends Publisher<? extends T>> sources) {
+        return merge(comparator, sources, DEFAULT_PREFETCH);
+    }
+
+    /**
+     * @param prefetch 소스마다 미리 받아 둘 요소 수. 소스가 많으면 prefetch x K 개가 버퍼에 있을 수 있다.
+     */
+    public static <T> Flux<T> merge(Comparator<? super T> comparator, List<? extends Publisher<? extends T>> sources,
+                                    int prefetch) {
+        Objects.requireNonNull(comparator, "comparator");
+        if (prefetch <= 0) {
+            throw new IllegalArgumentException("prefetch > 0 required but it was " + prefetch);
+        }
+        List<Publisher<? extends T>> copy = new ArrayList<>(sources.size());
+        for (Publisher<? extends T> source : sources) {
+            copy.add(Objects.requireNonNull(source, "source"));
+        }
+        if (copy.isEmpty()) {
+            return Flux.empty();
+        }
+        return Flux.from(actual -> {
+            MergeSubscription<T> parent =
+                new MergeSubscription<>(Operators.toCoreSubscriber(actual), comparator, copy.size(), prefetch);
+            actual.onSubscribe(parent);
+            parent.subscribe(copy);
+        });
+    }
+
+    static final class MergeSubscription<T> implements Subscription
+    {
+        /**
+         * 끝난 소스의 머리. 어떤 요소에게도 진다.
+         */
+        static final Object EXHAUSTED = new Object();
+
+        @SuppressWarnings("rawtypes")
+        static final AtomicIntegerFieldUpdater<MergeSubscription> WIP =
+            AtomicIntegerFieldUpdater.newUpdater(MergeSubscription.class, "wip");
+        @SuppressWarnings("rawtypes")
+        static final AtomicLongFieldUpdater<MergeSubscription> REQUESTED =
+            AtomicLongFieldUpdater.newUpdater(MergeSubscription.class, "requested");
+        @SuppressWarnings("rawtypes")
+        static final AtomicReferenceFieldUpdater<MergeSubscription, Throwable> ERROR =
+            AtomicReferenceFieldUpdater.newUpdater(MergeSubscription.class, Throwable.class, "error");
+
+        final CoreSubscriber<? super T> actual;
+        final Comparator<? super T> comparator;
+        final MergeInner<T>[] inners;
+        final int k;
+
+        /**
+         * 소스별 머리 요소. null 은 아직 가져오지 못함, EXHAUSTED 는 끝남
+         */
+        final Object[] heads;
+
+        /**
+         * 루저 트리. tree[0] 은 우승한 소스, tree[1..k-1] 은 각 경기에서 진 소스다.
+         * 소스 i 는 위치 i + k 의 리프이고 위치 n 의 부모는 n / 2 다.
+         */
+        final int[] tree;
+
+        volatile long requested;
+        volatile int wip;
+        volatile boolean cancelled;
+        volatile Throwable error;
+
+        // 아래는 drain 에서만 접근한다.
+        boolean ready;    // 모든 소스의 머리를 가져와서 트리를 만들었는지
+        int initCursor;   // 첫 머리를 가져오지 못한 첫 번째 소스
+        int pending = -1; // 방금 요소를 내보내서 다음 머리를 가져와야 하는 소스
+        long emitted;
+
+        @SuppressWarnings("unchecked")
+        MergeSubscription(CoreSubscriber<? super T> actual, Comparator<? super T> comparator, int k, int prefetch) {
+            this.actual = actual;
+            this.comparator = comparator;
+            this.k = k;
+            this.heads = new Object[k];
+            this.tree = new int[k];
+            this.inners = new MergeInner[k];
+            for (int i = 0; i < k; i++) {
+                inners[i] = new MergeInner<>(this, prefetch);
+            }
+        }
+
+        void subscribe(List<Publisher<? extends T>> sources) {
+            for (int i = 0; i < k && !cancelled; i++) {
+                sources.get(i).subscribe(inners[i]);
+            }
+        }
+
+        @Override
+        public void request(long n) {
+            if (Operators.validate(n)) {
+                Operators.addCap(REQUESTED, this, n);
+                drain();
+            }
+        }
+
+        @Override
+        public void cancel() {
+            if (cancelled) {
+                return;
+            }
+            cancelled = true;
+            cancelAll();
+            if (WIP.getAndIncrement(this) == 0) {
+                clear();
+            }
+        }
+
+        void onInnerError(Throwable e) {
+            if (ERROR.compareAndSet(this, null, e)) {
+                drain();
+            }
+            else {
+                Operators.onErrorDropped(e, actual.currentContext());
+            }
+        }
+
+        /**
+         * a 가 b 를 이기는지. 끝난 소스는 항상 지고, 같은 값이면 번호가 작은 소스가 이긴다.
+         */
+        @SuppressWarnings("unchecked")
+        boolean beats(int a, int b) {
+            Object x = heads[a];
+            Object y = heads[b];
+            if (x == EXHAUSTED) {
+                return false;
+            }
+            if (y == EXHAUSTED) {
+                return true;
+            }
+            int c = comparator.compare((T) x, (T) y);
+            return c < 0 || (c == 0 && a < b);
+        }
+
+        /**
+         * 모든 머리가 준비됐을 때 한 번 아래에서부터 토너먼트를 치른다. O(K)
+         */
+        void build() {
+            int[] winners = new int[2 * k];
+            for (int i = 0; i < k; i++) {
+                winners[i + k] = i;
+            }
+            for (int n = k - 1; n > 0; n--) {
+                int a = winners[2 * n];
+                int b = winners[2 * n + 1];
+                if (beats(a, b)) {
+                    winners[n] = a;
+                    tree[n] = b;
+                }
+                else {
+                    winners[n] = b;
+                    tree[n] = a;
+                }
+            }
+            tree[0] = k == 1 ? 0 : winners[1];
+        }
+
+        /**
+         * 소스 leaf 의 머리가 바뀌었을 때 리프에서 루트까지 다시 겨룬다. O(log K)
+         */
+        void replay(int leaf) {
+            int[] tree = this.tree;
+            int winner = leaf;
+            for (int n = (leaf + k) >>> 1; n > 0; n >>>= 1) {
+                int loser = tree[n];
+                if (beats(loser, winner)) {
+                    tree[n] = winner;
+                    winner = loser;
+                }
+            }
+            tree[0] = winner;
+        }
+
+        /**
+         * 소스 i 의 다음 머리를 큐에서 가져온다. 아직 도착하지 않았으면 false
+         */
+        boolean fill(int i) {
+            MergeInner<T> inner = inners[i];
+            boolean d = inner.done;
+            T v = inner.queue.poll();
+            if (v != null) {
+                heads[i] = v;
+                inner.onConsumed();
+                return true;
+            }
+            if (d) {
+                heads[i] = EXHAUSTED;
+                return true;
+            }
+            return false;
+        }
+
+        /**
+         * 첫 머리들을 앞에서부터 채운다. 비어있는 소스에서 멈췄다가 다음 drain 에서 거기서부터 이어간다.
+         */
+        boolean fillAll() {
+            int i = initCursor;
+            while (i < k && fill(i)) {
+                i++;
+            }
+            initCursor = i;
+            return i == k;
+        }
+
+        @SuppressWarnings("unchecked")
+        void drain() {
+            if (WIP.getAndIncrement(this) != 0) {
+                return;
+            }
+            int missed = 1;
+            Object[] heads = this.heads;
+            long e = emitted;
+            for (;;) {
+                if (checkTerminated()) {
+                    return;
+                }
+                if (!ready && fillAll()) {
+                    build();
+                    ready = true;
+                }
+                if (ready) {
+                    long r = requested;
+                    for (;;) {
+                        int p = pending;
+                        if (p >= 0) {
+                            if (!fill(p)) {
+                                break; // 이 소스의 다음 요소를 기다린다.
+                            }
+                            replay(p);
+                            pending = -1;
+                        }
+                        int w = tree[0];
+                        Object v = heads[w];
+                        if (v == EXHAUSTED) {
+                            actual.onComplete(); // 우승자가 끝난 소스라면 모든 소스가 끝났다.
+                            return;
+                        }
+                        if (e == r || checkTerminated()) {
+                            break;
+                        }
+                        heads[w] = null;
+                        pending = w;
+                        actual.onNext((T) v);
+                        e++;
+                    }
+                    if (checkTerminated()) {
+                        return;
+                    }
+                }
+                emitted = e;
+                missed = WIP.addAndGet(this, -missed);
+                if (missed == 0) {
+                    return;
+                }
+            }
+        }
+
+        private boolean checkTerminated() {
+            if (cancelled) {
+                clear();
+                return true;
+            }
+            Throwable ex = error;
+            if (ex != null) {
+                cancelled = true;
+                cancelAll();
+                clear();
+                actual.onError(ex);
+                return true;
+            }
+            return false;
+        }
+
+        private void cancelAll() {
+            for (MergeInner<T> inner : inners) {
+                inner.cancel();
+            }
+        }
+
+        private void clear() {
+            Arrays.fill(heads, null);
+            for (MergeInner<T> inner : inners) {
+                inner.queue.clear();
+            }
+        }
+    }
+
+    static final class MergeInner<T> implements CoreSubscriber<T>
+    {
+        @SuppressWarnings("rawtypes")
+        static final AtomicReferenceFieldUpdater<MergeInner, Subscription> S =
+            AtomicReferenceFieldUpdater.newUpdater(MergeInner.class, Subscription.class, "s");
+
+        final MergeSubscription<T> parent;
+        final Queue<T> queue;
+        final int prefetch;
+        final int limit;
+
+        volatile Subscription s;
+        volatile boolean done;
+
+        int consumed; // drain 에서만 접근
+
+        MergeInner(MergeSubscription<T> parent, int prefetch) {
+            this.parent = parent;
+            this.prefetch = prefetch;
+            this.limit = prefetch - (prefetch >> 2);
+            this.queue = Queues.<T>get(prefetch).get();
+        }
+
+        @Override
+        public void onSubscribe(Subscription s) {
+            if (Operators.setOnce(S, this, s)) {
+                s.request(prefetch);
+            }
+        }
+
+        @Override
+        public void onNext(T t) {
+            if (!queue.offer(t)) {
+                Operators.onDiscard(t, currentContext());
+                onError(Operators.onOperatorError(s, Exceptions.failWithOverflow(
+                    Exceptions.BACKPRESSURE_ERROR_QUEUE_FULL), t, currentContext()));
+                return;
+            }
+            parent.drain();
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            done = true;
+            parent.onInnerError(t);
+        }
+
+        @Override
+        public void onComplete() {
+            done = true;
+            parent.drain();
+        }
+
+        @Override
+        public Context currentContext() {
+            return parent.actual.currentContext();
+        }
+
+        void onConsumed() {
+            if (++consumed == limit) {
+                consumed = 0;
+                s.request(limit);
+            }
+        }
+
+        void cancel() {
+            Operators.terminate(S, this);
+        }
+    }
+}
@@ -0,0 +1,385 @@
+package org.example.parallel;
+
+import org.reactivestreams.Subscription;
+import reactor.core.CoreSubscriber;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Operators;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.concurrent.Queues;
+import reactor.util.context.Context;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.function.Function;
+
+/**
+ * CPU 를 많이 쓰는 map 을 여러 코어에서 나눠 실행하면서, 결과는 원래 순서대로 내보내는 연산자
+ *
+ * flatMap(i -> Mono.fromCallable(..).subscribeOn(parallel())) 은 빠르지만 순서가 섞이고,
+ * flatMapSequential 은 순서를 지키지만 요소마다 내부 Publisher 와 큐를 만든다.
+ * 여기서는 요소 i 를 레일 (i % parallelism) 에 나눠 주고, 결과를 크기 window 인 재정렬 버퍼의 i 번째 칸에 쓴다.
+ * 하류에는 버퍼의 머리(head) 칸이 채워지는 대로 순서대로 내보낸다.
+ *
+ * <pre>
+ * Flux.fromIterable(images)
+ *     .transform(OrderedParallelMap.map(this::resize, 8, 256))
+ *     .subscribe(...); // images 의 순서대로 나온다.
+ * </pre>
+ *
+ * 배압
+ *  * 상류에는 window 개까지만 요청하므로 아직 내보내지 않은 요소는 window 개를 넘지 않는다.
+ *  * 머리 요소의 map 이 오래 걸리면 그 뒤의 결과가 모두 버퍼에서 기다리고, 상류에 추가 요청도 하지 않는다.
+ *    window 를 키우면 느린 요소 하나를 더 오래 견디지만 메모리를 더 쓴다.
+ *  * 머리에서 window 의 3/4 만큼 내보낼 때마다 그만큼 다시 요청한다. (publishOn 의 prefetch 와 같은 방식)
+ *
+ * mapper 가 예외를 던지거나 null 을 반환하면 즉시 상류를 취소하고 onError 로 끝난다.
+ */
+public final class OrderedParallelMap
+{
+    public static final int DEFAULT_WINDOW = 256;
+
+    private OrderedParallelMap() {
+    }
+
+    /**
+     * Schedulers.parallel() 에서 코어 수만큼의 레일로 실행한다.
+     */
+    public static <T, R> Function<Flux<T>, Flux<R>> map(Function<? super T, ? extends R> mapper) {
+        return map(mapper, Schedulers.DEFAULT_POOL_SIZE, DEFAULT_WINDOW);
+    }
+
+    public static <T, R> Function<Flux<T>, Flux<R>> map(Function<? super T, ? extends R> mapper,
+                                                        int parallelism, int window) {
+        return map(mapper, parallelism, window, Schedulers.parallel());
+    }
+
+    /**
+     * @param parallelism 동시에 map 을 실행할 레일 수. 레일마다 scheduler 의 Worker 를 하나씩 쓴다.
+     * @param window      재정렬 버퍼 크기. 아직 내보내지 않은 요소의 최대 개수이며 parallelism 이상이어야 한다.
+     */
+    public static <T, R> Function<Flux<T>, Flux<R>> map(Function<? super T, ? extends R> mapper,
+                                                        int parallelism, int window, Scheduler scheduler) {
+        Objects.requireNonNull(mapper, "mapper");
+        Objects.requireNonNull(scheduler, "scheduler");
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("parallelism > 0 required but it was " + parallelism);
+        }
+        if (window < parallelism) {
+            throw new IllegalArgumentException("window >= parallelism required but it was " + window);
+        }
+        return source -> Flux.from(actual -> source.subscribe(
+            new MapSubscriber<T, R>(Operators.toCoreSubscriber(actual), mapper, parallelism, window, scheduler)));
+    }
+
+    static final class MapSubscriber<T, R> implements CoreSubscriber<T>, Subscription
+    {
+        static final VarHandle RESULTS = MethodHandles.arrayElementVarHandle(Object[].class);
+
+        @SuppressWarnings("rawtypes")
+        static final AtomicIntegerFieldUpdater<MapSubscriber> WIP =
+            AtomicIntegerFieldUpdater.newUpdater(MapSubscriber.class, "wip");
+        @SuppressWarnings("rawtypes")
+        static final AtomicLongFieldUpdater<MapSubscriber> REQUESTED =
+            AtomicLongFieldUpdater.newUpdater(MapSubscriber.class, "requested");
+        @SuppressWarnings("rawtypes")
+        static final AtomicReferenceFieldUpdater<MapSubscriber, Throwable> ERROR =
+            AtomicReferenceFieldUpdater.newUpdater(MapSubscriber.class, Throwable.class, "error");
+
+        final CoreSubscriber<? super R> actual;
+        final Function<? super T, ? extends R> mapper;
+        final Rail<T, R>[] rails;
+        final Object[] results; // 재정렬 버퍼. index & mask 칸에 index 번째 결과가 들어간다.
+        final int mask;
+        final int window;
+        final int limit;
+
+        Subscription upstream;
+        long received; // onNext 에서만 접근
+
+        volatile long requested;
+        volatile int wip;
+        volatile boolean done;
+        volatile long total; // done 이후에만 의미가 있다.
+        volatile boolean cancelled;
+        volatile Throwable error;
+
+        long head;     // drain 에서만 접근. 다음에 내보낼 index
+        long consumed; // drain 에서만 접근. 상류에 다시 요청하지 않은 개수
+
+        @SuppressWarnings("unchecked")
+        MapSubscriber(CoreSubscriber<? super R> actual, Function<? super T, ? extends R> mapper,
+                      int parallelism, int window, Scheduler scheduler) {
+            this.actual = actual;
+            this.mapper = mapper;
+            this.window = window;
+            this.limit = window - (window >> 2);
+            int capacity = Integer.highestOneBit(window - 1) << 1;
+            this.results = new Object[Math.max(1, capacity)];
+            this.mask = results.length - 1;
+            this.rails = new Rail[parallelism];
+            for (int i = 0; i < parallelism; i++) {
+                rails[i] = new Rail<>(this, i, parallelism, window, scheduler.createWorker());
+            }
+        }
+
+        @Override
+        public void onSubscribe(Subscription s) {
+            if (Operators.validate(upstream, s)) {
+                upstream = s;
+                actual.onSubscribe(this);
+                s.request(window);
+            }
+        }
+
+        @Override
+        public void onNext(T t) {
+            if (done) {
+                Operators.onNextDropped(t, actual.currentContext());
+                return;
+            }
+            long index = received++;
+            Rail<T, R> rail = rails[(int) (index % rails.length)];
+            if (!rail.queue.offer(t)) {
+                upstream.cancel();
+                onError(Operators.onOperatorError(Exceptions.failWithOverflow(
+                    Exceptions.BACKPRESSURE_ERROR_QUEUE_FULL), actual.currentContext()));
+                return;
+            }
+            rail.schedule();
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            if (done) {
+                Operators.onErrorDropped(t, actual.currentContext());
+                return;
+            }
+            if (!ERROR.compareAndSet(this, null, t)) {
+                Operators.onErrorDropped(t, actual.currentContext());
+            }
+            done = true;
+            drain();
+        }
+
+        @Override
+        public void onComplete() {
+            if (done) {
+                return;
+            }
+            total = received;
+            done = true;
+            drain();
+        }
+
+        @Override
+        public void request(long n) {
+            if (Operators.validate(n)) {
+                Operators.addCap(REQUESTED, this, n);
+                drain();
+            }
+        }
+
+        @Override
+        public void cancel() {
+            if (cancelled) {
+                return;
+            }
+            cancelled = true;
+            upstream.cancel();
+            disposeRails();
+            if (WIP.getAndIncrement(this) == 0) {
+                clear();
+            }
+        }
+
+        @Override
+        public Context currentContext() {
+            return actual.currentContext();
+        }
+
+        /**
+         * 레일에서 map 이 끝나면 호출된다.
+         */
+        void onResult(long index, R result) {
+            RESULTS.setRelease(results, (int) index & mask, result);
+            drain();
+        }
+
+        void onMapperError(Throwable e) {
+            if (ERROR.compareAndSet(this, null, e)) {
+                upstream.cancel();
+                done = true;
+                drain();
+            }
+            else {
+                Operators.onErrorDropped(e, actual.currentContext());
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        void drain() {
+            if (WIP.getAndIncrement(this) != 0) {
+                return;
+            }
+            int missed = 1;
+            Object[] results = this.results;
+            int mask = this.mask;
+            long h = head;
+            long c = consumed;
+            for (;;) {
+                long r = requested;
+                long e = 0L;
+                while (e != r) {
+                    if (cancelled) {
+                        clear();
+                        return;
+                    }
+                    Throwable ex = error;
+                    if (ex != null) {
+                        terminateWithError(ex);
+                        return;
+                    }
+                    if (done && h == total) {
+                        disposeRails();
+                        actual.onComplete();
+                        return;
+                    }
+                    Object v = RESULTS.getAcquire(results, (int) h & mask);
+                    if (v == null) {
+                        break; // 머리 요소가 아직 끝나지 않았다.
+                    }
+                    results[(int) h & mask] = null;
+                    h++;
+                    actual.onNext((R) v);
+                    e++;
+                    if (++c == limit) {
+                        c = 0;
+                        upstream.request(limit);
+                    }
+                }
+                if (e == r) {
+                    if (cancelled) {
+                        clear();
+                        return;
+                    }
+                    Throwable ex = error;
+                    if (ex != null) {
+                        terminateWithError(ex);
+                        return;
+                    }
+                    if (done && h == total) {
+                        disposeRails();
+                        actual.onComplete();
+                        return;
+                    }
+                }
+                if (e != 0L && r != Long.MAX_VALUE) {
+                    REQUESTED.addAndGet(this, -e);
+                }
+                head = h;
+                consumed = c;
+                missed = WIP.addAndGet(this, -missed);
+                if (missed == 0) {
+                    return;
+                }
+            }
+        }
+
+        private void terminateWithError(Throwable ex) {
+            cancelled = true;
+            disposeRails();
+            clear();
+            actual.onError(ex);
+        }
+
+        private void disposeRails() {
+            for (Rail<T, R> rail : rails) {
+                rail.worker.dispose();
+            }
+        }
+
+        /**
+         * 레일의 큐는 레일 스레드만 비울 수 있으므로(SPSC) 여기서는 재정렬 버퍼만 비운다.
+         */
+        private void clear() {
+            Arrays.fill(results, null);
+        }
+    }
+
+    /**
+     * 상류가 나눠 준 요소를 자신의 Worker 에서 순서대로 map 한다. 레일 r 은 index r, r + n, r + 2n ... 을 맡는다.
+     */
+    static final class Rail<T, R> implements Runnable
+    {
+        @SuppressWarnings("rawtypes")
+        static final AtomicIntegerFieldUpdater<Rail> WIP =
+            AtomicIntegerFieldUpdater.newUpdater(Rail.class, "wip");
+
+        final MapSubscriber<T, R> parent;
+        final Queue<T> queue;
+        final Scheduler.Worker worker;
+        final int stride;
+
+        long index; // run 에서만 접근
+
+        volatile int wip;
+
+        Rail(MapSubscriber<T, R> parent, int rail, int stride, int window, Scheduler.Worker worker) {
+            this.parent = parent;
+            this.index = rail;
+            this.stride = stride;
+            // 한 레일에 쌓일 수 있는 요소도 window 개를 넘지 않는다.
+            this.queue = Queues.<T>get(window).get();
+            this.worker = worker;
+        }
+
+        void schedule() {
+            if (WIP.getAndIncrement(this) == 0) {
+                try {
+                    worker.schedule(this);
+                }
+                catch (RuntimeException e) {
+                    parent.onMapperError(Operators.onRejectedExecution(e, parent.actual.currentContext()));
+                }
+            }
+        }
+
+        @Override
+        public void run() {
+            MapSubscriber<T, R> p = parent;
+            int missed = 1;
+            for (;;) {
+                T t;
+                while ((t = queue.poll()) != null) {
+                    if (p.cancelled || p.error != null) {
+                        queue.clear();
+                        return;
+                    }
+                    R result;
+                    try {
+                        result = Objects.requireNonNull(p.mapper.apply(t), "The mapper returned a null value");
+                    }
+                    catch (Throwable e) {
+                        queue.clear();
+                        p.onMapperError(Operators.onOperatorError(e, p.actual.currentContext()));
+                        return;
+                    }
+                    p.onResult(index, result);
+                    index += stride;
+                }
+                missed = WIP.addAndGet(this, -missed);
+                if (missed == 0) {
+                    return;
+                }
+            }
+        }
+    }
+}
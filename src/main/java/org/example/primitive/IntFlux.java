@@ -0,0 +1,257 @@
+package org.example.primitive;
+
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.function.IntPredicate;
+import java.util.function.IntToLongFunction;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * int 요소를 int[] 청크 단위로 흘려보내는 스트림
+ *
+ * Flux.range(1, 6).map(i -> i + 10) 은 요소마다 Integer 박싱이 일어난다.
+ * IntFlux 는 요소를 청크(기본 256개)로 묶어 Flux&lt;int[]&gt; 로 전달하므로 할당은 청크당 한 번으로 줄어든다.
+ * 백프레셔와 구독 규칙은 내부 Flux 가 그대로 처리하며, 요청 단위는 요소가 아니라 청크이다.
+ *
+ * 청크는 연산자를 지날 때마다 새 배열로 만들어지므로 하류에서 배열을 변경해도 상류에는 영향이 없다.
+ * 빈 청크는 하류로 전달하지 않는다.
+ *
+ * LongFlux 는 같은 구조의 long 버전이다.
+ */
+public final class IntFlux
+{
+    public static final int DEFAULT_CHUNK_SIZE = 256;
+
+    private final Flux<int[]> chunks;
+
+    private IntFlux(Flux<int[]> chunks) {
+        this.chunks = chunks;
+    }
+
+    /**
+     * start 부터 count 개의 연속된 정수를 만든다. (Flux.range 대응)
+     */
+    public static IntFlux range(int start, int count) {
+        return range(start, count, DEFAULT_CHUNK_SIZE);
+    }
+
+    public static IntFlux range(int start, int count, int chunkSize) {
+        if (count < 0) {
+            throw new IllegalArgumentException("count >= 0 required but it was " + count);
+        }
+        if ((long) start + count - 1 > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("start + count can not exceed Integer.MAX_VALUE");
+        }
+        checkChunkSize(chunkSize);
+        if (count == 0) {
+            return new IntFlux(Flux.empty());
+        }
+        return new IntFlux(Flux.generate(() -> new long[] {start, (long) start + count}, (state, sink) -> {
+            long next = state[0];
+            int length = (int) Math.min(chunkSize, state[1] - next);
+            int[] chunk = new int[length];
+            for (int i = 0; i < length; i++) {
+                chunk[i] = (int) (next + i);
+            }
+            state[0] = next + length;
+            sink.next(chunk);
+            if (state[0] == state[1]) {
+                sink.complete();
+            }
+            return state;
+        }));
+    }
+
+    /**
+     * 배열을 chunkSize 씩 나눈 청크로 전달한다. 원본 배열은 복사된다.
+     */
+    public static IntFlux fromArray(int[] values) {
+        return fromArray(values, DEFAULT_CHUNK_SIZE);
+    }
+
+    public static IntFlux fromArray(int[] values, int chunkSize) {
+        Objects.requireNonNull(values, "values");
+        checkChunkSize(chunkSize);
+        // 길이나 chunkSize 가 Integer.MAX_VALUE 에 가까우면 int 로는 넘치므로 long 으로 계산한다.
+        int count = (int) (((long) values.length + chunkSize - 1) / chunkSize);
+        return new IntFlux(Flux.range(0, count)
+            .map(i -> Arrays.copyOfRange(values, i * chunkSize, (int) Math.min(values.length, (long) (i + 1) * chunkSize))));
+    }
+
+    /**
+     * 이미 청크로 묶인 Publisher 를 IntFlux 로 감싼다. 빈 청크는 걸러진다.
+     */
+    public static IntFlux fromChunks(Publisher<int[]> chunks) {
+        return new IntFlux(Flux.from(chunks).filter(chunk -> chunk.length > 0));
+    }
+
+    /**
+     * 박싱된 Flux 를 청크로 묶는다. 상류의 박싱은 그대로 남지만 하류의 연산은 원시 타입으로 처리된다.
+     */
+    public static IntFlux from(Publisher<Integer> source) {
+        return from(source, DEFAULT_CHUNK_SIZE);
+    }
+
+    public static IntFlux from(Publisher<Integer> source, int chunkSize) {
+        checkChunkSize(chunkSize);
+        return new IntFlux(Flux.from(source)
+            .buffer(chunkSize)
+            .map(list -> {
+                int[] chunk = new int[list.size()];
+                for (int i = 0; i < chunk.length; i++) {
+                    chunk[i] = list.get(i);
+                }
+                return chunk;
+            }));
+    }
+
+    static void checkChunkSize(int chunkSize) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("chunkSize > 0 required but it was " + chunkSize);
+        }
+    }
+
+    public IntFlux map(IntUnaryOperator mapper) {
+        Objects.requireNonNull(mapper, "mapper");
+        return new IntFlux(chunks.map(chunk -> {
+            int[] mapped = new int[chunk.length];
+            for (int i = 0; i < chunk.length; i++) {
+                mapped[i] = mapper.applyAsInt(chunk[i]);
+            }
+            return mapped;
+        }));
+    }
+
+    public LongFlux mapToLong(IntToLongFunction mapper) {
+        Objects.requireNonNull(mapper, "mapper");
+        return LongFlux.fromChunks(chunks.map(chunk -> {
+            long[] mapped = new long[chunk.length];
+            for (int i = 0; i < chunk.length; i++) {
+                mapped[i] = mapper.applyAsLong(chunk[i]);
+            }
+            return mapped;
+        }));
+    }
+
+    public LongFlux asLongFlux() {
+        return mapToLong(i -> i);
+    }
+
+    /**
+     * 조건을 만족하는 요소만 남긴다. 모두 걸러진 청크는 하류로 전달하지 않는다.
+     */
+    public IntFlux filter(IntPredicate predicate) {
+        Objects.requireNonNull(predicate, "predicate");
+        return new IntFlux(chunks.handle((chunk, sink) -> {
+            int[] kept = new int[chunk.length];
+            int n = 0;
+            for (int value : chunk) {
+                if (predicate.test(value)) {
+                    kept[n++] = value;
+                }
+            }
+            if (n > 0) {
+                sink.next(n == kept.length ? kept : Arrays.copyOf(kept, n));
+            }
+        }));
+    }
+
+    /**
+     * int 합계가 넘칠 수 있으므로 long 으로 더한다. long 합계마저 넘치면 LongFlux.sum() 처럼 ArithmeticException 으로 종료한다.
+     */
+    public Mono<Long> sum() {
+        return chunks.collect(() -> new long[1], (acc, chunk) -> {
+            long sum = acc[0];
+            for (int value : chunk) {
+                sum = Math.addExact(sum, value);
+            }
+            acc[0] = sum;
+        }).map(acc -> acc[0]);
+    }
+
+    public Mono<Long> count() {
+        return chunks.collect(() -> new long[1], (acc, chunk) -> acc[0] += chunk.length).map(acc -> acc[0]);
+    }
+
+    /**
+     * 요소가 없으면 빈 Mono 를 반환한다.
+     */
+    public Mono<Integer> min() {
+        return chunks.collect(MinMax::new, MinMax::min).filter(m -> m.seen).map(m -> m.value);
+    }
+
+    /**
+     * 요소가 없으면 빈 Mono 를 반환한다.
+     */
+    public Mono<Integer> max() {
+        return chunks.collect(MinMax::new, MinMax::max).filter(m -> m.seen).map(m -> m.value);
+    }
+
+    public Mono<int[]> toArray() {
+        return chunks.collect(Collector::new, Collector::add).map(Collector::toArray);
+    }
+
+    /**
+     * 청크를 그대로 노출한다. 요청(request) 단위는 청크이다.
+     */
+    public Flux<int[]> chunks() {
+        return chunks;
+    }
+
+    /**
+     * 요소 단위의 Flux 로 되돌린다. 여기서부터는 다시 박싱이 일어난다.
+     */
+    public Flux<Integer> boxed() {
+        return chunks.concatMapIterable(IntFlux::iterable);
+    }
+
+    static Iterable<Integer> iterable(int[] chunk) {
+        return () -> Arrays.stream(chunk).iterator();
+    }
+
+    static final class MinMax
+    {
+        boolean seen;
+        int value;
+
+        void min(int[] chunk) {
+            for (int v : chunk) {
+                if (!seen || v < value) {
+                    value = v;
+                    seen = true;
+                }
+            }
+        }
+
+        void max(int[] chunk) {
+            for (int v : chunk) {
+                if (!seen || v > value) {
+                    value = v;
+                    seen = true;
+                }
+            }
+        }
+    }
+
+    static final class Collector
+    {
+        int[] values = new int[DEFAULT_CHUNK_SIZE];
+        int size;
+
+        void add(int[] chunk) {
+            if (size + chunk.length > values.length) {
+                values = Arrays.copyOf(values, Math.max(values.length << 1, size + chunk.length));
+            }
+            System.arraycopy(chunk, 0, values, size, chunk.length);
+            size += chunk.length;
+        }
+
+        int[] toArray() {
+            return values.length == size ? values : Arrays.copyOf(values, size);
+        }
+    }
+}
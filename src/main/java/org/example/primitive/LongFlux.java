@@ -0,0 +1,228 @@
+package org.example.primitive;
+
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.function.LongPredicate;
+import java.util.function.LongUnaryOperator;
+
+/**
+ * long 요소를 long[] 청크 단위로 흘려보내는 스트림
+ * ID, 카운터처럼 int 범위를 넘는 값에 사용한다. 구조는 IntFlux 와 같다.
+ */
+public final class LongFlux
+{
+    public static final int DEFAULT_CHUNK_SIZE = IntFlux.DEFAULT_CHUNK_SIZE;
+
+    private final Flux<long[]> chunks;
+
+    private LongFlux(Flux<long[]> chunks) {
+        this.chunks = chunks;
+    }
+
+    /**
+     * start 부터 count 개의 연속된 정수를 만든다. (Flux.range 대응)
+     */
+    public static LongFlux range(long start, long count) {
+        return range(start, count, DEFAULT_CHUNK_SIZE);
+    }
+
+    public static LongFlux range(long start, long count, int chunkSize) {
+        if (count < 0) {
+            throw new IllegalArgumentException("count >= 0 required but it was " + count);
+        }
+        if (count > 0 && start > 0 && start + count - 1 < start) {
+            throw new IllegalArgumentException("start + count can not exceed Long.MAX_VALUE");
+        }
+        IntFlux.checkChunkSize(chunkSize);
+        if (count == 0) {
+            return new LongFlux(Flux.empty());
+        }
+        return new LongFlux(Flux.generate(() -> new long[] {start, count}, (state, sink) -> {
+            long next = state[0];
+            int length = (int) Math.min(chunkSize, state[1]);
+            long[] chunk = new long[length];
+            for (int i = 0; i < length; i++) {
+                chunk[i] = next + i;
+            }
+            state[0] = next + length;
+            state[1] -= length;
+            sink.next(chunk);
+            if (state[1] == 0) {
+                sink.complete();
+            }
+            return state;
+        }));
+    }
+
+    /**
+     * 배열을 chunkSize 씩 나눈 청크로 전달한다. 원본 배열은 복사된다.
+     */
+    public static LongFlux fromArray(long[] values) {
+        return fromArray(values, DEFAULT_CHUNK_SIZE);
+    }
+
+    public static LongFlux fromArray(long[] values, int chunkSize) {
+        Objects.requireNonNull(values, "values");
+        IntFlux.checkChunkSize(chunkSize);
+        // 길이나 chunkSize 가 Integer.MAX_VALUE 에 가까우면 int 로는 넘치므로 long 으로 계산한다.
+        int count = (int) (((long) values.length + chunkSize - 1) / chunkSize);
+        return new LongFlux(Flux.range(0, count)
+            .map(i -> Arrays.copyOfRange(values, i * chunkSize, (int) Math.min(values.length, (long) (i + 1) * chunkSize))));
+    }
+
+    /**
+     * 이미 청크로 묶인 Publisher 를 LongFlux 로 감싼다. 빈 청크는 걸러진다.
+     */
+    public static LongFlux fromChunks(Publisher<long[]> chunks) {
+        return new LongFlux(Flux.from(chunks).filter(chunk -> chunk.length > 0));
+    }
+
+    /**
+     * 박싱된 Flux 를 청크로 묶는다. 상류의 박싱은 그대로 남지만 하류의 연산은 원시 타입으로 처리된다.
+     */
+    public static LongFlux from(Publisher<Long> source) {
+        return from(source, DEFAULT_CHUNK_SIZE);
+    }
+
+    public static LongFlux from(Publisher<Long> source, int chunkSize) {
+        IntFlux.checkChunkSize(chunkSize);
+        return new LongFlux(Flux.from(source)
+            .buffer(chunkSize)
+            .map(list -> {
+                long[] chunk = new long[list.size()];
+                for (int i = 0; i < chunk.length; i++) {
+                    chunk[i] = list.get(i);
+                }
+                return chunk;
+            }));
+    }
+
+    public LongFlux map(LongUnaryOperator mapper) {
+        Objects.requireNonNull(mapper, "mapper");
+        return new LongFlux(chunks.map(chunk -> {
+            long[] mapped = new long[chunk.length];
+            for (int i = 0; i < chunk.length; i++) {
+                mapped[i] = mapper.applyAsLong(chunk[i]);
+            }
+            return mapped;
+        }));
+    }
+
+    /**
+     * 조건을 만족하는 요소만 남긴다. 모두 걸러진 청크는 하류로 전달하지 않는다.
+     */
+    public LongFlux filter(LongPredicate predicate) {
+        Objects.requireNonNull(predicate, "predicate");
+        return new LongFlux(chunks.handle((chunk, sink) -> {
+            long[] kept = new long[chunk.length];
+            int n = 0;
+            for (long value : chunk) {
+                if (predicate.test(value)) {
+                    kept[n++] = value;
+                }
+            }
+            if (n > 0) {
+                sink.next(n == kept.length ? kept : Arrays.copyOf(kept, n));
+            }
+        }));
+    }
+
+    /**
+     * 합계가 넘치면 Math.addExact 처럼 ArithmeticException 으로 종료한다.
+     */
+    public Mono<Long> sum() {
+        return chunks.collect(() -> new long[1], (acc, chunk) -> {
+            long sum = acc[0];
+            for (long value : chunk) {
+                sum = Math.addExact(sum, value);
+            }
+            acc[0] = sum;
+        }).map(acc -> acc[0]);
+    }
+
+    public Mono<Long> count() {
+        return chunks.collect(() -> new long[1], (acc, chunk) -> acc[0] += chunk.length).map(acc -> acc[0]);
+    }
+
+    /**
+     * 요소가 없으면 빈 Mono 를 반환한다.
+     */
+    public Mono<Long> min() {
+        return chunks.collect(MinMax::new, MinMax::min).filter(m -> m.seen).map(m -> m.value);
+    }
+
+    /**
+     * 요소가 없으면 빈 Mono 를 반환한다.
+     */
+    public Mono<Long> max() {
+        return chunks.collect(MinMax::new, MinMax::max).filter(m -> m.seen).map(m -> m.value);
+    }
+
+    public Mono<long[]> toArray() {
+        return chunks.collect(Collector::new, Collector::add).map(Collector::toArray);
+    }
+
+    /**
+     * 청크를 그대로 노출한다. 요청(request) 단위는 청크이다.
+     */
+    public Flux<long[]> chunks() {
+        return chunks;
+    }
+
+    /**
+     * 요소 단위의 Flux 로 되돌린다. 여기서부터는 다시 박싱이 일어난다.
+     */
+    public Flux<Long> boxed() {
+        return chunks.concatMapIterable(LongFlux::iterable);
+    }
+
+    static Iterable<Long> iterable(long[] chunk) {
+        return () -> Arrays.stream(chunk).iterator();
+    }
+
+    static final class MinMax
+    {
+        boolean seen;
+        long value;
+
+        void min(long[] chunk) {
+            for (long v : chunk) {
+                if (!seen || v < value) {
+                    value = v;
+                    seen = true;
+                }
+            }
+        }
+
+        void max(long[] chunk) {
+            for (long v : chunk) {
+                if (!seen || v > value) {
+                    value = v;
+                    seen = true;
+                }
+            }
+        }
+    }
+
+    static final class Collector
+    {
+        long[] values = new long[DEFAULT_CHUNK_SIZE];
+        int size;
+
+        void add(long[] chunk) {
+            if (size + chunk.length > values.length) {
+                values = Arrays.copyOf(values, Math.max(values.length << 1, size + chunk.length));
+            }
+            System.arraycopy(chunk, 0, values, size, chunk.length);
+            size += chunk.length;
+        }
+
+        long[] toArray() {
+            return values.length == size ? values : Arrays.copyOf(values, size);
+        }
+    }
+}
@@ -0,0 +1,258 @@
+package org.example.publisher;
+
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import reactor.core.Fuseable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Operators;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.RandomAccess;
+
+/**
+ * 배열이나 List 의 요소를 순서대로 보내는 Publisher. 리액티브 스트림 TCK 를 통과한다. (ArrayPublisherTckTest)
+ *
+ * MyCustomSubscriber 에서 보듯 리액티브 스트림을 직접 구현하려면 규칙을 모두 지켜야 한다.
+ * 규칙 처리는 IndexedSubscription 에 있고, 여기서는 요소를 꺼내는 방법만 정한다.
+ *
+ * Flux.fromArray 와 같은 방식(빠른 경로, 동기 퓨전)이며, Flux.fromIterable 과 달리 List 를 Iterator 없이 get(i) 로 읽는다.
+ * RandomAccess 가 아닌 List 는 구독할 때 배열로 복사한다.
+ * 배열과 List 는 복사하지 않으므로 구독 중에 바꾸면 안 된다. 요소 수는 구독할 때 정해진다.
+ * null 요소를 만나면 NullPointerException 으로 끝난다.
+ *
+ * Reactor 연산자에 붙이려면 asFlux() 를 쓴다. Flux.from 은 Fuseable 을 보고 퓨전을 유지한다.
+ */
+public final class ArrayPublisher<T> implements Publisher<T>, Fuseable
+{
+    private final Object[] array;
+    private final List<? extends T> list;
+
+    private ArrayPublisher(Object[] array, List<? extends T> list) {
+        this.array = array;
+        this.list = list;
+    }
+
+    public static <T> ArrayPublisher<T> fromArray(T[] values) {
+        return new ArrayPublisher<>(Objects.requireNonNull(values, "values"), null);
+    }
+
+    public static <T> ArrayPublisher<T> fromList(List<? extends T> values) {
+        return new ArrayPublisher<>(null, Objects.requireNonNull(values, "values"));
+    }
+
+    public Flux<T> asFlux() {
+        return Flux.from(this);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void subscribe(Subscriber<? super T> subscriber) {
+        Objects.requireNonNull(subscriber, "subscriber"); // §1.9
+        Object[] a = array;
+        if (a == null) {
+            if (list instanceof RandomAccess) {
+                int size = list.size();
+                if (size == 0) {
+                    Operators.complete(subscriber);
+                    return;
+                }
+                subscriber.onSubscribe(new ListSubscription<>(subscriber, (List<T>) list, size));
+                return;
+            }
+            a = list.toArray();
+        }
+        if (a.length == 0) {
+            Operators.complete(subscriber);
+            return;
+        }
+        subscriber.onSubscribe(new ArraySubscription<>(subscriber, a));
+    }
+
+    static final class ArraySubscription<T> extends IndexedSubscription<T>
+    {
+        final Object[] array;
+
+        ArraySubscription(Subscriber<? super T> actual, Object[] array) {
+            super(actual, array.length);
+            this.array = array;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        void fastPath() {
+            Object[] a = array;
+            int end = this.end;
+            Subscriber<? super T> s = actual;
+            for (int i = index; i != end; i++) {
+                if (state != ACTIVE) {
+                    stop();
+                    return;
+                }
+                T t = (T) a[i];
+                if (t == null) {
+                    state = CANCELLED;
+                    s.onError(new NullPointerException("The " + i + "th array element was null"));
+                    return;
+                }
+                s.onNext(t);
+            }
+            if (state != ACTIVE) {
+                stop();
+                return;
+            }
+            s.onComplete();
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        void slowPath(long n) {
+            Object[] a = array;
+            int end = this.end;
+            Subscriber<? super T> s = actual;
+            int i = index;
+            long e = 0;
+            for (;;) {
+                while (e != n && i != end) {
+                    if (state != ACTIVE) {
+                        stop();
+                        return;
+                    }
+                    T t = (T) a[i];
+                    if (t == null) {
+                        state = CANCELLED;
+                        s.onError(new NullPointerException("The " + i + "th array element was null"));
+                        return;
+                    }
+                    s.onNext(t);
+                    i++;
+                    e++;
+                }
+                if (state != ACTIVE) {
+                    stop();
+                    return;
+                }
+                if (i == end) {
+                    s.onComplete();
+                    return;
+                }
+                n = requested;
+                if (n == e) {
+                    index = i;
+                    n = REQUESTED.addAndGet(this, -e);
+                    if (n == 0) {
+                        return;
+                    }
+                    e = 0;
+                }
+            }
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public T poll() {
+            int i = index;
+            if (i == end) {
+                return null;
+            }
+            index = i + 1;
+            T t = (T) array[i];
+            if (t == null) {
+                throw new NullPointerException("The " + i + "th array element was null");
+            }
+            return t;
+        }
+    }
+
+    static final class ListSubscription<T> extends IndexedSubscription<T>
+    {
+        final List<T> list;
+
+        ListSubscription(Subscriber<? super T> actual, List<T> list, int size) {
+            super(actual, size);
+            this.list = list;
+        }
+
+        @Override
+        void fastPath() {
+            List<T> l = list;
+            int end = this.end;
+            Subscriber<? super T> s = actual;
+            for (int i = index; i != end; i++) {
+                if (state != ACTIVE) {
+                    stop();
+                    return;
+                }
+                T t = l.get(i);
+                if (t == null) {
+                    state = CANCELLED;
+                    s.onError(new NullPointerException("The " + i + "th list element was null"));
+                    return;
+                }
+                s.onNext(t);
+            }
+            if (state != ACTIVE) {
+                stop();
+                return;
+            }
+            s.onComplete();
+        }
+
+        @Override
+        void slowPath(long n) {
+            List<T> l = list;
+            int end = this.end;
+            Subscriber<? super T> s = actual;
+            int i = index;
+            long e = 0;
+            for (;;) {
+                while (e != n && i != end) {
+                    if (state != ACTIVE) {
+                        stop();
+                        return;
+                    }
+                    T t = l.get(i);
+                    if (t == null) {
+                        state = CANCELLED;
+                        s.onError(new NullPointerException("The " + i + "th list element was null"));
+                        return;
+                    }
+                    s.onNext(t);
+                    i++;
+                    e++;
+                }
+                if (state != ACTIVE) {
+                    stop();
+                    return;
+                }
+                if (i == end) {
+                    s.onComplete();
+                    return;
+                }
+                n = requested;
+                if (n == e) {
+                    index = i;
+                    n = REQUESTED.addAndGet(this, -e);
+                    if (n == 0) {
+                        return;
+                    }
+                    e = 0;
+                }
+            }
+        }
+
+        @Override
+        public T poll() {
+            int i = index;
+            if (i == end) {
+                return null;
+            }
+            index = i + 1;
+            T t = list.get(i);
+            if (t == null) {
+                throw new NullPointerException("The " + i + "th list element was null");
+            }
+            return t;
+        }
+    }
+}
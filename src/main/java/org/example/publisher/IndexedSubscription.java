@@ -0,0 +1,130 @@
+package org.example.publisher;
+
+import org.reactivestreams.Subscriber;
+import reactor.core.Exceptions;
+import reactor.core.Fuseable;
+import reactor.core.publisher.Operators;
+
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+
+/**
+ * 0 부터 end 까지 인덱스로 요소를 꺼내는 소스의 공통 Subscription. ArrayPublisher, RangePublisher 가 쓴다.
+ *
+ * 리액티브 스트림 규칙 중 소스가 지켜야 할 것들을 여기서 처리한다.
+ *  * §3.3  request 가 onNext 안에서 다시 불려도 재귀하지 않는다. requested 를 0 에서 올린 스레드만 전달하고, 나머지는 수만 더한다.
+ *  * §3.9  0 이하를 요청하면 IllegalArgumentException 으로 끝낸다. (Operators.validate 는 로그만 남긴다.)
+ *  * §3.6  취소되었거나 끝난 뒤의 request 는 0 이하여도 아무것도 하지 않는다. (ACTIVE 일 때만 BAD_REQUEST 로 바꾼다.)
+ *  * §3.17 요청 수는 Long.MAX_VALUE 에서 멈추며, Long.MAX_VALUE 는 무제한으로 본다.
+ *  * §1.3  잘못된 요청의 onError 도 전달 중인 스레드가 보내므로 onNext 와 겹치지 않는다.
+ *
+ * 처음부터 Long.MAX_VALUE 를 요청하면 요청 수를 세지 않는 빠른 경로(fastPath)로 모두 보낸다.
+ * Reactor 의 동기 퓨전(Fuseable.SYNC)을 받아들이면 request 없이 하류가 poll 로 직접 꺼낸다.
+ *
+ * 전달 루프는 하위 클래스마다 따로 두어, 요소를 꺼내는 코드가 여러 소스 사이에서 다형 호출이 되지 않게 한다.
+ */
+abstract class IndexedSubscription<T> implements Fuseable.QueueSubscription<T>
+{
+    static final int ACTIVE = 0;
+    static final int CANCELLED = 1;
+    static final int BAD_REQUEST = 2;
+
+    @SuppressWarnings("rawtypes")
+    static final AtomicIntegerFieldUpdater<IndexedSubscription> STATE =
+        AtomicIntegerFieldUpdater.newUpdater(IndexedSubscription.class, "state");
+    @SuppressWarnings("rawtypes")
+    static final AtomicLongFieldUpdater<IndexedSubscription> REQUESTED =
+        AtomicLongFieldUpdater.newUpdater(IndexedSubscription.class, "requested");
+
+    final Subscriber<? super T> actual;
+    final int end;
+
+    /**
+     * 다음에 보낼 인덱스. 전달하는 스레드(또는 poll 하는 하류)만 바꾼다.
+     */
+    int index;
+
+    /**
+     * ACTIVE, CANCELLED, BAD_REQUEST. 요소마다 한 번만 읽도록 하나로 묶었다.
+     */
+    volatile int state;
+
+    @SuppressWarnings("unused")
+    volatile long requested;
+
+    long badRequest;
+
+    IndexedSubscription(Subscriber<? super T> actual, int end) {
+        this.actual = actual;
+        this.end = end;
+    }
+
+    /**
+     * 요청 수를 세지 않고 끝까지 보낸다.
+     */
+    abstract void fastPath();
+
+    /**
+     * 요청 수 n 만큼 보내고, 그동안 늘어난 요청을 이어서 보낸다.
+     */
+    abstract void slowPath(long n);
+
+    @Override
+    public void request(long n) {
+        if (n <= 0) {
+            // 전달 중인 스레드가 알아채도록 표시한 뒤 요청을 하나 더해 깨운다. 전달 중인 스레드가 없으면 이 스레드가 보낸다.
+            // 이미 취소되었거나 끝났으면(또는 이미 표시했으면) 아무것도 하지 않는다.
+            if (state != ACTIVE) {
+                return;
+            }
+            badRequest = n;
+            if (!STATE.compareAndSet(this, ACTIVE, BAD_REQUEST)) {
+                return;
+            }
+            n = 1;
+        }
+        if (Operators.addCap(REQUESTED, this, n) == 0) {
+            if (n == Long.MAX_VALUE) {
+                fastPath();
+            }
+            else {
+                slowPath(n);
+            }
+        }
+    }
+
+    @Override
+    public void cancel() {
+        state = CANCELLED;
+    }
+
+    /**
+     * 전달 루프에서 state 가 ACTIVE 가 아닐 때 부른다. 잘못된 요청이었다면 onError 를 보낸다.
+     */
+    final void stop() {
+        if (STATE.compareAndSet(this, BAD_REQUEST, CANCELLED)) {
+            actual.onError(Exceptions.nullOrNegativeRequestException(badRequest));
+        }
+    }
+
+    @Override
+    public int requestFusion(int requestedMode) {
+        // 요소를 꺼내는 데 부수 효과가 없으므로 THREAD_BARRIER 여부와 상관없이 받아들인다.
+        return requestedMode & Fuseable.SYNC;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return index == end;
+    }
+
+    @Override
+    public int size() {
+        return end - index;
+    }
+
+    @Override
+    public void clear() {
+        index = end;
+    }
+}
@@ -0,0 +1,126 @@
+package org.example.publisher;
+
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import reactor.core.Fuseable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Operators;
+
+import java.util.Objects;
+
+/**
+ * start 부터 count 개의 연속된 정수를 보내는 Publisher. 리액티브 스트림 TCK 를 통과한다. (RangePublisherTckTest)
+ *
+ * Flux.range 와 같은 동작이며, 규칙 처리는 ArrayPublisher 와 같은 IndexedSubscription 을 쓴다.
+ * 요소는 Integer.valueOf 로 박싱된다. 박싱이 문제라면 IntFlux 를 쓴다.
+ */
+public final class RangePublisher implements Publisher<Integer>, Fuseable
+{
+    private final int start;
+    private final int count;
+
+    private RangePublisher(int start, int count) {
+        this.start = start;
+        this.count = count;
+    }
+
+    public static RangePublisher range(int start, int count) {
+        if (count < 0) {
+            throw new IllegalArgumentException("count >= 0 required but it was " + count);
+        }
+        if ((long) start + count - 1 > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("start + count can not exceed Integer.MAX_VALUE");
+        }
+        return new RangePublisher(start, count);
+    }
+
+    public Flux<Integer> asFlux() {
+        return Flux.from(this);
+    }
+
+    @Override
+    public void subscribe(Subscriber<? super Integer> subscriber) {
+        Objects.requireNonNull(subscriber, "subscriber"); // §1.9
+        if (count == 0) {
+            Operators.complete(subscriber);
+            return;
+        }
+        subscriber.onSubscribe(new RangeSubscription(subscriber, start, count));
+    }
+
+    static final class RangeSubscription extends IndexedSubscription<Integer>
+    {
+        final int start;
+
+        RangeSubscription(Subscriber<? super Integer> actual, int start, int count) {
+            super(actual, count);
+            this.start = start;
+        }
+
+        @Override
+        void fastPath() {
+            int start = this.start;
+            int end = this.end;
+            Subscriber<? super Integer> s = actual;
+            for (int i = index; i != end; i++) {
+                if (state != ACTIVE) {
+                    stop();
+                    return;
+                }
+                s.onNext(start + i);
+            }
+            if (state != ACTIVE) {
+                stop();
+                return;
+            }
+            s.onComplete();
+        }
+
+        @Override
+        void slowPath(long n) {
+            int start = this.start;
+            int end = this.end;
+            Subscriber<? super Integer> s = actual;
+            int i = index;
+            long e = 0;
+            for (;;) {
+                while (e != n && i != end) {
+                    if (state != ACTIVE) {
+                        stop();
+                        return;
+                    }
+                    s.onNext(start + i);
+                    i++;
+                    e++;
+                }
+                if (state != ACTIVE) {
+                    stop();
+                    return;
+                }
+                if (i == end) {
+                    s.onComplete();
+                    return;
+                }
+                n = requested;
+                if (n == e) {
+                    index = i;
+                    n = REQUESTED.addAndGet(this, -e);
+                    if (n == 0) {
+                        return;
+                    }
+                    e = 0;
+                }
+            }
+        }
+
+        @Override
+        public Integer poll() {
+            int i = index;
+            if (i == end) {
+                return null;
+            }
+            index = i + 1;
+            return start + i;
+        }
+    }
+}
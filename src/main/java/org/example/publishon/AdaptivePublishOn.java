@@ -0,0 +1,367 @@
+package org.example.publishon;
+
+import org.reactivestreams.Subscription;
+import reactor.core.CoreSubscriber;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Operators;
+import reactor.core.scheduler.Scheduler;
+import reactor.util.concurrent.Queues;
+import reactor.util.context.Context;
+
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.function.Function;
+
+/**
+ * prefetch 를 실행 중에 [minPrefetch, maxPrefetch] 범위에서 스스로 조절하는 publishOn
+ *
+ * publishOn(scheduler, 2) 처럼 prefetch 를 작게 잡으면 빠른 소비자는 다시 요청(replenish)하고 기다리기를 반복하고,
+ * 크게 잡으면 느린 소비자 앞에 요소가 그만큼 쌓여 메모리를 차지한다. 알맞은 값은 생산/소비 속도에 따라 달라진다.
+ *
+ * publishOn 처럼 prefetch 의 3/4 (limit) 를 내보낼 때마다 다시 요청한다.
+ * 그리고 요소를 max(prefetch x 2, MIN_EPOCH) 개 내보낼 때마다 그동안의 소비 시간, 다시 요청하는 데 든 시간,
+ * 큐에 남아있던 요소 수를 보고 prefetch 를 바꾼다.
+ *  * 늘림 (x2)   : 다시 요청하는 데 쓴 시간이 전체의 GROW_OVERHEAD 를 넘었다. 또는 다시 요청할 때 생산자는 요청받은 요소를
+ *                 다 보내고 쉬고 있었고, 그 요청이 도착하기 전에 큐가 빈 일이 GROW_THRESHOLD 번 이상 있었다.
+ *                 요청이 오가는 비용을 더 많은 요소로 나눠야 한다는 뜻이다.
+ *  * 줄임 (x3/4) : 요청 비용이 SHRINK_OVERHEAD 보다 작고, 큐가 prefetch 의 1/8 아래로 내려간 적이 없다.
+ *                 다시 요청한 요소가 충분히 일찍 도착하므로 미리 받아 둔 요소 일부는 쓰이지 않고 메모리만 차지한다.
+ *  * 그 외       : 생산자가 느려서 큐가 빈 경우는 prefetch 를 늘려도 소용없으므로 그대로 둔다.
+ * 시간은 다시 요청할 때만 재므로 (System.nanoTime() 두 번) 요소마다 드는 비용은 없다.
+ * 줄일 때는 다음 요청량에서 차이만큼 덜 요청하므로 이미 요청한 요소를 취소하지는 않는다.
+ * 큐는 연결 배열 큐라서 실제로 쌓인 만큼만 메모리를 쓴다.
+ *
+ * <pre>
+ * AdaptivePublishOn&lt;Integer&gt; publishOn = AdaptivePublishOn.create(Schedulers.boundedElastic(), 2, 256);
+ * flux.transform(publishOn)...
+ *
+ * publishOn.currentPrefetch(); // 모니터링
+ * </pre>
+ *
+ * 에러는 publishOn 처럼 큐에 남은 요소를 모두 내보낸 뒤에 전달한다. (delayError)
+ * 한 인스턴스를 여러 번 구독하면 구독마다 따로 조절하고, currentPrefetch 는 마지막으로 바뀐 값을 보여준다.
+ */
+public final class AdaptivePublishOn<T> implements Function<Flux<T>, Flux<T>>
+{
+    /**
+     * prefetch 를 다시 정하기까지 내보내는 요소 수의 하한. 보통은 prefetch 의 두 배마다 정한다.
+     */
+    static final int MIN_EPOCH = 32;
+
+    /**
+     * 한 번 판단하는 동안 요청을 이 횟수 이상 기다려야 prefetch 를 늘린다.
+     * 스레드가 잠깐 늦게 실행돼서 한 번 기다린 것은 무시한다.
+     */
+    static final int GROW_THRESHOLD = 2;
+
+    /**
+     * 다시 요청하는 데 쓴 시간이 이 비율을 넘으면 prefetch 를 늘린다.
+     * 스레드를 오가는 요청은 생산자 스레드를 깨우느라 요소 하나를 처리하는 것보다 훨씬 오래 걸릴 수 있다.
+     */
+    static final double GROW_OVERHEAD = 0.10;
+
+    /**
+     * 다시 요청하는 데 쓴 시간이 이 비율보다 작아야 prefetch 를 줄인다.
+     */
+    static final double SHRINK_OVERHEAD = 0.025;
+
+    private final Scheduler scheduler;
+    private final int minPrefetch;
+    private final int maxPrefetch;
+
+    private volatile int currentPrefetch;
+
+    private AdaptivePublishOn(Scheduler scheduler, int minPrefetch, int maxPrefetch) {
+        this.scheduler = Objects.requireNonNull(scheduler, "scheduler");
+        if (minPrefetch <= 0) {
+            throw new IllegalArgumentException("minPrefetch > 0 required but it was " + minPrefetch);
+        }
+        if (maxPrefetch < minPrefetch || maxPrefetch > 1 << 30) {
+            throw new IllegalArgumentException("minPrefetch <= maxPrefetch <= 2^30 required but it was " + maxPrefetch);
+        }
+        this.minPrefetch = minPrefetch;
+        this.maxPrefetch = maxPrefetch;
+        this.currentPrefetch = minPrefetch;
+    }
+
+    /**
+     * prefetch 는 minPrefetch 에서 시작한다.
+     */
+    public static <T> AdaptivePublishOn<T> create(Scheduler scheduler, int minPrefetch, int maxPrefetch) {
+        return new AdaptivePublishOn<>(scheduler, minPrefetch, maxPrefetch);
+    }
+
+    public int minPrefetch() {
+        return minPrefetch;
+    }
+
+    public int maxPrefetch() {
+        return maxPrefetch;
+    }
+
+    /**
+     * 지금 prefetch. 구독 전에는 minPrefetch
+     */
+    public int currentPrefetch() {
+        return currentPrefetch;
+    }
+
+    @Override
+    public Flux<T> apply(Flux<T> source) {
+        return Flux.from(actual -> source.subscribe(
+            new PublishOnSubscriber<T>(Operators.toCoreSubscriber(actual), this, scheduler.createWorker())));
+    }
+
+    static final class PublishOnSubscriber<T> implements CoreSubscriber<T>, Subscription, Runnable
+    {
+        @SuppressWarnings("rawtypes")
+        static final AtomicIntegerFieldUpdater<PublishOnSubscriber> WIP =
+            AtomicIntegerFieldUpdater.newUpdater(PublishOnSubscriber.class, "wip");
+        @SuppressWarnings("rawtypes")
+        static final AtomicLongFieldUpdater<PublishOnSubscriber> REQUESTED =
+            AtomicLongFieldUpdater.newUpdater(PublishOnSubscriber.class, "requested");
+        @SuppressWarnings("rawtypes")
+        static final AtomicLongFieldUpdater<PublishOnSubscriber> RECEIVED =
+            AtomicLongFieldUpdater.newUpdater(PublishOnSubscriber.class, "received");
+
+        final CoreSubscriber<? super T> actual;
+        final AdaptivePublishOn<T> parent;
+        final Scheduler.Worker worker;
+        final Queue<T> queue;
+
+        Subscription upstream;
+
+        volatile long requested;
+        volatile int wip;
+        volatile boolean done;
+        volatile boolean cancelled;
+        volatile Throwable error;
+        volatile long received; // 상류에서 받은 요소 수. onNext 만 올린다.
+
+        // 아래는 drain(run) 에서만 접근한다. (onSubscribe 의 첫 요청은 drain 보다 먼저 끝난다.)
+        long upstreamRequested; // 상류에 요청한 요소 수 (누적)
+        long emitted;
+        int consumed;           // 마지막 요청 이후 내보낸 수
+        int prefetch;
+        int limit;
+        long idleMark = -1;     // 상류가 요청받은 요소를 모두 보내고 쉬고 있을 때 다시 요청했다면, 그때까지 받은 수
+        int epochRemaining;     // 이만큼 더 내보내면 prefetch 를 다시 정한다.
+        int starved;            // 이번 판단 기간에 쉬던 생산자에게 보낸 요청을 기다리느라 큐가 빈 횟수
+        long minBuffered;       // 이번 판단 기간에 요소를 꺼낸 직후 큐에 남아있던 수의 최솟값
+        long polled;            // 큐에서 꺼낸 요소 수 (누적)
+        long epochStart;        // 이번 판단 기간을 시작한 시각 (ns)
+        long requestNanos;      // 이번 판단 기간에 upstream.request 에 쓴 시간 (ns)
+
+        PublishOnSubscriber(CoreSubscriber<? super T> actual, AdaptivePublishOn<T> parent, Scheduler.Worker worker) {
+            this.actual = actual;
+            this.parent = parent;
+            this.worker = worker;
+            this.prefetch = parent.minPrefetch;
+            this.limit = limitOf(prefetch);
+            this.epochRemaining = epochOf(prefetch);
+            this.minBuffered = Long.MAX_VALUE;
+            this.queue = Queues.<T>unbounded(Math.max(Queues.XS_BUFFER_SIZE, Math.min(parent.minPrefetch, 1024))).get();
+        }
+
+        /**
+         * prefetch 의 3/4. 다시 요청할 때 큐에 하나 이상 남아있어야 큐가 비는 것을 보고 판단할 수 있다.
+         */
+        static int limitOf(int prefetch) {
+            return prefetch == 1 ? 1 : prefetch - Math.max(1, prefetch >> 2);
+        }
+
+        static int epochOf(int prefetch) {
+            return Math.max(MIN_EPOCH, prefetch << 1);
+        }
+
+        @Override
+        public void onSubscribe(Subscription s) {
+            if (Operators.validate(upstream, s)) {
+                upstream = s;
+                actual.onSubscribe(this);
+                upstreamRequested = prefetch;
+                epochStart = System.nanoTime();
+                s.request(prefetch);
+            }
+        }
+
+        @Override
+        public void onNext(T t) {
+            if (done) {
+                Operators.onNextDropped(t, actual.currentContext());
+                return;
+            }
+            queue.offer(t);
+            RECEIVED.lazySet(this, received + 1);
+            trySchedule();
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            if (done) {
+                Operators.onErrorDropped(t, actual.currentContext());
+                return;
+            }
+            error = t;
+            done = true;
+            trySchedule();
+        }
+
+        @Override
+        public void onComplete() {
+            if (done) {
+                return;
+            }
+            done = true;
+            trySchedule();
+        }
+
+        @Override
+        public void request(long n) {
+            if (Operators.validate(n)) {
+                Operators.addCap(REQUESTED, this, n);
+                trySchedule();
+            }
+        }
+
+        @Override
+        public void cancel() {
+            if (cancelled) {
+                return;
+            }
+            cancelled = true;
+            upstream.cancel();
+            worker.dispose();
+            if (WIP.getAndIncrement(this) == 0) {
+                queue.clear();
+            }
+        }
+
+        @Override
+        public Context currentContext() {
+            return actual.currentContext();
+        }
+
+        void trySchedule() {
+            if (WIP.getAndIncrement(this) != 0) {
+                return;
+            }
+            try {
+                worker.schedule(this);
+            }
+            catch (RejectedExecutionException e) {
+                queue.clear();
+                cancelled = true;
+                upstream.cancel();
+                actual.onError(Operators.onRejectedExecution(e, actual.currentContext()));
+            }
+        }
+
+        @Override
+        public void run() {
+            int missed = 1;
+            Queue<T> q = queue;
+            long e = emitted;
+            for (;;) {
+                long r = requested;
+                while (e != r) {
+                    boolean d = done;
+                    T v = q.poll();
+                    boolean empty = v == null;
+                    if (checkTerminated(d, empty)) {
+                        return;
+                    }
+                    if (empty) {
+                        minBuffered = 0;
+                        if (received == idleMark) {
+                            idleMark = -1;
+                            starved++; // 생산자가 쉬고 있을 때 보낸 요청의 요소가 아직 하나도 오지 않았다.
+                        }
+                        break;
+                    }
+                    long buffered = received - ++polled;
+                    if (buffered < minBuffered) {
+                        minBuffered = buffered;
+                    }
+                    actual.onNext(v);
+                    e++;
+                    if (++consumed == limit) {
+                        replenish();
+                    }
+                }
+                if (e == r && checkTerminated(done, q.isEmpty())) {
+                    return;
+                }
+                emitted = e;
+                missed = WIP.addAndGet(this, -missed);
+                if (missed == 0) {
+                    return;
+                }
+            }
+        }
+
+        /**
+         * 내보낸 수만큼 다시 요청한다. 판단 기간이 끝났으면 prefetch 를 다시 정하고 그 차이도 더한다.
+         */
+        void replenish() {
+            int p = prefetch;
+            int next = p;
+            epochRemaining -= consumed;
+            if (epochRemaining <= 0) {
+                long now = System.nanoTime();
+                double overhead = (double) requestNanos / Math.max(1, now - epochStart);
+                if (starved >= GROW_THRESHOLD || overhead > GROW_OVERHEAD) {
+                    next = (int) Math.min((long) p << 1, parent.maxPrefetch);
+                }
+                else if (minBuffered >= Math.max(1, p >> 3) && overhead < SHRINK_OVERHEAD) {
+                    next = Math.max(p - (p >> 2), parent.minPrefetch);
+                }
+                starved = 0;
+                minBuffered = Long.MAX_VALUE;
+                requestNanos = 0;
+                epochStart = now;
+                epochRemaining = epochOf(next);
+            }
+
+            // 줄일 때 p - next 는 p / 4 이하이고 consumed(= limit) 는 p / 2 이상이므로 음수가 되지 않는다.
+            long n = (long) consumed + next - p;
+            if (received == upstreamRequested) {
+                idleMark = upstreamRequested;
+            }
+            consumed = 0;
+            if (next != p) {
+                prefetch = next;
+                limit = limitOf(next);
+                parent.currentPrefetch = next;
+            }
+            if (n > 0) {
+                upstreamRequested += n;
+                long start = System.nanoTime();
+                upstream.request(n);
+                requestNanos += System.nanoTime() - start;
+            }
+        }
+
+        boolean checkTerminated(boolean d, boolean empty) {
+            if (cancelled) {
+                queue.clear();
+                return true;
+            }
+            if (d && empty) {
+                worker.dispose();
+                Throwable ex = error;
+                if (ex != null) {
+                    actual.onError(ex);
+                }
+                else {
+                    actual.onComplete();
+                }
+                return true;
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package org.example.ratelimit;
+
+/**
+ * 허용량(permit)이 없을 때 요소를 어떻게 처리할지 정한다.
+ */
+public enum RateLimitPolicy
+{
+    /**
+     * 허용량이 생길 때까지 기다렸다가 순서대로 내보낸다. 기다리는 동안 상류에는 prefetch 만큼만 요청한다.
+     */
+    DELAY,
+
+    /**
+     * 요소를 버린다. 버린 요소는 doOnDiscard 훅으로 받을 수 있다.
+     */
+    DROP,
+
+    /**
+     * onError(Exceptions.failWithOverflow) 로 끝낸다.
+     */
+    ERROR
+}
@@ -0,0 +1,510 @@
+package org.example.ratelimit;
+
+import org.reactivestreams.Subscription;
+import reactor.core.CoreSubscriber;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Operators;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.concurrent.Queues;
+import reactor.util.context.Context;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.function.Function;
+
+/**
+ * 락 없는 토큰 버킷 속도 제한기 (GCRA, generic cell rate algorithm)
+ *
+ * delayElements(d) 는 허용량이 남아 있어도 요소마다 d 만큼 늦춘다.
+ * limit(policy) 는 허용량이 남아 있는 동안은 요소를 바로 내보내고, 다 썼을 때만 policy 대로 기다리거나 버리거나 에러를 낸다.
+ *
+ * <pre>
+ * RateLimiter limiter = RateLimiter.builder(100, Duration.ofSeconds(1)) // 초당 100 개
+ *     .burst(20)
+ *     .build();
+ *
+ * requests.transform(limiter.limit(RateLimitPolicy.DELAY))...
+ * events.transform(limiter.limit(RateLimitPolicy.DROP))...   // 같은 버킷을 나눠 쓴다.
+ * </pre>
+ *
+ * 버킷
+ *  * 토큰 수 대신 "다음 허용량이 생기는 이론상 시각(tat)" 하나만 long 으로 보관한다. 허용량 하나는 interval(= period / permits) 만큼의 시간이다.
+ *    permits 개를 받으려면 max(tat, now) + permits * interval 이 now + burst * interval 을 넘지 않아야 하고, 받으면 tat 를 그 값으로 CAS 한다.
+ *    한동안 쓰지 않으면 burst 개까지 한 번에 받을 수 있다. (토큰 버킷의 용량)
+ *  * 허용량이 없어 거절할 때는 tat 를 읽기만 하고 쓰지 않는다. 그래서 버킷이 가득 찬(제한이 걸린) 상태에서는 스레드가 많아도 캐시 라인을 두고 다투지 않는다.
+ *  * 받을 때는 CAS 한 번이므로 여러 스레드가 동시에 받으면 다툰다. lease(n) 를 주면 limit() 로 만든 구독이 허용량이 충분할 때 n 개를 한 번에 받아
+ *    하나씩 쓰므로 CAS 가 n 분의 1 로 준다. 대신 구독마다 최대 n - 1 개를 미리 쥐고 있으며, 다 쓰지 못하고 끝나면 돌려준다.
+ *  * interval 은 나노초 단위 정수로 반올림한다. 따라서 permits / period 는 초당 10 억 개 이하여야 한다.
+ *
+ * 시간은 System.nanoTime() 으로 재고, DELAY 의 타이머는 scheduler 에서 실행한다. 테스트에서 scheduler(VirtualTimeScheduler) 를 넘기면
+ * 시간도 그 스케줄러의 now() 로 잰다. (Scheduler.now() 는 System.currentTimeMillis() 기반이라 1ms 마다 한 번만 바뀌므로
+ * interval 이 1ms 보다 짧으면 시계로 쓸 수 없다.)
+ * 하나의 RateLimiter 는 여러 구독, 여러 스레드가 함께 써도 된다.
+ */
+public final class RateLimiter
+{
+    @SuppressWarnings("rawtypes")
+    static final AtomicLongFieldUpdater<RateLimiter> TAT =
+        AtomicLongFieldUpdater.newUpdater(RateLimiter.class, "tat");
+
+    final long intervalNanos;
+    final long toleranceNanos;
+    final int burst;
+    final int lease;
+    final Scheduler scheduler;
+    final Scheduler clock; // null 이면 System.nanoTime()
+
+    private volatile long tat;
+
+    private RateLimiter(Builder builder) {
+        this.intervalNanos = builder.intervalNanos;
+        this.burst = builder.burst;
+        this.toleranceNanos = Math.multiplyExact(intervalNanos, (long) burst);
+        if (builder.lease > burst) {
+            throw new IllegalArgumentException("lease <= burst required but it was " + builder.lease + " > " + burst);
+        }
+        this.lease = builder.lease;
+        this.scheduler = builder.scheduler;
+        this.clock = builder.clock;
+        this.tat = now(); // System.nanoTime() 은 음수일 수 있으므로 0 이 아니라 지금에서 시작한다.
+    }
+
+    /**
+     * period 마다 permits 개를 허용한다. burst 의 기본값은 permits (한 period 만큼)
+     */
+    public static Builder builder(long permits, Duration period) {
+        return new Builder(permits, period);
+    }
+
+    /**
+     * 허용량 하나를 받는다. 없으면 기다리지 않고 false
+     */
+    public boolean tryAcquire() {
+        return tryAcquire(1, now());
+    }
+
+    /**
+     * 허용량 permits 개를 한꺼번에 받는다. 모자라면 하나도 받지 않고 false
+     */
+    public boolean tryAcquire(int permits) {
+        checkPermits(permits);
+        return tryAcquire(permits, now());
+    }
+
+    /**
+     * 지금 바로 받을 수 있는 허용량 (근사값)
+     */
+    public int availablePermits() {
+        long now = now();
+        long used = Math.max(tat, now) - now;
+        return (int) Math.max(0, (toleranceNanos - used) / intervalNanos);
+    }
+
+    public int burst() {
+        return burst;
+    }
+
+    /**
+     * 허용량 하나에 해당하는 시간
+     */
+    public Duration interval() {
+        return Duration.ofNanos(intervalNanos);
+    }
+
+    /**
+     * transform 용. 허용량이 있는 동안은 요소를 그대로 내보내고, 없으면 policy 대로 처리한다.
+     * 구독마다 따로 상태를 만들지만 버킷은 이 RateLimiter 의 것을 함께 쓴다.
+     */
+    public <T> Function<Flux<T>, Flux<T>> limit(RateLimitPolicy policy) {
+        Objects.requireNonNull(policy, "policy");
+        switch (policy) {
+            case DELAY:
+                return flux -> Flux.from(actual -> flux.subscribe(new DelaySubscriber<T>(Operators.toCoreSubscriber(actual), this)));
+            case DROP:
+                if (lease == 1) {
+                    return flux -> flux.filter(value -> tryAcquire());
+                }
+                return flux -> Flux.defer(() -> {
+                    Lease permits = new Lease(this);
+                    return flux.filter(value -> permits.tryAcquire()).doFinally(signal -> permits.release());
+                });
+            default:
+                return flux -> Flux.defer(() -> {
+                    Lease permits = new Lease(this);
+                    return flux.<T>handle((value, sink) -> {
+                        if (permits.tryAcquire()) {
+                            sink.next(value);
+                        }
+                        else {
+                            sink.error(Exceptions.failWithOverflow("Could not emit value due to lack of permits"));
+                        }
+                    }).doFinally(signal -> permits.release());
+                });
+        }
+    }
+
+    long now() {
+        Scheduler clock = this.clock;
+        return clock == null ? System.nanoTime() : clock.now(TimeUnit.NANOSECONDS);
+    }
+
+    void checkPermits(int permits) {
+        if (permits <= 0 || permits > burst) {
+            throw new IllegalArgumentException("0 < permits <= burst required but it was " + permits);
+        }
+    }
+
+    boolean tryAcquire(int permits, long now) {
+        long cost = permits * intervalNanos;
+        for (;;) {
+            long current = tat;
+            long next = Math.max(current, now) + cost;
+            if (next - now > toleranceNanos) {
+                return false;
+            }
+            if (TAT.compareAndSet(this, current, next)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * 허용량 permits 개를 예약하고, 예약한 허용량을 쓸 수 있을 때까지 기다려야 할 시간(ns)을 반환한다. 바로 쓸 수 있으면 0
+     */
+    long reserve(int permits, long now) {
+        long cost = permits * intervalNanos;
+        for (;;) {
+            long current = tat;
+            long next = Math.max(current, now) + cost;
+            if (TAT.compareAndSet(this, current, next)) {
+                return Math.max(0, next - now - toleranceNanos);
+            }
+        }
+    }
+
+    /**
+     * 받았지만 쓰지 않은 허용량을 돌려준다.
+     */
+    void release(int permits) {
+        if (permits > 0) {
+            TAT.addAndGet(this, -permits * intervalNanos);
+        }
+    }
+
+    /**
+     * 구독 하나가 미리 받아 둔 허용량. onNext 를 보내는 스레드에서만 쓴다.
+     * release 는 doFinally 에서 부르므로 다른 스레드의 cancel 과 onNext 가 겹치면 돌려준 뒤에 하나를 더 쓸 수 있다. (최대 1 개)
+     */
+    static final class Lease
+    {
+        final RateLimiter limiter;
+        int remaining;
+
+        Lease(RateLimiter limiter) {
+            this.limiter = limiter;
+        }
+
+        boolean tryAcquire() {
+            if (remaining > 0) {
+                remaining--;
+                return true;
+            }
+            long now = limiter.now();
+            int n = limiter.lease;
+            if (n > 1 && limiter.tryAcquire(n, now)) {
+                remaining = n - 1;
+                return true;
+            }
+            return limiter.tryAcquire(1, now);
+        }
+
+        void release() {
+            int n = remaining;
+            remaining = 0;
+            limiter.release(n);
+        }
+    }
+
+    /**
+     * DELAY. 상류에는 PREFETCH 개까지만 요청해 두고, 맨 앞 요소의 허용량을 예약한 뒤 기다려야 하면 타이머를 건다.
+     * 한 구독이 예약하는 허용량은 한 번에 하나(또는 lease 개)뿐이므로 여러 구독이 같은 버킷을 쓰면 예약한 순서대로 번갈아 나간다.
+     * 에러는 큐에 남은 요소를 모두 내보낸 뒤에 전달한다.
+     */
+    static final class DelaySubscriber<T> implements CoreSubscriber<T>, Subscription
+    {
+        static final int PREFETCH = Queues.XS_BUFFER_SIZE;
+        static final int LIMIT = PREFETCH - (PREFETCH >> 2);
+
+        @SuppressWarnings("rawtypes")
+        static final AtomicIntegerFieldUpdater<DelaySubscriber> WIP =
+            AtomicIntegerFieldUpdater.newUpdater(DelaySubscriber.class, "wip");
+        @SuppressWarnings("rawtypes")
+        static final AtomicLongFieldUpdater<DelaySubscriber> REQUESTED =
+            AtomicLongFieldUpdater.newUpdater(DelaySubscriber.class, "requested");
+
+        final CoreSubscriber<? super T> actual;
+        final RateLimiter limiter;
+        final Queue<T> queue;
+        final Disposable.Swap timer = Disposables.swap();
+
+        Subscription upstream;
+
+        volatile long requested;
+        volatile int wip;
+        volatile boolean done;
+        volatile boolean cancelled;
+        volatile Throwable error;
+        volatile boolean waiting; // 예약한 허용량을 기다리는 타이머가 걸려 있다.
+
+        // 아래는 drain 에서만 접근한다.
+        long emitted;
+        int consumed;
+        int leased; // 받아 두었거나 예약한 허용량 중 아직 쓰지 않은 수
+
+        DelaySubscriber(CoreSubscriber<? super T> actual, RateLimiter limiter) {
+            this.actual = actual;
+            this.limiter = limiter;
+            this.queue = Queues.<T>get(PREFETCH).get();
+        }
+
+        @Override
+        public void onSubscribe(Subscription s) {
+            if (Operators.validate(upstream, s)) {
+                upstream = s;
+                actual.onSubscribe(this);
+                s.request(PREFETCH);
+            }
+        }
+
+        @Override
+        public void onNext(T t) {
+            if (done) {
+                Operators.onNextDropped(t, actual.currentContext());
+                return;
+            }
+            if (!queue.offer(t)) {
+                onError(Operators.onOperatorError(upstream, Exceptions.failWithOverflow(Exceptions.BACKPRESSURE_ERROR_QUEUE_FULL), t, actual.currentContext()));
+                return;
+            }
+            drain();
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            if (done) {
+                Operators.onErrorDropped(t, actual.currentContext());
+                return;
+            }
+            error = t;
+            done = true;
+            drain();
+        }
+
+        @Override
+        public void onComplete() {
+            if (done) {
+                return;
+            }
+            done = true;
+            drain();
+        }
+
+        @Override
+        public void request(long n) {
+            if (Operators.validate(n)) {
+                Operators.addCap(REQUESTED, this, n);
+                drain();
+            }
+        }
+
+        @Override
+        public void cancel() {
+            if (cancelled) {
+                return;
+            }
+            cancelled = true;
+            upstream.cancel();
+            timer.dispose();
+            drain();
+        }
+
+        @Override
+        public Context currentContext() {
+            return actual.currentContext();
+        }
+
+        void onPermit() {
+            waiting = false;
+            drain();
+        }
+
+        void drain() {
+            if (WIP.getAndIncrement(this) != 0) {
+                return;
+            }
+            int missed = 1;
+            Queue<T> q = queue;
+            long e = emitted;
+            for (;;) {
+                long r = requested;
+                while (e != r && !waiting) {
+                    boolean d = done;
+                    boolean empty = q.isEmpty();
+                    if (checkTerminated(d, empty)) {
+                        return;
+                    }
+                    if (empty) {
+                        break;
+                    }
+                    if (leased == 0 && !acquire()) {
+                        break;
+                    }
+                    leased--;
+                    actual.onNext(q.poll());
+                    e++;
+                    if (++consumed == LIMIT) {
+                        consumed = 0;
+                        upstream.request(LIMIT);
+                    }
+                }
+                if (checkTerminated(done, q.isEmpty())) {
+                    return;
+                }
+                emitted = e;
+                missed = WIP.addAndGet(this, -missed);
+                if (missed == 0) {
+                    return;
+                }
+            }
+        }
+
+        /**
+         * 허용량을 받는다. 기다려야 하면 예약하고 타이머를 건 뒤 false
+         */
+        boolean acquire() {
+            long now = limiter.now();
+            int n = limiter.lease;
+            if (n > 1 && limiter.tryAcquire(n, now)) {
+                leased = n;
+                return true;
+            }
+            long wait = limiter.reserve(1, now);
+            leased = 1;
+            if (wait == 0) {
+                return true;
+            }
+            waiting = true;
+            try {
+                timer.update(limiter.scheduler.schedule(this::onPermit, wait, TimeUnit.NANOSECONDS));
+            }
+            catch (RejectedExecutionException ex) {
+                waiting = false;
+                upstream.cancel();
+                if (!done) {
+                    error = Operators.onRejectedExecution(ex, actual.currentContext());
+                    done = true;
+                }
+                cancelled = true;
+                Operators.onDiscardQueueWithClear(queue, actual.currentContext(), null);
+                limiter.release(leased);
+                leased = 0;
+                actual.onError(error);
+                // 이후의 drain 은 cancelled 를 보고 끝낸다.
+            }
+            return false;
+        }
+
+        boolean checkTerminated(boolean d, boolean empty) {
+            if (cancelled) {
+                Operators.onDiscardQueueWithClear(queue, actual.currentContext(), null);
+                limiter.release(leased);
+                leased = 0;
+                return true;
+            }
+            if (d && empty) {
+                limiter.release(leased);
+                leased = 0;
+                Throwable ex = error;
+                if (ex != null) {
+                    actual.onError(ex);
+                }
+                else {
+                    actual.onComplete();
+                }
+                return true;
+            }
+            return false;
+        }
+    }
+
+    public static final class Builder
+    {
+        final long intervalNanos;
+        int burst;
+        int lease = 1;
+        Scheduler scheduler = Schedulers.parallel();
+        Scheduler clock;
+
+        Builder(long permits, Duration period) {
+            Objects.requireNonNull(period, "period");
+            if (permits <= 0) {
+                throw new IllegalArgumentException("permits > 0 required but it was " + permits);
+            }
+            if (period.isNegative() || period.isZero()) {
+                throw new IllegalArgumentException("period > 0 required but it was " + period);
+            }
+            long interval = Math.round((double) period.toNanos() / permits);
+            if (interval < 1) {
+                throw new IllegalArgumentException("permits / period <= 1 per nanosecond required but it was " + permits + " / " + period);
+            }
+            this.intervalNanos = interval;
+            this.burst = (int) Math.min(permits, Integer.MAX_VALUE);
+        }
+
+        /**
+         * 쉬고 난 뒤 한 번에 받을 수 있는 허용량 (토큰 버킷의 용량). 1 이면 요소 사이를 interval 로 고르게 벌린다.
+         */
+        public Builder burst(int burst) {
+            if (burst <= 0) {
+                throw new IllegalArgumentException("burst > 0 required but it was " + burst);
+            }
+            this.burst = burst;
+            return this;
+        }
+
+        /**
+         * limit() 로 만든 구독이 허용량이 충분할 때 한 번에 받아 둘 허용량. 기본 1 (받아 두지 않음)
+         * 크게 잡을수록 여러 스레드가 버킷을 두고 덜 다투지만, 구독마다 최대 lease - 1 개를 쥐고 있어 다른 구독이 그만큼 늦게 받는다.
+         */
+        public Builder lease(int lease) {
+            if (lease <= 0) {
+                throw new IllegalArgumentException("lease > 0 required but it was " + lease);
+            }
+            this.lease = lease;
+            return this;
+        }
+
+        /**
+         * DELAY 타이머와 시간 측정에 쓸 스케줄러. 기본은 타이머에 Schedulers.parallel(), 시간에 System.nanoTime()
+         * 넘기면 시간도 이 스케줄러의 now() 로 잰다. 테스트에서 VirtualTimeScheduler 를 넘길 때 쓴다.
+         */
+        public Builder scheduler(Scheduler scheduler) {
+            this.scheduler = Objects.requireNonNull(scheduler, "scheduler");
+            this.clock = scheduler;
+            return this;
+        }
+
+        public RateLimiter build() {
+            return new RateLimiter(this);
+        }
+    }
+}
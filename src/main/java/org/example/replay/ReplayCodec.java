@@ -0,0 +1,48 @@
+package org.example.replay;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * TieredReplay 가 힙 밖으로 내보내는 요소를 바이트로 바꾸고 되돌리는 방법
+ *
+ * encode 가 돌려준 버퍼는 바로 복사하므로 재사용해도 된다.
+ * decode 에 넘기는 버퍼는 요소 하나 분량의 slice 이며, 호출이 끝나면 내용이 바뀔 수 있으므로 필요한 값은 복사해야 한다.
+ */
+public interface ReplayCodec<T>
+{
+    ByteBuffer encode(T value);
+
+    T decode(ByteBuffer bytes);
+
+    static <T> ReplayCodec<T> of(Function<? super T, ByteBuffer> encoder, Function<ByteBuffer, ? extends T> decoder) {
+        Objects.requireNonNull(encoder, "encoder");
+        Objects.requireNonNull(decoder, "decoder");
+        return new ReplayCodec<>()
+        {
+            @Override
+            public ByteBuffer encode(T value) {
+                return encoder.apply(value);
+            }
+
+            @Override
+            public T decode(ByteBuffer bytes) {
+                return decoder.apply(bytes);
+            }
+        };
+    }
+
+    /**
+     * UTF-8 문자열
+     */
+    static ReplayCodec<String> utf8() {
+        return of(value -> ByteBuffer.wrap(value.getBytes(StandardCharsets.UTF_8)), bytes -> {
+            // CharsetDecoder 는 CharBuffer 를 따로 만드므로 byte[] 로 옮겨 String 생성자에 맡긴다.
+            byte[] array = new byte[bytes.remaining()];
+            bytes.get(array);
+            return new String(array, StandardCharsets.UTF_8);
+        });
+    }
+}
@@ -0,0 +1,23 @@
+package org.example.replay;
+
+/**
+ * TieredReplay 의 계층별 보관량 스냅샷
+ *
+ * @param heapElements    힙에 객체로 남아 있는 최근 요소 수
+ * @param heapBytes       weigher 로 잰 힙 요소들의 크기 합. weigher 를 주지 않았으면 0
+ * @param offHeapElements 직렬화되어 direct 버퍼에 있는 요소 수
+ * @param offHeapBytes    direct 버퍼에 쓴 바이트 수 (요소마다 길이 4 바이트 포함)
+ * @param diskElements    임시 파일로 내려간 요소 수
+ * @param diskBytes       임시 파일에 쓴 바이트 수
+ */
+public record ReplayStats(long heapElements,
+                          long heapBytes,
+                          long offHeapElements,
+                          long offHeapBytes,
+                          long diskElements,
+                          long diskBytes)
+{
+    public long totalElements() {
+        return heapElements + offHeapElements + diskElements;
+    }
+}
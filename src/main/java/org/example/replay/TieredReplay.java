@@ -0,0 +1,682 @@
+package org.example.replay;
+
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import reactor.core.CoreSubscriber;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Operators;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.ToIntFunction;
+
+/**
+ * 힙 예산을 넘는 오래된 요소를 off-heap 메모리와 임시 파일로 내려보내는 replay
+ *
+ * cache() / replay() 는 모든 요소를 힙에 객체로 들고 있으므로 긴 스트림을 재생하면 old 영역이 차고 full GC 가 난다.
+ * TieredReplay 는 요소를 발행 순서대로 세 계층에 나누어 보관한다.
+ *  * 힙      : 가장 최근 heapElements 개. 객체 그대로 둔다.
+ *  * off-heap : 힙에서 밀려난 요소를 codec 으로 직렬화해 blockBytes 크기의 direct 버퍼(블록)에 이어 쓴다.
+ *  * 디스크   : off-heap 이 offHeapBytes 를 넘으면 가장 오래된 블록을 임시 파일에 통째로 쓰고 버퍼를 놓는다.
+ * 늦게 온 구독자는 처음부터 순서대로 받는다. 디스크/off-heap 구간은 블록 단위로 읽어 decode 한다.
+ *
+ * <pre>
+ * TieredReplay&lt;String&gt; replay = TieredReplay.builder(lines, ReplayCodec.utf8())
+ *     .heapElements(10_000)
+ *     .offHeapBytes(256 * 1024 * 1024)
+ *     .build();
+ * replay.asFlux().subscribe(...);   // 첫 구독에서 source 를 구독한다. (cache() 와 같다.)
+ * replay.stats();                   // 계층별 요소 수와 바이트
+ * replay.dispose();                 // source 를 취소하고 임시 파일을 지운다.
+ * </pre>
+ *
+ * 규칙
+ *  * source 에는 제한 없이 요청한다. (cache() 와 같다.) 구독자마다 요청한 만큼만 받는다.
+ *  * 전달은 구독자마다 직렬화되며, 요소를 받은 스레드나 request 를 호출한 스레드에서 실행된다.
+ *    디스크 구간을 읽는 동안 그 스레드가 블로킹되므로 오래된 요소를 읽을 구독자는 publishOn(Schedulers.boundedElastic()) 을 붙인다.
+ *  * off-heap 사용량은 쓰는 중인 블록 하나만큼 offHeapBytes 를 넘을 수 있다.
+ *  * 임시 파일은 DELETE_ON_CLOSE 로 연다. Linux 에서는 열자마자 디렉터리에서 지워지므로 프로세스가 죽어도 남지 않는다.
+ *  * source 가 에러로 끝나면 구독자는 모든 요소를 받은 뒤 그 에러를 받는다.
+ *    직렬화나 파일 쓰기가 실패하거나 dispose 하면 source 를 취소하고, 구독자는 바로 그 에러(dispose 는 CancellationException)를 받는다.
+ */
+public final class TieredReplay<T> implements Disposable
+{
+    public static final int DEFAULT_HEAP_ELEMENTS = 4096;
+    public static final long DEFAULT_OFF_HEAP_BYTES = 64L * 1024 * 1024;
+    public static final int DEFAULT_BLOCK_BYTES = 1024 * 1024;
+
+    static final int LENGTH_BYTES = 4;
+
+    @SuppressWarnings("rawtypes")
+    private static final Reader[] EMPTY = new Reader[0];
+
+    @SuppressWarnings("rawtypes")
+    private static final AtomicReferenceFieldUpdater<TieredReplay, Reader[]> SUBSCRIBERS =
+        AtomicReferenceFieldUpdater.newUpdater(TieredReplay.class, Reader[].class, "subscribers");
+    @SuppressWarnings("rawtypes")
+    private static final AtomicIntegerFieldUpdater<TieredReplay> CONNECTED =
+        AtomicIntegerFieldUpdater.newUpdater(TieredReplay.class, "connected");
+    @SuppressWarnings("rawtypes")
+    private static final AtomicReferenceFieldUpdater<TieredReplay, Subscription> UPSTREAM =
+        AtomicReferenceFieldUpdater.newUpdater(TieredReplay.class, Subscription.class, "upstream");
+
+    private final Publisher<? extends T> source;
+    private final ReplayCodec<T> codec;
+    private final int heapElements;
+    private final ToIntFunction<? super T> weigher;
+    private final long offHeapBudget;
+    private final int blockBytes;
+    private final Path spillDirectory;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    // 아래는 lock 안에서만 접근한다.
+    // 힙 계층은 [heapStart, produced) 이고 ring[seq & mask] 에 있다.
+    private final Object[] ring;
+    private final int mask;
+    private long heapStart;
+    private long heapBytes;
+    // off-heap 과 디스크 계층은 블록 목록이다. [0, firstOffHeapBlock) 은 디스크, 나머지는 off-heap 이다.
+    private final List<Block> blocks = new ArrayList<>();
+    private int firstOffHeapBlock;
+    private Block open;
+    private long offHeapElements;
+    private long offHeapBytes;
+    private long diskElements;
+    private long diskBytes;
+    private FileChannel spill;
+
+    /**
+     * 받은 요소 수. 구독자는 이 값보다 작은 sequence 만 읽는다.
+     */
+    private volatile long produced;
+    private volatile boolean done;
+    private Throwable error;
+    /**
+     * 직렬화/파일 쓰기 실패나 dispose. 구독자는 남은 요소를 버리고 바로 이 에러로 끝난다.
+     */
+    private volatile Throwable failure;
+
+    @SuppressWarnings("unchecked")
+    private volatile Reader<T>[] subscribers = EMPTY;
+    @SuppressWarnings("unused")
+    private volatile int connected;
+    private volatile Subscription upstream;
+
+    private TieredReplay(Builder<T> builder) {
+        this.source = builder.source;
+        this.codec = builder.codec;
+        this.heapElements = builder.heapElements;
+        this.weigher = builder.weigher;
+        this.offHeapBudget = builder.offHeapBytes;
+        this.blockBytes = builder.blockBytes;
+        this.spillDirectory = builder.spillDirectory;
+        // 힙 예산을 넘은 요소는 받은 직후에 내려보내므로 한 칸 더 둔다.
+        int capacity = heapElements == 0 ? 1 : Integer.highestOneBit(heapElements) << 1;
+        this.ring = new Object[capacity];
+        this.mask = capacity - 1;
+    }
+
+    public static <T> Builder<T> builder(Publisher<? extends T> source, ReplayCodec<T> codec) {
+        return new Builder<>(source, codec);
+    }
+
+    /**
+     * 구독자는 처음 요소부터 받는다. 첫 구독이 source 를 구독한다.
+     */
+    public Flux<T> asFlux() {
+        return Flux.<T>from(this::subscribe);
+    }
+
+    public ReplayStats stats() {
+        lock.lock();
+        try {
+            return new ReplayStats(produced - heapStart, heapBytes, offHeapElements, offHeapBytes, diskElements, diskBytes);
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    public int currentSubscriberCount() {
+        return subscribers.length;
+    }
+
+    /**
+     * source 를 취소하고 임시 파일을 지운다. 구독자는 CancellationException 으로 끝난다.
+     */
+    @Override
+    public void dispose() {
+        fail(new CancellationException("TieredReplay was disposed"));
+    }
+
+    @Override
+    public boolean isDisposed() {
+        return failure != null;
+    }
+
+    private void subscribe(Subscriber<? super T> actual) {
+        Reader<T> reader = new Reader<>(Operators.toCoreSubscriber(actual), this);
+        add(reader);
+        actual.onSubscribe(reader);
+        if (connected == 0 && CONNECTED.compareAndSet(this, 0, 1)) {
+            source.subscribe(new SourceSubscriber());
+        }
+        reader.drain();
+    }
+
+    void onNextElement(T value) {
+        lock.lock();
+        try {
+            if (failure != null) {
+                return;
+            }
+            long seq = produced;
+            ring[(int) seq & mask] = value;
+            heapBytes += weigh(value);
+            produced = seq + 1;
+            if (seq + 1 - heapStart > heapElements) {
+                spillOldest();
+            }
+        }
+        catch (IOException | RuntimeException e) {
+            failLocked(e);
+        }
+        finally {
+            lock.unlock();
+        }
+        drainAll();
+    }
+
+    void onTerminate(Throwable e) {
+        error = e;
+        done = true;
+        drainAll();
+    }
+
+    private int weigh(T value) {
+        return weigher == null ? 0 : weigher.applyAsInt(value);
+    }
+
+    /**
+     * 힙에서 가장 오래된 요소를 직렬화해 쓰는 중인 블록에 붙인다. 블록이 차면 새 블록을 열고, off-heap 예산을 넘은 블록을 파일로 내린다.
+     */
+    @SuppressWarnings("unchecked")
+    private void spillOldest() throws IOException {
+        int index = (int) heapStart & mask;
+        T value = (T) ring[index];
+        ByteBuffer bytes = codec.encode(value);
+        int length = bytes.remaining();
+        int recordBytes = LENGTH_BYTES + length;
+        Block block = open;
+        if (block == null || block.bytes + recordBytes > block.data.capacity()) {
+            block = new Block(heapStart, ByteBuffer.allocateDirect(Math.max(blockBytes, recordBytes)));
+            blocks.add(block);
+            open = block;
+        }
+        block.data.putInt(block.bytes, length);
+        block.data.put(block.bytes + LENGTH_BYTES, bytes, bytes.position(), length);
+        block.bytes += recordBytes;
+        block.count++;
+        offHeapElements++;
+        offHeapBytes += recordBytes;
+
+        ring[index] = null;
+        heapBytes -= weigh(value);
+        heapStart++;
+
+        while (offHeapBytes > offHeapBudget && blocks.get(firstOffHeapBlock) != open) {
+            spillBlock(blocks.get(firstOffHeapBlock));
+        }
+    }
+
+    private void spillBlock(Block block) throws IOException {
+        if (spill == null) {
+            Path file = Files.createTempFile(spillDirectory, "tiered-replay", ".spill");
+            spill = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.DELETE_ON_CLOSE);
+        }
+        long position = diskBytes;
+        ByteBuffer src = block.data.slice(0, block.bytes);
+        while (src.hasRemaining()) {
+            spill.write(src, position + src.position());
+        }
+        block.filePosition = position;
+        block.data = null;
+        firstOffHeapBlock++;
+        offHeapElements -= block.count;
+        offHeapBytes -= block.bytes;
+        diskElements += block.count;
+        diskBytes += block.bytes;
+    }
+
+    /**
+     * reader.seq 부터 읽을 수 있도록 reader 에 힙 요소를 복사하거나 블록을 넘긴다.
+     */
+    void fetch(Reader<T> reader) {
+        lock.lock();
+        try {
+            if (failure != null) {
+                throw new IllegalStateException("TieredReplay has failed");
+            }
+            long seq = reader.seq;
+            if (seq >= heapStart) {
+                int n = (int) Math.min(produced - seq, reader.batch.length);
+                for (int i = 0; i < n; i++) {
+                    reader.batch[i] = ring[(int) (seq + i) & mask];
+                }
+                reader.batchIndex = 0;
+                reader.batchCount = n;
+                return;
+            }
+            Block block = find(seq);
+            reader.batchIndex = reader.batchCount = 0;
+            if (block != reader.block) {
+                reader.block = block;
+                reader.viewPosition = 0;
+                reader.viewSeq = block.firstSeq;
+            }
+            reader.viewEnd = block.firstSeq + block.count;
+            reader.viewBytes = block.bytes;
+            reader.view = block.data;
+            reader.filePosition = block.filePosition;
+            reader.file = spill;
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    private Block find(long seq) {
+        int low = 0;
+        int high = blocks.size() - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (blocks.get(mid).firstSeq <= seq) {
+                low = mid;
+            }
+            else {
+                high = mid - 1;
+            }
+        }
+        return blocks.get(low);
+    }
+
+    private void fail(Throwable e) {
+        lock.lock();
+        try {
+            failLocked(e);
+        }
+        finally {
+            lock.unlock();
+        }
+        drainAll();
+    }
+
+    private void failLocked(Throwable e) {
+        if (failure != null) {
+            return;
+        }
+        failure = e;
+        Operators.terminate(UPSTREAM, this);
+        Arrays.fill(ring, null);
+        blocks.clear();
+        open = null;
+        if (spill != null) {
+            try {
+                spill.close();
+            }
+            catch (IOException closeError) {
+                e.addSuppressed(closeError);
+            }
+        }
+    }
+
+    private void drainAll() {
+        for (Reader<T> reader : subscribers) {
+            reader.drain();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void add(Reader<T> reader) {
+        for (;;) {
+            Reader<T>[] a = subscribers;
+            Reader<T>[] b = new Reader[a.length + 1];
+            System.arraycopy(a, 0, b, 0, a.length);
+            b[a.length] = reader;
+            if (SUBSCRIBERS.compareAndSet(this, a, b)) {
+                return;
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    void remove(Reader<T> reader) {
+        for (;;) {
+            Reader<T>[] a = subscribers;
+            int index = -1;
+            for (int i = 0; i < a.length; i++) {
+                if (a[i] == reader) {
+                    index = i;
+                    break;
+                }
+            }
+            if (index < 0) {
+                return;
+            }
+            Reader<T>[] b;
+            if (a.length == 1) {
+                b = EMPTY;
+            }
+            else {
+                b = new Reader[a.length - 1];
+                System.arraycopy(a, 0, b, 0, index);
+                System.arraycopy(a, index + 1, b, index, a.length - index - 1);
+            }
+            if (SUBSCRIBERS.compareAndSet(this, a, b)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * 직렬화된 요소들을 [길이 int][내용] 으로 이어 쓴 블록. 파일로 내려가면 data 는 null 이고 filePosition 에 같은 내용이 있다.
+     */
+    static final class Block
+    {
+        final long firstSeq;
+        int count;
+        int bytes;
+        ByteBuffer data;
+        long filePosition = -1;
+
+        Block(long firstSeq, ByteBuffer data) {
+            this.firstSeq = firstSeq;
+            this.data = data;
+        }
+    }
+
+    final class SourceSubscriber implements CoreSubscriber<T>
+    {
+        @Override
+        public void onSubscribe(Subscription s) {
+            if (Operators.setOnce(UPSTREAM, TieredReplay.this, s)) {
+                s.request(Long.MAX_VALUE);
+            }
+        }
+
+        @Override
+        public void onNext(T value) {
+            onNextElement(value);
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            onTerminate(t);
+        }
+
+        @Override
+        public void onComplete() {
+            onTerminate(null);
+        }
+    }
+
+    static final class Reader<T> implements Subscription
+    {
+        static final int BATCH = 64;
+
+        @SuppressWarnings("rawtypes")
+        static final AtomicIntegerFieldUpdater<Reader> WIP =
+            AtomicIntegerFieldUpdater.newUpdater(Reader.class, "wip");
+        @SuppressWarnings("rawtypes")
+        static final AtomicLongFieldUpdater<Reader> REQUESTED =
+            AtomicLongFieldUpdater.newUpdater(Reader.class, "requested");
+
+        final CoreSubscriber<? super T> actual;
+        final TieredReplay<T> parent;
+
+        volatile int wip;
+        volatile long requested;
+        volatile boolean cancelled;
+
+        // 아래는 drain 안에서만 접근한다. (fetch 는 drain 에서 부른다.)
+        long emitted;
+        long seq;
+        final Object[] batch = new Object[BATCH];
+        int batchIndex;
+        int batchCount;
+        Block block;
+        ByteBuffer view;
+        int viewPosition;
+        long viewSeq;
+        long viewEnd;
+        int viewBytes;
+        long filePosition;
+        FileChannel file;
+        ByteBuffer diskBuffer;
+
+        Reader(CoreSubscriber<? super T> actual, TieredReplay<T> parent) {
+            this.actual = actual;
+            this.parent = parent;
+        }
+
+        @Override
+        public void request(long n) {
+            if (Operators.validate(n)) {
+                Operators.addCap(REQUESTED, this, n);
+                drain();
+            }
+        }
+
+        @Override
+        public void cancel() {
+            if (!cancelled) {
+                cancelled = true;
+                parent.remove(this);
+                drain();
+            }
+        }
+
+        void drain() {
+            if (WIP.getAndIncrement(this) != 0) {
+                return;
+            }
+            int missed = 1;
+            for (;;) {
+                long r = requested;
+                long e = emitted;
+                for (;;) {
+                    if (cancelled) {
+                        clear();
+                        return;
+                    }
+                    Throwable failure = parent.failure;
+                    if (failure != null) {
+                        terminate(failure);
+                        return;
+                    }
+                    boolean d = parent.done;
+                    boolean empty = batchIndex == batchCount && seq >= viewEnd && seq >= parent.produced;
+                    if (d && empty) {
+                        terminate(parent.error);
+                        return;
+                    }
+                    if (empty || e == r) {
+                        break;
+                    }
+                    T value;
+                    try {
+                        value = poll();
+                    }
+                    catch (IOException | RuntimeException ex) {
+                        Throwable cause = parent.failure;
+                        terminate(cause != null ? cause : ex);
+                        return;
+                    }
+                    actual.onNext(value);
+                    e++;
+                }
+                emitted = e;
+                missed = WIP.addAndGet(this, -missed);
+                if (missed == 0) {
+                    return;
+                }
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        T poll() throws IOException {
+            for (;;) {
+                if (batchIndex < batchCount) {
+                    T value = (T) batch[batchIndex];
+                    batch[batchIndex++] = null;
+                    seq++;
+                    return value;
+                }
+                if (seq < viewEnd) {
+                    int length = view.getInt(viewPosition);
+                    T value = parent.codec.decode(view.slice(viewPosition + LENGTH_BYTES, length));
+                    viewPosition += LENGTH_BYTES + length;
+                    viewSeq++;
+                    seq++;
+                    return value;
+                }
+                parent.fetch(this);
+                if (seq < viewEnd) {
+                    if (view == null) {
+                        load();
+                    }
+                    // 블록 안에서 seq 의 위치까지 건너뛴다. 같은 블록을 이어 읽으면 건너뛸 것이 없다.
+                    while (viewSeq < seq) {
+                        viewPosition += LENGTH_BYTES + view.getInt(viewPosition);
+                        viewSeq++;
+                    }
+                }
+            }
+        }
+
+        /**
+         * 파일로 내려간 블록을 통째로 읽는다.
+         */
+        private void load() throws IOException {
+            ByteBuffer buffer = diskBuffer;
+            if (buffer == null || buffer.capacity() < viewBytes) {
+                buffer = ByteBuffer.allocate(Math.max(viewBytes, parent.blockBytes));
+                diskBuffer = buffer;
+            }
+            buffer.clear().limit(viewBytes);
+            while (buffer.hasRemaining()) {
+                if (file.read(buffer, filePosition + buffer.position()) < 0) {
+                    throw new IOException("Spill file is shorter than expected");
+                }
+            }
+            view = buffer;
+        }
+
+        private void clear() {
+            for (int i = batchIndex; i < batchCount; i++) {
+                batch[i] = null;
+            }
+            batchIndex = batchCount = 0;
+            block = null;
+            view = null;
+            diskBuffer = null;
+        }
+
+        private void terminate(Throwable error) {
+            cancelled = true;
+            parent.remove(this);
+            clear();
+            if (error != null) {
+                actual.onError(error);
+            }
+            else {
+                actual.onComplete();
+            }
+        }
+    }
+
+    public static final class Builder<T>
+    {
+        final Publisher<? extends T> source;
+        final ReplayCodec<T> codec;
+        int heapElements = DEFAULT_HEAP_ELEMENTS;
+        ToIntFunction<? super T> weigher;
+        long offHeapBytes = DEFAULT_OFF_HEAP_BYTES;
+        int blockBytes = DEFAULT_BLOCK_BYTES;
+        Path spillDirectory = Path.of(System.getProperty("java.io.tmpdir"));
+
+        Builder(Publisher<? extends T> source, ReplayCodec<T> codec) {
+            this.source = Objects.requireNonNull(source, "source");
+            this.codec = Objects.requireNonNull(codec, "codec");
+        }
+
+        /**
+         * 힙에 객체로 둘 최근 요소 수. 0 이면 받는 즉시 직렬화한다. 기본 4096
+         */
+        public Builder<T> heapElements(int heapElements) {
+            if (heapElements < 0 || heapElements > 1 << 29) {
+                throw new IllegalArgumentException("0 <= heapElements <= 2^29 required but it was " + heapElements);
+            }
+            this.heapElements = heapElements;
+            return this;
+        }
+
+        /**
+         * 힙 요소 하나의 대략적인 크기. stats().heapBytes() 를 계산하는 데만 쓴다.
+         */
+        public Builder<T> weigher(ToIntFunction<? super T> weigher) {
+            this.weigher = Objects.requireNonNull(weigher, "weigher");
+            return this;
+        }
+
+        /**
+         * off-heap 블록에 둘 최대 바이트 수. 넘으면 오래된 블록부터 파일로 내린다. 0 이면 블록이 찰 때마다 내린다. 기본 64MB
+         */
+        public Builder<T> offHeapBytes(long offHeapBytes) {
+            if (offHeapBytes < 0) {
+                throw new IllegalArgumentException("offHeapBytes >= 0 required but it was " + offHeapBytes);
+            }
+            this.offHeapBytes = offHeapBytes;
+            return this;
+        }
+
+        /**
+         * 블록 하나의 크기. 파일로 내리고 읽는 단위다. 이보다 큰 요소는 그 요소만 담는 블록을 따로 만든다. 기본 1MB
+         */
+        public Builder<T> blockBytes(int blockBytes) {
+            if (blockBytes < 64) {
+                throw new IllegalArgumentException("blockBytes >= 64 required but it was " + blockBytes);
+            }
+            this.blockBytes = blockBytes;
+            return this;
+        }
+
+        /**
+         * 임시 파일을 만들 디렉터리. 기본은 java.io.tmpdir
+         */
+        public Builder<T> spillDirectory(Path spillDirectory) {
+            this.spillDirectory = Objects.requireNonNull(spillDirectory, "spillDirectory");
+            return this;
+        }
+
+        public TieredReplay<T> build() {
+            return new TieredReplay<>(this);
+        }
+    }
+}
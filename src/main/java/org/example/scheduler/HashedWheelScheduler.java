@@ -0,0 +1,593 @@
+package org.example.scheduler;
+
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+import reactor.core.Exceptions;
+import reactor.core.scheduler.Scheduler;
+import reactor.util.concurrent.Queues;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 해시드 타이밍 휠(hashed timing wheel)로 지연/주기 작업을 관리하는 Scheduler
+ *
+ * Schedulers.parallel() 등은 지연 작업을 ScheduledThreadPoolExecutor 의 힙에 넣으므로 등록과 취소가 O(log n) 이고 잠금을 잡는다.
+ * delayElements, delaySubscription, Flux.interval 을 수십만 개의 구독이 동시에 쓰면 이 비용과 경합이 커진다.
+ * HashedWheelScheduler 는 wheelSize 개의 칸(bucket)이 tick 마다 한 칸씩 돌아가는 휠을 쓴다.
+ *  * 등록: 잠금 없는 MPSC 큐에 넣는다. 휠 스레드가 다음 tick 에 deadline 으로 칸을 계산해서 그 칸의 연결 리스트에 붙인다. O(1)
+ *  * 취소: 상태만 바꾸고 MPSC 큐에 넣는다. 휠 스레드가 다음 tick 에 연결 리스트에서 뗀다. O(1)
+ *  * 만료: tick 마다 현재 칸만 훑는다. 휠 한 바퀴보다 먼 작업은 남은 바퀴 수(rounds)를 하나씩 줄인다.
+ *
+ * <pre>
+ * Scheduler timer = HashedWheelScheduler.create("timer", Duration.ofMillis(1), 512);
+ *
+ * flux.delayElements(Duration.ofMillis(100), timer);
+ * Flux.interval(Duration.ofSeconds(1), timer);
+ * </pre>
+ *
+ * 규칙
+ *  * 지연 작업은 deadline 보다 일찍 실행되지 않으며, 최대 tick 만큼 늦게 실행된다. tick 이 정밀도다.
+ *  * 모든 작업(즉시, 지연, 주기)은 휠 스레드 하나에서 실행된다. Schedulers.single() 처럼 작업은 짧아야 하며,
+ *    오래 걸리는 작업은 그동안 다른 타이머를 늦춘다. 무거운 처리는 publishOn 으로 다른 스케줄러에 넘긴다.
+ *  * 한 tick 에 휠로 옮기는 새 작업은 최대 MAX_TRANSFER_PER_TICK 개다. 한꺼번에 더 많이 등록하면 나머지는 다음 tick 으로 밀린다.
+ *  * 주기 작업은 고정 비율(fixed rate)로 실행되고, 작업이 예외를 던지면 이후 회차는 취소된다.
+ *  * dispose 하면 휠 스레드가 멈추면서 남은 작업을 모두 취소 상태로 바꾸고 pendingTimers 를 0 으로 만든다.
+ */
+public final class HashedWheelScheduler implements Scheduler
+{
+    static final int MAX_TRANSFER_PER_TICK = 100_000;
+
+    private final String name;
+    private final long tickNanos;
+    private final int mask;
+    private final Bucket[] wheel;
+    private final Thread thread;
+    private final long startNanos;
+
+    private final Queue<Timer> immediate = Queues.<Timer>unboundedMultiproducer().get();
+    private final Queue<Timer> added = Queues.<Timer>unboundedMultiproducer().get();
+    private final Queue<Timer> cancelled = Queues.<Timer>unboundedMultiproducer().get();
+    private final LongAdder pendingTimers = new LongAdder();
+
+    private long tick; // 휠 스레드에서만 접근
+    private volatile boolean sleeping;
+    private volatile boolean disposed;
+
+    private HashedWheelScheduler(String name, Duration tick, int wheelSize) {
+        this.name = Objects.requireNonNull(name, "name");
+        Objects.requireNonNull(tick, "tick");
+        if (tick.isNegative() || tick.isZero()) {
+            throw new IllegalArgumentException("tick > 0 required but it was " + tick);
+        }
+        if (wheelSize <= 0 || wheelSize > 1 << 30) {
+            throw new IllegalArgumentException("0 < wheelSize <= 2^30 required but it was " + wheelSize);
+        }
+        int size = 1;
+        while (size < wheelSize) {
+            size <<= 1;
+        }
+        this.tickNanos = tick.toNanos();
+        this.mask = size - 1;
+        this.wheel = new Bucket[size];
+        for (int i = 0; i < size; i++) {
+            wheel[i] = new Bucket();
+        }
+        this.startNanos = System.nanoTime();
+        this.thread = new Thread(this::run, name + "-wheel");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * tick 1ms, 칸 512 개(한 바퀴 약 0.5초)
+     */
+    public static HashedWheelScheduler create(String name) {
+        return create(name, Duration.ofMillis(1), 512);
+    }
+
+    /**
+     * @param tick      휠이 한 칸 도는 시간. 작업은 최대 tick 만큼 늦게 실행된다.
+     * @param wheelSize 칸 수. 2 의 거듭제곱으로 올림한다. 한 바퀴(tick x wheelSize)가 흔한 지연 시간보다 길면 칸을 훑는 비용이 줄어든다.
+     */
+    public static HashedWheelScheduler create(String name, Duration tick, int wheelSize) {
+        return new HashedWheelScheduler(name, tick, wheelSize);
+    }
+
+    @Override
+    public Disposable schedule(Runnable task) {
+        Timer t = new Timer(this, Objects.requireNonNull(task, "task"), null, Timer.IMMEDIATE, 0);
+        execute(t);
+        return t;
+    }
+
+    @Override
+    public Disposable schedule(Runnable task, long delay, TimeUnit unit) {
+        Timer t = new Timer(this, Objects.requireNonNull(task, "task"), null, deadlineAfter(delay, unit), 0);
+        add(t);
+        return t;
+    }
+
+    @Override
+    public Disposable schedulePeriodically(Runnable task, long initialDelay, long period, TimeUnit unit) {
+        Timer t = new Timer(this, Objects.requireNonNull(task, "task"), null, deadlineAfter(initialDelay, unit),
+            periodNanos(period, unit));
+        add(t);
+        return t;
+    }
+
+    @Override
+    public Worker createWorker() {
+        if (disposed) {
+            throw Exceptions.failWithRejected();
+        }
+        return new WheelWorker();
+    }
+
+    @Override
+    public void dispose() {
+        if (disposed) {
+            return;
+        }
+        disposed = true;
+        LockSupport.unpark(thread);
+    }
+
+    @Override
+    public boolean isDisposed() {
+        return disposed;
+    }
+
+    public Duration tick() {
+        return Duration.ofNanos(tickNanos);
+    }
+
+    public int wheelSize() {
+        return wheel.length;
+    }
+
+    /**
+     * 등록되었지만 아직 실행되거나 취소되지 않은 지연/주기 작업 수. dispose 한 뒤에는 0 이다.
+     */
+    public long pendingTimers() {
+        return disposed ? 0L : pendingTimers.sum(); // 휠 스레드가 정리를 마치기 전에 읽어도 0 이다.
+    }
+
+    @Override
+    public String toString() {
+        return "HashedWheelScheduler(" + name + ", tick=" + tick() + ", wheelSize=" + wheel.length + ")";
+    }
+
+    long deadlineAfter(long delay, TimeUnit unit) {
+        return System.nanoTime() - startNanos + Math.max(0, unit.toNanos(delay));
+    }
+
+    static long periodNanos(long period, TimeUnit unit) {
+        if (period <= 0) {
+            throw new IllegalArgumentException("period > 0 required but it was " + period);
+        }
+        return unit.toNanos(period);
+    }
+
+    void execute(Timer t) {
+        if (disposed) {
+            t.dispose();
+            throw Exceptions.failWithRejected();
+        }
+        immediate.offer(t);
+        wakeUp();
+    }
+
+    void add(Timer t) {
+        pendingTimers.increment();
+        if (disposed) {
+            t.dispose();
+            throw Exceptions.failWithRejected();
+        }
+        added.offer(t);
+    }
+
+    void cancel(Timer t) {
+        pendingTimers.decrement();
+        if (!disposed) {
+            cancelled.offer(t);
+        }
+    }
+
+    private void wakeUp() {
+        if (sleeping) {
+            LockSupport.unpark(thread);
+        }
+    }
+
+    private void run() {
+        while (!disposed) {
+            runImmediate();
+            long deadline = tickNanos * (tick + 1);
+            long sleep = deadline - (System.nanoTime() - startNanos);
+            if (sleep > 0) {
+                sleeping = true;
+                if (immediate.isEmpty() && !disposed) {
+                    LockSupport.parkNanos(this, sleep);
+                }
+                sleeping = false;
+                continue;
+            }
+            removeCancelled();
+            transferAdded();
+            Timer rearmed = wheel[(int) (tick & mask)].expire(deadline);
+            tick++;
+            // 지금 칸을 훑는 중에 다시 붙이면 old tick 으로 계산되어 한 바퀴 늦어지므로 tick 을 올린 뒤에 붙인다.
+            placeAll(rearmed);
+        }
+        abandonAll();
+    }
+
+    /**
+     * 휠 스레드가 멈출 때 남은 작업을 모두 취소 상태로 바꾼다. Worker 의 dispose 처럼 isDisposed() 가 true 가 된다.
+     */
+    private void abandonAll() {
+        for (Bucket bucket : wheel) {
+            for (Timer t = bucket.head; t != null; ) {
+                Timer next = t.next;
+                bucket.remove(t);
+                t.abandon();
+                t = next;
+            }
+        }
+        for (Timer t; (t = immediate.poll()) != null; ) {
+            t.abandon();
+        }
+        for (Timer t; (t = added.poll()) != null; ) {
+            t.abandon();
+        }
+        cancelled.clear();
+        pendingTimers.reset();
+    }
+
+    private void runImmediate() {
+        for (Timer t; !disposed && (t = immediate.poll()) != null; ) {
+            t.run();
+        }
+    }
+
+    private void removeCancelled() {
+        for (Timer t; (t = cancelled.poll()) != null; ) {
+            Bucket bucket = t.bucket;
+            if (bucket != null) {
+                bucket.remove(t);
+            }
+        }
+    }
+
+    private void transferAdded() {
+        for (int i = 0; i < MAX_TRANSFER_PER_TICK; i++) {
+            Timer t = added.poll();
+            if (t == null) {
+                return;
+            }
+            if (t.state == Timer.WAITING) {
+                place(t);
+            }
+        }
+    }
+
+    /**
+     * expire 가 next 로 이어 돌려준 작업들을 다시 칸에 붙인다. 그사이 취소된 작업은 버린다.
+     */
+    private void placeAll(Timer t) {
+        while (t != null) {
+            Timer next = t.next;
+            t.next = null;
+            if (t.state == Timer.WAITING) {
+                place(t);
+            }
+            t = next;
+        }
+    }
+
+    /**
+     * deadline 을 처리할 칸에 붙인다. 칸 tick 은 (tick + 1) x tickNanos 에 처리되므로 deadline 보다 일찍 실행되지 않는다.
+     */
+    void place(Timer t) {
+        long calculated = t.deadline / tickNanos;
+        t.rounds = (calculated - tick) / wheel.length;
+        long ticks = Math.max(calculated, tick); // 이미 지난 deadline 은 현재 칸에서 바로 실행한다.
+        wheel[(int) (ticks & mask)].add(t);
+    }
+
+    /**
+     * 작업의 예외는 구독자에게 전달할 곳이 없으므로 Reactor 의 스케줄러처럼 스레드의 UncaughtExceptionHandler 로 넘긴다.
+     */
+    private static void handleError(Throwable error) {
+        Thread current = Thread.currentThread();
+        Thread.UncaughtExceptionHandler handler = current.getUncaughtExceptionHandler();
+        if (handler != null) {
+            handler.uncaughtException(current, error);
+        }
+    }
+
+    /**
+     * 한 칸의 작업들. 휠 스레드에서만 접근하는 이중 연결 리스트다.
+     */
+    static final class Bucket
+    {
+        Timer head;
+        Timer tail;
+
+        void add(Timer t) {
+            t.bucket = this;
+            if (head == null) {
+                head = tail = t;
+            }
+            else {
+                tail.next = t;
+                t.prev = tail;
+                tail = t;
+            }
+        }
+
+        void remove(Timer t) {
+            Timer next = t.next;
+            if (t.prev != null) {
+                t.prev.next = next;
+            }
+            if (next != null) {
+                next.prev = t.prev;
+            }
+            if (t == head) {
+                head = next;
+            }
+            if (t == tail) {
+                tail = t.prev;
+            }
+            t.prev = null;
+            t.next = null;
+            t.bucket = null;
+        }
+
+        /**
+         * 남은 바퀴가 없는 작업을 실행한다.
+         * 다시 붙여야 하는 작업(다음 회차의 주기 작업, 등록이 늦게 옮겨져 아직 deadline 이 안 된 작업)은 next 로 이어 반환한다.
+         * 호출한 쪽이 tick 을 올린 뒤에 붙인다.
+         */
+        Timer expire(long deadline) {
+            Timer rearmedHead = null;
+            Timer rearmedTail = null;
+            Timer t = head;
+            while (t != null) {
+                Timer next = t.next;
+                if (t.rounds <= 0) {
+                    remove(t);
+                    // 등록이 늦게 옮겨진 경우는 일찍 실행하지 않고 다시 붙인다.
+                    if (t.deadline > deadline || t.fire()) {
+                        if (rearmedHead == null) {
+                            rearmedHead = t;
+                        }
+                        else {
+                            rearmedTail.next = t;
+                        }
+                        rearmedTail = t;
+                    }
+                }
+                else {
+                    t.rounds--;
+                }
+                t = next;
+            }
+            return rearmedHead;
+        }
+    }
+
+    /**
+     * 즉시, 지연, 주기 작업. WAITING -> RUNNING -> FINISHED(주기 작업은 다시 WAITING), 또는 CANCELLED 로 끝난다.
+     */
+    static final class Timer implements Runnable, Disposable
+    {
+        static final long IMMEDIATE = -1;
+
+        static final int WAITING = 0;
+        static final int RUNNING = 1;
+        static final int FINISHED = 2;
+        static final int CANCELLED = 3;
+
+        @SuppressWarnings("rawtypes")
+        static final AtomicIntegerFieldUpdater<Timer> STATE =
+            AtomicIntegerFieldUpdater.newUpdater(Timer.class, "state");
+
+        final HashedWheelScheduler scheduler;
+        final Runnable task;
+        final Disposable.Composite parent; // Worker 에 속한 작업이면 끝날 때 Worker 에서 빠진다.
+        final long period; // 0 이면 한 번만 실행한다.
+
+        volatile int state;
+
+        // 아래는 휠 스레드에서만 접근한다.
+        long deadline;
+        long rounds;
+        Bucket bucket;
+        Timer prev;
+        Timer next;
+
+        Timer(HashedWheelScheduler scheduler, Runnable task, Disposable.Composite parent, long deadline, long period) {
+            this.scheduler = scheduler;
+            this.task = task;
+            this.parent = parent;
+            this.deadline = deadline;
+            this.period = period;
+        }
+
+        /**
+         * 즉시 작업을 실행한다.
+         */
+        @Override
+        public void run() {
+            if (!STATE.compareAndSet(this, WAITING, RUNNING)) {
+                return;
+            }
+            try {
+                task.run();
+            }
+            catch (Throwable e) {
+                handleError(e);
+            }
+            finally {
+                STATE.compareAndSet(this, RUNNING, FINISHED);
+                if (parent != null) {
+                    parent.remove(this);
+                }
+            }
+        }
+
+        /**
+         * 지연/주기 작업의 deadline 이 지났다. 휠 스레드에서 호출된다.
+         * pendingTimers 는 작업이 더 이상 실행되지 않게 되는 순간 한 번만 줄인다. (실행 시작, 예외, 실행 중 취소)
+         *
+         * @return 주기 작업이 다음 회차를 기다려야 해서 다시 칸에 붙여야 하면 true
+         */
+        boolean fire() {
+            if (!STATE.compareAndSet(this, WAITING, RUNNING)) {
+                return false;
+            }
+            if (period == 0) {
+                scheduler.pendingTimers.decrement();
+                run0();
+                STATE.compareAndSet(this, RUNNING, FINISHED);
+                if (parent != null) {
+                    parent.remove(this);
+                }
+                return false;
+            }
+            if (!run0()) {
+                scheduler.pendingTimers.decrement();
+                state = CANCELLED;
+                if (parent != null) {
+                    parent.remove(this);
+                }
+                return false;
+            }
+            if (STATE.compareAndSet(this, RUNNING, WAITING)) {
+                deadline += period;
+                return true;
+            }
+            scheduler.pendingTimers.decrement(); // 실행 중에 취소되었다.
+            return false;
+        }
+
+        /**
+         * 스케줄러가 멈춰 더 이상 실행되지 않는다. pendingTimers 는 스케줄러가 한꺼번에 0 으로 만든다.
+         */
+        void abandon() {
+            if (STATE.compareAndSet(this, WAITING, CANCELLED) && parent != null) {
+                parent.remove(this);
+            }
+        }
+
+        private boolean run0() {
+            try {
+                task.run();
+                return true;
+            }
+            catch (Throwable e) {
+                handleError(e);
+                return false;
+            }
+        }
+
+        @Override
+        public void dispose() {
+            int s;
+            for (;;) {
+                s = state;
+                if (s == FINISHED || s == CANCELLED) {
+                    return;
+                }
+                if (STATE.compareAndSet(this, s, CANCELLED)) {
+                    break;
+                }
+            }
+            if (s == WAITING && deadline != IMMEDIATE) {
+                scheduler.cancel(this);
+            }
+            if (parent != null) {
+                parent.remove(this);
+            }
+        }
+
+        @Override
+        public boolean isDisposed() {
+            int s = state;
+            return s == FINISHED || s == CANCELLED;
+        }
+    }
+
+    /**
+     * 모든 작업이 휠 스레드 하나에서 실행되므로 순서는 저절로 지켜진다. Worker 는 dispose 할 때 취소할 작업만 모아 둔다.
+     */
+    final class WheelWorker implements Worker
+    {
+        final Disposable.Composite composite = Disposables.composite();
+
+        @Override
+        public Disposable schedule(Runnable task) {
+            Timer t = register(new Timer(HashedWheelScheduler.this, Objects.requireNonNull(task, "task"), composite,
+                Timer.IMMEDIATE, 0));
+            try {
+                execute(t);
+            }
+            catch (RuntimeException e) {
+                composite.remove(t);
+                throw e;
+            }
+            return t;
+        }
+
+        @Override
+        public Disposable schedule(Runnable task, long delay, TimeUnit unit) {
+            Timer t = register(new Timer(HashedWheelScheduler.this, Objects.requireNonNull(task, "task"), composite,
+                deadlineAfter(delay, unit), 0));
+            addToWheel(t);
+            return t;
+        }
+
+        @Override
+        public Disposable schedulePeriodically(Runnable task, long initialDelay, long period, TimeUnit unit) {
+            Timer t = register(new Timer(HashedWheelScheduler.this, Objects.requireNonNull(task, "task"), composite,
+                deadlineAfter(initialDelay, unit), periodNanos(period, unit)));
+            addToWheel(t);
+            return t;
+        }
+
+        @Override
+        public void dispose() {
+            composite.dispose();
+        }
+
+        @Override
+        public boolean isDisposed() {
+            return composite.isDisposed();
+        }
+
+        private Timer register(Timer t) {
+            if (!composite.add(t)) {
+                throw Exceptions.failWithRejected();
+            }
+            return t;
+        }
+
+        private void addToWheel(Timer t) {
+            try {
+                add(t);
+            }
+            catch (RuntimeException e) {
+                composite.remove(t);
+                throw e;
+            }
+        }
+    }
+}
@@ -0,0 +1,360 @@
+package org.example.scheduler;
+
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+import reactor.core.Exceptions;
+import reactor.core.scheduler.Scheduler;
+
+import java.util.Objects;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+/**
+ * 아무 Scheduler 나 감싸서 작업이 큐에서 얼마나 기다렸고 얼마나 실행됐는지 기록한다.
+ *
+ * publishOn(Schedulers.boundedElastic(), 2) 같은 스레드 전환 지점마다 큐가 하나씩 생기는데, 지연이 튀었을 때
+ * 작업이 큐에서 기다린 것인지 느리게 실행된 것인지 밖에서는 알 수 없다.
+ *
+ * <pre>
+ * InstrumentedScheduler scheduler = InstrumentedScheduler.wrap(Schedulers.boundedElastic());
+ * flux.publishOn(scheduler, 2)...
+ *
+ * SchedulerMetrics.Snapshot s = scheduler.metrics().snapshot();
+ * s.queueWait().valueAtPercentile(99); // 큐 대기 p99 (ns)
+ * s.queueDepth();                      // 지금 큐에서 기다리는 작업 수
+ * </pre>
+ *
+ * 기록하는 값은 SchedulerMetrics.Snapshot 참고
+ *  * 큐 대기 시간 : schedule 호출(지연 작업은 예정 시각)부터 실행 시작까지. 주기 작업은 기록하지 않는다.
+ *  * 실행 시간    : 작업의 run() 시간. 주기 작업은 회차마다 기록한다.
+ *  * 큐 깊이, 실행 중인 작업 수, 살아있는 Worker 수, 거절/취소/실패 수
+ *
+ * 작업 하나에 드는 추가 비용
+ *  * 항상 : 감싸는 객체 하나, 상태 CAS 한 번, 카운터(LongAdder) 증가 세 번
+ *  * 시간을 재는 작업 : 여기에 System.nanoTime() 세 번과 히스토그램 기록 두 번
+ *  * Worker 의 작업 : 여기에 Worker 의 대기 작업 집합(Disposable.Composite)에 넣고 빼기 한 번씩
+ *    Worker 를 dispose 하면 대상 Worker 가 버리는 대기 작업을 취소로 세기 위해서다. (세지 않으면 큐 깊이가 계속 늘어난다.)
+ * System.nanoTime() 이 가장 비싸므로(환경에 따라 20~60ns) 작업이 아주 많다면 timingSampleRate 로 n 개 중 하나만 시간을 잰다.
+ * 카운터는 샘플링과 관계없이 정확하다. (InstrumentedSchedulerBenchmark 로 잰다.)
+ */
+public final class InstrumentedScheduler implements Scheduler
+{
+    static final long NOT_TIMED = Long.MIN_VALUE;
+
+    private final Scheduler delegate;
+    private final SchedulerMetrics metrics;
+
+    private InstrumentedScheduler(Scheduler delegate, int timingSampleRate) {
+        this.delegate = Objects.requireNonNull(delegate, "delegate");
+        this.metrics = new SchedulerMetrics(timingSampleRate);
+    }
+
+    /**
+     * 모든 작업의 시간을 잰다.
+     */
+    public static InstrumentedScheduler wrap(Scheduler delegate) {
+        return new InstrumentedScheduler(delegate, 1);
+    }
+
+    /**
+     * @param timingSampleRate 평균적으로 이 수만큼의 작업 중 하나만 큐 대기/실행 시간을 잰다. 1 이면 모든 작업
+     */
+    public static InstrumentedScheduler wrap(Scheduler delegate, int timingSampleRate) {
+        return new InstrumentedScheduler(delegate, timingSampleRate);
+    }
+
+    public SchedulerMetrics metrics() {
+        return metrics;
+    }
+
+    @Override
+    public Disposable schedule(Runnable task) {
+        InstrumentedTask t = newTask(task, metrics, 0);
+        try {
+            return t.setFuture(delegate.schedule(t));
+        }
+        catch (RejectedExecutionException e) {
+            t.reject();
+            throw e;
+        }
+    }
+
+    @Override
+    public Disposable schedule(Runnable task, long delay, TimeUnit unit) {
+        InstrumentedTask t = newTask(task, metrics, unit.toNanos(delay));
+        try {
+            return t.setFuture(delegate.schedule(t, delay, unit));
+        }
+        catch (RejectedExecutionException e) {
+            t.reject();
+            throw e;
+        }
+    }
+
+    @Override
+    public Disposable schedulePeriodically(Runnable task, long initialDelay, long period, TimeUnit unit) {
+        return schedulePeriodically(delegate::schedulePeriodically, task, initialDelay, period, unit, metrics);
+    }
+
+    /**
+     * 주기 작업은 큐 깊이와 큐 대기 시간에 넣지 않는다. (회차마다 제출되는 시점이 대상 스케줄러 안에 있다.)
+     */
+    private static Disposable schedulePeriodically(PeriodicScheduling scheduling, Runnable task,
+                                                   long initialDelay, long period, TimeUnit unit,
+                                                   SchedulerMetrics metrics) {
+        PeriodicTask t = new PeriodicTask(task, metrics);
+        try {
+            return scheduling.schedule(t, initialDelay, period, unit);
+        }
+        catch (RejectedExecutionException e) {
+            metrics.submitted.increment();
+            metrics.rejected.increment();
+            throw e;
+        }
+    }
+
+    @FunctionalInterface
+    interface PeriodicScheduling
+    {
+        Disposable schedule(Runnable task, long initialDelay, long period, TimeUnit unit);
+    }
+
+    @Override
+    public long now(TimeUnit unit) {
+        return delegate.now(unit);
+    }
+
+    @Override
+    public Worker createWorker() {
+        Worker worker = delegate.createWorker();
+        metrics.activeWorkers.increment();
+        return new InstrumentedWorker(worker, metrics);
+    }
+
+    @Override
+    public void init() {
+        delegate.init();
+    }
+
+    @Override
+    public void dispose() {
+        delegate.dispose();
+    }
+
+    @Override
+    public boolean isDisposed() {
+        return delegate.isDisposed();
+    }
+
+    @Override
+    public String toString() {
+        return "InstrumentedScheduler(" + delegate + ")";
+    }
+
+    static InstrumentedTask newTask(Runnable task, SchedulerMetrics metrics, long delayNanos) {
+        return newTask(task, metrics, delayNanos, null);
+    }
+
+    static InstrumentedTask newTask(Runnable task, SchedulerMetrics metrics, long delayNanos, Disposable.Composite parent) {
+        long dueAt = metrics.sample() ? System.nanoTime() + delayNanos : NOT_TIMED;
+        return new InstrumentedTask(task, metrics, dueAt, parent);
+    }
+
+    /**
+     * @param start 시간을 재지 않으면 NOT_TIMED
+     */
+    static void run(Runnable task, long start, SchedulerMetrics metrics) {
+        metrics.started.increment();
+        boolean success = false;
+        try {
+            task.run();
+            success = true;
+        }
+        finally {
+            if (!success) {
+                metrics.failed.increment(); // finished 보다 먼저 올려야 completed 가 잠깐이라도 부풀지 않는다.
+            }
+            if (start != NOT_TIMED) {
+                metrics.runTime.record(System.nanoTime() - start);
+            }
+            metrics.finished.increment();
+        }
+    }
+
+    static final class InstrumentedWorker implements Worker
+    {
+        @SuppressWarnings("rawtypes")
+        static final AtomicIntegerFieldUpdater<InstrumentedWorker> DISPOSED =
+            AtomicIntegerFieldUpdater.newUpdater(InstrumentedWorker.class, "disposed");
+
+        final Worker delegate;
+        final SchedulerMetrics metrics;
+        final Disposable.Composite pending = Disposables.composite(); // 아직 시작하지 않은 작업
+
+        volatile int disposed;
+
+        InstrumentedWorker(Worker delegate, SchedulerMetrics metrics) {
+            this.delegate = delegate;
+            this.metrics = metrics;
+        }
+
+        @Override
+        public Disposable schedule(Runnable task) {
+            InstrumentedTask t = track(newTask(task, metrics, 0, pending));
+            try {
+                return t.setFuture(delegate.schedule(t));
+            }
+            catch (RejectedExecutionException e) {
+                t.reject();
+                throw e;
+            }
+        }
+
+        @Override
+        public Disposable schedule(Runnable task, long delay, TimeUnit unit) {
+            InstrumentedTask t = track(newTask(task, metrics, unit.toNanos(delay), pending));
+            try {
+                return t.setFuture(delegate.schedule(t, delay, unit));
+            }
+            catch (RejectedExecutionException e) {
+                t.reject();
+                throw e;
+            }
+        }
+
+        /**
+         * 대상 Worker 에 넘기기 전에 대기 작업 집합에 넣는다. 이미 dispose 됐으면 거절로 센다.
+         */
+        InstrumentedTask track(InstrumentedTask t) {
+            if (!pending.add(t)) {
+                t.reject();
+                throw Exceptions.failWithRejected();
+            }
+            return t;
+        }
+
+        @Override
+        public Disposable schedulePeriodically(Runnable task, long initialDelay, long period, TimeUnit unit) {
+            return InstrumentedScheduler.schedulePeriodically(delegate::schedulePeriodically,
+                task, initialDelay, period, unit, metrics);
+        }
+
+        /**
+         * 대상 Worker 는 dispose 되면 대기 작업을 실행하지도 dispose 하지도 않고 버리므로, 여기서 먼저 취소로 센다.
+         */
+        @Override
+        public void dispose() {
+            if (DISPOSED.compareAndSet(this, 0, 1)) {
+                metrics.activeWorkers.decrement();
+            }
+            pending.dispose();
+            delegate.dispose();
+        }
+
+        @Override
+        public boolean isDisposed() {
+            return delegate.isDisposed();
+        }
+    }
+
+    /**
+     * 한 번 실행되는 작업. 시작 전에 dispose 되면 취소로 세고 실행하지 않는다.
+     */
+    static final class InstrumentedTask implements Runnable, Disposable
+    {
+        static final int PENDING = 0;
+        static final int RUNNING = 1;
+        static final int CANCELLED = 2;
+
+        static final AtomicIntegerFieldUpdater<InstrumentedTask> STATE =
+            AtomicIntegerFieldUpdater.newUpdater(InstrumentedTask.class, "state");
+
+        final Runnable task;
+        final SchedulerMetrics metrics;
+        final long dueAt; // 제출 시각(지연 작업은 예정 시각). 시간을 재지 않으면 NOT_TIMED
+        final Disposable.Composite parent; // Worker 의 대기 작업 집합. Scheduler 에 바로 제출한 작업이면 null
+
+        volatile int state;
+        volatile Disposable future;
+
+        InstrumentedTask(Runnable task, SchedulerMetrics metrics, long dueAt, Disposable.Composite parent) {
+            this.task = Objects.requireNonNull(task, "task");
+            this.metrics = metrics;
+            this.dueAt = dueAt;
+            this.parent = parent;
+            metrics.submitted.increment();
+        }
+
+        @Override
+        public void run() {
+            if (!STATE.compareAndSet(this, PENDING, RUNNING)) {
+                return;
+            }
+            untrack();
+            long start = NOT_TIMED;
+            if (dueAt != NOT_TIMED) {
+                start = System.nanoTime();
+                metrics.queueWait.record(start - dueAt);
+            }
+            InstrumentedScheduler.run(task, start, metrics);
+        }
+
+        Disposable setFuture(Disposable future) {
+            this.future = future;
+            return this;
+        }
+
+        void reject() {
+            if (STATE.compareAndSet(this, PENDING, CANCELLED)) {
+                metrics.rejected.increment();
+                untrack();
+            }
+        }
+
+        void untrack() {
+            Disposable.Composite p = parent;
+            if (p != null) {
+                p.remove(this);
+            }
+        }
+
+        @Override
+        public void dispose() {
+            if (STATE.compareAndSet(this, PENDING, CANCELLED)) {
+                metrics.cancelled.increment();
+                untrack();
+            }
+            Disposable f = future;
+            if (f != null) {
+                f.dispose();
+            }
+        }
+
+        @Override
+        public boolean isDisposed() {
+            Disposable f = future;
+            return state == CANCELLED || (f != null && f.isDisposed());
+        }
+    }
+
+    /**
+     * 주기 작업의 각 회차. 큐 대기 시간은 기록하지 않는다.
+     */
+    static final class PeriodicTask implements Runnable
+    {
+        final Runnable task;
+        final SchedulerMetrics metrics;
+
+        PeriodicTask(Runnable task, SchedulerMetrics metrics) {
+            this.task = Objects.requireNonNull(task, "task");
+            this.metrics = metrics;
+        }
+
+        @Override
+        public void run() {
+            metrics.periodicRuns.increment();
+            InstrumentedScheduler.run(task, metrics.sample() ? System.nanoTime() : NOT_TIMED, metrics);
+        }
+    }
+}
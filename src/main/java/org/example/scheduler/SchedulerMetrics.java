@@ -0,0 +1,114 @@
+package org.example.scheduler;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * InstrumentedScheduler 가 기록하는 값들. snapshot() 으로 그 순간의 값을 읽는다.
+ *
+ * 카운터는 모두 LongAdder 라서 여러 스레드가 동시에 올려도 서로 기다리지 않는다.
+ * 현재 값은 스냅샷에서 계산한다.
+ *  * 큐 깊이 = 제출 - (시작 - 주기 작업 회차) - 취소 - 거절
+ *  * 실행 중 = 시작 - 끝남
+ */
+public final class SchedulerMetrics
+{
+    final LatencyHistogram queueWait = new LatencyHistogram();
+    final LatencyHistogram runTime = new LatencyHistogram();
+
+    final LongAdder submitted = new LongAdder();
+    final LongAdder started = new LongAdder();
+    final LongAdder finished = new LongAdder();
+    final LongAdder periodicRuns = new LongAdder();
+    final LongAdder failed = new LongAdder();
+    final LongAdder cancelled = new LongAdder();
+    final LongAdder rejected = new LongAdder();
+    final LongAdder activeWorkers = new LongAdder();
+
+    private final int timingSampleRate;
+    private final long createdAt = System.nanoTime();
+
+    SchedulerMetrics(int timingSampleRate) {
+        if (timingSampleRate <= 0) {
+            throw new IllegalArgumentException("timingSampleRate > 0 required but it was " + timingSampleRate);
+        }
+        this.timingSampleRate = timingSampleRate;
+    }
+
+    /**
+     * 이번 작업의 시간을 잴지
+     */
+    boolean sample() {
+        return timingSampleRate == 1 || ThreadLocalRandom.current().nextInt(timingSampleRate) == 0;
+    }
+
+    public int timingSampleRate() {
+        return timingSampleRate;
+    }
+
+    public Snapshot snapshot() {
+        // 나중에 증가하는 값을 먼저 읽어야 뺄셈 결과가 음수가 되지 않는다.
+        long finished = this.finished.sum();
+        long failed = this.failed.sum();
+        long periodicRuns = this.periodicRuns.sum();
+        long started = this.started.sum();
+        long cancelled = this.cancelled.sum();
+        long rejected = this.rejected.sum();
+        long submitted = this.submitted.sum();
+        return new Snapshot(
+            System.nanoTime() - createdAt,
+            queueWait.snapshot(),
+            runTime.snapshot(),
+            Math.max(0, submitted - (started - periodicRuns) - cancelled - rejected),
+            Math.max(0, started - finished),
+            Math.max(0, activeWorkers.sum()),
+            submitted,
+            finished - failed,
+            failed,
+            cancelled,
+            rejected);
+    }
+
+    /**
+     * @param uptimeNanos   InstrumentedScheduler 를 만든 뒤 지난 시간
+     * @param queueWait     제출(지연 작업은 예정 시각)부터 실행 시작까지 기다린 시간 (시간을 잰 작업만)
+     * @param runTime       실행 시간 (시간을 잰 작업만)
+     * @param queueDepth    제출됐지만 아직 시작하지 않은 작업 수 (주기 작업 제외)
+     * @param activeTasks   지금 실행 중인 작업 수 (주기 작업 포함)
+     * @param activeWorkers 만들어졌고 아직 dispose 되지 않은 Worker 수
+     * @param submitted     제출된 작업 수. 주기 작업은 거절됐을 때만 센다.
+     * @param completed     정상적으로 끝난 실행 수 (주기 작업은 회차마다)
+     * @param failed        예외로 끝난 실행 수
+     * @param cancelled     시작하기 전에 dispose 된 작업 수
+     * @param rejected      대상 스케줄러가 RejectedExecutionException 으로 거절한 작업 수
+     */
+    public record Snapshot(long uptimeNanos,
+                           LatencyHistogram.Snapshot queueWait,
+                           LatencyHistogram.Snapshot runTime,
+                           long queueDepth,
+                           long activeTasks,
+                           long activeWorkers,
+                           long submitted,
+                           long completed,
+                           long failed,
+                           long cancelled,
+                           long rejected)
+    {
+        /**
+         * earlier 이후 이 스냅샷까지 threads 개의 스레드가 작업을 실행하느라 바빴던 비율 (0 ~ 1)
+         * 끝난 실행 수 x 평균 실행 시간으로 추정하므로, 샘플링 중이거나 구간이 짧으면 오차가 있다.
+         */
+        public double utilization(Snapshot earlier, int threads) {
+            long elapsed = uptimeNanos - earlier.uptimeNanos;
+            if (elapsed <= 0 || threads <= 0) {
+                return 0;
+            }
+            double busy = busyNanos() - earlier.busyNanos();
+            return busy / ((double) elapsed * threads);
+        }
+
+        private double busyNanos() {
+            return runTime.mean() * (completed + failed);
+        }
+    }
+}
@@ -0,0 +1,540 @@
+package org.example.scheduler;
+
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+import reactor.core.Exceptions;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.Logger;
+import reactor.util.Loggers;
+
+import java.util.Objects;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * 작업마다 가상 스레드(virtual thread)를 쓰는 Scheduler. publishOn/subscribeOn 에 boundedElastic() 대신 그대로 넣을 수 있다.
+ *
+ * boundedElastic() 은 스레드 수가 코어 수 x 10 으로 묶여 있어서, 블로킹 호출이 그 이상 몰리면 나머지는 큐에서 기다린다.
+ * 가상 스레드는 블로킹되는 동안 캐리어 스레드를 내려놓으므로 수천~수만 개의 블로킹 호출을 동시에 진행할 수 있다.
+ * 대신 하류 자원(커넥션 풀 등)을 보호하기 위해 동시에 실행되는 작업 수를 maxConcurrency 로 제한한다.
+ * 한도를 넘은 작업은 거절하지 않고 큐에 쌓였다가 앞선 작업이 끝나면 실행된다.
+ *
+ * <pre>
+ * Scheduler scheduler = VirtualThreadScheduler.create("blocking-io", 10_000);
+ *
+ * Mono.fromCallable(() -> jdbcTemplate.queryForObject(...))
+ *     .subscribeOn(scheduler);
+ * </pre>
+ *
+ * 가상 스레드는 JDK 21 부터 정식 기능이다. 이 프로젝트는 Java 17 로 빌드하므로 Thread.ofVirtual() 을 리플렉션으로 찾고,
+ * 찾지 못하면(JDK 21 미만) 같은 방식으로 동작하는 데몬 플랫폼 스레드로 대신한다. 어느 쪽인지는 isVirtual() 로 확인할 수 있다.
+ * 플랫폼 스레드로 대신할 때는 OS 스레드를 수천 개씩 띄우지 않도록 maxConcurrency 를 boundedElastic() 의 스레드 수
+ * (Schedulers.DEFAULT_BOUNDED_ELASTIC_SIZE, 기본 코어 수 x 10) 로 줄이고 경고를 남긴다. 실제 한도는 maxConcurrency() 로 확인한다.
+ *  * Worker 는 publishOn 이 기대하는 대로 작업을 순서대로 하나씩 실행한다.
+ *  * 지연/주기 작업은 타이머 스레드 하나가 시간을 재고, 실행은 가상 스레드에서 한다.
+ *    주기 작업은 이전 실행이 끝나지 않았으면 그 회차를 건너뛴다. (겹쳐서 실행되지 않는다.)
+ *  * 실행 중인 작업을 dispose 하면 스레드를 interrupt 한다.
+ *
+ * 참고로 Reactor 3.6 이상을 JDK 21 에서 돌리면 reactor.schedulers.defaultBoundedElasticOnVirtualThreads=true 로
+ * boundedElastic() 자체를 가상 스레드로 바꿀 수도 있다. 이 클래스는 JDK 와 관계없이 동시 실행 한도를 직접 지정하고 싶을 때 쓴다.
+ */
+public final class VirtualThreadScheduler implements Scheduler
+{
+    private static final Logger log = Loggers.getLogger(VirtualThreadScheduler.class);
+    private static final boolean VIRTUAL = virtualThreadFactory("probe") != null;
+
+    private final String name;
+    private final int maxConcurrency;
+    private final ThreadFactory threadFactory;
+    private final ScheduledThreadPoolExecutor timer;
+
+    private final Queue<Task> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pending = new AtomicInteger();
+    private final AtomicInteger active = new AtomicInteger();
+    private final Set<Thread> runners = ConcurrentHashMap.newKeySet();
+
+    private volatile boolean disposed;
+
+    private VirtualThreadScheduler(String name, int maxConcurrency) {
+        if (maxConcurrency <= 0) {
+            throw new IllegalArgumentException("maxConcurrency > 0 required but it was " + maxConcurrency);
+        }
+        this.name = Objects.requireNonNull(name, "name");
+        ThreadFactory virtual = virtualThreadFactory(name);
+        if (virtual == null && maxConcurrency > Schedulers.DEFAULT_BOUNDED_ELASTIC_SIZE) {
+            log.warn("Virtual threads are not available on this JVM; capping maxConcurrency of '{}' from {} to {} platform threads",
+                name, maxConcurrency, Schedulers.DEFAULT_BOUNDED_ELASTIC_SIZE);
+            maxConcurrency = Schedulers.DEFAULT_BOUNDED_ELASTIC_SIZE;
+        }
+        this.maxConcurrency = maxConcurrency;
+        this.threadFactory = virtual != null ? virtual : platformThreadFactory(name);
+        this.timer = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, name + "-timer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.timer.setRemoveOnCancelPolicy(true);
+    }
+
+    /**
+     * @param name           스레드 이름 접두어 (name-0, name-1, ...)
+     * @param maxConcurrency 동시에 실행할 수 있는 작업 수. 가상 스레드를 쓸 수 없으면 Schedulers.DEFAULT_BOUNDED_ELASTIC_SIZE 까지로 줄인다.
+     */
+    public static VirtualThreadScheduler create(String name, int maxConcurrency) {
+        return new VirtualThreadScheduler(name, maxConcurrency);
+    }
+
+    /**
+     * 현재 JVM 에서 가상 스레드를 쓸 수 있는지. false 면 플랫폼 스레드로 동작한다.
+     */
+    public static boolean isVirtual() {
+        return VIRTUAL;
+    }
+
+    @Override
+    public Disposable schedule(Runnable task) {
+        Task t = new Task(Objects.requireNonNull(task, "task"), null);
+        execute(t);
+        return t;
+    }
+
+    @Override
+    public Disposable schedule(Runnable task, long delay, TimeUnit unit) {
+        Task t = new Task(Objects.requireNonNull(task, "task"), null);
+        t.future = delay(() -> execute(t), delay, unit);
+        return t;
+    }
+
+    @Override
+    public Disposable schedulePeriodically(Runnable task, long initialDelay, long period, TimeUnit unit) {
+        PeriodicTask p = new PeriodicTask(Objects.requireNonNull(task, "task"), this::execute, null);
+        p.future = repeat(p, initialDelay, period, unit);
+        return p;
+    }
+
+    @Override
+    public Worker createWorker() {
+        if (disposed) {
+            throw Exceptions.failWithRejected();
+        }
+        return new VirtualThreadWorker();
+    }
+
+    @Override
+    public void dispose() {
+        if (disposed) {
+            return;
+        }
+        disposed = true;
+        timer.shutdownNow();
+        for (Task t; (t = queue.poll()) != null; ) {
+            pending.decrementAndGet();
+            t.dispose();
+        }
+        for (Thread runner : runners) {
+            runner.interrupt();
+        }
+    }
+
+    @Override
+    public boolean isDisposed() {
+        return disposed;
+    }
+
+    public int maxConcurrency() {
+        return maxConcurrency;
+    }
+
+    /**
+     * 지금 실행 중인 작업(스레드) 수
+     */
+    public int activeCount() {
+        return active.get();
+    }
+
+    /**
+     * 한도에 걸려 실행을 기다리는 작업 수
+     */
+    public int pendingCount() {
+        return pending.get();
+    }
+
+    @Override
+    public String toString() {
+        return "VirtualThreadScheduler(" + name + ", maxConcurrency=" + maxConcurrency
+            + (isVirtual() ? ", virtual" : ", platform") + ")";
+    }
+
+    /**
+     * 큐에 넣은 뒤 한도 안에서 스레드를 띄운다. 스레드는 큐가 빌 때까지 작업을 이어서 꺼내 실행한다.
+     */
+    void execute(Task task) {
+        if (disposed) {
+            task.dispose();
+            throw Exceptions.failWithRejected();
+        }
+        pending.incrementAndGet();
+        queue.offer(task);
+        startRunners();
+    }
+
+    private void startRunners() {
+        for (;;) {
+            int a = active.get();
+            if (a >= maxConcurrency || queue.isEmpty()) {
+                return;
+            }
+            if (active.compareAndSet(a, a + 1)) {
+                threadFactory.newThread(this::runLoop).start();
+            }
+        }
+    }
+
+    private void runLoop() {
+        Thread current = Thread.currentThread();
+        runners.add(current);
+        try {
+            for (Task t; !disposed && (t = queue.poll()) != null; ) {
+                pending.decrementAndGet();
+                t.run();
+            }
+        }
+        finally {
+            runners.remove(current);
+            active.decrementAndGet();
+        }
+        // 내려놓는 사이에 들어온 작업을 놓치지 않는다.
+        if (!disposed) {
+            startRunners();
+        }
+    }
+
+    private Future<?> delay(Runnable command, long delay, TimeUnit unit) {
+        if (disposed) {
+            throw Exceptions.failWithRejected();
+        }
+        return timer.schedule(() -> {
+            if (!disposed) {
+                command.run();
+            }
+        }, delay, unit);
+    }
+
+    private Future<?> repeat(PeriodicTask task, long initialDelay, long period, TimeUnit unit) {
+        if (period <= 0) {
+            throw new IllegalArgumentException("period > 0 required but it was " + period);
+        }
+        if (disposed) {
+            throw Exceptions.failWithRejected();
+        }
+        return timer.scheduleAtFixedRate(task, initialDelay, period, unit);
+    }
+
+    private static ThreadFactory virtualThreadFactory(String name) {
+        try {
+            // Thread.ofVirtual().name(name + "-", 0).factory()
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder$OfVirtual");
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, name + "-", 0L);
+            return (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+        }
+        catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static ThreadFactory platformThreadFactory(String name) {
+        AtomicLong counter = new AtomicLong();
+        return runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + counter.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * 작업의 예외는 구독자에게 전달할 곳이 없으므로 Reactor 의 스케줄러처럼 스레드의 UncaughtExceptionHandler 로 넘긴다.
+     */
+    private static void handleError(Throwable error) {
+        Thread current = Thread.currentThread();
+        Thread.UncaughtExceptionHandler handler = current.getUncaughtExceptionHandler();
+        if (handler != null) {
+            handler.uncaughtException(current, error);
+        }
+    }
+
+    /**
+     * 한 번 실행되는 작업. READY -> RUNNING -> FINISHED, 또는 CANCELLED 로 끝난다.
+     */
+    static final class Task implements Runnable, Disposable
+    {
+        static final int READY = 0;
+        static final int RUNNING = 1;
+        static final int INTERRUPTING = 2;
+        static final int FINISHED = 3;
+        static final int CANCELLED = 4;
+
+        static final AtomicIntegerFieldUpdater<Task> STATE =
+            AtomicIntegerFieldUpdater.newUpdater(Task.class, "state");
+
+        final Runnable task;
+        final Disposable.Composite parent; // Worker 에 속한 작업이면 끝날 때 Worker 에서 빠진다.
+
+        volatile int state;
+        volatile Thread runner;
+        volatile Future<?> future; // 지연 작업의 타이머
+
+        Task(Runnable task, Disposable.Composite parent) {
+            this.task = task;
+            this.parent = parent;
+        }
+
+        @Override
+        public void run() {
+            if (!STATE.compareAndSet(this, READY, RUNNING)) {
+                return;
+            }
+            runner = Thread.currentThread();
+            try {
+                task.run();
+            }
+            catch (Throwable e) {
+                handleError(e);
+            }
+            finally {
+                runner = null;
+                if (!STATE.compareAndSet(this, RUNNING, FINISHED)) {
+                    // dispose 가 interrupt 를 거는 중이다. 끝날 때까지 기다렸다가 지워서 다음 작업에 새지 않게 한다.
+                    while (state == INTERRUPTING) {
+                        Thread.onSpinWait();
+                    }
+                    Thread.interrupted();
+                }
+                if (parent != null) {
+                    parent.remove(this);
+                }
+            }
+        }
+
+        @Override
+        public void dispose() {
+            Future<?> f = future;
+            if (f != null) {
+                f.cancel(false);
+            }
+            for (;;) {
+                int s = state;
+                if (s == READY) {
+                    if (STATE.compareAndSet(this, READY, CANCELLED)) {
+                        break;
+                    }
+                }
+                else if (s == RUNNING) {
+                    if (STATE.compareAndSet(this, RUNNING, INTERRUPTING)) {
+                        Thread t = runner;
+                        if (t != null) {
+                            t.interrupt();
+                        }
+                        state = CANCELLED;
+                        break;
+                    }
+                }
+                else {
+                    return;
+                }
+            }
+            if (parent != null) {
+                parent.remove(this);
+            }
+        }
+
+        @Override
+        public boolean isDisposed() {
+            int s = state;
+            return s == FINISHED || s == CANCELLED;
+        }
+    }
+
+    /**
+     * 타이머가 매 회차 새 Task 를 만들어 실행기로 넘긴다. 이전 회차가 실행 중이면 건너뛴다.
+     * 작업이 예외를 던지면 이후 회차는 취소된다.
+     */
+    static final class PeriodicTask implements Runnable, Disposable
+    {
+        final Runnable task;
+        final Consumer<Task> executor;
+        final Disposable.Composite parent;
+        final AtomicBoolean running = new AtomicBoolean();
+
+        volatile boolean disposed;
+        volatile Future<?> future;
+        volatile Task current;
+
+        PeriodicTask(Runnable task, Consumer<Task> executor, Disposable.Composite parent) {
+            this.task = task;
+            this.executor = executor;
+            this.parent = parent;
+        }
+
+        @Override
+        public void run() {
+            if (disposed || !running.compareAndSet(false, true)) {
+                return;
+            }
+            Task t = new Task(this::runOnce, null);
+            current = t;
+            try {
+                executor.accept(t);
+            }
+            catch (RuntimeException e) {
+                running.set(false);
+                dispose();
+            }
+        }
+
+        private void runOnce() {
+            try {
+                task.run();
+            }
+            catch (RuntimeException | Error e) {
+                dispose();
+                throw e;
+            }
+            finally {
+                running.set(false);
+            }
+        }
+
+        @Override
+        public void dispose() {
+            if (disposed) {
+                return;
+            }
+            disposed = true;
+            Future<?> f = future;
+            if (f != null) {
+                f.cancel(false);
+            }
+            Task t = current;
+            if (t != null && Thread.currentThread() != t.runner) {
+                t.dispose();
+            }
+            if (parent != null) {
+                parent.remove(this);
+            }
+        }
+
+        @Override
+        public boolean isDisposed() {
+            return disposed;
+        }
+    }
+
+    /**
+     * 작업을 자신의 큐에 모아 두고, 한 번에 하나의 Task(drain)만 스케줄러에 올려 순서대로 실행한다.
+     */
+    final class VirtualThreadWorker implements Worker
+    {
+        final Queue<Task> tasks = new ConcurrentLinkedQueue<>();
+        final AtomicInteger wip = new AtomicInteger();
+        final Disposable.Composite composite = Disposables.composite();
+
+        volatile boolean disposed;
+
+        @Override
+        public Disposable schedule(Runnable task) {
+            Task t = newTask(task);
+            enqueue(t);
+            return t;
+        }
+
+        @Override
+        public Disposable schedule(Runnable task, long delay, TimeUnit unit) {
+            Task t = newTask(task);
+            try {
+                t.future = delay(() -> enqueue(t), delay, unit);
+            }
+            catch (RuntimeException e) {
+                composite.remove(t);
+                throw e;
+            }
+            return t;
+        }
+
+        @Override
+        public Disposable schedulePeriodically(Runnable task, long initialDelay, long period, TimeUnit unit) {
+            if (disposed) {
+                throw Exceptions.failWithRejected();
+            }
+            PeriodicTask p = new PeriodicTask(Objects.requireNonNull(task, "task"), this::enqueue, composite);
+            if (!composite.add(p)) {
+                throw Exceptions.failWithRejected();
+            }
+            p.future = repeat(p, initialDelay, period, unit);
+            return p;
+        }
+
+        @Override
+        public void dispose() {
+            if (disposed) {
+                return;
+            }
+            disposed = true;
+            composite.dispose();
+            tasks.clear();
+        }
+
+        @Override
+        public boolean isDisposed() {
+            return disposed;
+        }
+
+        private Task newTask(Runnable task) {
+            Objects.requireNonNull(task, "task");
+            if (disposed) {
+                throw Exceptions.failWithRejected();
+            }
+            Task t = new Task(task, composite);
+            if (!composite.add(t)) {
+                throw Exceptions.failWithRejected();
+            }
+            return t;
+        }
+
+        private void enqueue(Task task) {
+            if (disposed) {
+                task.dispose();
+                throw Exceptions.failWithRejected();
+            }
+            tasks.offer(task);
+            if (wip.getAndIncrement() == 0) {
+                execute(new Task(this::drain, null));
+            }
+        }
+
+        private void drain() {
+            int missed = 1;
+            for (;;) {
+                for (Task t; !disposed && (t = tasks.poll()) != null; ) {
+                    t.run();
+                }
+                missed = wip.addAndGet(-missed);
+                if (missed == 0) {
+                    return;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package org.example.sink;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.function.Consumer;
+
+/**
+ * 배열 기반의 제한된 MPSC (다수 생산자, 단일 소비자) 큐. JCTools 의 MpscArrayQueue 와 같은 방식이다.
+ *
+ * 생산자는 producerIndex 를 CAS 로 올려 칸을 먼저 차지하고, 그 칸에 요소를 release 로 쓴다.
+ * 소비자는 칸이 null 이 아니게 될 때까지 읽고, 읽은 칸을 비운 뒤 consumerIndex 를 올린다.
+ * 칸을 차지했지만 아직 쓰지 않은 생산자가 있으면 그 칸은 잠시 null 로 보인다.
+ *
+ * 생산자는 매번 consumerIndex 를 읽지 않고 마지막으로 확인한 한계(producerLimit)에 닿았을 때만 다시 읽는다.
+ * 소비자는 drain 으로 여러 개를 읽고 consumerIndex 를 한 번만 올린다. 둘 다 상대 쪽 캐시 라인을 덜 건드리려는 것이다.
+ *
+ * offer 는 어느 스레드에서나 호출할 수 있고, drain / clear 는 한 번에 한 스레드에서만 호출해야 한다.
+ */
+final class MpscArrayQueue<E>
+{
+    private static final VarHandle PRODUCER_INDEX;
+    private static final VarHandle PRODUCER_LIMIT;
+    private static final VarHandle CONSUMER_INDEX;
+    private static final VarHandle ELEMENTS = MethodHandles.arrayElementVarHandle(Object[].class);
+
+    static {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            PRODUCER_INDEX = lookup.findVarHandle(MpscArrayQueue.class, "producerIndex", long.class);
+            PRODUCER_LIMIT = lookup.findVarHandle(MpscArrayQueue.class, "producerLimit", long.class);
+            CONSUMER_INDEX = lookup.findVarHandle(MpscArrayQueue.class, "consumerIndex", long.class);
+        }
+        catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private final Object[] buffer;
+    private final int mask;
+
+    @SuppressWarnings("unused")
+    private volatile long producerIndex;
+
+    /**
+     * 생산자들이 마지막으로 확인한 consumerIndex + capacity. producerIndex 가 이 값보다 작으면 자리가 있다.
+     */
+    @SuppressWarnings("unused")
+    private volatile long producerLimit;
+
+    @SuppressWarnings("unused")
+    private volatile long consumerIndex;
+
+    /**
+     * @param capacity 2의 거듭제곱
+     */
+    MpscArrayQueue(int capacity) {
+        this.buffer = new Object[capacity];
+        this.mask = capacity - 1;
+        this.producerLimit = capacity;
+    }
+
+    int capacity() {
+        return buffer.length;
+    }
+
+    /**
+     * @return 가득 찼으면 false
+     */
+    boolean offer(E value) {
+        long limit = (long) PRODUCER_LIMIT.getOpaque(this);
+        long index;
+        do {
+            index = (long) PRODUCER_INDEX.getVolatile(this);
+            if (index >= limit) {
+                limit = (long) CONSUMER_INDEX.getAcquire(this) + buffer.length;
+                if (index >= limit) {
+                    return false;
+                }
+                PRODUCER_LIMIT.setOpaque(this, limit); // 늦게 쓰여서 값이 줄어도 다음 offer 가 다시 확인할 뿐이다.
+            }
+        }
+        while (!PRODUCER_INDEX.compareAndSet(this, index, index + 1));
+        ELEMENTS.setRelease(buffer, (int) index & mask, value);
+        return true;
+    }
+
+    /**
+     * 최대 limit 개를 순서대로 consumer 에 넘긴다. 칸을 차지만 하고 아직 쓰지 않은 생산자를 만나면 기다리지 않고 멈춘다.
+     * 그 생산자는 쓰기를 마친 뒤 소비자를 다시 깨워야 한다.
+     *
+     * @return 넘긴 개수
+     */
+    @SuppressWarnings("unchecked")
+    int drain(Consumer<? super E> consumer, int limit) {
+        Object[] buffer = this.buffer;
+        int mask = this.mask;
+        long index = (long) CONSUMER_INDEX.getOpaque(this);
+        int n = 0;
+        while (n < limit) {
+            int offset = (int) (index + n) & mask;
+            Object value = ELEMENTS.getAcquire(buffer, offset);
+            if (value == null) {
+                break;
+            }
+            buffer[offset] = null;
+            n++;
+            consumer.accept((E) value);
+        }
+        if (n != 0) {
+            // 비운 칸을 생산자가 보기 전에 null 쓰기가 먼저 보여야 하므로 release 로 올린다.
+            CONSUMER_INDEX.setRelease(this, index + n);
+        }
+        return n;
+    }
+
+    /**
+     * 차지된 칸이 하나도 없으면 true. 아직 쓰지 않은 칸도 차지된 것으로 본다.
+     */
+    boolean isEmpty() {
+        return (long) CONSUMER_INDEX.getAcquire(this) == (long) PRODUCER_INDEX.getAcquire(this);
+    }
+
+    int size() {
+        long consumer = (long) CONSUMER_INDEX.getAcquire(this);
+        return (int) Math.max(0, Math.min(buffer.length, (long) PRODUCER_INDEX.getAcquire(this) - consumer));
+    }
+
+    /**
+     * 지금 읽을 수 있는 요소를 모두 꺼내 discard 에 넘긴다.
+     */
+    void clear(Consumer<? super E> discard) {
+        while (drain(discard, buffer.length) != 0) {
+            // 버린다.
+        }
+    }
+}
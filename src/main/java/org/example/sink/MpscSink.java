@@ -0,0 +1,267 @@
+package org.example.sink;
+
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import reactor.core.CoreSubscriber;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Operators;
+import reactor.core.publisher.Sinks;
+import reactor.util.context.Context;
+
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * 여러 스레드가 동시에 요소를 넣고 구독자 하나가 받는 Sink (다수 생산자, 단일 구독자)
+ *
+ * Flux.create 의 FluxSink.next 나 Sinks.many().unicast() 는 생산자들을 직렬화한다.
+ * 전자는 경쟁이 생기면 큐에 넣고 WIP 를 잡은 스레드가 대신 전달하며, 후자는 동시에 호출하면 FAIL_NON_SERIALIZED 로 실패해서 다시 시도해야 한다.
+ * 여기서는 생산자가 락 없는 배열 MPSC 큐(MpscArrayQueue)에 넣고 WIP 를 하나 올리기만 한다.
+ * WIP 를 잡은 스레드가 요청 수만큼 한 번에 꺼내 전달하고, 그동안 들어온 다른 생산자들의 신호는 그 한 번의 drain 에 합쳐진다.
+ *
+ * 큐의 크기는 정해져 있다. 구독자가 요청하지 않아 큐가 차면
+ *  * tryEmitNext : 넣지 않고 FAIL_OVERFLOW 를 반환한다.
+ *  * emitNext    : 자리가 날 때까지 잠깐 돌다가 park 하며 기다린다.
+ * 구독하기 전에 넣은 요소는 큐에 쌓여 있다가 구독자에게 전달된다. (Sinks.many().unicast() 와 같다.)
+ *
+ * 한 생산자가 넣은 요소들은 넣은 순서대로 전달되며, 생산자 사이의 순서는 큐에 자리를 차지한 순서다.
+ * tryEmitComplete / tryEmitError 도 어느 스레드에서나 호출할 수 있지만, 그와 동시에 넣은 요소는 전달되지 않을 수 있다.
+ * 전달은 생산자 스레드나 request 를 호출한 스레드에서 일어난다. 다른 스레드에서 처리하고 싶다면 publishOn 을 붙인다.
+ * 구독자가 취소했거나 종료 신호를 받은 뒤 큐에 남은 요소는 discard 훅(Operators.onDiscard)으로 넘긴다.
+ */
+public final class MpscSink<T> implements Subscription
+{
+    static final int BATCH = 256;
+
+    static final Object COMPLETE = new Object();
+
+    @SuppressWarnings("rawtypes")
+    private static final AtomicIntegerFieldUpdater<MpscSink> WIP =
+        AtomicIntegerFieldUpdater.newUpdater(MpscSink.class, "wip");
+    @SuppressWarnings("rawtypes")
+    private static final AtomicIntegerFieldUpdater<MpscSink> SUBSCRIBED =
+        AtomicIntegerFieldUpdater.newUpdater(MpscSink.class, "subscribed");
+    @SuppressWarnings("rawtypes")
+    private static final AtomicLongFieldUpdater<MpscSink> REQUESTED =
+        AtomicLongFieldUpdater.newUpdater(MpscSink.class, "requested");
+    @SuppressWarnings("rawtypes")
+    private static final AtomicReferenceFieldUpdater<MpscSink, Object> TERMINAL =
+        AtomicReferenceFieldUpdater.newUpdater(MpscSink.class, Object.class, "terminal");
+
+    private final MpscArrayQueue<T> queue;
+
+    /**
+     * onSubscribe 가 끝난 뒤에 채운다. 그 전에는 drain 이 아무것도 전달하지 않는다.
+     */
+    private volatile Subscriber<? super T> actual;
+    private Consumer<T> onNext; // actual::onNext, drain 마다 만들지 않으려고 한 번만 만든다.
+    private Consumer<T> onDiscard; // 구독자의 Context 로 discard 훅을 부른다. onNext 와 같은 이유로 한 번만 만든다.
+
+    /**
+     * null 이면 진행 중, COMPLETE 이면 완료, 그 밖에는 에러
+     */
+    @SuppressWarnings("unused")
+    private volatile Object terminal;
+
+    @SuppressWarnings("unused")
+    private volatile int subscribed;
+    @SuppressWarnings("unused")
+    private volatile long requested;
+    @SuppressWarnings("unused")
+    private volatile int wip;
+
+    private volatile boolean cancelled;
+    private boolean delivered; // 종료 신호를 전달했다. drain 안에서만 접근
+    private long emitted;      // drain 안에서만 접근
+
+    /**
+     * @param capacity 큐 크기. 2의 거듭제곱으로 올림한다.
+     */
+    public MpscSink(int capacity) {
+        if (capacity <= 0 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("0 < capacity <= 2^30 required but it was " + capacity);
+        }
+        this.queue = new MpscArrayQueue<>(capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1);
+    }
+
+    /**
+     * 구독자는 하나만 받는다. 두 번째 구독자는 IllegalStateException 으로 끝난다.
+     */
+    public Flux<T> asFlux() {
+        return Flux.from(subscriber -> subscribe(subscriber));
+    }
+
+    /**
+     * 기다리지 않는다. 큐가 가득 찼으면 FAIL_OVERFLOW, 구독자가 취소했으면 FAIL_CANCELLED 를 반환한다.
+     */
+    public Sinks.EmitResult tryEmitNext(T value) {
+        Objects.requireNonNull(value, "value");
+        if (terminal != null) {
+            return Sinks.EmitResult.FAIL_TERMINATED;
+        }
+        if (cancelled) {
+            return Sinks.EmitResult.FAIL_CANCELLED;
+        }
+        if (!queue.offer(value)) {
+            return Sinks.EmitResult.FAIL_OVERFLOW;
+        }
+        drain();
+        return Sinks.EmitResult.OK;
+    }
+
+    /**
+     * 큐에 자리가 날 때까지 기다렸다가 넣는다. 처음에는 돌면서, 다음에는 yield 하며 기다리고, 오래 걸리면 park 한다.
+     * 구독자의 request 가 이 스레드에서만 일어난다면 영원히 기다리게 되므로 주의한다.
+     */
+    public Sinks.EmitResult emitNext(T value) {
+        int spins = 0;
+        for (;;) {
+            Sinks.EmitResult result = tryEmitNext(value);
+            if (result != Sinks.EmitResult.FAIL_OVERFLOW) {
+                return result;
+            }
+            if (++spins < 100) {
+                Thread.onSpinWait();
+            }
+            else if (spins < 200) {
+                Thread.yield(); // 생산자가 코어보다 많으면 drain 중인 스레드가 밀려나 있을 수 있다. 자리를 비켜 준다.
+            }
+            else {
+                LockSupport.parkNanos(1_000);
+            }
+        }
+    }
+
+    /**
+     * 이미 넣은 요소를 모두 전달한 뒤에 완료한다.
+     */
+    public Sinks.EmitResult tryEmitComplete() {
+        return terminate(COMPLETE);
+    }
+
+    /**
+     * 이미 넣은 요소를 모두 전달한 뒤에 에러로 끝낸다.
+     */
+    public Sinks.EmitResult tryEmitError(Throwable error) {
+        return terminate(Objects.requireNonNull(error, "error"));
+    }
+
+    public int currentSubscriberCount() {
+        return actual != null && !cancelled && !delivered ? 1 : 0;
+    }
+
+    public int capacity() {
+        return queue.capacity();
+    }
+
+    /**
+     * 큐에 있어 아직 전달하지 않은 요소 수 (근삿값)
+     */
+    public int size() {
+        return queue.size();
+    }
+
+    @Override
+    public void request(long n) {
+        if (Operators.validate(n)) {
+            Operators.addCap(REQUESTED, this, n);
+            drain();
+        }
+    }
+
+    @Override
+    public void cancel() {
+        if (!cancelled) {
+            cancelled = true;
+            drain(); // 남은 요소는 drain 에서 비운다. (큐를 비우는 것은 소비자 한 스레드만 할 수 있다.)
+        }
+    }
+
+    private Sinks.EmitResult terminate(Object signal) {
+        if (!TERMINAL.compareAndSet(this, null, signal)) {
+            return Sinks.EmitResult.FAIL_TERMINATED;
+        }
+        drain();
+        return Sinks.EmitResult.OK;
+    }
+
+    private void subscribe(Subscriber<? super T> subscriber) {
+        if (!SUBSCRIBED.compareAndSet(this, 0, 1)) {
+            Operators.error(subscriber, new IllegalStateException("MpscSink allows only a single Subscriber"));
+            return;
+        }
+        Context context = subscriber instanceof CoreSubscriber
+            ? ((CoreSubscriber<? super T>) subscriber).currentContext()
+            : Context.empty();
+        onDiscard = value -> Operators.onDiscard(value, context);
+        subscriber.onSubscribe(this);
+        onNext = subscriber::onNext;
+        actual = subscriber; // onNext 를 쓴 뒤에 volatile 로 알린다.
+        drain();
+    }
+
+    /**
+     * 생산자들이 요소마다 부르지만 WIP 를 잡은 스레드 하나만 전달하고, 나머지는 WIP 를 올리기만 하고 돌아간다.
+     * 전달하는 동안 올라간 WIP 는 한 번에 빼므로 생산자가 많을수록 drain 한 번에 더 많은 요소를 꺼낸다.
+     */
+    private void drain() {
+        if (WIP.getAndIncrement(this) != 0) {
+            return;
+        }
+        int missed = 1;
+        for (;;) {
+            if (cancelled || delivered) {
+                queue.clear(onDiscard);
+            }
+            else {
+                Subscriber<? super T> a = actual;
+                if (a != null) {
+                    drainLoop(a);
+                }
+            }
+            missed = WIP.addAndGet(this, -missed);
+            if (missed == 0) {
+                break;
+            }
+        }
+    }
+
+    private void drainLoop(Subscriber<? super T> a) {
+        long r = requested;
+        long e = emitted;
+        for (;;) {
+            if (cancelled) {
+                queue.clear(onDiscard);
+                return;
+            }
+            Object t = terminal; // 큐가 비었는지 보기 전에 읽어야 종료 전에 넣은 요소를 놓치지 않는다.
+            int n = e == r ? 0 : queue.drain(onNext, (int) Math.min(r - e, BATCH));
+            e += n;
+            if (n == 0) {
+                if (t != null && queue.isEmpty()) {
+                    delivered = true;
+                    if (t == COMPLETE) {
+                        a.onComplete();
+                    }
+                    else {
+                        a.onError((Throwable) t);
+                    }
+                    return;
+                }
+                if (e == r) {
+                    r = requested;
+                    if (e == r) {
+                        break;
+                    }
+                    continue;
+                }
+                break; // 칸을 차지한 생산자가 아직 쓰지 않았다. 그 생산자가 쓴 뒤에 WIP 를 올린다.
+            }
+        }
+        emitted = e;
+    }
+}
@@ -0,0 +1,418 @@
+package org.example.sink;
+
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Operators;
+import reactor.core.publisher.Sinks;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 미리 할당한 링 버퍼 하나를 모든 구독자가 공유하는 멀티캐스트 Sink (Disruptor 방식)
+ *
+ * share()/publish() 나 Sinks.many().multicast() 는 가장 느린 구독자의 속도에 전체가 묶인다.
+ * 여기서는 생산자가 요소를 링 버퍼에 한 번만 쓰고, 구독자마다 자신의 읽기 위치(sequence)를 따로 가진다.
+ * 요소를 구독자 수만큼 복사하거나 큐에 넣지 않으며, 할당은 생성 시점의 배열 하나뿐이다.
+ *
+ * 구독자가 버퍼 한 바퀴(capacity)만큼 뒤처지면 구독자별 SlowConsumerPolicy 에 따라
+ *  * BLOCK       : 생산자가 기다린다.
+ *  * DROP_OLDEST : 덮어쓰고, 그 구독자는 놓친 요소를 건너뛴다.
+ *  * DISCONNECT  : 그 구독자만 onError 로 끊는다.
+ *
+ * share() 처럼 Hot 시퀀스이므로 구독자는 구독한 이후에 발행된 요소부터 받는다.
+ * 종료 후에 구독하면 종료 신호만 받는다.
+ *
+ * tryEmitXxx / emitNext 는 한 스레드에서, 또는 직렬로 호출해야 한다. (단일 생산자)
+ * 전달(drain)은 Disruptor 의 event processor 처럼 구독자마다 따로 직렬화된다. 생산자는 발행한 뒤 쉬고 있는 구독자에게만 전달하고,
+ * 이미 다른 스레드(예: request 를 호출한 스레드)에서 전달 중인 구독자는 건너뛴다. 그 구독자가 자기 drain 에서 이어 받는다.
+ * 그래서 한 구독자의 onNext 가 느려도 다른 스레드에서 전달 중이라면 생산자와 다른 구독자는 기다리지 않는다.
+ * 다만 onNext 는 동기 호출이므로 생산자 스레드가 전달을 맡은 동안 onNext 가 느리면 그동안은 생산자도 멈춘다.
+ * 완전히 떼어 놓으려면 느린 구독자에 publishOn 을 붙여 onNext 가 큐에 넣기만 하게 한다.
+ */
+public final class RingBufferMulticastSink<T>
+{
+    private static final VarHandle CLAIMED;
+    private static final VarHandle PUBLISHED;
+
+    static {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            CLAIMED = lookup.findVarHandle(RingBufferMulticastSink.class, "claimed", long.class);
+            PUBLISHED = lookup.findVarHandle(RingBufferMulticastSink.class, "published", long.class);
+        }
+        catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    @SuppressWarnings("rawtypes")
+    private static final Inner[] EMPTY = new Inner[0];
+
+    @SuppressWarnings("rawtypes")
+    private static final AtomicReferenceFieldUpdater<RingBufferMulticastSink, Inner[]> SUBSCRIBERS =
+        AtomicReferenceFieldUpdater.newUpdater(RingBufferMulticastSink.class, Inner[].class, "subscribers");
+    private final Object[] buffer;
+    private final int mask;
+    private final int capacity;
+    private final SlowConsumerPolicy defaultPolicy;
+
+    /**
+     * 생산자가 쓰기 시작한 요소 수. 덮어쓰는 중인 칸을 구독자가 알아챌 수 있게 쓰기 전에 올린다.
+     */
+    @SuppressWarnings("unused")
+    private volatile long claimed;
+
+    /**
+     * 쓰기를 마친 요소 수. 구독자는 이 값보다 작은 sequence 만 읽는다.
+     */
+    @SuppressWarnings("unused")
+    private volatile long published;
+
+    @SuppressWarnings("unchecked")
+    private volatile Inner<T>[] subscribers = EMPTY;
+
+    private volatile boolean done;
+    private Throwable error;
+
+    /**
+     * 생산자만 접근한다. 마지막으로 확인했을 때 BLOCK/DISCONNECT 구독자들이 읽어야 할 가장 오래된 요소.
+     * 덮어쓸 위치가 이 값에 닿기 전까지는 구독자들의 sequence 를 다시 확인하지 않는다.
+     */
+    private long gatingSequence;
+
+    private final LongAdder dropped = new LongAdder();
+
+    /**
+     * @param capacity      링 버퍼 크기. 2의 거듭제곱으로 올림한다.
+     * @param defaultPolicy asFlux() 로 구독한 구독자에게 적용할 정책
+     */
+    public RingBufferMulticastSink(int capacity, SlowConsumerPolicy defaultPolicy) {
+        if (capacity <= 0 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("0 < capacity <= 2^30 required but it was " + capacity);
+        }
+        this.capacity = capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+        this.mask = this.capacity - 1;
+        this.buffer = new Object[this.capacity];
+        this.defaultPolicy = Objects.requireNonNull(defaultPolicy, "defaultPolicy");
+    }
+
+    public Flux<T> asFlux() {
+        return asFlux(defaultPolicy);
+    }
+
+    /**
+     * 구독자마다 다른 정책을 줄 수 있다.
+     */
+    public Flux<T> asFlux(SlowConsumerPolicy policy) {
+        Objects.requireNonNull(policy, "policy");
+        return Flux.from(subscriber -> subscribe(subscriber, policy));
+    }
+
+    /**
+     * BLOCK 정책의 구독자가 한 바퀴 뒤처져 있으면 쓰지 않고 FAIL_OVERFLOW 를 반환한다.
+     */
+    public Sinks.EmitResult tryEmitNext(T value) {
+        Objects.requireNonNull(value, "value");
+        if (done) {
+            return Sinks.EmitResult.FAIL_TERMINATED;
+        }
+        long seq = (long) PUBLISHED.getOpaque(this);
+        long wrap = seq - capacity; // 이번에 덮어쓸 칸에 들어있던 요소
+        if (wrap >= gatingSequence) {
+            // 덮어쓸 칸을 아직 읽지 않은 구독자가 있을 수 있으므로 다시 확인한다. (Disruptor 의 gating sequence 캐시)
+            long min = seq; // 이후에 들어오는 구독자는 seq 이후부터 읽는다.
+            for (Inner<T> inner : subscribers) {
+                if (inner.policy == SlowConsumerPolicy.DROP_OLDEST) {
+                    continue;
+                }
+                long sequence = inner.sequence;
+                if (sequence <= wrap) {
+                    if (inner.policy == SlowConsumerPolicy.BLOCK) {
+                        return Sinks.EmitResult.FAIL_OVERFLOW;
+                    }
+                    inner.disconnected = true;
+                }
+                else {
+                    min = Math.min(min, sequence);
+                }
+            }
+            gatingSequence = min;
+        }
+        CLAIMED.setRelease(this, seq + 1);
+        VarHandle.storeStoreFence(); // claimed 를 올린 뒤에 칸을 덮어쓴다.
+        buffer[(int) seq & mask] = value;
+        PUBLISHED.setRelease(this, seq + 1);
+
+        drain();
+        return Sinks.EmitResult.OK;
+    }
+
+    /**
+     * BLOCK 정책의 구독자가 따라올 때까지 기다렸다가 쓴다.
+     * 그 구독자의 request 가 이 스레드에서만 일어난다면 영원히 기다리게 되므로 주의한다.
+     */
+    public Sinks.EmitResult emitNext(T value) {
+        int spins = 0;
+        for (;;) {
+            Sinks.EmitResult result = tryEmitNext(value);
+            if (result != Sinks.EmitResult.FAIL_OVERFLOW) {
+                return result;
+            }
+            if (++spins < 100) {
+                Thread.onSpinWait();
+            }
+            else {
+                LockSupport.parkNanos(1_000);
+            }
+        }
+    }
+
+    public Sinks.EmitResult tryEmitComplete() {
+        if (done) {
+            return Sinks.EmitResult.FAIL_TERMINATED;
+        }
+        done = true;
+        drain();
+        return Sinks.EmitResult.OK;
+    }
+
+    public Sinks.EmitResult tryEmitError(Throwable error) {
+        Objects.requireNonNull(error, "error");
+        if (done) {
+            return Sinks.EmitResult.FAIL_TERMINATED;
+        }
+        this.error = error;
+        done = true;
+        drain();
+        return Sinks.EmitResult.OK;
+    }
+
+    public int currentSubscriberCount() {
+        return subscribers.length;
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    /**
+     * DROP_OLDEST 구독자들이 건너뛴 요소 수의 합
+     */
+    public long droppedCount() {
+        return dropped.sum();
+    }
+
+    private void subscribe(Subscriber<? super T> actual, SlowConsumerPolicy policy) {
+        Inner<T> inner = new Inner<>(actual, this, policy);
+        add(inner);
+        // 배열에 넣은 뒤에 시작 위치를 정해야 생산자가 이 구독자를 건너뛰고 덮어쓰는 일이 없다.
+        inner.sequence = (long) PUBLISHED.getAcquire(this);
+        actual.onSubscribe(inner);
+        if (done) {
+            inner.drain();
+        }
+    }
+
+    /**
+     * 각 구독자에게 요청 수만큼 전달한다. 구독자마다 WIP 로 직렬화하므로 다른 스레드에서 전달 중인 구독자는 기다리지 않고 건너뛴다.
+     * 대신 요소 하나를 발행할 때마다 구독자 수만큼 원자 연산이 생긴다.
+     */
+    void drain() {
+        for (Inner<T> inner : subscribers) {
+            inner.drain();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void add(Inner<T> inner) {
+        for (;;) {
+            Inner<T>[] a = subscribers;
+            Inner<T>[] b = new Inner[a.length + 1];
+            System.arraycopy(a, 0, b, 0, a.length);
+            b[a.length] = inner;
+            if (SUBSCRIBERS.compareAndSet(this, a, b)) {
+                return;
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void remove(Inner<T> inner) {
+        for (;;) {
+            Inner<T>[] a = subscribers;
+            int index = -1;
+            for (int i = 0; i < a.length; i++) {
+                if (a[i] == inner) {
+                    index = i;
+                    break;
+                }
+            }
+            if (index < 0) {
+                return;
+            }
+            Inner<T>[] b;
+            if (a.length == 1) {
+                b = EMPTY;
+            }
+            else {
+                b = new Inner[a.length - 1];
+                System.arraycopy(a, 0, b, 0, index);
+                System.arraycopy(a, index + 1, b, index, a.length - index - 1);
+            }
+            if (SUBSCRIBERS.compareAndSet(this, a, b)) {
+                return;
+            }
+        }
+    }
+
+    static final class Inner<T> implements Subscription
+    {
+        @SuppressWarnings("rawtypes")
+        static final AtomicLongFieldUpdater<Inner> SEQUENCE =
+            AtomicLongFieldUpdater.newUpdater(Inner.class, "sequence");
+        @SuppressWarnings("rawtypes")
+        static final AtomicLongFieldUpdater<Inner> REQUESTED =
+            AtomicLongFieldUpdater.newUpdater(Inner.class, "requested");
+        @SuppressWarnings("rawtypes")
+        static final AtomicIntegerFieldUpdater<Inner> WIP =
+            AtomicIntegerFieldUpdater.newUpdater(Inner.class, "wip");
+
+        final Subscriber<? super T> actual;
+        final RingBufferMulticastSink<T> parent;
+        final SlowConsumerPolicy policy;
+
+        /**
+         * 다음에 읽을 요소. 생산자는 이 값을 보고 덮어써도 되는지 판단한다.
+         */
+        volatile long sequence = Long.MAX_VALUE;
+        volatile long requested;
+        volatile boolean cancelled;
+        volatile boolean disconnected;
+        volatile int wip;
+
+        long emitted; // drain 안에서만 접근
+
+        Inner(Subscriber<? super T> actual, RingBufferMulticastSink<T> parent, SlowConsumerPolicy policy) {
+            this.actual = actual;
+            this.parent = parent;
+            this.policy = policy;
+        }
+
+        @Override
+        public void request(long n) {
+            if (Operators.validate(n)) {
+                Operators.addCap(REQUESTED, this, n);
+                drain();
+            }
+        }
+
+        @Override
+        public void cancel() {
+            if (!cancelled) {
+                cancelled = true;
+                parent.remove(this);
+            }
+        }
+
+        void drain() {
+            if (WIP.getAndIncrement(this) != 0) {
+                return;
+            }
+            int missed = 1;
+            for (;;) {
+                drainLoop();
+                missed = WIP.addAndGet(this, -missed);
+                if (missed == 0) {
+                    return;
+                }
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private void drainLoop() {
+            RingBufferMulticastSink<T> p = parent;
+            Object[] buffer = p.buffer;
+            int mask = p.mask;
+            int capacity = p.capacity;
+            long r = requested;
+            long e = emitted;
+            long seq = sequence;
+
+            for (;;) {
+                if (cancelled) {
+                    return;
+                }
+                if (disconnected) {
+                    disconnect();
+                    return;
+                }
+                boolean d = p.done;
+                long pub = (long) PUBLISHED.getAcquire(p);
+                if (seq >= pub) {
+                    if (d) {
+                        terminate();
+                        return;
+                    }
+                    break;
+                }
+                if (e == r) {
+                    break;
+                }
+                if (policy != SlowConsumerPolicy.BLOCK) {
+                    // BLOCK 구독자가 읽지 않은 칸은 생산자가 덮어쓰지 않으므로 나머지 정책만 확인한다.
+                    long oldest = (long) CLAIMED.getAcquire(p) - capacity;
+                    if (seq < oldest) {
+                        // 한 바퀴 이상 뒤처졌다.
+                        if (policy == SlowConsumerPolicy.DISCONNECT) {
+                            disconnected = true;
+                            continue;
+                        }
+                        p.dropped.add(oldest - seq);
+                        seq = oldest;
+                        SEQUENCE.lazySet(this, seq);
+                        continue;
+                    }
+                }
+                T value = (T) buffer[(int) seq & mask];
+                if (policy != SlowConsumerPolicy.BLOCK) {
+                    VarHandle.loadLoadFence();
+                    if ((long) CLAIMED.getAcquire(p) - capacity > seq) {
+                        continue; // 읽는 도중 덮어써졌다. 다시 돌면서 건너뛴다.
+                    }
+                }
+                SEQUENCE.lazySet(this, ++seq); // 생산자에게 이 칸을 다 읽었음을 알린다. (release 로 충분)
+                actual.onNext(value);
+                e++;
+            }
+            emitted = e;
+        }
+
+        private void disconnect() {
+            cancelled = true;
+            parent.remove(this);
+            actual.onError(Exceptions.failWithOverflow(
+                "The subscriber fell more than " + parent.capacity + " elements behind and was disconnected"));
+        }
+
+        private void terminate() {
+            cancelled = true;
+            parent.remove(this);
+            Throwable error = parent.error;
+            if (error != null) {
+                actual.onError(error);
+            }
+            else {
+                actual.onComplete();
+            }
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package org.example.sink;
+
+/**
+ * 링 버퍼를 한 바퀴 돌 때까지 따라오지 못한 구독자를 어떻게 처리할지 정한다.
+ */
+public enum SlowConsumerPolicy
+{
+    /**
+     * 구독자가 따라올 때까지 생산자를 멈춘다. tryEmitNext 는 FAIL_OVERFLOW 를 반환하고, emitNext 는 기다린다.
+     */
+    BLOCK,
+
+    /**
+     * 생산자는 멈추지 않고 가장 오래된 요소를 덮어쓴다. 구독자는 놓친 요소를 건너뛰고 남은 것 중 가장 오래된 것부터 받는다.
+     */
+    DROP_OLDEST,
+
+    /**
+     * 뒤처진 구독자를 onError(Exceptions.failWithOverflow) 로 끊는다. 다른 구독자에게는 영향이 없다.
+     */
+    DISCONNECT
+}
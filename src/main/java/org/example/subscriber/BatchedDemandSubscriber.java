@@ -0,0 +1,90 @@
+package org.example.subscriber;
+
+import org.reactivestreams.Subscription;
+import reactor.core.publisher.BaseSubscriber;
+
+/**
+ * 요소마다 request(1)을 보내는 대신, 묶음 단위로 요청하는 Subscriber
+ * MyCustomSubscriberSafety 처럼 BaseSubscriber 를 상속하므로 BaseSubscriber 의 안전성(요청 수 검증, 중복 구독 방지, 취소 처리)은 그대로 유지된다.
+ *
+ * 최초 구독 시 highTide 만큼 요청하고, 그 중 lowTide 개를 소비할 때마다 lowTide 만큼 다시 채운다.
+ * limitRate(highTide, lowTide) 와 같은 규칙이며, 예를 들어 (256, 192) 이면 256개 요청 후 75%를 소비할 때마다 192개를 추가 요청한다.
+ * 요청 왕복이 요소당 한 번에서 lowTide 개당 한 번으로 줄어든다.
+ *
+ * onSubscribe, onNext 에 해당하는 hook 은 요청 관리를 위해 final 로 막아두었고, 대신 hookOnBatchedSubscribe, hookOnItem 을 재정의한다.
+ */
+public abstract class BatchedDemandSubscriber<T> extends BaseSubscriber<T>
+{
+    private final int highTide;
+    private final int lowTide;
+
+    private int consumed; // onNext 는 직렬로 호출되므로 volatile 이 필요없다.
+
+    /**
+     * lowTide 는 highTide 의 75% 로 정한다.
+     */
+    protected BatchedDemandSubscriber(int highTide) {
+        this(highTide, defaultLowTide(highTide));
+    }
+
+    protected BatchedDemandSubscriber(int highTide, int lowTide) {
+        if (highTide <= 0) {
+            throw new IllegalArgumentException("highTide > 0 required but it was " + highTide);
+        }
+        if (lowTide <= 0 || lowTide > highTide) {
+            throw new IllegalArgumentException("0 < lowTide <= highTide required but it was " + lowTide);
+        }
+        this.highTide = highTide;
+        this.lowTide = lowTide;
+    }
+
+    static int defaultLowTide(int highTide) {
+        if (highTide == Integer.MAX_VALUE) {
+            return Integer.MAX_VALUE;
+        }
+        return Math.max(1, highTide - (highTide >> 2));
+    }
+
+    @Override
+    protected final void hookOnSubscribe(Subscription subscription) {
+        hookOnBatchedSubscribe(subscription);
+        if (highTide == Integer.MAX_VALUE) {
+            requestUnbounded(); // 무제한 요청이면 다시 채울 필요가 없다.
+        }
+        else {
+            request(highTide); // 구독 후, 최초 요청
+        }
+    }
+
+    @Override
+    protected final void hookOnNext(T value) {
+        hookOnItem(value);
+        if (highTide == Integer.MAX_VALUE) {
+            return;
+        }
+        if (++consumed == lowTide) {
+            consumed = 0;
+            request(lowTide); // lowTide 만큼 소비했으므로 한 번에 추가 요청
+        }
+    }
+
+    /**
+     * 최초 요청을 보내기 전에 호출된다.
+     */
+    protected void hookOnBatchedSubscribe(Subscription subscription) {
+        // NO-OP
+    }
+
+    /**
+     * 데이터를 한 건 수신했을 때 호출된다. 처리가 끝난 뒤에 추가 요청 여부를 판단한다.
+     */
+    protected abstract void hookOnItem(T value);
+
+    public int getHighTide() {
+        return highTide;
+    }
+
+    public int getLowTide() {
+        return lowTide;
+    }
+}
@@ -10,6 +10,7 @@ import org.reactivestreams.Subscription;
  * this.subscription.request(n) 에서 숫자가 0 이하인지, 구독(subscription) 상태는 정상인지 등을 확인하지 않고, 1개씩 계속 요청했기 때문이다.
  *
  * 안전한 구현은 MyCustomSubscriberSafety 확인
+ * 규칙을 직접 지키면서 TCK 를 통과하는 Publisher 구현은 org.example.publisher.ArrayPublisher 확인
  */
 public class MyCustomSubscriber implements Subscriber<String>
 {
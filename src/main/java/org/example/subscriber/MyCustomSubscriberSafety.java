@@ -10,6 +10,8 @@ import reactor.core.publisher.BaseSubscriber;
  * Subscriber의 onSubscribe, onNext, onError, onComplete 는 모두 재정의할 수 없게 final 로 선언되어 있다.
  *
  * 제공하는 hook 을 통해서, 상황에 따라 얼마든지 조정이 가능하다.
+ *
+ * 여기서는 1개씩 요청하지만, 요소마다 요청 왕복이 생기므로 처리량이 중요하다면 BatchedDemandSubscriber 확인
  */
 public class MyCustomSubscriberSafety extends BaseSubscriber<String>
 {
@@ -0,0 +1,458 @@
+package org.example.trace;
+
+import org.example.scheduler.LatencyHistogram;
+import org.reactivestreams.Subscription;
+import reactor.core.CoreSubscriber;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Operators;
+import reactor.core.publisher.SignalType;
+import reactor.util.context.Context;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Function;
+
+/**
+ * log() 대신 부하 중에도 켜 둘 수 있는 신호 추적기
+ *
+ * log() 는 신호마다 문자열을 만들어 로거로 보내므로 실제 트래픽에서는 켜 둘 수 없다.
+ * SignalTracer 는 신호를 스레드별 링 버퍼(long[])에 고정 크기 바이너리 레코드로 쓰기만 하고, 문자열은 덤프할 때 만든다.
+ *  * 레코드 : nanoTime, 연산자 이름(번호), 신호 종류, request 수. 스레드는 버퍼 단위로 기록한다.
+ *  * 신호를 기록할 때 할당이 없다. (스레드마다 처음 한 번 버퍼를 만든다.)
+ *  * 버퍼가 차면 가장 오래된 레코드부터 덮어쓴다.
+ *  * sampleRate 가 n 이면 onNext/request 는 n 개 중 하나만 기록한다. onSubscribe/cancel/onComplete/onError 는 항상 기록한다.
+ *  * 연산자별 onNext 간격(onNext 에서 다음 onNext 까지)을 히스토그램으로 모은다. 샘플링 중에는 기록한 onNext 와 바로 다음 onNext 의 간격을 잰다.
+ *
+ * <pre>
+ * SignalTracer tracer = SignalTracer.create();
+ *
+ * Flux.range(1, 6)
+ *     .transform(tracer.trace("range"))
+ *     .subscribeOn(Schedulers.boundedElastic())
+ *     .map(i -> i + 10)
+ *     .transform(tracer.trace("map"))
+ *     .subscribe(...);
+ *
+ * tracer.dumpText(System.out);             // 시간순으로 사람이 읽을 수 있게
+ * tracer.dump(Path.of("trace.bin"));       // 바이너리로 저장했다가 SignalTracer.readText 로 읽는다.
+ * tracer.onNextLatency("map").valueAtPercentile(99);
+ * </pre>
+ *
+ * 스레드별 버퍼는 그 스레드가 처음 신호를 기록할 때 만들어지고 tracer 가 살아있는 동안 유지된다.
+ * 짧게 살다 사라지는 스레드가 많다면 버퍼도 그만큼 쌓이므로 recordsPerThread 를 작게 잡는다.
+ */
+public final class SignalTracer
+{
+    public static final int DEFAULT_RECORDS_PER_THREAD = 8192;
+
+    static final int RECORD_LONGS = 4; // marker, nanoTime, meta(operator << 8 | signal), amount
+    static final int MAX_OPERATORS = 1 << 23;
+    static final SignalType[] SIGNALS = SignalType.values();
+
+    private static final int MAGIC = 0x52545243; // "RTRC"
+    private static final int VERSION = 1;
+
+    private final int recordsPerThread;
+    private final int sampleRate;
+    private final Map<String, Integer> operatorIds = new ConcurrentHashMap<>();
+    private final List<String> operatorNames = new CopyOnWriteArrayList<>();
+    private final List<LatencyHistogram> latencies = new CopyOnWriteArrayList<>();
+    private final List<ThreadBuffer> buffers = new CopyOnWriteArrayList<>();
+    private final ThreadLocal<ThreadBuffer> buffer = ThreadLocal.withInitial(this::newBuffer);
+
+    private SignalTracer(int recordsPerThread, int sampleRate) {
+        if (recordsPerThread <= 0 || recordsPerThread > 1 << 26) {
+            throw new IllegalArgumentException("0 < recordsPerThread <= 2^26 required but it was " + recordsPerThread);
+        }
+        if (sampleRate <= 0) {
+            throw new IllegalArgumentException("sampleRate > 0 required but it was " + sampleRate);
+        }
+        this.recordsPerThread = recordsPerThread == 1 ? 1 : Integer.highestOneBit(recordsPerThread - 1) << 1;
+        this.sampleRate = sampleRate;
+    }
+
+    public static SignalTracer create() {
+        return new SignalTracer(DEFAULT_RECORDS_PER_THREAD, 1);
+    }
+
+    /**
+     * @param recordsPerThread 스레드별 링 버퍼에 남길 레코드 수. 2의 거듭제곱으로 올림하며 레코드 하나는 32바이트다.
+     * @param sampleRate       onNext/request 를 이 수 중 하나만 기록한다. 1 이면 전부
+     */
+    public static SignalTracer create(int recordsPerThread, int sampleRate) {
+        return new SignalTracer(recordsPerThread, sampleRate);
+    }
+
+    /**
+     * 이 지점을 지나는 신호를 name 으로 기록하는 연산자. transform 에 넘긴다.
+     */
+    public <T> Function<Flux<T>, Flux<T>> trace(String name) {
+        int operator = operatorId(Objects.requireNonNull(name, "name"));
+        return source -> Flux.from(actual -> source.subscribe(
+            new TracingSubscriber<T>(Operators.toCoreSubscriber(actual), this, operator)));
+    }
+
+    /**
+     * name 연산자의 onNext 에서 다음 onNext 까지의 간격(ns). 기록이 없으면 비어있는 스냅샷
+     */
+    public LatencyHistogram.Snapshot onNextLatency(String name) {
+        Integer id = operatorIds.get(name);
+        return id == null ? new LatencyHistogram().snapshot() : latencies.get(id).snapshot();
+    }
+
+    /**
+     * 연산자 이름 -> onNext 간격. trace 를 만든 순서대로
+     */
+    public Map<String, LatencyHistogram.Snapshot> onNextLatencies() {
+        Map<String, LatencyHistogram.Snapshot> result = new LinkedHashMap<>();
+        for (int i = 0; i < operatorNames.size(); i++) {
+            result.put(operatorNames.get(i), latencies.get(i).snapshot());
+        }
+        return result;
+    }
+
+    /**
+     * 모든 스레드의 레코드를 시간순으로 한 줄씩 쓴다.
+     * 형식: nanoTime [thread] operator SIGNAL (request 면 요청 수)
+     */
+    public void dumpText(Appendable out) {
+        List<ThreadRecords> snapshot = new ArrayList<>();
+        for (ThreadBuffer b : buffers) {
+            snapshot.add(b.snapshot());
+        }
+        try {
+            writeText(new ArrayList<>(operatorNames), snapshot, out);
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public String dumpText() {
+        StringBuilder sb = new StringBuilder();
+        dumpText(sb);
+        return sb.toString();
+    }
+
+    /**
+     * 레코드를 바이너리로 저장한다. readText 로 다시 읽을 수 있다.
+     */
+    public void dump(Path file) throws IOException {
+        List<String> names = new ArrayList<>(operatorNames);
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(names.size());
+            for (String name : names) {
+                out.writeUTF(name);
+            }
+            out.writeInt(buffers.size());
+            for (ThreadBuffer b : buffers) {
+                ThreadRecords records = b.snapshot();
+                out.writeLong(records.threadId);
+                out.writeUTF(records.threadName);
+                out.writeInt(records.size);
+                for (int i = 0; i < records.size; i++) {
+                    out.writeLong(records.nanos[i]);
+                    out.writeLong(records.meta[i]);
+                    out.writeLong(records.amounts[i]);
+                }
+            }
+        }
+    }
+
+    /**
+     * dump 로 저장한 파일을 dumpText 와 같은 형식으로 쓴다.
+     */
+    public static void readText(Path file, Appendable out) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("Not a SignalTracer dump: " + file);
+            }
+            int nameCount = in.readInt();
+            List<String> names = new ArrayList<>(nameCount);
+            for (int i = 0; i < nameCount; i++) {
+                names.add(in.readUTF());
+            }
+            int threadCount = in.readInt();
+            List<ThreadRecords> threads = new ArrayList<>(threadCount);
+            for (int t = 0; t < threadCount; t++) {
+                long threadId = in.readLong();
+                String threadName = in.readUTF();
+                int size = in.readInt();
+                ThreadRecords records = new ThreadRecords(threadId, threadName, size);
+                for (int i = 0; i < size; i++) {
+                    records.add(in.readLong(), in.readLong(), in.readLong());
+                }
+                threads.add(records);
+            }
+            writeText(names, threads, out);
+        }
+    }
+
+    private static void writeText(List<String> names, List<ThreadRecords> threads, Appendable out) throws IOException {
+        List<long[]> rows = new ArrayList<>(); // {nanos, threadIndex, recordIndex}
+        for (int t = 0; t < threads.size(); t++) {
+            ThreadRecords records = threads.get(t);
+            for (int i = 0; i < records.size; i++) {
+                rows.add(new long[] {records.nanos[i], t, i});
+            }
+        }
+        rows.sort(Comparator.comparingLong(row -> row[0]));
+        for (long[] row : rows) {
+            ThreadRecords records = threads.get((int) row[1]);
+            int i = (int) row[2];
+            long meta = records.meta[i];
+            int operator = (int) (meta >>> 8);
+            SignalType signal = SIGNALS[(int) (meta & 0xFF)];
+            out.append(Long.toString(row[0]))
+                .append(" [").append(records.threadName).append("] ")
+                .append(operator < names.size() ? names.get(operator) : "#" + operator)
+                .append(' ').append(signal.name());
+            if (signal == SignalType.REQUEST) {
+                long amount = records.amounts[i];
+                out.append('(').append(amount == Long.MAX_VALUE ? "unbounded" : Long.toString(amount)).append(')');
+            }
+            out.append('\n');
+        }
+    }
+
+    private int operatorId(String name) {
+        Integer id = operatorIds.get(name);
+        if (id != null) {
+            return id;
+        }
+        synchronized (operatorNames) {
+            return operatorIds.computeIfAbsent(name, n -> {
+                if (operatorNames.size() >= MAX_OPERATORS) {
+                    throw new IllegalStateException("Too many traced operators: " + MAX_OPERATORS);
+                }
+                latencies.add(new LatencyHistogram());
+                operatorNames.add(n);
+                return operatorNames.size() - 1;
+            });
+        }
+    }
+
+    private ThreadBuffer newBuffer() {
+        ThreadBuffer b = new ThreadBuffer(Thread.currentThread(), recordsPerThread);
+        buffers.add(b);
+        return b;
+    }
+
+    ThreadBuffer currentBuffer() {
+        return buffer.get();
+    }
+
+    /**
+     * 한 스레드만 쓰는 링 버퍼. 덤프하는 스레드가 쓰는 도중의 레코드를 읽지 않도록 레코드마다 marker(seqlock)를 둔다.
+     */
+    static final class ThreadBuffer
+    {
+        static final VarHandle LONGS = MethodHandles.arrayElementVarHandle(long[].class);
+        static final VarHandle POSITION;
+
+        static {
+            try {
+                POSITION = MethodHandles.lookup().findVarHandle(ThreadBuffer.class, "position", long.class);
+            }
+            catch (ReflectiveOperationException e) {
+                throw new ExceptionInInitializerError(e);
+            }
+        }
+
+        final Thread owner;
+        final long threadId;
+        final String threadName;
+        final long[] data;
+        final int mask;
+
+        @SuppressWarnings("unused")
+        long position; // 쓴 레코드 수. 쓰는 스레드만 올린다.
+
+        @SuppressWarnings("deprecation")
+        ThreadBuffer(Thread thread, int records) {
+            this.owner = thread;
+            this.threadId = thread.getId();
+            this.threadName = thread.getName();
+            this.data = new long[records * RECORD_LONGS];
+            this.mask = records - 1;
+        }
+
+        void write(int operator, SignalType signal, long nanos, long amount) {
+            write(nanos, ((long) operator << 8) | signal.ordinal(), amount);
+        }
+
+        void write(long nanos, long meta, long amount) {
+            long seq = (long) POSITION.getOpaque(this);
+            int base = (int) (seq & mask) * RECORD_LONGS;
+            LONGS.setOpaque(data, base, 0L); // 쓰는 중
+            VarHandle.storeStoreFence();
+            data[base + 1] = nanos;
+            data[base + 2] = meta;
+            data[base + 3] = amount;
+            LONGS.setRelease(data, base, seq + 1);
+            POSITION.setRelease(this, seq + 1);
+        }
+
+        ThreadRecords snapshot() {
+            long end = (long) POSITION.getAcquire(this);
+            long start = Math.max(0, end - (mask + 1));
+            ThreadRecords records = new ThreadRecords(threadId, threadName, (int) (end - start));
+            for (long seq = start; seq < end; seq++) {
+                int base = (int) (seq & mask) * RECORD_LONGS;
+                long marker = (long) LONGS.getAcquire(data, base);
+                long nanos = data[base + 1];
+                long meta = data[base + 2];
+                long amount = data[base + 3];
+                VarHandle.loadLoadFence();
+                if (marker == seq + 1 && (long) LONGS.getOpaque(data, base) == marker) {
+                    records.add(nanos, meta, amount); // 읽는 동안 덮어쓰이지 않은 레코드만
+                }
+            }
+            return records;
+        }
+    }
+
+    static final class ThreadRecords
+    {
+        final long threadId;
+        final String threadName;
+        final long[] nanos;
+        final long[] meta;
+        final long[] amounts;
+        int size;
+
+        ThreadRecords(long threadId, String threadName, int capacity) {
+            this.threadId = threadId;
+            this.threadName = threadName;
+            this.nanos = new long[capacity];
+            this.meta = new long[capacity];
+            this.amounts = new long[capacity];
+        }
+
+        void add(long nanos, long meta, long amount) {
+            this.nanos[size] = nanos;
+            this.meta[size] = meta;
+            this.amounts[size] = amount;
+            size++;
+        }
+    }
+
+    static final class TracingSubscriber<T> implements CoreSubscriber<T>, Subscription
+    {
+        final CoreSubscriber<? super T> actual;
+        final SignalTracer tracer;
+        final int operator;
+        final int sampleRate;
+        final LatencyHistogram latency;
+
+        Subscription upstream;
+        ThreadBuffer buffer; // 마지막으로 쓴 스레드의 버퍼. 주인 스레드가 맞을 때만 쓰므로 경쟁해도 괜찮다.
+
+        // onNext 는 직렬로 호출되므로 아래 필드는 동기화 없이 쓴다.
+        int nextCountdown;
+        boolean measureNext;
+        long lastOnNext;
+
+        int requestCountdown; // request 는 여러 스레드에서 올 수 있어 근사치다.
+
+        TracingSubscriber(CoreSubscriber<? super T> actual, SignalTracer tracer, int operator) {
+            this.actual = actual;
+            this.tracer = tracer;
+            this.operator = operator;
+            this.sampleRate = tracer.sampleRate;
+            this.latency = tracer.latencies.get(operator);
+            this.nextCountdown = 1;
+            this.requestCountdown = 1;
+        }
+
+        void record(SignalType signal, long nanos, long amount) {
+            ThreadBuffer b = buffer;
+            if (b == null || b.owner != Thread.currentThread()) {
+                b = tracer.currentBuffer();
+                buffer = b;
+            }
+            b.write(operator, signal, nanos, amount);
+        }
+
+        @Override
+        public void onSubscribe(Subscription s) {
+            if (Operators.validate(upstream, s)) {
+                upstream = s;
+                record(SignalType.ON_SUBSCRIBE, System.nanoTime(), 0);
+                actual.onSubscribe(this);
+            }
+        }
+
+        @Override
+        public void onNext(T t) {
+            boolean timed = measureNext;
+            boolean startPair = --nextCountdown == 0;
+            if (timed || startPair) {
+                long now = System.nanoTime();
+                if (startPair) {
+                    // 간격을 재려고 시간만 읽은 다음 onNext 는 링 버퍼에 남기지 않는다. (n 개 중 하나만 기록)
+                    record(SignalType.ON_NEXT, now, 0);
+                }
+                if (timed) {
+                    latency.record(now - lastOnNext);
+                }
+                if (startPair) {
+                    nextCountdown = sampleRate;
+                }
+                measureNext = startPair;
+                lastOnNext = now;
+            }
+            actual.onNext(t);
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            record(SignalType.ON_ERROR, System.nanoTime(), 0);
+            actual.onError(t);
+        }
+
+        @Override
+        public void onComplete() {
+            record(SignalType.ON_COMPLETE, System.nanoTime(), 0);
+            actual.onComplete();
+        }
+
+        @Override
+        public void request(long n) {
+            if (--requestCountdown <= 0) {
+                requestCountdown = sampleRate;
+                record(SignalType.REQUEST, System.nanoTime(), n);
+            }
+            upstream.request(n);
+        }
+
+        @Override
+        public void cancel() {
+            record(SignalType.CANCEL, System.nanoTime(), 0);
+            upstream.cancel();
+        }
+
+        @Override
+        public Context currentContext() {
+            return actual.currentContext();
+        }
+    }
+}
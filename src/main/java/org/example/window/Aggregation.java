@@ -0,0 +1,22 @@
+package org.example.window;
+
+import java.util.function.BiConsumer;
+import java.util.function.BinaryOperator;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * pane 하나를 집계하는 방법. Collector 와 같지만 combiner 는 두 상태를 바꾸지 않고 새 상태를 만들어야 한다.
+ * 슬라이딩 윈도우는 같은 pane 상태를 여러 윈도우에서 다시 합치기 때문이다.
+ *
+ * @param supplier    빈 상태
+ * @param accumulator 상태에 요소 하나를 더한다.
+ * @param combiner    두 상태를 합친 새 상태. 교환법칙이 성립해야 한다.
+ * @param finisher    상태를 결과로 바꾼다. 상태를 바꾸면 안 된다.
+ */
+record Aggregation<T, S, R>(Supplier<S> supplier,
+                            BiConsumer<S, ? super T> accumulator,
+                            BinaryOperator<S> combiner,
+                            Function<? super S, ? extends R> finisher)
+{
+}
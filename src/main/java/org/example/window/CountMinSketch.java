@@ -0,0 +1,83 @@
+package org.example.window;
+
+/**
+ * 키별 빈도를 근사하는 Count-Min sketch
+ *
+ * depth 개의 행마다 width 개의 카운터를 두고, 키를 행마다 다른 칸에 더한다. 추정값은 그 칸들의 최솟값이다.
+ * 실제보다 작게 추정하는 일은 없고, 확률 1 - delta 로 실제값 + epsilon * 전체 개수 이하다.
+ * (width = e / epsilon, depth = ln(1 / delta)) 행별 해시는 해시 하나를 이중 해싱으로 늘려 만든다.
+ */
+final class CountMinSketch
+{
+    private final int width;
+    private final int depth;
+    private final int mask;
+    private final long[] counts;
+    private long total;
+
+    CountMinSketch(double epsilon, double delta) {
+        this(widthFor(epsilon), depthFor(delta));
+    }
+
+    private CountMinSketch(int width, int depth) {
+        this.width = width;
+        this.depth = depth;
+        this.mask = width - 1;
+        this.counts = new long[width * depth];
+    }
+
+    static int widthFor(double epsilon) {
+        if (!(epsilon > 0 && epsilon < 1)) {
+            throw new IllegalArgumentException("0 < epsilon < 1 required but it was " + epsilon);
+        }
+        int width = (int) Math.ceil(Math.E / epsilon);
+        if (width > 1 << 24) {
+            throw new IllegalArgumentException("epsilon is too small: " + epsilon);
+        }
+        return width == 1 ? 1 : Integer.highestOneBit(width - 1) << 1;
+    }
+
+    static int depthFor(double delta) {
+        if (!(delta > 0 && delta < 1)) {
+            throw new IllegalArgumentException("0 < delta < 1 required but it was " + delta);
+        }
+        return Math.max(1, (int) Math.ceil(Math.log(1 / delta)));
+    }
+
+    /**
+     * 키를 count 만큼 더하고 더한 뒤의 추정값을 반환한다.
+     */
+    long add(long hash, long count) {
+        long h2 = Long.rotateLeft(hash, 32) | 1;
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            int index = row * width + (int) ((hash + row * h2) & mask);
+            long value = counts[index] += count;
+            estimate = Math.min(estimate, value);
+        }
+        total += count;
+        return estimate;
+    }
+
+    long estimate(long hash) {
+        long h2 = Long.rotateLeft(hash, 32) | 1;
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            estimate = Math.min(estimate, counts[row * width + (int) ((hash + row * h2) & mask)]);
+        }
+        return estimate;
+    }
+
+    long total() {
+        return total;
+    }
+
+    static CountMinSketch merged(CountMinSketch a, CountMinSketch b) {
+        CountMinSketch merged = new CountMinSketch(a.width, a.depth);
+        for (int i = 0; i < merged.counts.length; i++) {
+            merged.counts[i] = a.counts[i] + b.counts[i];
+        }
+        merged.total = a.total + b.total;
+        return merged;
+    }
+}
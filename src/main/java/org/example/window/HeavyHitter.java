@@ -0,0 +1,8 @@
+package org.example.window;
+
+/**
+ * 윈도우 안에서 자주 나온 키와 Count-Min 으로 추정한 횟수. 추정값은 실제보다 작지 않다.
+ */
+public record HeavyHitter<K>(K key, long count)
+{
+}
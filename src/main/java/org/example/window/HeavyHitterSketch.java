@@ -0,0 +1,98 @@
+package org.example.window;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Count-Min sketch 와 후보 키 k 개로 빈도 상위 키를 찾는 pane 상태
+ *
+ * 키 객체는 후보 k 개만 보관한다. 후보가 아닌 키의 추정값이 후보 중 가장 작은 값을 넘으면 그 후보와 바꾼다.
+ * 후보의 추정값은 늘어나기만 하므로, 마지막으로 잰 최솟값 이하인 키는 후보를 다시 훑지 않고 건너뛴다.
+ */
+final class HeavyHitterSketch<K>
+{
+    private final int k;
+    private final CountMinSketch sketch;
+    private final Map<K, Long> candidates;
+    private long minCandidate;
+
+    HeavyHitterSketch(int k, double epsilon, double delta) {
+        this(k, new CountMinSketch(epsilon, delta));
+    }
+
+    private HeavyHitterSketch(int k, CountMinSketch sketch) {
+        this.k = k;
+        this.sketch = sketch;
+        this.candidates = new HashMap<>(k * 2);
+    }
+
+    static long hash(Object key) {
+        return HyperLogLog.hash(key.hashCode());
+    }
+
+    void add(K key) {
+        long estimate = sketch.add(hash(key), 1);
+        if (candidates.size() < k || candidates.containsKey(key)) {
+            candidates.put(key, estimate);
+            return;
+        }
+        if (estimate <= minCandidate) {
+            return;
+        }
+        K minKey = null;
+        long min = Long.MAX_VALUE;
+        for (Map.Entry<K, Long> entry : candidates.entrySet()) {
+            if (entry.getValue() < min) {
+                min = entry.getValue();
+                minKey = entry.getKey();
+            }
+        }
+        if (estimate > min) {
+            candidates.remove(minKey);
+            candidates.put(key, estimate);
+            min = estimate;
+            for (long count : candidates.values()) {
+                min = Math.min(min, count);
+            }
+        }
+        minCandidate = min;
+    }
+
+    static <K> HeavyHitterSketch<K> combine(HeavyHitterSketch<K> a, HeavyHitterSketch<K> b) {
+        HeavyHitterSketch<K> combined = new HeavyHitterSketch<>(a.k, CountMinSketch.merged(a.sketch, b.sketch));
+        List<HeavyHitter<K>> top = combined.rank(a.candidates.keySet(), b.candidates.keySet());
+        for (HeavyHitter<K> hitter : top) {
+            combined.candidates.put(hitter.key(), hitter.count());
+        }
+        combined.minCandidate = top.size() < a.k ? 0 : top.get(top.size() - 1).count();
+        return combined;
+    }
+
+    /**
+     * 후보를 지금의 sketch 로 다시 추정해서 많은 순서로 k 개까지 반환한다.
+     */
+    @SafeVarargs
+    private List<HeavyHitter<K>> rank(Iterable<K>... keySets) {
+        Map<K, Long> counts = new HashMap<>();
+        for (Iterable<K> keys : keySets) {
+            for (K key : keys) {
+                counts.computeIfAbsent(key, x -> sketch.estimate(hash(x)));
+            }
+        }
+        List<HeavyHitter<K>> hitters = new ArrayList<>(counts.size());
+        counts.forEach((key, count) -> hitters.add(new HeavyHitter<>(key, count)));
+        hitters.sort(Comparator.comparingLong(HeavyHitter<K>::count).reversed());
+        return hitters.size() > k ? new ArrayList<>(hitters.subList(0, k)) : hitters;
+    }
+
+    List<HeavyHitter<K>> top() {
+        return List.copyOf(rank(candidates.keySet()));
+    }
+
+    long total() {
+        return sketch.total();
+    }
+}
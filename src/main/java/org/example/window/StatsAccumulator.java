@@ -0,0 +1,47 @@
+package org.example.window;
+
+/**
+ * WindowStats 를 만드는 pane 상태. 개수, 합, 최솟값, 최댓값과 t-digest 하나뿐이므로 윈도우 크기와 관계없이 크기가 일정하다.
+ */
+final class StatsAccumulator
+{
+    final TDigest digest;
+    long count;
+    double sum;
+    double min = Double.NaN;
+    double max = Double.NaN;
+
+    StatsAccumulator(double compression) {
+        this.digest = new TDigest(compression);
+    }
+
+    private StatsAccumulator(TDigest digest) {
+        this.digest = digest;
+    }
+
+    void add(double value) {
+        digest.add(value);
+        count++;
+        sum += value;
+        if (!(value >= min)) {
+            min = value;
+        }
+        if (!(value <= max)) {
+            max = value;
+        }
+    }
+
+    static StatsAccumulator combine(StatsAccumulator a, StatsAccumulator b) {
+        StatsAccumulator combined = new StatsAccumulator(TDigest.merged(a.digest, b.digest));
+        combined.count = a.count + b.count;
+        combined.sum = a.sum + b.sum;
+        combined.min = a.count == 0 ? b.min : b.count == 0 ? a.min : Math.min(a.min, b.min);
+        combined.max = a.count == 0 ? b.max : b.count == 0 ? a.max : Math.max(a.max, b.max);
+        return combined;
+    }
+
+    WindowStats toStats() {
+        digest.compress();
+        return new WindowStats(count, sum, min, max, digest);
+    }
+}
@@ -0,0 +1,283 @@
+package org.example.window;
+
+import java.util.Arrays;
+
+/**
+ * 분위수를 근사하는 t-digest (Dunning 의 merging digest, k1 스케일 함수)
+ *
+ * 값들을 평균과 무게를 가진 centroid 로 묶되, 양 끝(0, 1 분위 근처)의 centroid 는 작게, 가운데는 크게 만든다.
+ * 그래서 p99, p999 같은 꼬리 분위수가 특히 정확하다. centroid 수는 약 compression * π / 2 개를 넘지 않으므로
+ * 본 값의 수와 관계없이 메모리가 일정하다. (compression 100 기준 약 8KB)
+ *
+ * 값은 버퍼에 모았다가 버퍼가 차면 정렬해서 centroid 와 한 번에 합친다. (분할 상환 O(log n) / 값)
+ * WindowedAggregations 가 돌려주는 digest 는 이미 합쳐진 상태이므로 여러 스레드에서 읽어도 된다.
+ */
+public final class TDigest
+{
+    public static final double DEFAULT_COMPRESSION = 100;
+
+    private final double compression;
+    private final double normalizer;
+    private final int bufferLimit;
+
+    private double[] means;
+    private double[] weights;
+    private int centroids;
+    // compress 가 새 centroid 를 쓰는 곳. 끝나면 means / weights 와 바꾼다.
+    private double[] nextMeans;
+    private double[] nextWeights;
+
+    // 아직 합치지 않은 값
+    private final double[] bufferMeans;
+    private final double[] bufferWeights;
+    private int buffered;
+
+    private double totalWeight;
+    private double min = Double.NaN;
+    private double max = Double.NaN;
+
+    TDigest(double compression) {
+        checkCompression(compression);
+        this.compression = compression;
+        this.normalizer = compression / (2 * Math.PI);
+        this.bufferLimit = (int) Math.ceil(compression * 5);
+        int capacity = (int) Math.ceil(compression * Math.PI / 2) + 8;
+        this.means = new double[capacity];
+        this.weights = new double[capacity];
+        this.nextMeans = new double[capacity];
+        this.nextWeights = new double[capacity];
+        this.bufferMeans = new double[bufferLimit];
+        this.bufferWeights = new double[bufferLimit];
+    }
+
+    static void checkCompression(double compression) {
+        if (!(compression >= 10 && compression <= 10_000)) {
+            throw new IllegalArgumentException("10 <= compression <= 10000 required but it was " + compression);
+        }
+    }
+
+    static TDigest merged(TDigest a, TDigest b) {
+        TDigest digest = new TDigest(Math.max(a.compression, b.compression));
+        digest.addAll(a);
+        digest.addAll(b);
+        digest.compress();
+        return digest;
+    }
+
+    void add(double value) {
+        add(value, 1);
+    }
+
+    void add(double value, double weight) {
+        if (Double.isNaN(value)) {
+            throw new IllegalArgumentException("NaN cannot be added to a TDigest");
+        }
+        if (buffered == bufferLimit) {
+            compress();
+        }
+        bufferMeans[buffered] = value;
+        bufferWeights[buffered] = weight;
+        buffered++;
+        totalWeight += weight;
+        if (!(value >= min)) {
+            min = value;
+        }
+        if (!(value <= max)) {
+            max = value;
+        }
+    }
+
+    void addAll(TDigest other) {
+        other.compress();
+        for (int i = 0; i < other.centroids; i++) {
+            add(other.means[i], other.weights[i]);
+        }
+        if (other.centroids > 0) {
+            // centroid 평균은 실제 최솟값/최댓값보다 안쪽에 있으므로 따로 옮긴다.
+            min = Math.min(min, other.min);
+            max = Math.max(max, other.max);
+        }
+    }
+
+    /**
+     * 버퍼의 값들을 centroid 와 합친다. centroid 는 이미 정렬되어 있으므로 버퍼만 정렬해서 두 줄을 병합하며 훑는다.
+     */
+    void compress() {
+        if (buffered == 0) {
+            return;
+        }
+        sort(bufferMeans, bufferWeights, 0, buffered - 1);
+
+        double total = totalWeight;
+        int out = 0;
+        int b = 0;
+        int c = 0;
+        double mean = Double.NaN;
+        double weight = 0;
+        double weightSoFar = 0;
+        double limit = total * qLimit(0);
+        while (b < buffered || c < centroids) {
+            double m;
+            double w;
+            if (c == centroids || (b < buffered && bufferMeans[b] < means[c])) {
+                m = bufferMeans[b];
+                w = bufferWeights[b++];
+            }
+            else {
+                m = means[c];
+                w = weights[c++];
+            }
+            if (weight == 0) {
+                mean = m;
+                weight = w;
+            }
+            else if (weightSoFar + weight + w <= limit) {
+                weight += w;
+                mean += (m - mean) * w / weight;
+            }
+            else {
+                out = emit(out, mean, weight);
+                weightSoFar += weight;
+                limit = total * qLimit(weightSoFar / total);
+                mean = m;
+                weight = w;
+            }
+        }
+        int count = emit(out, mean, weight);
+        double[] swap = means;
+        means = nextMeans;
+        nextMeans = swap;
+        swap = weights;
+        weights = nextWeights;
+        nextWeights = swap;
+        centroids = count;
+        buffered = 0;
+    }
+
+    private int emit(int index, double mean, double weight) {
+        if (index == nextMeans.length) {
+            // 이론상 넘지 않지만 부동소수 오차에 대비한다.
+            nextMeans = Arrays.copyOf(nextMeans, index * 2);
+            nextWeights = Arrays.copyOf(nextWeights, index * 2);
+        }
+        nextMeans[index] = mean;
+        nextWeights[index] = weight;
+        return index + 1;
+    }
+
+    /**
+     * 분위 q 에서 시작하는 centroid 가 넘지 말아야 할 분위. k(q) 가 1 만큼 커지는 지점이다.
+     */
+    private double qLimit(double q) {
+        double k = normalizer * Math.asin(2 * q - 1) + 1;
+        return (Math.sin(Math.min(k / normalizer, Math.PI / 2)) + 1) / 2;
+    }
+
+    private static void sort(double[] keys, double[] values, int low, int high) {
+        while (high - low > 16) {
+            double pivot = keys[(low + high) >>> 1];
+            int i = low;
+            int j = high;
+            while (i <= j) {
+                while (keys[i] < pivot) {
+                    i++;
+                }
+                while (keys[j] > pivot) {
+                    j--;
+                }
+                if (i <= j) {
+                    swap(keys, values, i++, j--);
+                }
+            }
+            // 작은 쪽만 재귀하여 스택 깊이를 O(log n) 으로 묶는다.
+            if (j - low < high - i) {
+                sort(keys, values, low, j);
+                low = i;
+            }
+            else {
+                sort(keys, values, i, high);
+                high = j;
+            }
+        }
+        for (int i = low + 1; i <= high; i++) {
+            double key = keys[i];
+            double value = values[i];
+            int j = i - 1;
+            while (j >= low && keys[j] > key) {
+                keys[j + 1] = keys[j];
+                values[j + 1] = values[j];
+                j--;
+            }
+            keys[j + 1] = key;
+            values[j + 1] = value;
+        }
+    }
+
+    private static void swap(double[] keys, double[] values, int i, int j) {
+        double key = keys[i];
+        keys[i] = keys[j];
+        keys[j] = key;
+        double value = values[i];
+        values[i] = values[j];
+        values[j] = value;
+    }
+
+    /**
+     * 분위 q (0 ~ 1) 의 근사값. 값이 없으면 NaN
+     */
+    public double quantile(double q) {
+        if (!(q >= 0 && q <= 1)) {
+            throw new IllegalArgumentException("0 <= q <= 1 required but it was " + q);
+        }
+        compress();
+        if (centroids == 0) {
+            return Double.NaN;
+        }
+        if (centroids == 1 || q == 0) {
+            return q == 1 ? max : centroids == 1 ? means[0] : min;
+        }
+        double index = q * totalWeight;
+        // 첫 centroid 의 절반 무게까지는 최솟값과 첫 평균 사이를 보간한다.
+        double half = weights[0] / 2;
+        if (index < half) {
+            return min + (means[0] - min) * index / half;
+        }
+        double cumulative = half;
+        for (int i = 0; i < centroids - 1; i++) {
+            double step = (weights[i] + weights[i + 1]) / 2;
+            if (cumulative + step > index) {
+                return means[i] + (means[i + 1] - means[i]) * (index - cumulative) / step;
+            }
+            cumulative += step;
+        }
+        int last = centroids - 1;
+        double tail = weights[last] / 2;
+        return means[last] + (max - means[last]) * Math.min(1, (index - cumulative) / tail);
+    }
+
+    public long count() {
+        return (long) totalWeight;
+    }
+
+    public double min() {
+        return min;
+    }
+
+    public double max() {
+        return max;
+    }
+
+    public double compression() {
+        return compression;
+    }
+
+    public int centroidCount() {
+        compress();
+        return centroids;
+    }
+
+    @Override
+    public String toString() {
+        return "TDigest[count=" + count() + ", centroids=" + centroidCount() + ", p50=" + quantile(0.5) + ", p99=" + quantile(0.99) + "]";
+    }
+}
@@ -0,0 +1,61 @@
+package org.example.window;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BinaryOperator;
+
+/**
+ * 두 개의 스택으로 만든 FIFO 집계기. push / pop / aggregate 가 모두 분할 상환 O(1) 번의 combine 으로 끝난다.
+ *
+ * back 에는 새로 들어온 값과 그 전체 합(backAggregate)을 두고, front 에는 오래된 값부터 꺼낼 수 있도록
+ * 각 칸에 "그 칸과 그보다 새로운 front 칸들" 의 합을 둔다. front 가 비었을 때만 back 을 뒤집어 옮긴다.
+ * 윈도우마다 pane 전부를 다시 합치면 O(pane 수) 이지만 이렇게 하면 윈도우마다 combine 두 번 정도로 줄어든다.
+ */
+final class TwoStackAggregator<S>
+{
+    private final BinaryOperator<S> combiner;
+    private final List<S> front = new ArrayList<>();
+    private final List<S> back = new ArrayList<>();
+    private S backAggregate;
+
+    TwoStackAggregator(BinaryOperator<S> combiner) {
+        this.combiner = combiner;
+    }
+
+    int size() {
+        return front.size() + back.size();
+    }
+
+    void push(S value) {
+        back.add(value);
+        backAggregate = backAggregate == null ? value : combiner.apply(backAggregate, value);
+    }
+
+    /**
+     * 가장 오래된 값을 버린다.
+     */
+    void pop() {
+        if (front.isEmpty()) {
+            S aggregate = null;
+            for (int i = back.size() - 1; i >= 0; i--) {
+                S value = back.get(i);
+                aggregate = aggregate == null ? value : combiner.apply(value, aggregate);
+                front.add(aggregate);
+            }
+            back.clear();
+            backAggregate = null;
+        }
+        front.remove(front.size() - 1);
+    }
+
+    /**
+     * 들어 있는 모든 값의 합. 비어 있으면 null
+     */
+    S aggregate() {
+        if (front.isEmpty()) {
+            return backAggregate;
+        }
+        S frontAggregate = front.get(front.size() - 1);
+        return backAggregate == null ? frontAggregate : combiner.apply(frontAggregate, backAggregate);
+    }
+}
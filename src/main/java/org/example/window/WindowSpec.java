@@ -0,0 +1,105 @@
+package org.example.window;
+
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.Objects;
+
+/**
+ * WindowedAggregations 의 윈도우 모양. 요소 수나 시간으로 정하며, 텀블링은 슬라이딩에서 size == step 인 경우다.
+ *
+ * 슬라이딩 윈도우는 step 크기의 pane 으로 나누어 집계한다. 그래서 size 는 step 의 배수여야 하고,
+ * 결과는 pane 이 닫힐 때마다(step 마다) 최근 size / step 개의 pane 을 합쳐 하나 나온다.
+ * 시작 직후에는 pane 이 덜 쌓였으므로 그때까지의 pane 만 합친 결과가 나온다.
+ */
+public final class WindowSpec
+{
+    final int sizeElements;
+    final int stepElements;
+    final Duration size;
+    final Duration step;
+    final Scheduler scheduler;
+
+    private WindowSpec(int sizeElements, int stepElements, Duration size, Duration step, Scheduler scheduler) {
+        this.sizeElements = sizeElements;
+        this.stepElements = stepElements;
+        this.size = size;
+        this.step = step;
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * size 개마다 하나의 결과. 끝날 때 남은 요소가 있으면 그것도 하나의 결과로 낸다.
+     */
+    public static WindowSpec tumbling(int size) {
+        return sliding(size, size);
+    }
+
+    /**
+     * 최근 size 개에 대한 결과를 step 개마다 낸다.
+     */
+    public static WindowSpec sliding(int size, int step) {
+        if (step <= 0) {
+            throw new IllegalArgumentException("step > 0 required but it was " + step);
+        }
+        if (size < step || size % step != 0) {
+            throw new IllegalArgumentException("size must be a positive multiple of step but it was " + size + ", " + step);
+        }
+        return new WindowSpec(size, step, null, null, null);
+    }
+
+    /**
+     * size 마다 하나의 결과. 요소가 없던 구간도 count 가 0 인 결과를 낸다.
+     */
+    public static WindowSpec tumbling(Duration size) {
+        return sliding(size, size);
+    }
+
+    /**
+     * 최근 size 동안의 결과를 step 마다 낸다.
+     */
+    public static WindowSpec sliding(Duration size, Duration step) {
+        Objects.requireNonNull(size, "size");
+        Objects.requireNonNull(step, "step");
+        if (step.isNegative() || step.isZero()) {
+            throw new IllegalArgumentException("step > 0 required but it was " + step);
+        }
+        long stepNanos = step.toNanos();
+        long sizeNanos = size.toNanos();
+        if (sizeNanos < stepNanos || sizeNanos % stepNanos != 0) {
+            throw new IllegalArgumentException("size must be a positive multiple of step but it was " + size + ", " + step);
+        }
+        return new WindowSpec(0, 0, size, step, Schedulers.parallel());
+    }
+
+    /**
+     * 시간 윈도우를 닫을 타이머. 기본 Schedulers.parallel(). 테스트에서는 VirtualTimeScheduler 를 넘길 수 있다.
+     */
+    public WindowSpec on(Scheduler scheduler) {
+        Objects.requireNonNull(scheduler, "scheduler");
+        if (size == null) {
+            throw new IllegalStateException("Only time windows use a scheduler");
+        }
+        return new WindowSpec(0, 0, size, step, scheduler);
+    }
+
+    boolean timed() {
+        return size != null;
+    }
+
+    /**
+     * 윈도우 하나를 이루는 pane 수
+     */
+    int panes() {
+        return timed() ? (int) (size.toNanos() / step.toNanos()) : sizeElements / stepElements;
+    }
+
+    @Override
+    public String toString() {
+        if (timed()) {
+            return "WindowSpec[" + size + " every " + step + "]";
+        }
+        return "WindowSpec[" + sizeElements + " every " + stepElements + "]";
+    }
+}
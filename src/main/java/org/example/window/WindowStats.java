@@ -0,0 +1,27 @@
+package org.example.window;
+
+/**
+ * 윈도우 하나의 통계
+ *
+ * @param count  요소 수
+ * @param sum    합
+ * @param min    최솟값. 요소가 없으면 NaN
+ * @param max    최댓값. 요소가 없으면 NaN
+ * @param digest 분위수를 구하는 t-digest
+ */
+public record WindowStats(long count, double sum, double min, double max, TDigest digest)
+{
+    /**
+     * 평균. 요소가 없으면 NaN
+     */
+    public double mean() {
+        return count == 0 ? Double.NaN : sum / count;
+    }
+
+    /**
+     * 분위 q (0 ~ 1) 의 근사값. 요소가 없으면 NaN
+     */
+    public double quantile(double q) {
+        return digest.quantile(q);
+    }
+}
@@ -0,0 +1,136 @@
+package org.example.window;
+
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToLongFunction;
+
+/**
+ * 끝나지 않는 스트림에 쓸 수 있는 윈도우 집계와 확률적 sketch 오퍼레이터 모음
+ *
+ * collectList() 로 모은 뒤 통계를 내면 요소 수만큼 메모리가 필요하고, 끝나지 않는 스트림에서는 결국 OOM 이 난다.
+ * 여기의 오퍼레이터는 요소가 들어올 때마다 고정 크기의 상태에 더하고, 윈도우가 닫힐 때 결과를 하나 내보낸다.
+ *  * stats         : 개수, 합, 최솟값, 최댓값, 평균, 분위수 (t-digest)
+ *  * quantiles     : t-digest 만
+ *  * distinctCount : HyperLogLog 로 센 서로 다른 키의 수
+ *  * heavyHitters  : Count-Min sketch 로 찾은 빈도 상위 k 개 키
+ *
+ * 윈도우는 WindowSpec 으로 정한다. (요소 수 / 시간, 텀블링 / 슬라이딩)
+ * 슬라이딩 윈도우는 step 크기의 pane 을 따로 집계하고, 두 스택 집계기(TwoStackAggregator)로 최근 pane 들을 합친다.
+ * 그래서 상태는 pane 수에 비례할 뿐 윈도우 안의 요소 수와는 관계없고, 결과 하나를 만드는 데 드는 합치기도 분할 상환 O(1) 번이다.
+ *
+ * transform() 과 함께 사용한다.
+ * <pre>
+ * latencies.transform(WindowedAggregations.stats(WindowSpec.sliding(Duration.ofMinutes(1), Duration.ofSeconds(10)), Sample::millis))
+ *          .subscribe(stats -&gt; log.info("p99={} mean={}", stats.quantile(0.99), stats.mean()));
+ * </pre>
+ *
+ * 상태는 구독마다 따로 만들어진다. 요소 수 윈도우는 끝날 때 남은 요소로 마지막 결과를 하나 더 낸다.
+ * 시간 윈도우는 요소가 없던 구간에도 결과를 낸다. (stats 는 count 0, distinctCount 는 0)
+ */
+public final class WindowedAggregations
+{
+    private WindowedAggregations() {
+    }
+
+    public static <T> Function<Flux<T>, Flux<WindowStats>> stats(WindowSpec window, ToDoubleFunction<? super T> value) {
+        return stats(window, value, TDigest.DEFAULT_COMPRESSION);
+    }
+
+    /**
+     * @param compression t-digest 의 정밀도. 클수록 정확하고 pane 하나가 커진다. (100 이면 약 8KB)
+     */
+    public static <T> Function<Flux<T>, Flux<WindowStats>> stats(WindowSpec window, ToDoubleFunction<? super T> value, double compression) {
+        Objects.requireNonNull(value, "value");
+        TDigest.checkCompression(compression);
+        return aggregate(window, new Aggregation<T, StatsAccumulator, WindowStats>(
+            () -> new StatsAccumulator(compression),
+            (state, element) -> state.add(value.applyAsDouble(element)),
+            StatsAccumulator::combine,
+            StatsAccumulator::toStats));
+    }
+
+    public static <T> Function<Flux<T>, Flux<TDigest>> quantiles(WindowSpec window, ToDoubleFunction<? super T> value, double compression) {
+        Objects.requireNonNull(value, "value");
+        TDigest.checkCompression(compression);
+        return aggregate(window, new Aggregation<T, TDigest, TDigest>(
+            () -> new TDigest(compression),
+            (digest, element) -> digest.add(value.applyAsDouble(element)),
+            TDigest::merged,
+            digest -> {
+                digest.compress();
+                return digest;
+            }));
+    }
+
+    /**
+     * 키의 hashCode() 로 센다. hashCode 는 32 비트이므로 수억 개 이상의 키를 셀 때는 distinctCountLong 을 쓴다.
+     *
+     * @param precision HyperLogLog 레지스터 수의 log2 (4 ~ 18). 오차는 약 1.04 / sqrt(2^precision), 메모리는 2^precision 바이트
+     */
+    public static <T> Function<Flux<T>, Flux<Long>> distinctCount(WindowSpec window, Function<? super T, ?> key, int precision) {
+        Objects.requireNonNull(key, "key");
+        return distinctCountLong(window, element -> Objects.requireNonNull(key.apply(element), "key").hashCode(), precision);
+    }
+
+    public static <T> Function<Flux<T>, Flux<Long>> distinctCountLong(WindowSpec window, ToLongFunction<? super T> key, int precision) {
+        Objects.requireNonNull(key, "key");
+        HyperLogLog.checkPrecision(precision);
+        return aggregate(window, new Aggregation<T, HyperLogLog, Long>(
+            () -> new HyperLogLog(precision),
+            (hll, element) -> hll.add(HyperLogLog.hash(key.applyAsLong(element))),
+            HyperLogLog::merged,
+            HyperLogLog::estimate));
+    }
+
+    /**
+     * 윈도우에서 가장 많이 나온 키 k 개를 많은 순서로 낸다. 키 객체는 후보 k 개만 보관한다.
+     * 추정 횟수의 오차는 확률 1 - delta 로 epsilon * (윈도우의 요소 수) 이하이고, 실제보다 작게 추정하지는 않는다.
+     */
+    public static <T, K> Function<Flux<T>, Flux<List<HeavyHitter<K>>>> heavyHitters(WindowSpec window, Function<? super T, K> key, int k, double epsilon, double delta) {
+        Objects.requireNonNull(key, "key");
+        if (k <= 0) {
+            throw new IllegalArgumentException("k > 0 required but it was " + k);
+        }
+        CountMinSketch.widthFor(epsilon);
+        CountMinSketch.depthFor(delta);
+        return aggregate(window, new Aggregation<T, HeavyHitterSketch<K>, List<HeavyHitter<K>>>(
+            () -> new HeavyHitterSketch<>(k, epsilon, delta),
+            (sketch, element) -> sketch.add(Objects.requireNonNull(key.apply(element), "key")),
+            HeavyHitterSketch::combine,
+            HeavyHitterSketch::top));
+    }
+
+    /**
+     * window 로 pane 을 나누어 aggregation 으로 집계하고, pane 이 닫힐 때마다 최근 pane 들을 합친 결과를 낸다.
+     */
+    static <T, S, R> Function<Flux<T>, Flux<R>> aggregate(WindowSpec window, Aggregation<T, S, R> aggregation) {
+        Objects.requireNonNull(window, "window");
+        int panes = window.panes();
+        return flux -> {
+            Flux<Flux<T>> windows = window.timed()
+                ? flux.window(window.step, window.scheduler)
+                : flux.window(window.stepElements);
+            Flux<S> closed = windows.concatMap(pane -> pane.reduceWith(aggregation.supplier(), (state, element) -> {
+                aggregation.accumulator().accept(state, element);
+                return state;
+            }), 1);
+            if (panes == 1) {
+                return closed.map(aggregation.finisher());
+            }
+            return Flux.defer(() -> {
+                TwoStackAggregator<S> recent = new TwoStackAggregator<>(aggregation.combiner());
+                return closed.map(state -> {
+                    recent.push(state);
+                    if (recent.size() > panes) {
+                        recent.pop();
+                    }
+                    return aggregation.finisher().apply(recent.aggregate());
+                });
+            });
+        };
+    }
+}
@@ -0,0 +1,36 @@
+package org.example.zip;
+
+/**
+ * ReusableZip.zipLongs 가 짝지은 long 쌍을 열(column) 단위로 담아 전달하는 재사용 배치
+ *
+ * i 번째 쌍은 (t1()[i], t2()[i]) 이고 유효한 범위는 0 부터 size() - 1 까지다. 배열 길이는 배치 크기이며 size() 보다 클 수 있다.
+ * ZipSlot 과 마찬가지로 모든 onNext 에 같은 인스턴스와 같은 배열이 전달되므로 onNext 안에서만 읽어야 한다.
+ */
+public final class LongZipBatch
+{
+    final long[] t1;
+    final long[] t2;
+    int size;
+
+    LongZipBatch(int capacity) {
+        this.t1 = new long[capacity];
+        this.t2 = new long[capacity];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long[] t1() {
+        return t1;
+    }
+
+    public long[] t2() {
+        return t2;
+    }
+
+    @Override
+    public String toString() {
+        return "LongZipBatch(size=" + size + ")";
+    }
+}
@@ -0,0 +1,536 @@
+package org.example.zip;
+
+import org.example.primitive.LongFlux;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscription;
+import reactor.core.CoreSubscriber;
+import reactor.core.Exceptions;
+import reactor.core.Fuseable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Operators;
+import reactor.util.concurrent.Queues;
+import reactor.util.context.Context;
+
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
+/**
+ * 쌍마다 객체를 만들지 않는 zip
+ *
+ * Flux.zip(a, b) 는 짝지을 때마다 Tuple2 를, Flux.zip(a, b, combinator) 는 combinator 가 만든 객체를 하나씩 할당한다.
+ * 초당 수백만 쌍을 짝지으면 이 할당이 비용의 대부분을 차지한다.
+ *
+ *  * zip(a, b)         : 같은 ZipSlot 하나를 모든 onNext 에 재사용한다. 요소 자체는 소스가 만든 것을 그대로 담는다.
+ *  * zipLongs(a, b, n) : 두 LongFlux 를 n 쌍씩 LongZipBatch 의 두 long[] 에 복사해서 내보낸다. 박싱도 없다.
+ *
+ * <pre>
+ * ReusableZip.zip(prices, quantities)
+ *     .doOnNext(slot -&gt; notional.add(slot.getT1() * slot.getT2()))
+ *
+ * ReusableZip.zipLongs(prices, quantities, 256)
+ *     .doOnNext(batch -&gt; {
+ *         for (int i = 0; i &lt; batch.size(); i++) {
+ *             sum += batch.t1()[i] * batch.t2()[i];
+ *         }
+ *     })
+ * </pre>
+ *
+ * 규칙
+ *  * 슬롯과 배치는 onNext 안에서만 유효하다. 하류가 저장하거나 다른 스레드로 넘기면 값이 바뀌거나 비워진다.
+ *  * Flux.zip 처럼 어느 한쪽이 끝나면 다른 쪽을 취소하고 완료하며, 에러가 나면 다른 쪽을 취소하고 바로 onError 로 끝난다.
+ *  * zipLongs 는 배치가 찰 때까지 기다렸다가 내보낸다. 어느 한쪽이 끝나면 남은 쌍을 마지막 배치로 내보낸다.
+ *  * zipLongs 의 요청(request) 단위는 쌍이 아니라 배치다.
+ */
+public final class ReusableZip
+{
+    public static final int DEFAULT_PREFETCH = Queues.XS_BUFFER_SIZE;
+    public static final int DEFAULT_BATCH_SIZE = LongFlux.DEFAULT_CHUNK_SIZE;
+
+    /**
+     * zipLongs 가 소스마다 미리 받아 둘 청크 수
+     */
+    static final int CHUNK_PREFETCH = 4;
+
+    private ReusableZip() {
+    }
+
+    public static <T1, T2> Flux<ZipSlot<T1, T2>> zip(Publisher<? extends T1> source1, Publisher<? extends T2> source2) {
+        return zip(source1, source2, DEFAULT_PREFETCH);
+    }
+
+    /**
+     * @param prefetch 소스마다 미리 받아 둘 요소 수
+     */
+    public static <T1, T2> Flux<ZipSlot<T1, T2>> zip(Publisher<? extends T1> source1, Publisher<? extends T2> source2,
+                                                     int prefetch) {
+        Objects.requireNonNull(source1, "source1");
+        Objects.requireNonNull(source2, "source2");
+        if (prefetch <= 0) {
+            throw new IllegalArgumentException("prefetch > 0 required but it was " + prefetch);
+        }
+        return Flux.from(actual -> {
+            SlotZipSubscription<T1, T2> parent =
+                new SlotZipSubscription<>(Operators.toCoreSubscriber(actual), prefetch);
+            actual.onSubscribe(parent);
+            parent.subscribe(source1, source2);
+        });
+    }
+
+    public static Flux<LongZipBatch> zipLongs(LongFlux source1, LongFlux source2) {
+        return zipLongs(source1, source2, DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * @param batchSize 배치 하나에 담을 쌍의 수. 소스의 청크 크기와 달라도 된다.
+     */
+    public static Flux<LongZipBatch> zipLongs(LongFlux source1, LongFlux source2, int batchSize) {
+        Objects.requireNonNull(source1, "source1");
+        Objects.requireNonNull(source2, "source2");
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("batchSize > 0 required but it was " + batchSize);
+        }
+        return Flux.from(actual -> {
+            BatchZipSubscription parent =
+                new BatchZipSubscription(Operators.toCoreSubscriber(actual), batchSize);
+            actual.onSubscribe(parent);
+            parent.subscribe(source1.chunks(), source2.chunks());
+        });
+    }
+
+    /**
+     * 두 소스를 구독하고 요청, 취소, 에러를 처리하는 공통 부분. 실제로 짝짓는 일은 drainLoop 가 한다.
+     */
+    abstract static class ZipSubscription<A, B, O> implements Subscription
+    {
+        @SuppressWarnings("rawtypes")
+        static final AtomicIntegerFieldUpdater<ZipSubscription> WIP =
+            AtomicIntegerFieldUpdater.newUpdater(ZipSubscription.class, "wip");
+        @SuppressWarnings("rawtypes")
+        static final AtomicLongFieldUpdater<ZipSubscription> REQUESTED =
+            AtomicLongFieldUpdater.newUpdater(ZipSubscription.class, "requested");
+        @SuppressWarnings("rawtypes")
+        static final AtomicReferenceFieldUpdater<ZipSubscription, Throwable> ERROR =
+            AtomicReferenceFieldUpdater.newUpdater(ZipSubscription.class, Throwable.class, "error");
+
+        final CoreSubscriber<? super O> actual;
+        final ZipInner<A> first;
+        final ZipInner<B> second;
+
+        volatile long requested;
+        volatile int wip;
+        volatile boolean cancelled;
+        volatile Throwable error;
+
+        long emitted; // drain 에서만 접근
+
+        ZipSubscription(CoreSubscriber<? super O> actual, int prefetch) {
+            this.actual = actual;
+            this.first = new ZipInner<>(this, prefetch);
+            this.second = new ZipInner<>(this, prefetch);
+        }
+
+        void subscribe(Publisher<? extends A> source1, Publisher<? extends B> source2) {
+            source1.subscribe(first);
+            if (!cancelled) {
+                source2.subscribe(second);
+            }
+        }
+
+        @Override
+        public void request(long n) {
+            if (Operators.validate(n)) {
+                Operators.addCap(REQUESTED, this, n);
+                drain();
+            }
+        }
+
+        @Override
+        public void cancel() {
+            if (cancelled) {
+                return;
+            }
+            cancelled = true;
+            cancelAll();
+            if (WIP.getAndIncrement(this) == 0) {
+                clearAll();
+            }
+        }
+
+        void onInnerError(Throwable e) {
+            if (ERROR.compareAndSet(this, null, e)) {
+                drain();
+            }
+            else {
+                Operators.onErrorDropped(e, actual.currentContext());
+            }
+        }
+
+        final void drain() {
+            if (WIP.getAndIncrement(this) != 0) {
+                return;
+            }
+            int missed = 1;
+            for (;;) {
+                if (checkTerminated() || drainLoop()) {
+                    return;
+                }
+                missed = WIP.addAndGet(this, -missed);
+                if (missed == 0) {
+                    return;
+                }
+            }
+        }
+
+        /**
+         * 요청과 받아 둔 요소가 허락하는 만큼 짝지어 내보낸다. 종료 신호를 보냈으면 true
+         */
+        abstract boolean drainLoop();
+
+        /**
+         * drainLoop 가 들고 있던 요소를 버린다.
+         */
+        abstract void clear();
+
+        /**
+         * 한쪽이 끝났다. 다른 쪽을 취소하고 완료한다.
+         */
+        final void complete() {
+            if (checkTerminated()) {
+                return; // 융합된 큐에서 꺼내다가 에러가 났다.
+            }
+            cancelled = true;
+            cancelAll();
+            clearAll();
+            actual.onComplete();
+        }
+
+        final boolean checkTerminated() {
+            if (cancelled) {
+                clearAll();
+                return true;
+            }
+            Throwable ex = error;
+            if (ex != null) {
+                cancelled = true;
+                cancelAll();
+                clearAll();
+                actual.onError(ex);
+                return true;
+            }
+            return false;
+        }
+
+        private void cancelAll() {
+            first.cancel();
+            second.cancel();
+        }
+
+        private void clearAll() {
+            clear();
+            first.clear();
+            second.clear();
+        }
+    }
+
+    static final class SlotZipSubscription<T1, T2> extends ZipSubscription<T1, T2, ZipSlot<T1, T2>>
+    {
+        final ZipSlot<T1, T2> slot = new ZipSlot<>();
+
+        // 아래는 drain 에서만 접근한다. 한쪽만 도착했을 때 짝이 올 때까지 들고 있는다.
+        T1 held1;
+        T2 held2;
+
+        SlotZipSubscription(CoreSubscriber<? super ZipSlot<T1, T2>> actual, int prefetch) {
+            super(actual, prefetch);
+        }
+
+        @Override
+        boolean drainLoop() {
+            ZipInner<T1> first = this.first;
+            ZipInner<T2> second = this.second;
+            ZipSlot<T1, T2> slot = this.slot;
+            T1 v1 = held1;
+            T2 v2 = held2;
+            long e = emitted;
+            long r = requested;
+            for (;;) {
+                if (v1 == null) {
+                    boolean d = first.done;
+                    v1 = first.poll();
+                    if (v1 != null) {
+                        first.onConsumed();
+                    }
+                    else if (d) {
+                        complete();
+                        return true;
+                    }
+                }
+                if (v2 == null) {
+                    boolean d = second.done;
+                    v2 = second.poll();
+                    if (v2 != null) {
+                        second.onConsumed();
+                    }
+                    else if (d) {
+                        complete();
+                        return true;
+                    }
+                }
+                if (v1 == null || v2 == null || e == r) {
+                    break;
+                }
+                if (checkTerminated()) {
+                    return true;
+                }
+                slot.set(v1, v2);
+                actual.onNext(slot);
+                slot.clear();
+                v1 = null;
+                v2 = null;
+                e++;
+            }
+            held1 = v1;
+            held2 = v2;
+            emitted = e;
+            return false;
+        }
+
+        @Override
+        void clear() {
+            held1 = null;
+            held2 = null;
+            slot.clear();
+        }
+    }
+
+    static final class BatchZipSubscription extends ZipSubscription<long[], long[], LongZipBatch>
+    {
+        final LongZipBatch batch;
+        final int batchSize;
+
+        // 아래는 drain 에서만 접근한다. 소스마다 복사 중인 청크와 다음에 복사할 위치
+        long[] chunk1;
+        long[] chunk2;
+        int offset1;
+        int offset2;
+
+        BatchZipSubscription(CoreSubscriber<? super LongZipBatch> actual, int batchSize) {
+            super(actual, CHUNK_PREFETCH);
+            this.batchSize = batchSize;
+            this.batch = new LongZipBatch(batchSize);
+        }
+
+        @Override
+        boolean drainLoop() {
+            ZipInner<long[]> first = this.first;
+            ZipInner<long[]> second = this.second;
+            LongZipBatch batch = this.batch;
+            long[] c1 = chunk1;
+            long[] c2 = chunk2;
+            int o1 = offset1;
+            int o2 = offset2;
+            long e = emitted;
+            long r = requested;
+            for (;;) {
+                if (batch.size == batchSize) {
+                    if (e == r || checkTerminated()) {
+                        break;
+                    }
+                    emit(batch);
+                    e++;
+                    continue;
+                }
+                boolean exhausted = false;
+                if (c1 == null) {
+                    boolean d = first.done;
+                    c1 = first.poll();
+                    if (c1 != null) {
+                        first.onConsumed();
+                        o1 = 0;
+                    }
+                    else {
+                        exhausted = d;
+                    }
+                }
+                if (c2 == null && !exhausted) {
+                    boolean d = second.done;
+                    c2 = second.poll();
+                    if (c2 != null) {
+                        second.onConsumed();
+                        o2 = 0;
+                    }
+                    else {
+                        exhausted = d;
+                    }
+                }
+                if (exhausted) {
+                    // 남은 쌍을 마지막 배치로 내보내고 완료한다. 요청이 없으면 요청을 기다린다.
+                    if (batch.size > 0) {
+                        if (e == r || checkTerminated()) {
+                            break;
+                        }
+                        emit(batch);
+                        e++;
+                    }
+                    complete();
+                    return true;
+                }
+                if (c1 == null || c2 == null) {
+                    break;
+                }
+                int n = Math.min(Math.min(c1.length - o1, c2.length - o2), batchSize - batch.size);
+                System.arraycopy(c1, o1, batch.t1, batch.size, n);
+                System.arraycopy(c2, o2, batch.t2, batch.size, n);
+                batch.size += n;
+                o1 += n;
+                o2 += n;
+                if (o1 == c1.length) {
+                    c1 = null;
+                }
+                if (o2 == c2.length) {
+                    c2 = null;
+                }
+            }
+            chunk1 = c1;
+            chunk2 = c2;
+            offset1 = o1;
+            offset2 = o2;
+            emitted = e;
+            return false;
+        }
+
+        private void emit(LongZipBatch batch) {
+            actual.onNext(batch);
+            batch.size = 0;
+        }
+
+        @Override
+        void clear() {
+            chunk1 = null;
+            chunk2 = null;
+            batch.size = 0;
+        }
+    }
+
+    /**
+     * 소스가 Fuseable 이면 (Flux.fromArray, Flux.range, map 등) 소스의 큐를 그대로 쓴다.
+     * SYNC 융합이면 요청 없이 drain 에서 바로 꺼내고, ASYNC 융합이면 onNext 는 "꺼낼 것이 있다" 는 신호로만 쓴다.
+     */
+    static final class ZipInner<T> implements CoreSubscriber<T>
+    {
+        @SuppressWarnings("rawtypes")
+        static final AtomicReferenceFieldUpdater<ZipInner, Subscription> S =
+            AtomicReferenceFieldUpdater.newUpdater(ZipInner.class, Subscription.class, "s");
+
+        final ZipSubscription<?, ?, ?> parent;
+        final int prefetch;
+        final int limit;
+
+        volatile Subscription s;
+        volatile boolean done;
+
+        volatile Queue<T> queue; // onSubscribe 에서 정해진다. 융합하면 소스의 큐다.
+        int sourceMode;
+        int consumed; // drain 에서만 접근
+
+        ZipInner(ZipSubscription<?, ?, ?> parent, int prefetch) {
+            this.parent = parent;
+            this.prefetch = prefetch;
+            this.limit = prefetch - (prefetch >> 2);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public void onSubscribe(Subscription s) {
+            if (!Operators.setOnce(S, this, s)) {
+                return;
+            }
+            if (s instanceof Fuseable.QueueSubscription) {
+                Fuseable.QueueSubscription<T> qs = (Fuseable.QueueSubscription<T>) s;
+                int mode = qs.requestFusion(Fuseable.ANY);
+                if (mode == Fuseable.SYNC) {
+                    sourceMode = mode;
+                    queue = qs;
+                    done = true;
+                    parent.drain();
+                    return;
+                }
+                if (mode == Fuseable.ASYNC) {
+                    sourceMode = mode;
+                    queue = qs;
+                    s.request(prefetch);
+                    return;
+                }
+            }
+            queue = Queues.<T>get(prefetch).get();
+            s.request(prefetch);
+        }
+
+        @Override
+        public void onNext(T t) {
+            if (sourceMode != Fuseable.ASYNC && !queue.offer(t)) {
+                Operators.onDiscard(t, currentContext());
+                onError(Operators.onOperatorError(s, Exceptions.failWithOverflow(
+                    Exceptions.BACKPRESSURE_ERROR_QUEUE_FULL), t, currentContext()));
+                return;
+            }
+            parent.drain();
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            done = true;
+            parent.onInnerError(t);
+        }
+
+        @Override
+        public void onComplete() {
+            done = true;
+            parent.drain();
+        }
+
+        @Override
+        public Context currentContext() {
+            return parent.actual.currentContext();
+        }
+
+        /**
+         * 다음 요소를 꺼낸다. 아직 구독 전이거나 비어 있으면 null. 융합된 큐가 던진 예외는 에러로 바꾼다.
+         */
+        T poll() {
+            Queue<T> q = queue;
+            if (q == null) {
+                return null;
+            }
+            try {
+                return q.poll();
+            }
+            catch (Throwable ex) {
+                done = true;
+                parent.onInnerError(Operators.onOperatorError(s, ex, currentContext()));
+                return null;
+            }
+        }
+
+        void onConsumed() {
+            if (sourceMode != Fuseable.SYNC && ++consumed == limit) {
+                consumed = 0;
+                s.request(limit);
+            }
+        }
+
+        void cancel() {
+            Operators.terminate(S, this);
+        }
+
+        void clear() {
+            Queue<T> q = queue;
+            if (q != null) {
+                q.clear();
+            }
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package org.example.zip;
+
+/**
+ * ReusableZip.zip 이 짝지은 두 요소를 담아 전달하는 재사용 슬롯
+ *
+ * 모든 onNext 에 같은 인스턴스가 전달되고, onNext 가 반환되면 비워진다.
+ * 따라서 onNext 안에서만 읽어야 하며 슬롯 자체를 저장하거나 다른 스레드로 넘기면 안 된다. (publishOn, buffer, collectList 등)
+ * 보관이 필요하면 getT1()/getT2() 로 값을 꺼내서 보관한다.
+ */
+public final class ZipSlot<T1, T2>
+{
+    T1 t1;
+    T2 t2;
+
+    ZipSlot() {
+    }
+
+    public T1 getT1() {
+        return t1;
+    }
+
+    public T2 getT2() {
+        return t2;
+    }
+
+    void set(T1 t1, T2 t2) {
+        this.t1 = t1;
+        this.t2 = t2;
+    }
+
+    void clear() {
+        t1 = null;
+        t2 = null;
+    }
+
+    @Override
+    public String toString() {
+        return "[" + t1 + "," + t2 + "]";
+    }
+}
@@ -0,0 +1,196 @@
+package org.example.cache;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+import reactor.test.scheduler.VirtualTimeScheduler;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ReactiveCacheTest
+{
+    @Test
+    @DisplayName("한 번 불러온 값은 다시 불러오지 않는다")
+    void cachesValue() {
+        AtomicInteger loads = new AtomicInteger();
+        ReactiveCache<String, Integer> cache = ReactiveCache.builder()
+            .maximumSize(100)
+            .build(key -> Mono.fromCallable(() -> {
+                loads.incrementAndGet();
+                return key.length();
+            }));
+
+        Assertions.assertEquals(5, cache.get("hello").block());
+        Assertions.assertEquals(5, cache.get("hello").block());
+        Assertions.assertEquals(1, loads.get());
+
+        CacheStats stats = cache.stats();
+        Assertions.assertEquals(1, stats.hitCount());
+        Assertions.assertEquals(1, stats.missCount());
+        Assertions.assertEquals(1, stats.loadSuccessCount());
+    }
+
+    @Test
+    @DisplayName("같은 키에 대한 동시 miss 는 loader 를 한 번만 구독한다")
+    void coalescesConcurrentMisses() {
+        AtomicInteger subscriptions = new AtomicInteger();
+        Sinks.One<Integer> upstream = Sinks.one();
+        ReactiveCache<String, Integer> cache = ReactiveCache.builder()
+            .maximumSize(100)
+            .build(key -> upstream.asMono().doOnSubscribe(s -> subscriptions.incrementAndGet()));
+
+        Mono<Integer> all = Flux.range(0, 100)
+            .flatMap(i -> cache.get("hot"))
+            .reduce(0, Integer::sum);
+
+        StepVerifier.create(all)
+            .then(() -> upstream.tryEmitValue(1))
+            .expectNext(100)
+            .verifyComplete();
+        Assertions.assertEquals(1, subscriptions.get());
+        Assertions.assertEquals(100, cache.stats().missCount());
+    }
+
+    @Test
+    @DisplayName("에러와 빈 결과는 캐싱하지 않는다")
+    void doesNotCacheErrorsOrEmpty() {
+        AtomicInteger loads = new AtomicInteger();
+        ReactiveCache<String, String> cache = ReactiveCache.builder()
+            .maximumSize(100)
+            .build(key -> {
+                int n = loads.incrementAndGet();
+                return n == 1 ? Mono.error(new IllegalStateException("boom")) : n == 2 ? Mono.empty() : Mono.just("value");
+            });
+
+        StepVerifier.create(cache.get("k")).verifyError(IllegalStateException.class);
+        StepVerifier.create(cache.get("k")).verifyComplete();
+        StepVerifier.create(cache.get("k")).expectNext("value").verifyComplete();
+        Assertions.assertEquals(2, cache.stats().loadFailureCount());
+    }
+
+    @Test
+    @DisplayName("개수 제한을 넘지 않고, 자주 쓰는 키는 한 번씩 훑고 지나가는 키보다 오래 살아남는다")
+    void tinyLfuKeepsHotKeys() {
+        ReactiveCache<Integer, Integer> cache = ReactiveCache.builder()
+            .maximumSize(100)
+            .build(Mono::just);
+
+        for (int round = 0; round < 10; round++) {
+            for (int hot = 0; hot < 50; hot++) {
+                cache.get(hot).block();
+            }
+        }
+        for (int scan = 1000; scan < 11_000; scan++) {
+            cache.get(scan).block();
+        }
+
+        Assertions.assertTrue(cache.estimatedSize() <= 100);
+        int hotRemaining = 0;
+        for (int hot = 0; hot < 50; hot++) {
+            if (cache.getIfPresent(hot) != null) {
+                hotRemaining++;
+            }
+        }
+        Assertions.assertTrue(hotRemaining >= 45, "hot keys remaining " + hotRemaining);
+        Assertions.assertTrue(cache.stats().evictionCount() > 0);
+    }
+
+    @Test
+    @DisplayName("무게 제한은 weigher 가 계산한 합으로 적용된다")
+    void maximumWeight() {
+        ReactiveCache<String, String> cache = ReactiveCache.builder()
+            .maximumWeight(100, (String key, String value) -> value.length())
+            .build(key -> Mono.just(key.repeat(10)));
+
+        for (int i = 0; i < 100; i++) {
+            cache.get("k" + i).block(); // 무게 20 또는 30
+        }
+        Assertions.assertTrue(cache.weightedSize() <= 100);
+    }
+
+    @Test
+    @DisplayName("weigher 가 실패해도 로딩 상태가 남지 않아 같은 키를 다시 불러올 수 있다")
+    void failingWeigherDoesNotStickLoading() {
+        AtomicInteger loads = new AtomicInteger();
+        ReactiveCache<String, String> cache = ReactiveCache.builder()
+            .maximumWeight(100, (String key, String value) -> value.equals("bad") ? -1 : value.length())
+            .build(key -> Mono.just(loads.incrementAndGet() == 1 ? "bad" : "good"));
+
+        StepVerifier.create(cache.get("k")).expectError(IllegalStateException.class).verify(Duration.ofSeconds(5));
+        StepVerifier.create(cache.get("k")).expectNext("good").expectComplete().verify(Duration.ofSeconds(5));
+        Assertions.assertEquals(2, loads.get());
+        Assertions.assertEquals(1, cache.stats().loadFailureCount());
+        Assertions.assertEquals(4, cache.weightedSize());
+    }
+
+    @Test
+    @DisplayName("expireAfterWrite 가 지나면 다시 불러온다")
+    void expireAfterWrite() {
+        VirtualTimeScheduler clock = VirtualTimeScheduler.create();
+        AtomicInteger loads = new AtomicInteger();
+        ReactiveCache<String, Integer> cache = ReactiveCache.builder()
+            .maximumSize(100)
+            .expireAfterWrite(Duration.ofMinutes(1))
+            .clock(clock)
+            .build(key -> Mono.fromCallable(loads::incrementAndGet));
+
+        Assertions.assertEquals(1, cache.get("k").block());
+        clock.advanceTimeBy(Duration.ofSeconds(59));
+        Assertions.assertEquals(1, cache.get("k").block());
+        clock.advanceTimeBy(Duration.ofSeconds(1));
+        Assertions.assertNull(cache.getIfPresent("k"));
+        Assertions.assertEquals(2, cache.get("k").block());
+
+        clock.advanceTimeBy(Duration.ofMinutes(2));
+        cache.cleanUp();
+        Assertions.assertEquals(0, cache.estimatedSize());
+        Assertions.assertEquals(1, cache.stats().expirationCount());
+    }
+
+    @Test
+    @DisplayName("refreshAfterWrite 가 지나면 기존 값을 반환하고 뒤에서 새 값을 불러온다")
+    void refreshAfterWrite() {
+        VirtualTimeScheduler clock = VirtualTimeScheduler.create();
+        AtomicInteger loads = new AtomicInteger();
+        ReactiveCache<String, Integer> cache = ReactiveCache.builder()
+            .maximumSize(100)
+            .refreshAfterWrite(Duration.ofSeconds(10))
+            .clock(clock)
+            .build(key -> Mono.fromCallable(loads::incrementAndGet));
+
+        Assertions.assertEquals(1, cache.get("k").block());
+        clock.advanceTimeBy(Duration.ofSeconds(10));
+        Assertions.assertEquals(1, cache.get("k").block()); // 이전 값, 그 사이 refresh 완료
+        Assertions.assertEquals(2, cache.get("k").block());
+        Assertions.assertEquals(2, loads.get());
+    }
+
+    @Test
+    @DisplayName("invalidate 하면 진행 중이던 로딩 결과도 저장하지 않는다")
+    void invalidateDuringLoad() {
+        Sinks.One<String> upstream = Sinks.one();
+        ReactiveCache<String, String> cache = ReactiveCache.builder()
+            .maximumSize(100)
+            .build(key -> upstream.asMono());
+
+        StepVerifier.create(cache.get("k"))
+            .then(() -> cache.invalidate("k"))
+            .then(() -> upstream.tryEmitValue("stale"))
+            .expectNext("stale")
+            .verifyComplete();
+        Assertions.assertNull(cache.getIfPresent("k"));
+    }
+
+    @Test
+    void invalidBuilder() {
+        Assertions.assertThrows(IllegalStateException.class, () -> ReactiveCache.builder().build(Mono::just));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> ReactiveCache.builder().maximumSize(0));
+        Assertions.assertThrows(IllegalStateException.class, () -> ReactiveCache.builder().maximumSize(1).maximumSize(2));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> ReactiveCache.builder().expireAfterWrite(Duration.ZERO));
+    }
+}
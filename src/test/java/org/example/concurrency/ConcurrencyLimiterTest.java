@@ -0,0 +1,139 @@
+package org.example.concurrency;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.scheduler.VirtualTimeScheduler;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+public class ConcurrencyLimiterTest
+{
+    /**
+     * capacity 개까지는 base 만에 응답하고, 그보다 많이 받으면 큐에 쌓여서 active / capacity 배 느려지는 서비스
+     */
+    static final class SimulatedService
+    {
+        final VirtualTimeScheduler vts;
+        final Duration base;
+        int capacity;
+        boolean failing;
+        int active;
+        int maxActive;
+        long calls;
+
+        SimulatedService(VirtualTimeScheduler vts, Duration base, int capacity) {
+            this.vts = vts;
+            this.base = base;
+            this.capacity = capacity;
+        }
+
+        Mono<Integer> call(int request) {
+            return Mono.defer(() -> {
+                active++;
+                calls++;
+                maxActive = Math.max(maxActive, active);
+                long latency = (long) (base.toNanos() * Math.max(1, (double) active / capacity));
+                Mono<Integer> response = Mono.delay(Duration.ofNanos(latency), vts).thenReturn(request);
+                if (failing) {
+                    response = response.then(Mono.error(new IllegalStateException("overloaded")));
+                }
+                // 응답을 보내기 전에 줄인다. (doFinally 는 하류가 응답을 처리한 뒤에 불린다.)
+                return response.doOnTerminate(() -> active--).doOnCancel(() -> active--);
+            });
+        }
+    }
+
+    @Test
+    @DisplayName("gradient 는 서비스가 느려지지 않는 만큼 limit 를 올리고, 서비스 용량이 줄면 따라 내린다")
+    void gradientFollowsCapacity() {
+        VirtualTimeScheduler vts = VirtualTimeScheduler.create();
+        SimulatedService service = new SimulatedService(vts, Duration.ofMillis(10), 20);
+        ConcurrencyLimiter limiter = ConcurrencyLimiter.builder().gradient(1.5, 4).scheduler(vts).build();
+
+        Disposable subscription = Flux.range(0, Integer.MAX_VALUE)
+            .transform(limiter.flatMap(service::call))
+            .subscribe();
+        Assertions.assertEquals(10, service.active); // initialLimit
+
+        vts.advanceTimeBy(Duration.ofSeconds(5));
+        int limit = limiter.currentLimit();
+        Assertions.assertTrue(limit >= 25 && limit <= 40, () -> "limit=" + limit); // 약 1.5 x 20 + 4
+        ConcurrencyStats stats = limiter.stats();
+        Assertions.assertEquals(Duration.ofMillis(10), stats.minRtt());
+        // 고정 concurrency 256 이면 응답 시간이 10ms x 256 / 20 = 128ms 가 된다.
+        Assertions.assertTrue(stats.averageRtt().compareTo(Duration.ofMillis(20)) < 0, () -> "stats=" + stats);
+        Assertions.assertTrue(stats.estimatedQueue() < limit, () -> "stats=" + stats);
+
+        service.capacity = 5;
+        vts.advanceTimeBy(Duration.ofSeconds(5));
+        int reduced = limiter.currentLimit();
+        Assertions.assertTrue(reduced >= 8 && reduced <= 15, () -> "limit=" + reduced); // 약 1.5 x 5 + 4
+
+        service.capacity = 20;
+        vts.advanceTimeBy(Duration.ofSeconds(5));
+        int recovered = limiter.currentLimit();
+        Assertions.assertTrue(recovered >= 25, () -> "limit=" + recovered);
+
+        subscription.dispose();
+        Assertions.assertEquals(0, limiter.stats().inFlight());
+    }
+
+    @Test
+    @DisplayName("aimd 는 응답 시간이 latencyThreshold 를 넘거나 에러가 나면 limit 를 비율로 줄이고, 그 밖에는 조금씩 늘린다")
+    void aimdBacksOffOnSlowResponsesAndErrors() {
+        VirtualTimeScheduler vts = VirtualTimeScheduler.create();
+        SimulatedService service = new SimulatedService(vts, Duration.ofMillis(10), 20);
+        ConcurrencyLimiter limiter = ConcurrencyLimiter.builder()
+            .aimd(0.9, Duration.ofMillis(15))
+            .scheduler(vts)
+            .build();
+
+        List<Integer> limits = new ArrayList<>();
+        Disposable subscription = Flux.range(0, Integer.MAX_VALUE)
+            .transform(limiter.flatMap(service::call))
+            .onErrorContinue((e, value) -> { })
+            .subscribe();
+        for (int i = 0; i < 100; i++) {
+            vts.advanceTimeBy(Duration.ofMillis(50));
+            limits.add(limiter.currentLimit());
+        }
+        // 15ms 를 넘는 것은 동시에 30 개 넘게 받을 때다. 그 근처에서 오르내린다.
+        for (int limit : limits.subList(50, 100)) {
+            Assertions.assertTrue(limit >= 20 && limit <= 33, () -> "limits=" + limits);
+        }
+        Assertions.assertTrue(limiter.stats().dropped() > 0);
+
+        service.failing = true;
+        vts.advanceTimeBy(Duration.ofSeconds(1));
+        Assertions.assertEquals(1, limiter.currentLimit(), () -> "stats=" + limiter.stats());
+        subscription.dispose();
+    }
+
+    @Test
+    @DisplayName("하나의 limiter 를 여러 구독이 함께 쓰면 모두 합쳐 limit 를 넘지 않고, 끝나면 자리를 모두 돌려준다")
+    void sharedLimiter() {
+        VirtualTimeScheduler vts = VirtualTimeScheduler.create();
+        SimulatedService service = new SimulatedService(vts, Duration.ofMillis(10), 100);
+        ConcurrencyLimiter limiter = ConcurrencyLimiter.builder().limits(4, 4).initialLimit(4).scheduler(vts).build();
+
+        List<Integer> first = new ArrayList<>();
+        List<Integer> second = new ArrayList<>();
+        Flux.range(0, 50).transform(limiter.flatMap(service::call)).subscribe(first::add);
+        Flux.range(100, 50).transform(limiter.flatMap(service::call)).subscribe(second::add);
+        Flux.range(200, 50).transform(limiter.flatMap(service::call)).take(3).subscribe();
+        Assertions.assertEquals(4, service.active);
+
+        vts.advanceTimeBy(Duration.ofSeconds(10));
+        Assertions.assertEquals(50, first.size());
+        Assertions.assertEquals(50, second.size());
+        Assertions.assertEquals(4, service.maxActive);
+        Assertions.assertEquals(0, limiter.stats().inFlight());
+        Assertions.assertTrue(service.calls <= 103 + 4, () -> "calls=" + service.calls); // take(3) 뒤로는 부르지 않는다.
+    }
+}
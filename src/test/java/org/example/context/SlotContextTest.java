@@ -0,0 +1,124 @@
+package org.example.context;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.test.StepVerifier;
+import reactor.util.context.Context;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+public class SlotContextTest
+{
+    static final SlotContext.Key<String> TENANT = SlotContext.key("test.tenant");
+    static final SlotContext.Key<String> TRACE_ID = SlotContext.key("test.traceId");
+    static final SlotContext.Key<String> SPAN_ID = SlotContext.key("test.spanId");
+    static final SlotContext.Key<Long> DEADLINE = SlotContext.key("test.deadline");
+    static final SlotContext.Key<String> USER = SlotContext.key("test.user");
+    static final SlotContext.Key<String> ROLE = SlotContext.key("test.role");
+    static final SlotContext.Key<String> LOCALE = SlotContext.key("test.locale");
+    static final SlotContext.Key<String> REGION = SlotContext.key("test.region");
+
+    @Test
+    @DisplayName("contextWrite 체인을 거쳐도 SlotContext 로 남고, deferContextual/transformDeferredContextual 에서 읽을 수 있다")
+    void readThroughOperators() {
+        Mono<String> mono = Mono.deferContextual(ctx ->
+                Mono.just(TENANT.get(ctx) + "/" + USER.get(ctx) + "/" + ctx.getClass().getSimpleName()))
+            .subscribeOn(Schedulers.boundedElastic())
+            .publishOn(Schedulers.parallel())
+            .transformDeferredContextual((m, ctx) -> m.map(data -> data + " " + ctx.get(REGION) + " " + ctx.size()))
+            .contextWrite(ctx -> ctx.put(REGION, "kr"))
+            .contextWrite(ctx -> ctx.put(LOCALE, "ko"))
+            .contextWrite(ctx -> ctx.put(ROLE, "admin"))
+            .contextWrite(ctx -> ctx.put(USER, "devljh"))
+            .contextWrite(ctx -> ctx.put(DEADLINE, 1_000L))
+            .contextWrite(ctx -> ctx.put(SPAN_ID, "s-1"))
+            .contextWrite(ctx -> ctx.put(TRACE_ID, "t-1"))
+            .contextWrite(SlotContext.write(TENANT, "acme"));
+
+        StepVerifier.create(mono)
+            .expectNext("acme/devljh/SlotContext kr 8")
+            .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("같은 키를 여러 번 쓰면 가장 위쪽 contextWrite 의 값이 보이고, 등록하지 않은 키와 섞어 쓸 수 있다")
+    void upperWriteWinsAndMixesPlainKeys() {
+        Mono<String> mono = Mono.deferContextual(ctx -> Mono.just(ctx.get(TENANT) + " " + ctx.get("firstName")))
+            .contextWrite(ctx -> ctx.put(TENANT, "upper"))
+            .contextWrite(ctx -> ctx.put("firstName", "Steve"))
+            .contextWrite(SlotContext.write(TENANT, "lower"))
+            .contextWrite(Context.of("lastName", "Jobs"));
+
+        StepVerifier.create(mono)
+            .expectNext("upper Steve")
+            .verifyComplete();
+
+        StepVerifier.create(Mono.deferContextual(ctx -> Mono.just(TRACE_ID.getOrDefault(ctx, "none") + " " + ctx.hasKey(TENANT)))
+                .contextWrite(Context.of(TENANT, "plain")))
+            .expectNext("none true")
+            .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("put/delete 는 원본을 바꾸지 않는다")
+    void copyOnWrite() {
+        SlotContext empty = SlotContext.empty();
+        SlotContext one = empty.put(TENANT, "acme");
+        SlotContext two = one.put(TRACE_ID, "t-1").put("plain", 1);
+        SlotContext replaced = two.put(TENANT, "other");
+        SlotContext deleted = replaced.delete(TENANT).delete("plain");
+
+        Assertions.assertTrue(empty.isEmpty());
+        Assertions.assertEquals("acme", one.get(TENANT));
+        Assertions.assertEquals(1, one.size());
+        Assertions.assertEquals(3, two.size());
+        Assertions.assertEquals("acme", two.get(TENANT));
+        Assertions.assertEquals(1, (int) two.get("plain"));
+        Assertions.assertEquals("other", replaced.get(TENANT));
+        Assertions.assertEquals(3, replaced.size());
+        Assertions.assertEquals(1, deleted.size());
+        Assertions.assertFalse(deleted.hasKey(TENANT));
+        Assertions.assertSame(deleted, deleted.delete(TENANT));
+        Assertions.assertThrows(NoSuchElementException.class, () -> deleted.get(TENANT));
+        Assertions.assertThrows(NoSuchElementException.class, () -> TENANT.get(deleted));
+        Assertions.assertEquals("fallback", deleted.getOrDefault(TENANT, "fallback"));
+        Assertions.assertThrows(NullPointerException.class, () -> one.put(TRACE_ID, null));
+    }
+
+    @Test
+    @DisplayName("from/putAll 은 SlotContext 를 유지하고, stream/forEach 는 모든 엔트리를 돌려준다")
+    void conversions() {
+        Context reactor = Context.of(TENANT, "acme", "plain", "p", TRACE_ID, "t-1");
+        SlotContext slot = SlotContext.from(reactor);
+
+        Assertions.assertSame(slot, SlotContext.from(slot));
+        Assertions.assertEquals(3, slot.size());
+        Assertions.assertEquals("acme", TENANT.get(slot));
+        Assertions.assertEquals("p", slot.get("plain"));
+
+        SlotContext merged = slot.putAll(Context.of(TENANT, "other", USER, "u").readOnly());
+        Map<Object, Object> entries = new LinkedHashMap<>();
+        merged.forEach(entries::put);
+        Assertions.assertEquals(Map.of(TENANT, "other", TRACE_ID, "t-1", USER, "u", "plain", "p"), entries);
+        Assertions.assertEquals(4, merged.stream().count());
+        Assertions.assertEquals("acme", slot.get(TENANT));
+
+        SlotContext fromMap = SlotContext.empty().putAllMap(Map.of(ROLE, "r", "x", "y"));
+        Assertions.assertEquals("r", fromMap.get(ROLE));
+        Assertions.assertEquals("y", fromMap.get("x"));
+        Assertions.assertTrue(merged.toString().startsWith("SlotContext{test.tenant=other"), merged::toString);
+    }
+
+    @Test
+    @DisplayName("같은 이름으로 등록하면 같은 키를 돌려준다")
+    void keysAreCanonical() {
+        Assertions.assertSame(TENANT, SlotContext.key("test.tenant"));
+        Assertions.assertEquals("test.tenant", TENANT.name());
+        Assertions.assertNotSame(TENANT, TRACE_ID);
+    }
+}
@@ -0,0 +1,124 @@
+package org.example.distinct;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+import reactor.test.scheduler.VirtualTimeScheduler;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.Function;
+
+public class BoundedDistinctTest
+{
+    @Test
+    @DisplayName("창이 충분히 크면 Flux.distinct() 와 같다")
+    void sameAsDistinct() {
+        Flux<String> animalFlux = Flux.just("dog", "cat", "bird", "dog", "bird", "anteater")
+            .transform(BoundedDistinct.window(16));
+
+        StepVerifier.create(animalFlux)
+            .expectNext("dog", "cat", "bird", "anteater")
+            .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("maxKeys 를 넘으면 가장 오래된 키를 잊는다")
+    void forgetsOldestKey() {
+        Flux<String> animalFlux = Flux.just("dog", "cat", "bird", "dog", "cat")
+            .transform(BoundedDistinct.window(2));
+
+        // bird 가 들어오면서 dog 를 잊고, dog 가 다시 들어오면서 cat 을 잊는다.
+        StepVerifier.create(animalFlux)
+            .expectNext("dog", "cat", "bird", "dog", "cat")
+            .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("ttl 이 지난 키는 다시 방출된다")
+    void forgetsAfterTtl() {
+        VirtualTimeScheduler clock = VirtualTimeScheduler.create();
+        Function<Flux<String>, Flux<String>> distinct = BoundedDistinct.window(Function.identity(), 100, Duration.ofSeconds(10), clock);
+
+        StepVerifier.withVirtualTime(() -> Flux.just("a", "a", "b")
+                .concatWith(Flux.just("a", "b").delaySubscription(Duration.ofSeconds(5), clock))
+                .concatWith(Flux.just("a", "b").delaySubscription(Duration.ofSeconds(6), clock))
+                .transform(distinct), () -> clock, Long.MAX_VALUE)
+            .expectNext("a", "b")
+            .thenAwait(Duration.ofSeconds(11))
+            .expectNext("a", "b")
+            .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("KeyWindow 는 삽입 순서대로 최근 maxKeys 개를 기억하는 집합과 같게 동작한다")
+    void keyWindowMatchesReference() {
+        Random random = new Random(42);
+        KeyWindow window = new KeyWindow(100, 0);
+        LongKeyWindow longWindow = new LongKeyWindow(100, 0);
+        Set<Long> reference = new HashSet<>();
+        ArrayDeque<Long> order = new ArrayDeque<>();
+
+        for (int i = 0; i < 200_000; i++) {
+            long key = random.nextInt(300) - 10; // 0 과 음수 포함
+            boolean expected = !reference.contains(key);
+            if (expected) {
+                if (order.size() == 100) {
+                    reference.remove(order.removeFirst());
+                }
+                reference.add(key);
+                order.addLast(key);
+            }
+            Assertions.assertEquals(expected, window.add(key, 0));
+            Assertions.assertEquals(expected, longWindow.add(key, 0));
+        }
+        Assertions.assertEquals(100, window.size());
+        Assertions.assertEquals(100, longWindow.size());
+    }
+
+    @Test
+    @DisplayName("키가 아무리 많이 지나가도 메모리는 늘어나지 않는다")
+    void boundedMemory() {
+        LongKeyWindow window = new LongKeyWindow(1000, 0);
+        long before = window.memoryBytes();
+        for (long key = 0; key < 1_000_000; key++) {
+            window.add(key, 0);
+        }
+        Assertions.assertEquals(before, window.memoryBytes());
+        Assertions.assertEquals(1000, window.size());
+    }
+
+    @Test
+    @DisplayName("블룸 필터 모드의 거짓 양성 비율은 설정값 근처이다")
+    void probabilisticFalsePositiveRate() {
+        long keysPerGeneration = 10_000;
+        Long emitted = Flux.range(0, 1_000_000)
+            .transform(BoundedDistinct.probabilisticLong(i -> i, keysPerGeneration, 0.01))
+            .count()
+            .block();
+
+        double falsePositiveRate = 1 - emitted / 1_000_000.0;
+        Assertions.assertTrue(falsePositiveRate < 0.02, "false positive rate " + falsePositiveRate);
+    }
+
+    @Test
+    @DisplayName("블룸 필터 모드도 최근 키의 중복은 걸러낸다")
+    void probabilisticDropsRecentDuplicates() {
+        StepVerifier.create(Flux.just("dog", "cat", "bird", "dog", "bird", "anteater")
+                .transform(BoundedDistinct.probabilistic(Function.identity(), 1000, 0.001)))
+            .expectNext("dog", "cat", "bird", "anteater")
+            .verifyComplete();
+    }
+
+    @Test
+    void invalidArguments() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> BoundedDistinct.window(0));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> BoundedDistinct.window(Function.identity(), 10, Duration.ofSeconds(-1)));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> BoundedDistinct.probabilistic(Function.identity(), 10, 1.5));
+    }
+}
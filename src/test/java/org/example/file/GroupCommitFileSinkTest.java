@@ -0,0 +1,177 @@
+package org.example.file;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+import reactor.test.publisher.TestPublisher;
+import reactor.test.scheduler.VirtualTimeScheduler;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+
+public class GroupCommitFileSinkTest
+{
+    @TempDir
+    Path dir;
+
+    private static ByteBuffer line(int i) {
+        return ByteBuffer.wrap(("event-" + i + "\n").getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private static byte[] expectedLines(int from, int to) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (int i = from; i < to; i++) {
+            out.writeBytes(("event-" + i + "\n").getBytes(StandardCharsets.US_ASCII));
+        }
+        return out.toByteArray();
+    }
+
+    @Test
+    @DisplayName("모든 요소를 순서대로 쓰고, 요소보다 훨씬 적은 수의 배치로 fsync 한다")
+    void writesEverythingInFewBatches() throws IOException {
+        Path file = dir.resolve("events.log");
+        GroupCommitFileSink sink = GroupCommitFileSink.builder(file).maxBatchBytes(64 * 1024).build();
+
+        List<FileCommit> commits = sink.commits(Flux.range(0, 20_000).map(GroupCommitFileSinkTest::line))
+            .collectList()
+            .block(Duration.ofSeconds(30));
+
+        byte[] expected = expectedLines(0, 20_000);
+        Assertions.assertArrayEquals(expected, Files.readAllBytes(file));
+        Assertions.assertEquals(20_000, commits.stream().mapToInt(FileCommit::elements).sum());
+        Assertions.assertEquals(expected.length, commits.get(commits.size() - 1).position());
+        Assertions.assertTrue(commits.size() < 2_000, () -> "batches=" + commits.size());
+        for (int i = 0; i < commits.size(); i++) {
+            Assertions.assertEquals(i, commits.get(i).batch());
+        }
+    }
+
+    @Test
+    @DisplayName("maxBatchDelay 가 지나거나 maxBatchBytes 를 넘으면 배치를 쓴다")
+    void flushesOnDelayOrSize() throws IOException {
+        VirtualTimeScheduler vts = VirtualTimeScheduler.create();
+        Path file = dir.resolve("delay.log");
+        GroupCommitFileSink sink = GroupCommitFileSink.builder(file)
+            .maxBatchBytes(100)
+            .maxBatchDelay(Duration.ofMillis(10))
+            .scheduler(vts)
+            .build();
+        TestPublisher<ByteBuffer> source = TestPublisher.create();
+
+        StepVerifier.create(sink.commits(source))
+            .then(() -> source.next(line(0), line(1), line(2)))
+            .then(() -> vts.advanceTimeBy(Duration.ofMillis(9)))
+            .expectNoEvent(Duration.ZERO)
+            .then(() -> vts.advanceTimeBy(Duration.ofMillis(1)))
+            .assertNext(commit -> Assertions.assertEquals(new FileCommit(0, 3, 24, 24), commit))
+            .then(() -> {
+                for (int i = 10; i < 23; i++) {
+                    source.next(line(i)); // 9 바이트씩 13 개 = 117 바이트
+                }
+            })
+            .assertNext(commit -> {
+                Assertions.assertEquals(12, commit.elements()); // 100 바이트를 넘는 순간 쓴다.
+                Assertions.assertEquals(108, commit.bytes());
+            })
+            .then(source::complete)
+            .assertNext(commit -> Assertions.assertEquals(new FileCommit(2, 1, 9, 141), commit))
+            .verifyComplete();
+
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        expected.writeBytes(expectedLines(0, 3));
+        expected.writeBytes(expectedLines(10, 23));
+        Assertions.assertArrayEquals(expected.toByteArray(), Files.readAllBytes(file));
+    }
+
+    @Test
+    @DisplayName("큰 요소는 복사하지 않고 작은 요소와 순서를 지켜 쓰며, append 모드는 기존 내용 뒤에 붙인다")
+    void mixesLargeAndSmallElements() throws IOException {
+        Path file = dir.resolve("mixed.bin");
+        Files.write(file, new byte[] {1, 2, 3});
+        byte[] large = new byte[100_000];
+        Arrays.fill(large, (byte) 'L');
+        ByteBuffer direct = ByteBuffer.allocateDirect(20_000);
+        while (direct.hasRemaining()) {
+            direct.put((byte) 'D');
+        }
+        direct.flip();
+        ByteBuffer small = ByteBuffer.wrap(new byte[] {'s'});
+
+        StepVerifier.create(GroupCommitFileSink.builder(file).append(true).build()
+                .write(Flux.just(small, ByteBuffer.wrap(large), small.duplicate(), direct, small.duplicate())))
+            .verifyComplete();
+
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        expected.writeBytes(new byte[] {1, 2, 3, 's'});
+        expected.writeBytes(large);
+        expected.write('s');
+        byte[] d = new byte[20_000];
+        Arrays.fill(d, (byte) 'D');
+        expected.writeBytes(d);
+        expected.write('s');
+        Assertions.assertArrayEquals(expected.toByteArray(), Files.readAllBytes(file));
+        Assertions.assertEquals(0, direct.position()); // 요소의 position 은 바꾸지 않는다.
+
+        StepVerifier.create(GroupCommitFileSink.builder(file).build().write(Flux.empty())).verifyComplete();
+        Assertions.assertEquals(0, Files.size(file)); // 기본은 구독할 때 파일을 비운다.
+    }
+
+    @Test
+    @DisplayName("상류가 에러로 끝나면 그 전까지 받은 요소를 기록한 뒤 에러를 전달한다")
+    void upstreamErrorFlushesFirst() throws IOException {
+        Path file = dir.resolve("error.log");
+        GroupCommitFileSink sink = GroupCommitFileSink.builder(file).maxBatchDelay(Duration.ofHours(1)).build();
+
+        StepVerifier.create(sink.write(Flux.range(0, 100).map(GroupCommitFileSinkTest::line)
+                .concatWith(Flux.error(new IllegalStateException("boom")))))
+            .expectErrorMessage("boom")
+            .verify(Duration.ofSeconds(10));
+
+        Assertions.assertArrayEquals(expectedLines(0, 100), Files.readAllBytes(file));
+    }
+
+    @Test
+    @DisplayName("파일을 열 수 없으면 상류를 취소하고 IOException 으로 끝난다")
+    void openFailure() {
+        TestPublisher<ByteBuffer> source = TestPublisher.create();
+        GroupCommitFileSink sink = GroupCommitFileSink.builder(dir.resolve("missing-dir").resolve("x.log")).build();
+
+        StepVerifier.create(sink.write(source))
+            .then(() -> source.next(line(0)))
+            .expectError(IOException.class)
+            .verify(Duration.ofSeconds(10));
+
+        source.assertCancelled();
+        Assertions.assertThrows(IllegalArgumentException.class, () -> GroupCommitFileSink.builder(dir).maxBatchBytes(0));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> GroupCommitFileSink.builder(dir).maxBatchDelay(Duration.ofMillis(-1)));
+    }
+
+    @Test
+    @DisplayName("취소하면 상류를 취소하고 더 이상 확인을 보내지 않는다")
+    void cancel() {
+        VirtualTimeScheduler vts = VirtualTimeScheduler.create();
+        TestPublisher<ByteBuffer> source = TestPublisher.create();
+        GroupCommitFileSink sink = GroupCommitFileSink.builder(dir.resolve("cancel.log"))
+            .maxBatchDelay(Duration.ofSeconds(1))
+            .scheduler(vts)
+            .build();
+
+        StepVerifier.create(sink.commits(source))
+            .then(() -> source.next(line(0)))
+            .thenCancel()
+            .verify();
+
+        vts.advanceTimeBy(Duration.ofSeconds(5));
+        source.assertCancelled();
+    }
+}
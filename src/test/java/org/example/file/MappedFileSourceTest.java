@@ -0,0 +1,230 @@
+package org.example.file;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import reactor.test.StepVerifier;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+public class MappedFileSourceTest
+{
+    @TempDir
+    Path dir;
+
+    private Path write(String content) throws IOException {
+        Path file = Files.createTempFile(dir, "mapped", ".log");
+        Files.writeString(file, content, StandardCharsets.UTF_8);
+        return file;
+    }
+
+    private static List<String> expectedLines(Path file) throws IOException {
+        try (Stream<String> lines = Files.lines(file)) {
+            return lines.collect(Collectors.toList());
+        }
+    }
+
+    private static Path logFile(Path dir, int lines) throws IOException {
+        Random random = new Random(42);
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < lines; i++) {
+            sb.append(i % 7 == 0 ? "ERROR " : "INFO ").append(i).append(' ');
+            sb.append("x".repeat(random.nextInt(40)));
+            sb.append(i % 5 == 0 ? "\r\n" : "\n");
+        }
+        Path file = Files.createTempFile(dir, "log", ".log");
+        Files.writeString(file, sb, StandardCharsets.UTF_8);
+        return file;
+    }
+
+    @Test
+    @DisplayName("lines 는 Files.lines 와 같은 줄을 내보낸다. 영역 경계에 걸친 줄도 이어 붙인다")
+    void linesMatchFilesLines() throws IOException {
+        String[] contents = {
+            "",
+            "\n",
+            "a",
+            "a\n",
+            "a\n\n",
+            "first\r\nsecond\n\nthird",
+            "한글 줄\n日本語\nemoji 😀\n",
+            "0123456789abcdef\n0123456789abcdef0123456\n\n\r\nx\n",
+        };
+        for (String content : contents) {
+            Path file = write(content);
+            List<String> expected = expectedLines(file);
+            for (int regionSize : new int[] {32, 64, MappedFileSource.DEFAULT_REGION_SIZE}) {
+                List<String> actual = MappedFileSource.lines(file, FileRange.WHOLE_FILE, regionSize)
+                    .map(LineView::toString)
+                    .collectList()
+                    .block();
+                Assertions.assertEquals(expected, actual, () -> "content=" + content.replace("\n", "\\n") + " regionSize=" + regionSize);
+            }
+        }
+
+        Path log = logFile(dir, 5_000);
+        StepVerifier.create(MappedFileSource.lines(log, FileRange.WHOLE_FILE, 256).map(LineView::toString))
+            .expectNextSequence(expectedLines(log))
+            .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("LineView 는 바이트 단위 CharSequence 이고 subSequence/buffer 는 복사하지 않는다")
+    void lineView() throws IOException {
+        Path file = write("ERROR disk full\r\n");
+        LineView line = MappedFileSource.lines(file).blockFirst();
+
+        Assertions.assertNotNull(line);
+        Assertions.assertEquals(15, line.length());
+        Assertions.assertEquals('E', line.charAt(0));
+        Assertions.assertEquals("disk", line.subSequence(6, 10).toString());
+        Assertions.assertTrue("ERROR disk full".contentEquals(line));
+        Assertions.assertTrue(line.buffer().isReadOnly());
+        Assertions.assertEquals(15, line.buffer().remaining());
+        Assertions.assertThrows(IndexOutOfBoundsException.class, () -> line.charAt(15));
+    }
+
+    @Test
+    @DisplayName("요청한 만큼만 읽고, 취소하면 더 읽지 않는다")
+    void backpressure() throws IOException {
+        Path file = logFile(dir, 1_000);
+        AtomicLong emitted = new AtomicLong();
+
+        StepVerifier.create(MappedFileSource.lines(file).doOnNext(line -> emitted.incrementAndGet()), 0)
+            .expectSubscription()
+            .expectNoEvent(Duration.ofMillis(10))
+            .thenRequest(3)
+            .expectNextCount(3)
+            .then(() -> Assertions.assertEquals(3, emitted.get()))
+            .thenRequest(2)
+            .expectNextCount(2)
+            .thenCancel()
+            .verify();
+
+        Assertions.assertEquals(5, emitted.get());
+    }
+
+    @Test
+    @DisplayName("chunks 는 파일 전체를 chunkSize 조각으로 복사 없이 나눈다")
+    void chunks() throws IOException {
+        Path file = logFile(dir, 2_000);
+        byte[] expected = Files.readAllBytes(file);
+
+        for (FileRange range : List.of(FileRange.WHOLE_FILE, new FileRange(100, 5_000), new FileRange(expected.length, expected.length))) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            List<Integer> sizes = MappedFileSource.chunks(file, range, 1_000)
+                .doOnNext(chunk -> {
+                    Assertions.assertTrue(chunk.isReadOnly());
+                    byte[] bytes = new byte[chunk.remaining()];
+                    chunk.get(bytes);
+                    out.writeBytes(bytes);
+                })
+                .map(chunk -> chunk.limit())
+                .collectList()
+                .block();
+
+            int from = (int) range.start();
+            int to = (int) Math.min(range.end(), expected.length);
+            Assertions.assertArrayEquals(Arrays.copyOfRange(expected, from, to), out.toByteArray());
+            Assertions.assertTrue(sizes.stream().limit(Math.max(0, sizes.size() - 1)).allMatch(size -> size == 1_000), sizes::toString);
+        }
+    }
+
+    @Test
+    @DisplayName("split 한 구간을 rail 마다 읽으면 줄이 잘리거나 겹치지 않는다")
+    void splitIntoRails() throws IOException {
+        Path file = logFile(dir, 10_000);
+        List<String> expected = expectedLines(file);
+
+        List<FileRange> ranges = MappedFileSource.split(file, 4);
+        Assertions.assertEquals(4, ranges.size());
+        Assertions.assertEquals(0, ranges.get(0).start());
+        Assertions.assertEquals(Files.size(file), ranges.get(ranges.size() - 1).end());
+        List<String> concatenated = new ArrayList<>();
+        for (int i = 0; i < ranges.size(); i++) {
+            if (i > 0) {
+                Assertions.assertEquals(ranges.get(i - 1).end(), ranges.get(i).start());
+            }
+            MappedFileSource.lines(file, ranges.get(i)).map(LineView::toString).toIterable().forEach(concatenated::add);
+        }
+        Assertions.assertEquals(expected, concatenated);
+
+        Scheduler scheduler = Schedulers.newParallel("rails", 4);
+        try {
+            List<String> parallel = MappedFileSource.parallelLines(file, 4, scheduler)
+                .map(LineView::toString)
+                .sequential()
+                .collectList()
+                .block();
+            Assertions.assertEquals(expected.size(), parallel.size());
+            Assertions.assertEquals(expected.stream().sorted().toList(), parallel.stream().sorted().toList());
+        }
+        finally {
+            scheduler.dispose();
+        }
+
+        Path single = write("one line without newline");
+        Assertions.assertEquals(List.of(new FileRange(0, 24)), MappedFileSource.split(single, 8));
+        Assertions.assertEquals(List.of(), MappedFileSource.split(write(""), 8));
+    }
+
+    @Test
+    @DisplayName("8 바이트씩 찾는 줄바꿈 검색은 한 바이트씩 찾는 것과 같다")
+    void swarNewlineSearch() {
+        Random random = new Random(7);
+        byte[] alphabet = {'\n', '\t', 0x0B, 0x09, 0x01, 0x00, (byte) 0x8A, (byte) 0xFF, 'a'};
+        for (int round = 0; round < 2_000; round++) {
+            byte[] bytes = new byte[1 + random.nextInt(40)];
+            for (int i = 0; i < bytes.length; i++) {
+                bytes[i] = alphabet[random.nextInt(alphabet.length)];
+            }
+            ByteBuffer buffer = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+            int from = random.nextInt(bytes.length);
+            int expected = -1;
+            for (int i = from; i < bytes.length; i++) {
+                if (bytes[i] == '\n') {
+                    expected = i;
+                    break;
+                }
+            }
+            Assertions.assertEquals(expected, MappedFileSource.indexOfNewline(buffer, from, bytes.length));
+        }
+    }
+
+    @Test
+    @DisplayName("없는 파일, 영역보다 긴 줄, 잘못된 인자는 에러로 끝난다")
+    void errors() throws IOException {
+        StepVerifier.create(MappedFileSource.lines(dir.resolve("missing.log")))
+            .expectError(NoSuchFileException.class)
+            .verify();
+
+        Path file = write("short\n" + "y".repeat(100) + "\nnext\n");
+        StepVerifier.create(MappedFileSource.lines(file, FileRange.WHOLE_FILE, 64).map(LineView::toString))
+            .expectNext("short")
+            .expectErrorMatches(e -> e instanceof IOException && e.getMessage().contains("longer than regionSize"))
+            .verify();
+
+        Assertions.assertThrows(IllegalArgumentException.class, () -> MappedFileSource.chunks(file, FileRange.WHOLE_FILE, 0));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new FileRange(10, 5));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> MappedFileSource.split(file, 0));
+        Assertions.assertEquals(List.of(), MappedFileSource.lines(file, new FileRange(1_000, 2_000)).collectList().block());
+    }
+}
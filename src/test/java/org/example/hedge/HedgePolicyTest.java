@@ -0,0 +1,179 @@
+package org.example.hedge;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+import reactor.test.scheduler.VirtualTimeScheduler;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class HedgePolicyTest
+{
+    @Test
+    @DisplayName("primary 가 지연 시간 안에 응답하면 backup 은 구독하지 않는다")
+    void fastPrimaryDoesNotHedge() {
+        VirtualTimeScheduler vts = VirtualTimeScheduler.create();
+        HedgePolicy hedge = HedgePolicy.builder().budgetPercent(100).scheduler(vts).build();
+        AtomicInteger backupSubscribed = new AtomicInteger();
+        Flux<String> slowFlux = Flux.just("tortoise", "snail", "sloth").doOnSubscribe(s -> backupSubscribed.incrementAndGet());
+        Flux<String> fastFlux = Flux.just("hare", "cheetah", "squirrel");
+
+        StepVerifier.create(hedge.first(fastFlux, slowFlux))
+            .expectNext("hare", "cheetah", "squirrel")
+            .verifyComplete();
+
+        vts.advanceTimeBy(Duration.ofSeconds(10));
+        Assertions.assertEquals(0, backupSubscribed.get());
+        Assertions.assertEquals(0, hedge.hedgeCount());
+        Assertions.assertEquals(1, hedge.requestCount());
+    }
+
+    @Test
+    @DisplayName("primary 가 지연 시간 안에 응답하지 않으면 backup 을 구독하고, 먼저 응답한 쪽을 따르며 다른 쪽은 취소한다")
+    void slowPrimaryHedges() {
+        VirtualTimeScheduler vts = VirtualTimeScheduler.create();
+        HedgePolicy hedge = HedgePolicy.builder()
+            .budgetPercent(100)
+            .delayBounds(Duration.ofMillis(1), Duration.ofMillis(100))
+            .scheduler(vts)
+            .build();
+        AtomicInteger primaryCancelled = new AtomicInteger();
+        Flux<String> primary = Mono.delay(Duration.ofSeconds(1), vts).thenMany(Flux.just("tortoise", "snail"))
+            .doOnCancel(primaryCancelled::incrementAndGet);
+        Flux<String> backup = Mono.delay(Duration.ofMillis(10), vts).thenMany(Flux.just("hare", "cheetah"));
+
+        StepVerifier.create(hedge.first(primary, backup))
+            .then(() -> vts.advanceTimeBy(Duration.ofMillis(100)))
+            .expectNoEvent(Duration.ofMillis(50)) // 100ms 에 backup 을 구독했고, backup 은 10ms 뒤에 응답한다.
+            .then(() -> vts.advanceTimeBy(Duration.ofMillis(10)))
+            .expectNext("hare", "cheetah")
+            .verifyComplete();
+
+        Assertions.assertEquals(1, primaryCancelled.get());
+        Assertions.assertEquals(1, hedge.hedgeCount());
+        Assertions.assertEquals(1, hedge.backupWinCount());
+    }
+
+    @Test
+    @DisplayName("지연 시간은 관측한 응답 시간의 p95 를 따라간다")
+    void delayFollowsObservedPercentile() {
+        VirtualTimeScheduler vts = VirtualTimeScheduler.create();
+        HedgePolicy hedge = HedgePolicy.builder().budgetPercent(0).window(100).scheduler(vts).build();
+        Assertions.assertEquals(Duration.ofSeconds(1), hedge.currentDelay()); // 기록이 없으면 maxDelay
+
+        // 100 개 중 90 개는 10ms, 10 개는 50ms 에 응답한다. p95 는 50ms 근처다.
+        for (int i = 0; i < 100; i++) {
+            Duration latency = Duration.ofMillis(i % 10 == 0 ? 50 : 10);
+            hedge.first(Mono.delay(latency, vts), Mono.<Long>never()).subscribe();
+            vts.advanceTimeBy(latency);
+        }
+
+        long delayMillis = hedge.currentDelay().toMillis();
+        Assertions.assertTrue(delayMillis >= 49 && delayMillis <= 52, () -> "delay=" + hedge.currentDelay());
+    }
+
+    @Test
+    @DisplayName("backup 이 이기면 primary 구독부터 잰 시간을 기록하므로 지연 시간이 backup 의 응답 시간으로 줄어들지 않는다")
+    void backupWinsDoNotShrinkDelay() {
+        VirtualTimeScheduler vts = VirtualTimeScheduler.create();
+        HedgePolicy hedge = HedgePolicy.builder()
+            .budgetPercent(100)
+            .window(100)
+            .delayBounds(Duration.ofMillis(1), Duration.ofMillis(20))
+            .scheduler(vts)
+            .build();
+
+        // primary 는 항상 100ms, backup 은 1ms 가 걸린다. 20ms 에 헤징하면 backup 이 21ms 에 이긴다.
+        for (int i = 0; i < 100; i++) {
+            hedge.first(Mono.delay(Duration.ofMillis(100), vts), Mono.delay(Duration.ofMillis(1), vts)).subscribe();
+            vts.advanceTimeBy(Duration.ofMillis(100));
+        }
+
+        Assertions.assertEquals(100, hedge.backupWinCount());
+        Assertions.assertEquals(Duration.ofMillis(20), hedge.currentDelay()); // backup 의 1ms 를 기록했다면 minDelay(1ms) 까지 내려간다.
+    }
+
+    @Test
+    @DisplayName("upstream 전체가 느려져도 backup 구독은 예산을 넘지 않는다")
+    void budgetCapsHedges() {
+        VirtualTimeScheduler vts = VirtualTimeScheduler.create();
+        HedgePolicy hedge = HedgePolicy.builder()
+            .budgetPercent(10)
+            .delayBounds(Duration.ofMillis(1), Duration.ofMillis(20))
+            .scheduler(vts)
+            .build();
+        AtomicInteger backupSubscribed = new AtomicInteger();
+        List<Long> results = new ArrayList<>();
+
+        for (int i = 0; i < 1_000; i++) {
+            Mono<Long> slow = Mono.delay(Duration.ofSeconds(1), vts);
+            Mono<Long> backup = Mono.delay(Duration.ofSeconds(1), vts).doOnSubscribe(s -> backupSubscribed.incrementAndGet());
+            hedge.first(slow, backup).subscribe(results::add);
+            vts.advanceTimeBy(Duration.ofMillis(10));
+        }
+        vts.advanceTimeBy(Duration.ofSeconds(5));
+
+        Assertions.assertEquals(1_000, results.size());
+        Assertions.assertEquals(backupSubscribed.get(), hedge.hedgeCount());
+        Assertions.assertTrue(hedge.hedgeCount() <= 100, () -> "hedges=" + hedge.hedgeCount()); // 1,000 개의 10%
+        Assertions.assertTrue(hedge.hedgeCount() >= 90, () -> "hedges=" + hedge.hedgeCount());
+
+        // 한꺼번에 몰려든 요청은 쌓여 있던 토큰(MAX_BURST 개)만큼만 헤징한다.
+        for (int i = 0; i < 1_000; i++) {
+            hedge.first(Mono.delay(Duration.ofSeconds(1), vts), Mono.delay(Duration.ofSeconds(1), vts)).subscribe(results::add);
+        }
+        long before = hedge.hedgeCount();
+        vts.advanceTimeBy(Duration.ofSeconds(5));
+        Assertions.assertEquals(2_000, results.size());
+        Assertions.assertEquals(HedgePolicy.MAX_BURST, hedge.hedgeCount() - before);
+    }
+
+    @Test
+    @DisplayName("꼬리 지연이 있는 소스에서 부하를 조금만 늘리고 p99 응답 시간을 줄인다")
+    void cutsTailLatency() {
+        VirtualTimeScheduler vts = VirtualTimeScheduler.create();
+        HedgePolicy hedge = HedgePolicy.builder().budgetPercent(5).window(200).scheduler(vts).build();
+        List<Long> latencies = new ArrayList<>();
+
+        // 요청의 2% 는 1초, 나머지는 10ms 가 걸리는 소스
+        for (int i = 0; i < 2_000; i++) {
+            Duration primaryLatency = Duration.ofMillis(i % 50 == 7 ? 1_000 : 10);
+            long start = vts.now(TimeUnit.MILLISECONDS);
+            hedge.first(Mono.delay(primaryLatency, vts), Mono.delay(Duration.ofMillis(10), vts))
+                .subscribe(v -> latencies.add(vts.now(TimeUnit.MILLISECONDS) - start));
+            vts.advanceTimeBy(Duration.ofSeconds(1));
+        }
+
+        latencies.sort(Long::compare);
+        long p99 = latencies.get(latencies.size() * 99 / 100);
+        Assertions.assertTrue(p99 < 100, () -> "p99=" + p99 + "ms");
+        Assertions.assertTrue(hedge.hedgeCount() <= 2_000 * 5 / 100 + HedgePolicy.MAX_BURST, () -> "hedges=" + hedge.hedgeCount());
+    }
+
+    @Test
+    @DisplayName("취소하면 양쪽을 모두 취소하고 잘못된 설정은 거부한다")
+    void cancelAndValidation() {
+        VirtualTimeScheduler vts = VirtualTimeScheduler.create();
+        HedgePolicy hedge = HedgePolicy.builder().budgetPercent(100).delayBounds(Duration.ZERO, Duration.ofMillis(10)).scheduler(vts).build();
+        AtomicInteger cancelled = new AtomicInteger();
+
+        StepVerifier.create(hedge.first(Mono.never().doOnCancel(cancelled::incrementAndGet),
+                Mono.never().doOnCancel(cancelled::incrementAndGet)))
+            .then(() -> vts.advanceTimeBy(Duration.ofMillis(10)))
+            .thenCancel()
+            .verify();
+
+        Assertions.assertEquals(2, cancelled.get());
+        Assertions.assertThrows(IllegalArgumentException.class, () -> HedgePolicy.builder().percentile(100));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> HedgePolicy.builder().budgetPercent(-1));
+        Assertions.assertThrows(IllegalArgumentException.class,
+            () -> HedgePolicy.builder().delayBounds(Duration.ofSeconds(1), Duration.ofMillis(1)));
+    }
+}
@@ -0,0 +1,246 @@
+package org.example.log;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+import reactor.test.scheduler.VirtualTimeScheduler;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Stream;
+
+public class SegmentLogTest
+{
+    // 레코드 하나는 헤더 8 바이트 + 내용 12 바이트 = 20 바이트
+    static final int RECORD_BYTES = 20;
+
+    @TempDir
+    Path dir;
+
+    private static ByteBuffer record(long i) {
+        return ByteBuffer.wrap(String.format("record-%05d", i).getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private static String text(LogRecord record) {
+        return StandardCharsets.US_ASCII.decode(record.payload()).toString();
+    }
+
+    private static void assertRecords(List<LogRecord> records, long from, long to) {
+        Assertions.assertEquals(to - from, records.size());
+        for (int i = 0; i < records.size(); i++) {
+            LogRecord record = records.get(i);
+            Assertions.assertEquals(from + i, record.offset());
+            Assertions.assertEquals(String.format("record-%05d", from + i), text(record));
+        }
+    }
+
+    private static Flux<ByteBuffer> records(long from, long to) {
+        return Flux.range((int) from, (int) (to - from)).map(SegmentLogTest::record);
+    }
+
+    @Test
+    @DisplayName("쓴 레코드를 오프셋 순서대로 돌려주고, 원하는 오프셋부터 다시 읽을 수 있다")
+    void appendAndReplay() throws IOException {
+        SegmentLog log = SegmentLog.builder(dir).indexIntervalBytes(64).open();
+
+        List<Long> offsets = log.append(records(0, 1_000)).collectList().block(Duration.ofSeconds(30));
+
+        Assertions.assertEquals(1_000, offsets.size());
+        for (int i = 0; i < offsets.size(); i++) {
+            Assertions.assertEquals(i, offsets.get(i));
+        }
+        Assertions.assertEquals(1_000, log.endOffset());
+        assertRecords(log.read(0, 1_000).collectList().block(Duration.ofSeconds(10)), 0, 1_000);
+        assertRecords(log.read(537, 542).collectList().block(Duration.ofSeconds(10)), 537, 542);
+        Assertions.assertEquals(1_000L, log.append(record(1_000)).block(Duration.ofSeconds(10)));
+
+        StepVerifier.create(log.read(998, 1_001), 1)
+            .assertNext(record -> Assertions.assertEquals(998, record.offset()))
+            .expectNoEvent(Duration.ofMillis(50))
+            .thenRequest(2)
+            .expectNextCount(2)
+            .verifyComplete();
+        log.dispose();
+    }
+
+    @Test
+    @DisplayName("read 는 끝에 닿으면 새 레코드를 기다려 이어서 내보내고, tail 은 구독 이후의 레코드만 내보낸다")
+    void followsTheTail() throws IOException {
+        SegmentLog log = SegmentLog.builder(dir).segmentBytes(1024).open();
+        log.append(records(0, 10)).blockLast(Duration.ofSeconds(10));
+
+        StepVerifier.create(log.read(5).map(SegmentLogTest::text))
+            .expectNext("record-00005", "record-00006", "record-00007", "record-00008", "record-00009")
+            .expectNoEvent(Duration.ofMillis(50))
+            .then(() -> log.append(records(10, 200)).blockLast(Duration.ofSeconds(10)))
+            .expectNextCount(190)
+            .then(() -> log.append(record(200)).block(Duration.ofSeconds(10)))
+            .expectNext("record-00200")
+            .then(log::dispose)
+            .verifyComplete(); // dispose 하면 완료한다.
+
+        Assertions.assertTrue(log.segmentCount() > 3);
+    }
+
+    @Test
+    @DisplayName("tail 은 구독한 뒤에 쓰인 레코드부터 내보낸다")
+    void tail() throws IOException {
+        SegmentLog log = SegmentLog.builder(dir).open();
+        log.append(records(0, 3)).blockLast(Duration.ofSeconds(10));
+
+        StepVerifier.create(log.tail().take(2))
+            .expectSubscription()
+            .expectNoEvent(Duration.ofMillis(50))
+            .then(() -> log.append(records(3, 6)).blockLast(Duration.ofSeconds(10)))
+            .assertNext(record -> Assertions.assertEquals(3, record.offset()))
+            .assertNext(record -> Assertions.assertEquals(4, record.offset()))
+            .verifyComplete();
+        log.dispose();
+    }
+
+    @Test
+    @DisplayName("다시 열면 세그먼트와 인덱스를 복구하고, 쓰다 만 마지막 레코드를 잘라낸 뒤 이어 쓴다")
+    void recoversAfterRestart() throws IOException {
+        SegmentLog log = SegmentLog.builder(dir).segmentBytes(1024).indexIntervalBytes(100).open();
+        log.append(records(0, 300)).blockLast(Duration.ofSeconds(10));
+        int segments = log.segmentCount();
+        log.dispose();
+
+        SegmentLog reopened = SegmentLog.builder(dir).segmentBytes(1024).indexIntervalBytes(100).open();
+        Assertions.assertEquals(segments, reopened.segmentCount());
+        Assertions.assertEquals(300, reopened.endOffset());
+        assertRecords(reopened.read(0, 300).collectList().block(Duration.ofSeconds(10)), 0, 300);
+        assertRecords(reopened.read(123, 125).collectList().block(Duration.ofSeconds(10)), 123, 125);
+        reopened.dispose();
+
+        // 마지막 레코드의 내용을 망가뜨리고 인덱스 파일을 모두 지운다.
+        Path last;
+        try (Stream<Path> files = Files.list(dir)) {
+            last = files.filter(file -> file.toString().endsWith(".log")).sorted().reduce((a, b) -> b).orElseThrow();
+        }
+        long base = Long.parseLong(last.getFileName().toString().substring(0, 20));
+        try (FileChannel channel = FileChannel.open(last, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[] {'X'}), (299 - base) * RECORD_BYTES + RECORD_BYTES - 1);
+        }
+        try (Stream<Path> files = Files.list(dir)) {
+            for (Path index : files.filter(file -> file.toString().endsWith(".index")).toList()) {
+                Files.delete(index);
+            }
+        }
+
+        SegmentLog recovered = SegmentLog.builder(dir).segmentBytes(1024).indexIntervalBytes(100).open();
+        Assertions.assertEquals(299, recovered.endOffset());
+        Assertions.assertEquals(299L, recovered.append(record(299)).block(Duration.ofSeconds(10)));
+        recovered.append(records(300, 400)).blockLast(Duration.ofSeconds(10));
+        assertRecords(recovered.read(0, 400).collectList().block(Duration.ofSeconds(10)), 0, 400);
+        assertRecords(recovered.read(250, 260).collectList().block(Duration.ofSeconds(10)), 250, 260);
+        recovered.dispose();
+    }
+
+    @Test
+    @DisplayName("인덱스가 디스크에 남은 레코드보다 앞서 있으면 그 항목을 버리고 실제 끝에서 이어 쓴다")
+    void indexAheadOfDurableTail() throws IOException {
+        SegmentLog log = SegmentLog.builder(dir).segmentBytes(4096).indexIntervalBytes(100).open();
+        log.append(records(0, 100)).blockLast(Duration.ofSeconds(10));
+        log.dispose();
+
+        // OS 가 죽어 50 번째 레코드부터 내용이 디스크에 닿지 못한 것처럼 0 으로 덮는다. 인덱스 파일은 그대로 둔다.
+        Path segment = dir.resolve(Segment.fileName(0, ".log"));
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.allocate(50 * RECORD_BYTES), 50 * RECORD_BYTES);
+        }
+
+        SegmentLog recovered = SegmentLog.builder(dir).segmentBytes(4096).indexIntervalBytes(100).open();
+        Assertions.assertEquals(50, recovered.endOffset());
+        assertRecords(recovered.read(0, 50).collectList().block(Duration.ofSeconds(10)), 0, 50);
+        Assertions.assertEquals(50L, recovered.append(record(50)).block(Duration.ofSeconds(10)));
+        recovered.dispose();
+    }
+
+    @Test
+    @DisplayName("배치를 쓰다 실패하면 공개된 끝으로 되돌리므로 실패한 레코드가 공개되지 않고 다음 레코드는 제자리에 쓰인다")
+    void rollbackAfterFailedBatch() throws IOException {
+        SegmentLog log = SegmentLog.builder(dir).segmentBytes(4096).indexIntervalBytes(20).open();
+        log.append(records(0, 5)).blockLast(Duration.ofSeconds(10));
+
+        // appendBatch 가 레코드 두 개를 쓰고 fsync 전에 실패한 상태를 만든다.
+        Segment active = log.segments.lastEntry().getValue();
+        for (int i = 0; i < 2; i++) {
+            active.appendIndexEntry(active.writeOffset, active.writePosition);
+            active.writer.write(ByteBuffer.allocate(RECORD_BYTES).putInt(0, RECORD_BYTES - Segment.HEADER_BYTES));
+            active.writePosition += RECORD_BYTES;
+            active.writeOffset++;
+        }
+        active.rollback(4096);
+
+        Assertions.assertEquals(5, log.endOffset());
+        Assertions.assertEquals(5L, log.append(record(5)).block(Duration.ofSeconds(10)));
+        assertRecords(log.read(0, 6).collectList().block(Duration.ofSeconds(10)), 0, 6);
+        log.dispose();
+
+        SegmentLog reopened = SegmentLog.builder(dir).segmentBytes(4096).indexIntervalBytes(20).open();
+        Assertions.assertEquals(6, reopened.endOffset());
+        assertRecords(reopened.read(3, 6).collectList().block(Duration.ofSeconds(10)), 3, 6);
+        reopened.dispose();
+    }
+
+    @Test
+    @DisplayName("retentionBytes 를 넘으면 오래된 세그먼트를 지우고, 지워진 오프셋을 읽으면 에러로 끝난다")
+    void retentionBytes() throws IOException {
+        SegmentLog log = SegmentLog.builder(dir).segmentBytes(1024).retentionBytes(3 * 1024).open();
+        log.append(records(0, 1_000)).blockLast(Duration.ofSeconds(10));
+
+        Assertions.assertTrue(log.segmentCount() <= 4, () -> "segments=" + log.segmentCount());
+        try (Stream<Path> files = Files.list(dir)) {
+            Assertions.assertEquals(log.segmentCount(), files.filter(file -> file.toString().endsWith(".log")).count());
+        }
+        long start = log.startOffset();
+        Assertions.assertTrue(start > 800, () -> "start=" + start);
+        assertRecords(log.read(start, 1_000).collectList().block(Duration.ofSeconds(10)), start, 1_000);
+
+        StepVerifier.create(log.read(0))
+            .expectError(IllegalStateException.class)
+            .verify(Duration.ofSeconds(10));
+        StepVerifier.create(log.read(1_001))
+            .expectError(IllegalArgumentException.class)
+            .verify(Duration.ofSeconds(10));
+        StepVerifier.create(log.append(ByteBuffer.allocate(2_000)))
+            .expectError(IllegalArgumentException.class)
+            .verify(Duration.ofSeconds(10));
+        log.dispose();
+    }
+
+    @Test
+    @DisplayName("retentionTime 이 지난 봉인 세그먼트를 지운다")
+    void retentionTime() throws IOException {
+        VirtualTimeScheduler clock = VirtualTimeScheduler.create();
+        SegmentLog log = SegmentLog.builder(dir)
+            .segmentBytes(1024)
+            .retentionTime(Duration.ofMinutes(10))
+            .clock(clock)
+            .open();
+        log.append(records(0, 200)).blockLast(Duration.ofSeconds(10));
+        int segments = log.segmentCount();
+
+        clock.advanceTimeBy(Duration.ofMinutes(5));
+        Assertions.assertEquals(0, log.applyRetention());
+        clock.advanceTimeBy(Duration.ofMinutes(6));
+        Assertions.assertEquals(segments - 1, log.applyRetention());
+
+        Assertions.assertEquals(1, log.segmentCount());
+        assertRecords(log.read(log.startOffset(), 200).collectList().block(Duration.ofSeconds(10)), log.startOffset(), 200);
+        Assertions.assertThrows(IllegalArgumentException.class, () -> SegmentLog.builder(dir).segmentBytes(100));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> SegmentLog.builder(dir).retentionTime(Duration.ZERO));
+        log.dispose();
+    }
+}
@@ -0,0 +1,129 @@
+package org.example.merge;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import reactor.test.StepVerifier;
+import reactor.test.publisher.TestPublisher;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+public class SortedMergeTest
+{
+    @Test
+    @DisplayName("정렬된 소스들을 하나의 정렬된 시퀀스로 합친다")
+    void mergesSortedSources() {
+        for (int k : new int[] {1, 2, 3, 7, 64, 1000}) {
+            List<Flux<Integer>> sources = new ArrayList<>();
+            List<Integer> expected = new ArrayList<>();
+            for (int i = 0; i < k; i++) {
+                List<Integer> values = randomSorted(ThreadLocalRandom.current().nextInt(0, 50));
+                expected.addAll(values);
+                sources.add(Flux.fromIterable(values));
+            }
+            expected.sort(Comparator.naturalOrder());
+
+            StepVerifier.create(SortedMerge.merge(Comparator.<Integer>naturalOrder(), sources, 4))
+                .expectNextSequence(expected)
+                .verifyComplete();
+        }
+    }
+
+    @Test
+    @DisplayName("같은 값이면 앞쪽 소스의 요소가 먼저 나온다")
+    void stableForEqualKeys() {
+        Flux<String> a = Flux.just("1a", "2a", "3a");
+        Flux<String> b = Flux.just("1b", "3b");
+        Flux<String> c = Flux.just("1c", "2c");
+
+        StepVerifier.create(SortedMerge.merge(Comparator.comparing((String s) -> s.charAt(0)), List.of(c, a, b)))
+            .expectNext("1c", "1a", "1b", "2c", "2a", "3a", "3b")
+            .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("모든 소스의 머리가 도착해야 내보내고, 요청한 만큼만 내보낸다")
+    void waitsForEverySourceAndRespectsDemand() {
+        TestPublisher<Integer> slow = TestPublisher.create();
+        Flux<Integer> fast = Flux.just(1, 3, 5, 7);
+
+        StepVerifier.create(SortedMerge.merge(Comparator.<Integer>naturalOrder(), List.of(fast, slow), 2), 0)
+            .thenRequest(3)
+            .expectNoEvent(Duration.ofMillis(50)) // slow 의 머리를 모르므로 1 도 내보낼 수 없다.
+            .then(() -> slow.next(2))
+            .expectNext(1, 2) // slow 의 다음 머리를 모르므로 3 은 아직 내보낼 수 없다.
+            .then(() -> slow.next(4, 6).complete())
+            .expectNext(3)
+            .thenRequest(Long.MAX_VALUE)
+            .expectNext(4, 5, 6, 7)
+            .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("소스마다 prefetch 만큼만 미리 요청하고 나눠서 다시 요청한다")
+    void batchedPrefetch() {
+        List<Long> requests = new ArrayList<>();
+        Flux<Integer> source = Flux.range(0, 100).doOnRequest(requests::add);
+
+        StepVerifier.create(SortedMerge.merge(Comparator.<Integer>naturalOrder(), List.of(source, Flux.range(0, 100)), 16))
+            .expectNextCount(200)
+            .verifyComplete();
+
+        Assertions.assertEquals(16L, requests.get(0));
+        Assertions.assertTrue(requests.stream().skip(1).allMatch(n -> n == 12L), requests::toString);
+    }
+
+    @Test
+    @DisplayName("다른 스레드에서 오는 소스도 정렬해서 합친다")
+    void asyncSources() {
+        Scheduler scheduler = Schedulers.newParallel("merge", 4);
+        List<Flux<Integer>> sources = new ArrayList<>();
+        for (int i = 0; i < 16; i++) {
+            int start = i;
+            sources.add(Flux.range(0, 1_000).map(n -> n * 16 + start).subscribeOn(scheduler));
+        }
+
+        StepVerifier.create(SortedMerge.merge(Comparator.<Integer>naturalOrder(), sources))
+            .expectNextSequence(IntStream.range(0, 16_000).boxed().toList())
+            .expectComplete()
+            .verify(Duration.ofSeconds(10));
+        scheduler.dispose();
+    }
+
+    @Test
+    @DisplayName("한 소스가 에러를 내면 나머지를 취소하고 에러로 끝난다")
+    void errorCancelsOthers() {
+        AtomicInteger cancelled = new AtomicInteger();
+        AtomicInteger subscribed = new AtomicInteger();
+        Flux<Integer> ok = Flux.range(0, 1_000)
+            .doOnSubscribe(s -> subscribed.incrementAndGet())
+            .doOnCancel(cancelled::incrementAndGet);
+        Flux<Integer> failing = Flux.error(new IllegalStateException());
+
+        // failing 의 머리가 없으므로 ok 에서 미리 받아 둔 요소는 내보내지 못하고 버린다.
+        StepVerifier.create(SortedMerge.merge(Comparator.<Integer>naturalOrder(), List.of(ok, failing)))
+            .verifyError(IllegalStateException.class);
+        Assertions.assertEquals(1, cancelled.get());
+
+        // 이미 에러로 끝났으면 남은 소스는 구독하지 않는다.
+        StepVerifier.create(SortedMerge.merge(Comparator.<Integer>naturalOrder(), List.of(failing, ok)))
+            .verifyError(IllegalStateException.class);
+        Assertions.assertEquals(1, subscribed.get());
+
+        StepVerifier.create(SortedMerge.merge(Comparator.<Integer>naturalOrder(), List.of()))
+            .verifyComplete();
+    }
+
+    private static List<Integer> randomSorted(int size) {
+        return ThreadLocalRandom.current().ints(size, 0, 100).sorted().boxed().toList();
+    }
+}
@@ -0,0 +1,131 @@
+package org.example.parallel;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+public class OrderedParallelMapTest
+{
+    @Test
+    @DisplayName("여러 스레드에서 map 하지만 결과는 원래 순서대로 나온다")
+    void preservesOrder() {
+        Scheduler scheduler = Schedulers.newParallel("opm", 4); // 코어 수와 관계없이 스레드 4개
+        Set<String> threads = ConcurrentHashMap.newKeySet();
+        List<Integer> expected = IntStream.range(0, 2_000).map(i -> i * 2).boxed().collect(Collectors.toList());
+
+        Flux<Integer> flux = Flux.range(0, 2_000)
+            .transform(OrderedParallelMap.map(i -> {
+                threads.add(Thread.currentThread().getName());
+                if (ThreadLocalRandom.current().nextInt(100) == 0) {
+                    sleep(1); // 가끔 늦게 끝나는 요소
+                }
+                return i * 2;
+            }, 4, 32, scheduler));
+
+        StepVerifier.create(flux.collectList())
+            .expectNext(expected)
+            .expectComplete()
+            .verify(Duration.ofSeconds(10));
+
+        Assertions.assertTrue(threads.size() > 1, threads::toString);
+        scheduler.dispose();
+    }
+
+    @Test
+    @DisplayName("머리 요소가 늦으면 window 개를 넘게 상류에 요청하지 않는다")
+    void slowHeadAppliesBackpressure() {
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicLong upstreamRequested = new AtomicLong();
+
+        Flux<Integer> flux = Flux.range(0, 100)
+            .doOnRequest(upstreamRequested::addAndGet)
+            .transform(OrderedParallelMap.map(i -> {
+                if (i == 0) {
+                    await(release); // 머리 요소가 막혀 있다.
+                }
+                return i;
+            }, 2, 8));
+
+        StepVerifier.create(flux)
+            .then(() -> sleep(100))
+            .then(() -> Assertions.assertEquals(8, upstreamRequested.get()))
+            .then(release::countDown)
+            .expectNextCount(100)
+            .expectComplete()
+            .verify(Duration.ofSeconds(10));
+    }
+
+    @Test
+    @DisplayName("하류의 요청 수만큼만 내보낸다")
+    void respectsDownstreamDemand() {
+        StepVerifier.create(Flux.range(0, 50).transform(OrderedParallelMap.map(i -> i + 1, 3, 16)), 0)
+            .thenRequest(3)
+            .expectNext(1, 2, 3)
+            .thenAwait(Duration.ofMillis(50))
+            .expectNoEvent(Duration.ofMillis(50))
+            .thenRequest(Long.MAX_VALUE)
+            .expectNextCount(47)
+            .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("mapper 가 예외를 던지면 상류를 취소하고 onError 로 끝난다")
+    void mapperError() {
+        AtomicLong cancelled = new AtomicLong();
+
+        Flux<Integer> flux = Flux.range(0, 1_000)
+            .doOnCancel(cancelled::incrementAndGet)
+            .transform(OrderedParallelMap.map(i -> {
+                if (i == 10) {
+                    throw new IllegalStateException("boom");
+                }
+                return i;
+            }, 4, 16, Schedulers.parallel()));
+
+        StepVerifier.create(flux)
+            .thenConsumeWhile(i -> i < 10)
+            .expectErrorMessage("boom")
+            .verify(Duration.ofSeconds(10));
+        Assertions.assertEquals(1, cancelled.get());
+    }
+
+    @Test
+    @DisplayName("window 는 parallelism 이상이어야 한다")
+    void invalidArguments() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> OrderedParallelMap.map(i -> i, 0, 8));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> OrderedParallelMap.map(i -> i, 8, 4));
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package org.example.primitive;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.util.stream.IntStream;
+
+public class IntFluxTest
+{
+    @Test
+    @DisplayName("range 는 chunkSize 단위의 int[] 로 전달된다")
+    void rangeChunks() {
+        StepVerifier.create(IntFlux.range(1, 6, 4).chunks())
+            .expectNextMatches(chunk -> chunk.length == 4 && chunk[0] == 1 && chunk[3] == 4)
+            .expectNextMatches(chunk -> chunk.length == 2 && chunk[0] == 5 && chunk[1] == 6)
+            .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("Flux.range(1, 6).map(i -> i + 10) 와 같은 결과를 박싱 없이 만든다")
+    void mapLikeFluxRange() {
+        int[] result = IntFlux.range(1, 6).map(i -> i + 10).toArray().block();
+
+        Assertions.assertArrayEquals(new int[] {11, 12, 13, 14, 15, 16}, result);
+    }
+
+    @Test
+    void filterDropsEmptyChunks() {
+        StepVerifier.create(IntFlux.range(0, 100, 10).filter(i -> i >= 95).chunks())
+            .expectNextMatches(chunk -> chunk.length == 5 && chunk[0] == 95)
+            .verifyComplete();
+    }
+
+    @Test
+    void aggregations() {
+        IntFlux flux = IntFlux.range(-5, 1000, 64);
+
+        Assertions.assertEquals(IntStream.range(-5, 995).asLongStream().sum(), flux.sum().block());
+        Assertions.assertEquals(1000L, flux.count().block());
+        Assertions.assertEquals(-5, flux.min().block());
+        Assertions.assertEquals(994, flux.max().block());
+    }
+
+    @Test
+    @DisplayName("요소가 없으면 min, max 는 비어있다")
+    void emptyMinMax() {
+        StepVerifier.create(IntFlux.range(0, 0).min()).verifyComplete();
+        StepVerifier.create(IntFlux.range(0, 10).filter(i -> i > 100).max()).verifyComplete();
+        StepVerifier.create(IntFlux.range(0, 0).sum()).expectNext(0L).verifyComplete();
+    }
+
+    @Test
+    @DisplayName("Flux 와 서로 변환할 수 있다")
+    void bridge() {
+        StepVerifier.create(IntFlux.from(Flux.range(1, 5), 2).map(i -> i * 2).boxed())
+            .expectNext(2, 4, 6, 8, 10)
+            .verifyComplete();
+
+        Assertions.assertArrayEquals(new long[] {3_000_000_000L, 3_000_000_001L},
+            IntFlux.fromArray(new int[] {0, 1}).mapToLong(i -> i + 3_000_000_000L).toArray().block());
+    }
+
+    @Test
+    @DisplayName("요청 단위는 청크이다")
+    void backpressureByChunk() {
+        StepVerifier.create(IntFlux.range(0, 1000, 100).chunks(), 2)
+            .expectNextCount(2)
+            .thenRequest(8)
+            .expectNextCount(8)
+            .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("chunkSize 가 Integer.MAX_VALUE 여도 fromArray 는 배열 전체를 한 청크로 보낸다")
+    void fromArrayWithHugeChunkSize() {
+        StepVerifier.create(IntFlux.fromArray(new int[] {1, 2, 3}, Integer.MAX_VALUE).chunks())
+            .expectNextMatches(chunk -> chunk.length == 3 && chunk[2] == 3)
+            .verifyComplete();
+    }
+
+    @Test
+    void invalidArguments() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> IntFlux.range(0, -1));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> IntFlux.range(Integer.MAX_VALUE, 2));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> IntFlux.range(0, 10, 0));
+    }
+}
@@ -0,0 +1,50 @@
+package org.example.primitive;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+public class LongFluxTest
+{
+    @Test
+    @DisplayName("count 가 0 이면 start 와 관계없이 빈 스트림이다")
+    void emptyRange() {
+        StepVerifier.create(LongFlux.range(5, 0).chunks()).verifyComplete();
+        StepVerifier.create(LongFlux.range(Long.MAX_VALUE, 0).chunks()).verifyComplete();
+        Assertions.assertEquals(0L, LongFlux.range(-3, 0).count().block());
+    }
+
+    @Test
+    @DisplayName("Long.MAX_VALUE 에서 끝나는 범위까지 만들 수 있고, 넘어가면 거부한다")
+    void maxRange() {
+        Assertions.assertArrayEquals(new long[] {Long.MAX_VALUE - 2, Long.MAX_VALUE - 1, Long.MAX_VALUE},
+            LongFlux.range(Long.MAX_VALUE - 2, 3, 2).toArray().block());
+        Assertions.assertArrayEquals(new long[] {Long.MAX_VALUE}, LongFlux.range(Long.MAX_VALUE, 1).toArray().block());
+        Assertions.assertThrows(IllegalArgumentException.class, () -> LongFlux.range(Long.MAX_VALUE, 2));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> LongFlux.range(0, -1));
+    }
+
+    @Test
+    @DisplayName("chunkSize 가 Integer.MAX_VALUE 여도 fromArray 는 배열 전체를 한 청크로 보낸다")
+    void fromArrayWithHugeChunkSize() {
+        StepVerifier.create(LongFlux.fromArray(new long[] {1, 2, 3}, Integer.MAX_VALUE).chunks())
+            .expectNextMatches(chunk -> chunk.length == 3 && chunk[2] == 3)
+            .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("int 범위를 넘는 값도 다루고, 합계가 넘치면 ArithmeticException 으로 종료한다")
+    void beyondIntRange() {
+        LongFlux flux = LongFlux.range(Integer.MAX_VALUE, 300, 128);
+
+        Assertions.assertEquals(300L, flux.count().block());
+        Assertions.assertEquals((long) Integer.MAX_VALUE, flux.min().block());
+        Assertions.assertEquals(Integer.MAX_VALUE + 299L, flux.max().block());
+        Assertions.assertArrayEquals(new long[] {2, 4},
+            LongFlux.from(Flux.just(1L, 2L, 3L, 4L)).filter(v -> v % 2 == 0).toArray().block());
+        StepVerifier.create(LongFlux.fromArray(new long[] {Long.MAX_VALUE, 1}).sum())
+            .verifyError(ArithmeticException.class);
+    }
+}
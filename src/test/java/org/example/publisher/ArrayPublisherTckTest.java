@@ -0,0 +1,66 @@
+package org.example.publisher;
+
+import org.reactivestreams.Publisher;
+import org.reactivestreams.tck.PublisherVerification;
+import org.reactivestreams.tck.TestEnvironment;
+
+import java.util.AbstractList;
+import java.util.RandomAccess;
+
+/**
+ * 리액티브 스트림 TCK (TestNG, testng-engine 으로 JUnit Platform 에서 실행된다.)
+ *
+ * 작은 요소 수는 배열로, 큰 요소 수(최대 Integer.MAX_VALUE 개를 요구하는 규칙이 있다)는 값을 만들어 내는 List 로 검증한다.
+ */
+public class ArrayPublisherTckTest extends PublisherVerification<Integer>
+{
+    static final int ARRAY_LIMIT = 1024;
+
+    public ArrayPublisherTckTest() {
+        super(new TestEnvironment());
+    }
+
+    @Override
+    public Publisher<Integer> createPublisher(long elements) {
+        if (elements <= ARRAY_LIMIT) {
+            Integer[] array = new Integer[(int) elements];
+            for (int i = 0; i < array.length; i++) {
+                array[i] = i;
+            }
+            return ArrayPublisher.fromArray(array);
+        }
+        return ArrayPublisher.fromList(new IndexList((int) elements));
+    }
+
+    @Override
+    public Publisher<Integer> createFailedPublisher() {
+        return null; // 실패하는 배열은 없다.
+    }
+
+    @Override
+    public long maxElementsFromPublisher() {
+        return Integer.MAX_VALUE;
+    }
+
+    /**
+     * i 번째 요소가 i 인 List. 요소를 저장하지 않는다.
+     */
+    static final class IndexList extends AbstractList<Integer> implements RandomAccess
+    {
+        final int size;
+
+        IndexList(int size) {
+            this.size = size;
+        }
+
+        @Override
+        public Integer get(int index) {
+            return index;
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package org.example.publisher;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import reactor.core.Fuseable;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+
+public class ArrayPublisherTest
+{
+    @Test
+    @DisplayName("Reactor 연산자에 붙이면 동기 퓨전(SYNC)으로 request 없이 poll 로 꺼낸다")
+    void syncFusion() {
+        StepVerifier.create(ArrayPublisher.fromArray(new String[] {"Apple", "Orange", "Grape"}).asFlux())
+            .expectFusion(Fuseable.SYNC)
+            .expectNext("Apple", "Orange", "Grape")
+            .verifyComplete();
+
+        StepVerifier.create(ArrayPublisher.fromList(List.of(3, 6, 9)).asFlux().map(i -> i * 10))
+            .expectFusion(Fuseable.SYNC)
+            .expectNext(30, 60, 90)
+            .verifyComplete();
+
+        StepVerifier.create(ArrayPublisher.fromArray(new Integer[] {1, 2}).asFlux(), 0)
+            .expectFusion(Fuseable.ASYNC, Fuseable.NONE) // ASYNC 만 요청하면 퓨전하지 않는다.
+            .thenRequest(2)
+            .expectNext(1, 2)
+            .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("요청한 만큼만 보내고, List 는 RandomAccess 가 아니어도 같은 순서로 보낸다")
+    void backpressure() {
+        Integer[] values = {2, 4, 8, 16, 32};
+        StepVerifier.create(ArrayPublisher.fromArray(values), 0)
+            .thenRequest(2)
+            .expectNext(2, 4)
+            .thenRequest(1)
+            .expectNext(8)
+            .thenRequest(Long.MAX_VALUE)
+            .expectNext(16, 32)
+            .verifyComplete();
+
+        StepVerifier.create(ArrayPublisher.fromList(new LinkedList<>(Arrays.asList(values))), 3)
+            .expectNext(2, 4, 8)
+            .thenRequest(2)
+            .expectNext(16, 32)
+            .verifyComplete();
+
+        StepVerifier.create(ArrayPublisher.fromList(List.of())).verifyComplete();
+    }
+
+    @Test
+    @DisplayName("null 요소를 만나면 NullPointerException 으로 끝난다")
+    void nullElement() {
+        StepVerifier.create(ArrayPublisher.fromArray(new String[] {"A", null, "B"}))
+            .expectNext("A")
+            .verifyError(NullPointerException.class);
+
+        StepVerifier.create(Flux.from(ArrayPublisher.fromList(Arrays.asList("A", null))).hide(), 1)
+            .expectNext("A")
+            .thenRequest(1)
+            .verifyError(NullPointerException.class);
+    }
+
+    @Test
+    @DisplayName("onNext 안에서 요청해도 재귀하지 않고, 0 이하를 요청하면 IllegalArgumentException 으로 끝난다 (§3.3, §3.9)")
+    void specRules() {
+        List<Object> signals = new ArrayList<>();
+        int[] depth = {0, 0}; // 현재 깊이, 최대 깊이
+        ArrayPublisher.fromArray(new Integer[] {1, 2, 3, 4}).subscribe(new Subscriber<>() {
+            Subscription subscription;
+
+            @Override
+            public void onSubscribe(Subscription s) {
+                subscription = s;
+                s.request(1);
+            }
+
+            @Override
+            public void onNext(Integer value) {
+                depth[1] = Math.max(depth[1], ++depth[0]);
+                signals.add(value);
+                if (value == 2) {
+                    subscription.request(0);
+                }
+                else {
+                    subscription.request(1);
+                }
+                depth[0]--;
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                signals.add(t.getClass());
+            }
+
+            @Override
+            public void onComplete() {
+                signals.add("complete");
+            }
+        });
+
+        Assertions.assertEquals(List.of(1, 2, IllegalArgumentException.class), signals);
+        Assertions.assertEquals(1, depth[1]);
+    }
+
+    @Test
+    @DisplayName("취소한 뒤의 잘못된 요청은 아무것도 하지 않는다 (§3.6)")
+    void badRequestAfterCancelIsNoOp() {
+        List<Object> signals = new ArrayList<>();
+        ArrayPublisher.fromArray(new Integer[] {1, 2, 3}).subscribe(new Subscriber<>() {
+            @Override
+            public void onSubscribe(Subscription s) {
+                s.cancel();
+                s.request(0);
+                s.request(-1);
+                s.request(1);
+            }
+
+            @Override
+            public void onNext(Integer value) {
+                signals.add(value);
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                signals.add(t.getClass());
+            }
+
+            @Override
+            public void onComplete() {
+                signals.add("complete");
+            }
+        });
+
+        Assertions.assertEquals(List.of(), signals);
+    }
+}
@@ -0,0 +1,30 @@
+package org.example.publisher;
+
+import org.reactivestreams.Publisher;
+import org.reactivestreams.tck.PublisherVerification;
+import org.reactivestreams.tck.TestEnvironment;
+
+/**
+ * 리액티브 스트림 TCK (TestNG, testng-engine 으로 JUnit Platform 에서 실행된다.)
+ */
+public class RangePublisherTckTest extends PublisherVerification<Integer>
+{
+    public RangePublisherTckTest() {
+        super(new TestEnvironment());
+    }
+
+    @Override
+    public Publisher<Integer> createPublisher(long elements) {
+        return RangePublisher.range(0, (int) elements);
+    }
+
+    @Override
+    public Publisher<Integer> createFailedPublisher() {
+        return null; // 실패하는 범위는 없다.
+    }
+
+    @Override
+    public long maxElementsFromPublisher() {
+        return Integer.MAX_VALUE;
+    }
+}
@@ -0,0 +1,43 @@
+package org.example.publisher;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import reactor.core.Fuseable;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+public class RangePublisherTest
+{
+    @Test
+    @DisplayName("Flux.range 와 같은 요소를 보내고, 동기 퓨전과 요청 단위 전달을 모두 지원한다")
+    void sameAsFluxRange() {
+        StepVerifier.create(RangePublisher.range(1, 5).asFlux())
+            .expectFusion(Fuseable.SYNC)
+            .expectNext(1, 2, 3, 4, 5)
+            .verifyComplete();
+
+        StepVerifier.create(RangePublisher.range(Integer.MAX_VALUE - 2, 3), 1)
+            .expectNext(Integer.MAX_VALUE - 2)
+            .thenRequest(2)
+            .expectNext(Integer.MAX_VALUE - 1, Integer.MAX_VALUE)
+            .verifyComplete();
+
+        Assertions.assertEquals(
+            Flux.range(-3, 1_000).collectList().block(),
+            RangePublisher.range(-3, 1_000).asFlux().limitRate(7).collectList().block());
+
+        StepVerifier.create(RangePublisher.range(0, 0)).verifyComplete();
+    }
+
+    @Test
+    @DisplayName("취소하면 더 보내지 않고, 범위가 int 를 넘으면 만들 수 없다")
+    void cancelAndBounds() {
+        StepVerifier.create(RangePublisher.range(0, Integer.MAX_VALUE).asFlux().take(3))
+            .expectNext(0, 1, 2)
+            .verifyComplete();
+
+        Assertions.assertThrows(IllegalArgumentException.class, () -> RangePublisher.range(0, -1));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> RangePublisher.range(Integer.MAX_VALUE, 2));
+    }
+}
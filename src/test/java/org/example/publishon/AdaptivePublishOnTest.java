@@ -0,0 +1,130 @@
+package org.example.publishon;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.IntStream;
+
+public class AdaptivePublishOnTest
+{
+    @Test
+    @DisplayName("publishOn 처럼 지정한 스케줄러에서 순서대로 내보내고, 에러는 남은 요소를 내보낸 뒤 전달한다")
+    void behavesLikePublishOn() {
+        Scheduler scheduler = Schedulers.newSingle("PUB");
+
+        StepVerifier.create(Flux.range(1, 1_000)
+                .transform(AdaptivePublishOn.create(scheduler, 2, 64))
+                .map(i -> Thread.currentThread().getName().startsWith("PUB-") ? i : -i))
+            .expectNextSequence(IntStream.rangeClosed(1, 1_000).boxed().toList())
+            .verifyComplete();
+
+        StepVerifier.create(Flux.range(1, 10)
+                .concatWith(Flux.error(new IllegalStateException()))
+                .transform(AdaptivePublishOn.create(scheduler, 2, 64)), 0)
+            .thenRequest(3)
+            .expectNext(1, 2, 3)
+            .thenRequest(7)
+            .expectNextCount(7)
+            .verifyError(IllegalStateException.class);
+        scheduler.dispose();
+    }
+
+    @Test
+    @DisplayName("소비자가 빨라서 요청을 기다리면 prefetch 가 maxPrefetch 까지 늘어난다")
+    void growsForFastConsumer() {
+        Scheduler producer = Schedulers.newSingle("producer");
+        Scheduler consumer = Schedulers.newSingle("PUB");
+        AdaptivePublishOn<Integer> publishOn = AdaptivePublishOn.create(consumer, 2, 256);
+        Assertions.assertEquals(2, publishOn.currentPrefetch());
+
+        StepVerifier.create(Flux.range(1, 10_000).subscribeOn(producer).transform(publishOn))
+            .expectNextCount(10_000)
+            .verifyComplete();
+
+        Assertions.assertEquals(256, publishOn.currentPrefetch());
+        producer.dispose();
+        consumer.dispose();
+    }
+
+    @Test
+    @DisplayName("소비자가 느려져서 큐가 충분히 차 있으면 prefetch 가 다시 줄어든다")
+    void shrinksForSlowConsumer() {
+        Scheduler producer = Schedulers.newSingle("producer");
+        Scheduler consumer = Schedulers.newSingle("PUB");
+        AdaptivePublishOn<Integer> publishOn = AdaptivePublishOn.create(consumer, 2, 256);
+        AtomicInteger largest = new AtomicInteger();
+        AtomicInteger smallestWhileSlow = new AtomicInteger(Integer.MAX_VALUE);
+
+        StepVerifier.create(Flux.range(1, 10_000)
+                .subscribeOn(producer)
+                .transform(publishOn)
+                .doOnNext(i -> {
+                    if (i <= 5_000) {
+                        largest.accumulateAndGet(publishOn.currentPrefetch(), Math::max);
+                    }
+                    else {
+                        LockSupport.parkNanos(10_000); // 느린 소비자. 쉬는 동안 생산자가 큐를 채운다.
+                        smallestWhileSlow.accumulateAndGet(publishOn.currentPrefetch(), Math::min);
+                    }
+                }))
+            .expectNextCount(10_000)
+            .expectComplete()
+            .verify(Duration.ofSeconds(30));
+
+        Assertions.assertEquals(256, largest.get());
+        Assertions.assertTrue(smallestWhileSlow.get() <= 128, () -> "prefetch=" + smallestWhileSlow.get());
+        producer.dispose();
+        consumer.dispose();
+    }
+
+    @Test
+    @DisplayName("생산자가 느리면 prefetch 를 늘려도 소용없으므로 maxPrefetch 까지 늘리지 않는다")
+    void keepsPrefetchForSlowProducer() {
+        Scheduler producer = Schedulers.newSingle("producer");
+        Scheduler consumer = Schedulers.newSingle("PUB");
+        AdaptivePublishOn<Integer> publishOn = AdaptivePublishOn.create(consumer, 4, 256);
+        AtomicInteger counter = new AtomicInteger();
+
+        StepVerifier.create(Flux.<Integer>generate(sink -> {
+                    LockSupport.parkNanos(200_000); // 느린 생산자
+                    sink.next(counter.incrementAndGet());
+                })
+                .take(500)
+                .subscribeOn(producer)
+                .transform(publishOn))
+            .expectNextCount(500)
+            .expectComplete()
+            .verify(Duration.ofSeconds(30));
+
+        // 소비자 스레드가 늦게 깨어나 생산자가 잠깐 쉬는 경우가 있어 한두 번은 늘어날 수 있다.
+        Assertions.assertTrue(publishOn.currentPrefetch() <= 16, () -> "prefetch=" + publishOn.currentPrefetch());
+        producer.dispose();
+        consumer.dispose();
+    }
+
+    @Test
+    @DisplayName("취소하면 상류도 취소한다")
+    void cancel() {
+        Scheduler scheduler = Schedulers.newSingle("PUB");
+        AtomicInteger cancelled = new AtomicInteger();
+
+        StepVerifier.create(Flux.range(1, 1_000_000)
+                .doOnCancel(cancelled::incrementAndGet)
+                .transform(AdaptivePublishOn.create(scheduler, 2, 64))
+                .take(10))
+            .expectNextCount(10)
+            .verifyComplete();
+
+        Assertions.assertEquals(1, cancelled.get());
+        Assertions.assertThrows(IllegalArgumentException.class, () -> AdaptivePublishOn.create(scheduler, 8, 4));
+        scheduler.dispose();
+    }
+}
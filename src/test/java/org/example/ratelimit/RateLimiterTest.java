@@ -0,0 +1,171 @@
+package org.example.ratelimit;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+import reactor.test.scheduler.VirtualTimeScheduler;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class RateLimiterTest
+{
+    @Test
+    @DisplayName("DELAY 는 burst 만큼은 바로 내보내고, 그 뒤로는 interval 마다 하나씩 내보낸다")
+    void delayPassesBurstImmediately() {
+        VirtualTimeScheduler vts = VirtualTimeScheduler.create();
+        RateLimiter limiter = RateLimiter.builder(10, Duration.ofSeconds(1)).burst(3).scheduler(vts).build();
+        Assertions.assertEquals(Duration.ofMillis(100), limiter.interval());
+
+        StepVerifier.create(Flux.range(1, 6).transform(limiter.limit(RateLimitPolicy.DELAY)))
+            .expectNext(1, 2, 3)
+            .then(() -> vts.advanceTimeBy(Duration.ofMillis(99)))
+            .expectNoEvent(Duration.ofMillis(10))
+            .then(() -> vts.advanceTimeBy(Duration.ofMillis(1)))
+            .expectNext(4)
+            .then(() -> vts.advanceTimeBy(Duration.ofMillis(100)))
+            .expectNext(5)
+            .then(() -> vts.advanceTimeBy(Duration.ofMillis(100)))
+            .expectNext(6)
+            .verifyComplete();
+
+        // 쉬면 burst 만큼 다시 쌓인다.
+        vts.advanceTimeBy(Duration.ofSeconds(10));
+        Assertions.assertEquals(3, limiter.availablePermits());
+    }
+
+    @Test
+    @DisplayName("DELAY 구독을 취소하면 허용량을 기다리던 요소는 discard 훅으로 넘어간다")
+    void delayDiscardsQueuedOnCancel() {
+        VirtualTimeScheduler vts = VirtualTimeScheduler.create();
+        RateLimiter limiter = RateLimiter.builder(10, Duration.ofSeconds(1)).burst(3).scheduler(vts).build();
+        List<Integer> discarded = new ArrayList<>();
+
+        StepVerifier.create(Flux.range(1, 6).transform(limiter.limit(RateLimitPolicy.DELAY)).doOnDiscard(Integer.class, discarded::add))
+            .expectNext(1, 2, 3)
+            .thenCancel()
+            .verify();
+        Assertions.assertEquals(List.of(4, 5, 6), discarded);
+    }
+
+    @Test
+    @DisplayName("DROP 은 허용량이 없을 때 요소를 버리고 discard 훅으로 넘기며, 시간이 지나면 다시 통과시킨다")
+    void dropDiscardsWithoutPermits() {
+        VirtualTimeScheduler vts = VirtualTimeScheduler.create();
+        RateLimiter limiter = RateLimiter.builder(5, Duration.ofSeconds(1)).scheduler(vts).build();
+        List<Integer> discarded = new ArrayList<>();
+
+        StepVerifier.create(Flux.range(1, 8).transform(limiter.limit(RateLimitPolicy.DROP)).doOnDiscard(Integer.class, discarded::add))
+            .expectNext(1, 2, 3, 4, 5)
+            .verifyComplete();
+        Assertions.assertEquals(List.of(6, 7, 8), discarded);
+        Assertions.assertFalse(limiter.tryAcquire());
+
+        vts.advanceTimeBy(Duration.ofMillis(400));
+        Assertions.assertEquals(2, limiter.availablePermits());
+        Assertions.assertTrue(limiter.tryAcquire(2));
+        Assertions.assertFalse(limiter.tryAcquire());
+        Assertions.assertThrows(IllegalArgumentException.class, () -> limiter.tryAcquire(6));
+    }
+
+    @Test
+    @DisplayName("ERROR 는 허용량이 없으면 overflow 에러로 끝낸다")
+    void errorOnOverflow() {
+        VirtualTimeScheduler vts = VirtualTimeScheduler.create();
+        RateLimiter limiter = RateLimiter.builder(2, Duration.ofSeconds(1)).scheduler(vts).build();
+
+        StepVerifier.create(Flux.range(1, 5).transform(limiter.limit(RateLimitPolicy.ERROR)))
+            .expectNext(1, 2)
+            .verifyErrorMatches(Exceptions::isOverflow);
+    }
+
+    @Test
+    @DisplayName("여러 구독이 하나의 버킷을 나눠 쓰고, 받아 두고 쓰지 않은 허용량은 취소할 때 돌려준다")
+    void sharedBucketAndLeaseRefund() {
+        VirtualTimeScheduler vts = VirtualTimeScheduler.create();
+        RateLimiter limiter = RateLimiter.builder(100, Duration.ofSeconds(1)).burst(10).lease(4).scheduler(vts).build();
+
+        // 첫 구독이 4 개를 받아 하나만 쓰고 취소하면 3 개를 돌려준다.
+        StepVerifier.create(Flux.range(1, 100).transform(limiter.limit(RateLimitPolicy.DROP)).take(1))
+            .expectNext(1)
+            .verifyComplete();
+        Assertions.assertEquals(9, limiter.availablePermits());
+
+        // 두 구독이 남은 9 개를 나눠 쓴다.
+        long first = Flux.range(1, 5).transform(limiter.limit(RateLimitPolicy.DROP)).count().block();
+        long second = Flux.range(1, 100).transform(limiter.<Integer>limit(RateLimitPolicy.DROP)).count().block();
+        Assertions.assertEquals(5, first);
+        Assertions.assertEquals(4, second);
+
+        // DELAY 구독 둘이 같은 버킷에서 예약한 순서대로 interval(10ms) 마다 받는다. a2 는 b 가 구독하기 전에 예약했다.
+        vts.advanceTimeBy(Duration.ofSeconds(1));
+        RateLimiter smooth = RateLimiter.builder(100, Duration.ofSeconds(1)).burst(1).scheduler(vts).build();
+        List<String> order = new ArrayList<>();
+        Flux.range(1, 3).map(i -> "a" + i).transform(smooth.limit(RateLimitPolicy.DELAY)).subscribe(order::add);
+        Flux.range(1, 3).map(i -> "b" + i).transform(smooth.limit(RateLimitPolicy.DELAY)).subscribe(order::add);
+        Assertions.assertEquals(List.of("a1"), order);
+        vts.advanceTimeBy(Duration.ofMillis(50));
+        Assertions.assertEquals(List.of("a1", "a2", "b1", "a3", "b2", "b3"), order);
+    }
+
+    @Test
+    @DisplayName("여러 스레드가 동시에 받아도 허용량보다 많이 받지 않는다")
+    void concurrentAcquireNeverExceedsBurst() throws InterruptedException {
+        VirtualTimeScheduler vts = VirtualTimeScheduler.create(); // 시간이 흐르지 않으므로 burst 개만 받을 수 있다.
+        RateLimiter limiter = RateLimiter.builder(10_000, Duration.ofSeconds(1)).scheduler(vts).build();
+        AtomicInteger acquired = new AtomicInteger();
+        int threads = 8;
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch finished = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            new Thread(() -> {
+                try {
+                    start.await();
+                    for (int i = 0; i < 5_000; i++) {
+                        if (limiter.tryAcquire()) {
+                            acquired.incrementAndGet();
+                        }
+                    }
+                }
+                catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                finally {
+                    finished.countDown();
+                }
+            }).start();
+        }
+        start.countDown();
+        finished.await();
+
+        Assertions.assertEquals(10_000, acquired.get());
+        Assertions.assertEquals(0, limiter.availablePermits());
+        Assertions.assertThrows(IllegalArgumentException.class, () -> RateLimiter.builder(10, Duration.ofSeconds(1)).lease(20).build());
+        Assertions.assertThrows(IllegalArgumentException.class, () -> RateLimiter.builder(3_000_000_000L, Duration.ofSeconds(1)));
+    }
+
+    @Test
+    @DisplayName("기본 시계는 System.nanoTime() 이라 interval 이 1ms 보다 짧아도 정해진 속도를 낸다")
+    void subMillisecondIntervalOnRealClock() {
+        RateLimiter limiter = RateLimiter.builder(100_000, Duration.ofSeconds(1)).burst(1).build(); // interval 10us
+        long start = System.nanoTime();
+        long deadline = start + Duration.ofMillis(50).toNanos();
+        int acquired = 0;
+        while (System.nanoTime() < deadline) {
+            if (limiter.tryAcquire()) {
+                acquired++;
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+
+        // Scheduler.now() 로 재면 1ms 마다 burst(1) 개, 즉 50 개 남짓밖에 받지 못한다.
+        Assertions.assertTrue(acquired > 1_000, "acquired " + acquired);
+        Assertions.assertTrue(acquired <= elapsed / limiter.interval().toNanos() + limiter.burst(), "acquired " + acquired);
+    }
+}
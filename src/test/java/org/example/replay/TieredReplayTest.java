@@ -0,0 +1,162 @@
+package org.example.replay;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
+import reactor.test.StepVerifier;
+import reactor.test.publisher.TestPublisher;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+public class TieredReplayTest
+{
+    @TempDir
+    Path dir;
+
+    private static List<String> values(int from, int to) {
+        return IntStream.range(from, to).mapToObj(i -> "value-" + i).collect(Collectors.toList());
+    }
+
+    private long spillFiles() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.count();
+        }
+    }
+
+    private TieredReplay.Builder<String> builder(Flux<String> source) {
+        return TieredReplay.builder(source, ReplayCodec.utf8())
+            .heapElements(100)
+            .offHeapBytes(4 * 1024)
+            .blockBytes(1024)
+            .spillDirectory(dir);
+    }
+
+    @Test
+    @DisplayName("힙 예산을 넘은 요소는 off-heap 과 파일로 내려가고, 늦게 온 구독자는 모든 요소를 순서대로 받는다")
+    void lateSubscriberReadsAllTiers() throws IOException {
+        TieredReplay<String> replay = builder(Flux.fromIterable(values(0, 10_000)))
+            .weigher(String::length)
+            .build();
+
+        Assertions.assertEquals(values(0, 10_000), replay.asFlux().collectList().block(Duration.ofSeconds(10)));
+
+        ReplayStats stats = replay.stats();
+        Assertions.assertEquals(10_000, stats.totalElements());
+        Assertions.assertEquals(100, stats.heapElements());
+        Assertions.assertEquals(values(9_900, 10_000).stream().mapToInt(String::length).sum(), stats.heapBytes());
+        Assertions.assertTrue(stats.offHeapBytes() <= 4 * 1024 + 1024, () -> "offHeapBytes=" + stats.offHeapBytes());
+        Assertions.assertTrue(stats.diskElements() > 9_000, () -> "diskElements=" + stats.diskElements());
+        Assertions.assertEquals(0, spillFiles()); // 임시 파일은 열자마자 지워진 채로 쓴다. (Linux)
+
+        Assertions.assertEquals(values(0, 10_000), replay.asFlux().collectList().block(Duration.ofSeconds(10)));
+        StepVerifier.create(replay.asFlux().skip(5_000).take(3))
+            .expectNext("value-5000", "value-5001", "value-5002")
+            .verifyComplete();
+
+        replay.dispose();
+        Assertions.assertEquals(0, spillFiles());
+        StepVerifier.create(replay.asFlux())
+            .expectError(CancellationException.class)
+            .verify(Duration.ofSeconds(10));
+    }
+
+    @Test
+    @DisplayName("구독자는 요청한 만큼만 받으며, 읽는 사이에 블록이 파일로 내려가도 이어서 읽는다")
+    void backpressureWhileSpilling() {
+        TestPublisher<String> source = TestPublisher.create();
+        TieredReplay<String> replay = builder(source.flux()).heapElements(10).offHeapBytes(0).blockBytes(64).build();
+
+        StepVerifier.create(replay.asFlux(), 0)
+            .then(() -> values(0, 50).forEach(source::next))
+            .expectNoEvent(Duration.ofMillis(10))
+            .thenRequest(3)
+            .expectNext("value-0", "value-1", "value-2")
+            .then(() -> values(50, 1_000).forEach(source::next))
+            .thenRequest(997)
+            .expectNextSequence(values(3, 1_000))
+            .then(() -> source.next("value-1000"))
+            .thenRequest(1)
+            .expectNext("value-1000")
+            .then(source::complete)
+            .verifyComplete();
+
+        ReplayStats stats = replay.stats();
+        Assertions.assertEquals(1_001, stats.totalElements());
+        Assertions.assertEquals(10, stats.heapElements());
+        Assertions.assertTrue(stats.offHeapBytes() <= 64, () -> "offHeapBytes=" + stats.offHeapBytes());
+        replay.dispose();
+    }
+
+    @Test
+    @DisplayName("source 가 에러로 끝나면 늦게 온 구독자도 모든 요소를 받은 뒤 에러를 받는다")
+    void replaysUpstreamError() {
+        TieredReplay<String> replay = builder(Flux.fromIterable(values(0, 500))
+            .concatWith(Flux.error(new IllegalStateException("boom"))))
+            .build();
+
+        StepVerifier.create(replay.asFlux())
+            .expectNextSequence(values(0, 500))
+            .expectErrorMessage("boom")
+            .verify(Duration.ofSeconds(10));
+        StepVerifier.create(replay.asFlux())
+            .expectNextSequence(values(0, 500))
+            .expectErrorMessage("boom")
+            .verify(Duration.ofSeconds(10));
+        replay.dispose();
+    }
+
+    @Test
+    @DisplayName("직렬화가 실패하면 source 를 취소하고 구독자는 바로 그 에러를 받는다")
+    void codecFailure() {
+        TestPublisher<String> source = TestPublisher.create();
+        ReplayCodec<String> codec = ReplayCodec.of(value -> {
+            if (value.equals("value-3")) {
+                throw new IllegalArgumentException("cannot encode " + value);
+            }
+            return ByteBuffer.wrap(value.getBytes());
+        }, bytes -> "decoded");
+        TieredReplay<String> replay = TieredReplay.builder(source.flux(), codec).heapElements(2).spillDirectory(dir).build();
+
+        StepVerifier.create(replay.asFlux(), 0)
+            .then(() -> values(0, 6).forEach(source::next))
+            .expectErrorMessage("cannot encode value-3")
+            .verify(Duration.ofSeconds(10));
+
+        source.assertCancelled();
+        Assertions.assertTrue(replay.isDisposed());
+    }
+
+    @Test
+    @DisplayName("다른 스레드에서 요소가 들어오는 동안 중간에 구독해도 처음부터 빠짐없이 받는다")
+    void concurrentLateSubscribers() {
+        TieredReplay<String> replay = builder(Flux.fromIterable(values(0, 50_000)).subscribeOn(Schedulers.parallel()))
+            .heapElements(1_000)
+            .offHeapBytes(64 * 1024)
+            .blockBytes(8 * 1024)
+            .build();
+
+        List<List<String>> results = Flux.range(0, 4)
+            .delayElements(Duration.ofMillis(2))
+            .flatMap(i -> replay.asFlux().publishOn(Schedulers.boundedElastic()).collectList())
+            .collectList()
+            .block(Duration.ofSeconds(30));
+
+        Assertions.assertEquals(4, results.size());
+        for (List<String> result : results) {
+            Assertions.assertEquals(values(0, 50_000), result);
+        }
+        replay.dispose();
+    }
+}
@@ -0,0 +1,188 @@
+package org.example.scheduler;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Scheduler;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class HashedWheelSchedulerTest
+{
+    private final HashedWheelScheduler scheduler = HashedWheelScheduler.create("wheel", Duration.ofMillis(1), 8);
+
+    @AfterEach
+    void tearDown() {
+        scheduler.dispose();
+    }
+
+    @Test
+    @DisplayName("delayElements, delaySubscription, interval 에 기본 스케줄러 대신 넣을 수 있다")
+    void dropInForTimeOperators() {
+        List<String> threads = new CopyOnWriteArrayList<>();
+
+        StepVerifier.create(Flux.just("a", "b", "c")
+                .delaySubscription(Duration.ofMillis(20), scheduler)
+                .delayElements(Duration.ofMillis(5), scheduler)
+                .doOnNext(s -> threads.add(Thread.currentThread().getName())))
+            .expectNext("a", "b", "c")
+            .expectComplete()
+            .verify(Duration.ofSeconds(5));
+
+        StepVerifier.create(Flux.interval(Duration.ofMillis(10), scheduler).take(5))
+            .expectNext(0L, 1L, 2L, 3L, 4L)
+            .expectComplete()
+            .verify(Duration.ofSeconds(5));
+
+        Assertions.assertTrue(threads.stream().allMatch(name -> name.equals("wheel-wheel")), threads::toString);
+        Assertions.assertEquals(8, scheduler.wheelSize());
+    }
+
+    @Test
+    @DisplayName("지연 작업은 deadline 보다 일찍 실행되지 않고, 휠 한 바퀴보다 긴 지연도 지킨다")
+    void neverFiresEarly() throws InterruptedException {
+        long[] delays = {0, 1, 3, 7, 8, 9, 30, 100}; // 휠 한 바퀴는 8ms
+        CountDownLatch latch = new CountDownLatch(delays.length);
+        List<String> early = new CopyOnWriteArrayList<>();
+
+        for (long delay : delays) {
+            long start = System.nanoTime();
+            scheduler.schedule(() -> {
+                long elapsed = System.nanoTime() - start;
+                if (elapsed < TimeUnit.MILLISECONDS.toNanos(delay)) {
+                    early.add(delay + "ms fired after " + elapsed + "ns");
+                }
+                latch.countDown();
+            }, delay, TimeUnit.MILLISECONDS);
+        }
+
+        Assertions.assertTrue(latch.await(5, TimeUnit.SECONDS));
+        Assertions.assertEquals(List.of(), early);
+        Assertions.assertEquals(0, scheduler.pendingTimers());
+    }
+
+    @Test
+    @DisplayName("취소한 작업은 실행되지 않고 바로 대기 개수에서 빠진다")
+    void cancel() throws InterruptedException {
+        AtomicInteger fired = new AtomicInteger();
+        List<Disposable> timers = new ArrayList<>();
+        for (int i = 0; i < 100_000; i++) {
+            timers.add(scheduler.schedule(fired::incrementAndGet, 2_000 + i % 100, TimeUnit.MILLISECONDS));
+        }
+        Assertions.assertEquals(100_000, scheduler.pendingTimers());
+
+        for (int i = 0; i < timers.size(); i += 2) {
+            timers.get(i).dispose();
+        }
+        Assertions.assertEquals(50_000, scheduler.pendingTimers());
+
+        CountDownLatch done = new CountDownLatch(1);
+        scheduler.schedule(done::countDown, 2_200, TimeUnit.MILLISECONDS);
+        Assertions.assertTrue(done.await(10, TimeUnit.SECONDS));
+        Assertions.assertEquals(50_000, fired.get());
+        Assertions.assertEquals(0, scheduler.pendingTimers());
+        Assertions.assertTrue(timers.stream().allMatch(Disposable::isDisposed));
+    }
+
+    @Test
+    @DisplayName("Worker 를 dispose 하면 남은 지연/주기 작업이 취소되고, 주기 작업은 예외가 나면 멈춘다")
+    void workerAndPeriodic() throws InterruptedException {
+        Scheduler.Worker worker = scheduler.createWorker();
+        AtomicInteger ticks = new AtomicInteger();
+        AtomicInteger delayed = new AtomicInteger();
+        CountDownLatch threeTicks = new CountDownLatch(3);
+        worker.schedulePeriodically(() -> {
+            ticks.incrementAndGet();
+            threeTicks.countDown();
+        }, 0, 5, TimeUnit.MILLISECONDS);
+        worker.schedule(delayed::incrementAndGet, 1, TimeUnit.SECONDS);
+
+        Assertions.assertTrue(threeTicks.await(5, TimeUnit.SECONDS));
+        worker.dispose();
+        int afterDispose = ticks.get();
+        Thread.sleep(50);
+        Assertions.assertTrue(ticks.get() <= afterDispose + 1, () -> "ticks=" + ticks.get());
+        Assertions.assertEquals(0, delayed.get());
+        Assertions.assertEquals(0, scheduler.pendingTimers());
+        Assertions.assertThrows(RejectedExecutionException.class, () -> worker.schedule(() -> { }));
+
+        AtomicInteger failing = new AtomicInteger();
+        CountDownLatch failed = new CountDownLatch(1);
+        scheduler.schedulePeriodically(() -> {
+            failing.incrementAndGet();
+            failed.countDown();
+            throw new IllegalStateException("boom");
+        }, 0, 1, TimeUnit.MILLISECONDS);
+        Assertions.assertTrue(failed.await(5, TimeUnit.SECONDS));
+        // 예외를 본 wheel 스레드가 타이머를 내려놓을 때까지 기다린다.
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (scheduler.pendingTimers() != 0 && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        Assertions.assertEquals(0, scheduler.pendingTimers());
+        Thread.sleep(20); // 1ms 주기였으니 멈추지 않았다면 그사이 다시 실행됐을 것이다.
+        Assertions.assertEquals(1, failing.get());
+    }
+
+    @Test
+    @DisplayName("주기가 휠 한 바퀴인 작업은 한 바퀴마다 실행되고, 두 바퀴씩 밀리지 않는다")
+    void periodOfOneRotation() throws InterruptedException {
+        List<Long> fired = new CopyOnWriteArrayList<>();
+        CountDownLatch latch = new CountDownLatch(6);
+
+        Disposable d = scheduler.schedulePeriodically(() -> {
+            fired.add(System.nanoTime());
+            latch.countDown();
+        }, 0, 8, TimeUnit.MILLISECONDS);
+
+        Assertions.assertTrue(latch.await(5, TimeUnit.SECONDS));
+        d.dispose();
+
+        long averageGap = (fired.get(5) - fired.get(1)) / 4;
+        Assertions.assertTrue(averageGap < TimeUnit.MILLISECONDS.toNanos(12), "average gap " + averageGap + "ns");
+    }
+
+    @Test
+    @DisplayName("dispose 하면 휠에 남은 작업은 취소되고 pendingTimers 는 0 이 된다")
+    void disposeCancelsPendingTimers() throws InterruptedException {
+        Disposable delayed = scheduler.schedule(() -> { }, 1, TimeUnit.SECONDS);
+        Disposable periodic = scheduler.schedulePeriodically(() -> { }, 1, 1, TimeUnit.SECONDS);
+        Scheduler.Worker worker = scheduler.createWorker();
+        Disposable inWorker = worker.schedule(() -> { }, 1, TimeUnit.SECONDS);
+        Assertions.assertEquals(3, scheduler.pendingTimers());
+
+        scheduler.dispose();
+
+        Assertions.assertEquals(0, scheduler.pendingTimers());
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!(delayed.isDisposed() && periodic.isDisposed() && inWorker.isDisposed()) && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        Assertions.assertTrue(delayed.isDisposed());
+        Assertions.assertTrue(periodic.isDisposed());
+        Assertions.assertTrue(inWorker.isDisposed());
+    }
+
+    @Test
+    @DisplayName("dispose 한 뒤에는 작업을 거절한다")
+    void rejectsAfterDispose() {
+        scheduler.dispose();
+
+        Assertions.assertTrue(scheduler.isDisposed());
+        Assertions.assertThrows(RejectedExecutionException.class, () -> scheduler.schedule(() -> { }));
+        Assertions.assertThrows(RejectedExecutionException.class, () -> scheduler.schedule(() -> { }, 1, TimeUnit.SECONDS));
+        Assertions.assertThrows(RejectedExecutionException.class, scheduler::createWorker);
+        Assertions.assertThrows(IllegalArgumentException.class, () -> HashedWheelScheduler.create("x", Duration.ZERO, 8));
+    }
+}
@@ -0,0 +1,156 @@
+package org.example.scheduler;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import reactor.test.StepVerifier;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+public class InstrumentedSchedulerTest
+{
+    @Test
+    @DisplayName("publishOn 에 넣으면 작업마다 큐 대기 시간과 실행 시간이 기록된다")
+    void recordsWaitAndRunTime() {
+        InstrumentedScheduler scheduler = InstrumentedScheduler.wrap(Schedulers.newSingle("instrumented"));
+
+        StepVerifier.create(Flux.range(1, 100).publishOn(scheduler, 2))
+            .expectNextCount(100)
+            .verifyComplete();
+
+        SchedulerMetrics.Snapshot snapshot = scheduler.metrics().snapshot();
+        Assertions.assertTrue(snapshot.submitted() > 0);
+        Assertions.assertEquals(snapshot.submitted(), snapshot.completed());
+        Assertions.assertEquals(snapshot.completed(), snapshot.runTime().count());
+        Assertions.assertEquals(snapshot.completed(), snapshot.queueWait().count());
+        Assertions.assertEquals(0, snapshot.queueDepth());
+        Assertions.assertEquals(0, snapshot.activeTasks());
+        scheduler.dispose();
+    }
+
+    @Test
+    @DisplayName("실행 중인 작업 수와 큐 깊이를 실시간으로 볼 수 있다")
+    void liveQueueDepthAndActiveTasks() throws InterruptedException {
+        InstrumentedScheduler scheduler = InstrumentedScheduler.wrap(Schedulers.newSingle("instrumented"));
+        Scheduler.Worker worker = scheduler.createWorker();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch second = new CountDownLatch(1);
+
+        worker.schedule(() -> {
+            started.countDown();
+            await(release);
+        });
+        worker.schedule(second::countDown);
+        Disposable cancelled = worker.schedule(() -> Assertions.fail("취소된 작업은 실행되지 않는다"));
+        Assertions.assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        SchedulerMetrics.Snapshot busy = scheduler.metrics().snapshot();
+        Assertions.assertEquals(1, busy.activeTasks());
+        Assertions.assertEquals(2, busy.queueDepth());
+        Assertions.assertEquals(1, busy.activeWorkers());
+
+        cancelled.dispose();
+        release.countDown();
+        Assertions.assertTrue(second.await(5, TimeUnit.SECONDS)); // 남은 작업이 끝난 뒤에 dispose 해야 취소 수가 1 이다.
+        worker.dispose();
+        scheduler.dispose();
+
+        SchedulerMetrics.Snapshot after = scheduler.metrics().snapshot();
+        Assertions.assertEquals(1, after.cancelled());
+        Assertions.assertEquals(0, after.activeWorkers());
+    }
+
+    @Test
+    @DisplayName("Worker 를 dispose 하면 대상 Worker 가 버린 대기 작업을 취소로 세어 큐 깊이가 0 으로 돌아온다")
+    void disposingWorkerCancelsPendingTasks() {
+        InstrumentedScheduler scheduler = InstrumentedScheduler.wrap(Schedulers.newSingle("instrumented"));
+        Scheduler.Worker worker = scheduler.createWorker();
+        for (int i = 0; i < 10; i++) {
+            worker.schedule(() -> Assertions.fail("dispose 된 Worker 의 작업은 실행되지 않는다"), 1, TimeUnit.HOURS);
+        }
+        Assertions.assertEquals(10, scheduler.metrics().snapshot().queueDepth());
+
+        worker.dispose();
+
+        SchedulerMetrics.Snapshot snapshot = scheduler.metrics().snapshot();
+        Assertions.assertEquals(10, snapshot.cancelled());
+        Assertions.assertEquals(0, snapshot.queueDepth());
+        Assertions.assertEquals(0, snapshot.activeWorkers());
+        Assertions.assertThrows(RejectedExecutionException.class, () -> worker.schedule(() -> { }));
+        Assertions.assertEquals(1, scheduler.metrics().snapshot().rejected());
+        Assertions.assertEquals(0, scheduler.metrics().snapshot().queueDepth());
+        scheduler.dispose();
+    }
+
+    @Test
+    @DisplayName("지연 작업의 대기 시간은 예정 시각부터 재고, 거절된 작업은 따로 센다")
+    void delayedAndRejected() throws InterruptedException {
+        InstrumentedScheduler scheduler = InstrumentedScheduler.wrap(Schedulers.newSingle("instrumented"));
+        CountDownLatch ran = new CountDownLatch(1);
+
+        scheduler.schedule(ran::countDown, 50, TimeUnit.MILLISECONDS);
+        Assertions.assertTrue(ran.await(5, TimeUnit.SECONDS));
+
+        SchedulerMetrics.Snapshot snapshot = scheduler.metrics().snapshot();
+        Assertions.assertTrue(snapshot.queueWait().max() < TimeUnit.MILLISECONDS.toNanos(50),
+            snapshot.queueWait()::toString);
+
+        scheduler.dispose();
+        Assertions.assertThrows(RejectedExecutionException.class, () -> scheduler.schedule(() -> { }));
+        Assertions.assertEquals(1, scheduler.metrics().snapshot().rejected());
+    }
+
+    @Test
+    @DisplayName("timingSampleRate 를 주면 일부 작업만 시간을 재지만 카운터는 정확하다")
+    void sampledTiming() {
+        InstrumentedScheduler scheduler = InstrumentedScheduler.wrap(Schedulers.immediate(), 10);
+        for (int i = 0; i < 10_000; i++) {
+            scheduler.schedule(() -> { });
+        }
+
+        SchedulerMetrics.Snapshot snapshot = scheduler.metrics().snapshot();
+        Assertions.assertEquals(10_000, snapshot.submitted());
+        Assertions.assertEquals(10_000, snapshot.completed());
+        Assertions.assertEquals(0, snapshot.queueDepth());
+        Assertions.assertTrue(snapshot.runTime().count() > 500 && snapshot.runTime().count() < 2_000,
+            snapshot.runTime()::toString);
+    }
+
+    @Test
+    @DisplayName("히스토그램의 백분위수는 약 3% 오차 안에 든다")
+    void histogramPrecision() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long i = 1; i <= 100_000; i++) {
+            histogram.record(i * 1_000);
+        }
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+
+        Assertions.assertEquals(100_000, snapshot.count());
+        Assertions.assertEquals(100_000_000, snapshot.max());
+        assertWithin(50_000_000, snapshot.valueAtPercentile(50));
+        assertWithin(99_000_000, snapshot.valueAtPercentile(99));
+        assertWithin(99_900_000, snapshot.valueAtPercentile(99.9));
+        Assertions.assertEquals(100_000_000, snapshot.valueAtPercentile(100));
+        assertWithin(50_000_500, (long) snapshot.mean());
+    }
+
+    private static void assertWithin(long expected, long actual) {
+        Assertions.assertTrue(Math.abs(actual - expected) <= expected * 0.032, () -> expected + " vs " + actual);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package org.example.scheduler;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class VirtualThreadSchedulerTest
+{
+    private final VirtualThreadScheduler scheduler = VirtualThreadScheduler.create("vt", 4);
+
+    @AfterEach
+    void tearDown() {
+        scheduler.dispose();
+    }
+
+    @Test
+    @DisplayName("subscribeOn/publishOn 에 boundedElastic() 대신 넣을 수 있다")
+    void dropInForBoundedElastic() {
+        List<String> threads = new CopyOnWriteArrayList<>();
+
+        StepVerifier.create(
+                Flux.range(1, 6)
+                    .subscribeOn(scheduler)
+                    .doOnNext(i -> threads.add(Thread.currentThread().getName()))
+                    .publishOn(scheduler, 2)
+                    .map(i -> i * 10)
+                    .doOnNext(i -> threads.add(Thread.currentThread().getName())))
+            .expectNext(10, 20, 30, 40, 50, 60)
+            .verifyComplete();
+
+        Assertions.assertEquals(12, threads.size());
+        Assertions.assertTrue(threads.stream().allMatch(name -> name.startsWith("vt-")), threads::toString);
+    }
+
+    @Test
+    @DisplayName("가상 스레드를 쓸 수 없으면 플랫폼 스레드 수를 boundedElastic() 의 스레드 수로 제한한다")
+    void platformFallbackIsCapped() {
+        VirtualThreadScheduler large = VirtualThreadScheduler.create("blocking-io", 10_000);
+        try {
+            int expected = VirtualThreadScheduler.isVirtual() ? 10_000 : Schedulers.DEFAULT_BOUNDED_ELASTIC_SIZE;
+            Assertions.assertEquals(expected, large.maxConcurrency());
+        }
+        finally {
+            large.dispose();
+        }
+    }
+
+    @Test
+    @DisplayName("동시에 실행되는 작업 수는 maxConcurrency 를 넘지 않고, 넘은 작업은 큐에서 기다린다")
+    void concurrencyLimit() {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+
+        Flux<Integer> blockingCalls = Flux.range(0, 20)
+            .flatMap(i -> Mono.fromCallable(() -> {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                Thread.sleep(20); // 블로킹 호출 흉내
+                running.decrementAndGet();
+                return i;
+            }).subscribeOn(scheduler), 20);
+
+        StepVerifier.create(blockingCalls)
+            .expectNextCount(20)
+            .verifyComplete();
+
+        Assertions.assertEquals(4, maxRunning.get());
+        Assertions.assertEquals(0, scheduler.pendingCount());
+    }
+
+    @Test
+    @DisplayName("Worker 는 작업을 넣은 순서대로 하나씩 실행한다")
+    void workerIsSerial() throws InterruptedException {
+        Scheduler.Worker worker = scheduler.createWorker();
+        List<Integer> order = new CopyOnWriteArrayList<>();
+        AtomicInteger running = new AtomicInteger();
+        CountDownLatch latch = new CountDownLatch(100);
+
+        for (int i = 0; i < 100; i++) {
+            int n = i;
+            worker.schedule(() -> {
+                Assertions.assertEquals(1, running.incrementAndGet());
+                order.add(n);
+                running.decrementAndGet();
+                latch.countDown();
+            });
+        }
+
+        Assertions.assertTrue(latch.await(5, TimeUnit.SECONDS));
+        Assertions.assertEquals(100, order.size());
+        for (int i = 0; i < 100; i++) {
+            Assertions.assertEquals(i, order.get(i));
+        }
+        worker.dispose();
+    }
+
+    @Test
+    @DisplayName("schedulePeriodically 는 dispose 할 때까지 반복하며, 지연 작업은 dispose 하면 실행되지 않는다")
+    void periodicAndDelayed() throws InterruptedException {
+        CountDownLatch ticks = new CountDownLatch(3);
+        Disposable periodic = scheduler.schedulePeriodically(ticks::countDown, 0, 10, TimeUnit.MILLISECONDS);
+        Assertions.assertTrue(ticks.await(5, TimeUnit.SECONDS));
+        periodic.dispose();
+        Assertions.assertTrue(periodic.isDisposed());
+
+        AtomicInteger delayedRuns = new AtomicInteger();
+        Disposable delayed = scheduler.schedule(delayedRuns::incrementAndGet, 50, TimeUnit.MILLISECONDS);
+        delayed.dispose();
+
+        StepVerifier.create(Mono.delay(Duration.ofMillis(100), scheduler).then(Mono.fromSupplier(delayedRuns::get)))
+            .expectNext(0)
+            .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("실행 중인 작업을 dispose 하면 interrupt 되고, dispose 된 스케줄러는 작업을 거절한다")
+    void disposeInterruptsAndRejects() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch interrupted = new CountDownLatch(1);
+        Disposable task = scheduler.schedule(() -> {
+            started.countDown();
+            try {
+                Thread.sleep(10_000);
+            }
+            catch (InterruptedException e) {
+                interrupted.countDown();
+            }
+        });
+
+        Assertions.assertTrue(started.await(5, TimeUnit.SECONDS));
+        task.dispose();
+        Assertions.assertTrue(interrupted.await(5, TimeUnit.SECONDS));
+
+        scheduler.dispose();
+        Assertions.assertThrows(RejectedExecutionException.class, () -> scheduler.schedule(() -> { }));
+        Assertions.assertThrows(RejectedExecutionException.class, scheduler::createWorker);
+    }
+}
@@ -0,0 +1,144 @@
+package org.example.sink;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.IntStream;
+
+public class MpscSinkTest
+{
+    @Test
+    @DisplayName("여러 스레드가 동시에 넣어도 빠짐없이 전달되고, 생산자별 순서가 지켜진다")
+    void manyProducers() throws InterruptedException {
+        int producers = 8;
+        int perProducer = 20_000;
+        MpscSink<Long> sink = new MpscSink<>(64);
+        List<Long> received = new ArrayList<>();
+        CountDownLatch completed = new CountDownLatch(1);
+        sink.asFlux().subscribe(received::add, e -> { }, completed::countDown);
+
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            long producer = p;
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                }
+                catch (InterruptedException e) {
+                    throw new IllegalStateException(e);
+                }
+                for (long i = 0; i < perProducer; i++) {
+                    Assertions.assertEquals(Sinks.EmitResult.OK, sink.emitNext(producer << 32 | i));
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        sink.tryEmitComplete();
+
+        Assertions.assertTrue(completed.await(10, TimeUnit.SECONDS));
+        Assertions.assertEquals(producers * perProducer, received.size());
+        long[] next = new long[producers];
+        for (long value : received) {
+            int producer = (int) (value >>> 32);
+            Assertions.assertEquals(next[producer]++, value & 0xFFFF_FFFFL);
+        }
+        Assertions.assertEquals(0, sink.size());
+    }
+
+    @Test
+    @DisplayName("요청이 없어 큐가 차면 tryEmitNext 는 FAIL_OVERFLOW 를 반환하고, 요청하면 다시 넣을 수 있다")
+    void boundedQueue() {
+        MpscSink<Integer> sink = new MpscSink<>(4);
+
+        // 구독 전에 넣은 요소도 큐에 쌓였다가 전달된다.
+        IntStream.range(0, 4).forEach(i -> Assertions.assertEquals(Sinks.EmitResult.OK, sink.tryEmitNext(i)));
+        Assertions.assertEquals(Sinks.EmitResult.FAIL_OVERFLOW, sink.tryEmitNext(4));
+
+        StepVerifier.create(sink.asFlux(), 0)
+            .thenRequest(1)
+            .expectNext(0)
+            .then(() -> Assertions.assertEquals(Sinks.EmitResult.OK, sink.tryEmitNext(4)))
+            .then(() -> Assertions.assertEquals(Sinks.EmitResult.FAIL_OVERFLOW, sink.tryEmitNext(5)))
+            .thenRequest(10)
+            .expectNext(1, 2, 3, 4)
+            .then(() -> sink.tryEmitError(new IllegalStateException("끝")))
+            .verifyErrorMessage("끝");
+
+        Assertions.assertEquals(Sinks.EmitResult.FAIL_TERMINATED, sink.tryEmitNext(6));
+        Assertions.assertEquals(Sinks.EmitResult.FAIL_TERMINATED, sink.tryEmitComplete());
+    }
+
+    @Test
+    @DisplayName("emitNext 는 큐가 가득 차 있으면 구독자가 요청할 때까지 기다린다")
+    void emitNextParks() throws InterruptedException {
+        MpscSink<Integer> sink = new MpscSink<>(2);
+        sink.tryEmitNext(0);
+        sink.tryEmitNext(1);
+        AtomicReference<Sinks.EmitResult> result = new AtomicReference<>();
+        Thread producer = new Thread(() -> result.set(sink.emitNext(2)));
+        producer.start();
+
+        StepVerifier.create(sink.asFlux(), 0)
+            .expectSubscription()
+            .then(() -> Assertions.assertTrue(producer.isAlive()))
+            .thenAwait(Duration.ofMillis(100))
+            .then(() -> Assertions.assertNull(result.get()))
+            .thenRequest(3)
+            .expectNext(0, 1, 2)
+            .then(sink::tryEmitComplete)
+            .verifyComplete();
+        producer.join(1_000);
+        Assertions.assertEquals(Sinks.EmitResult.OK, result.get());
+    }
+
+    @Test
+    @DisplayName("구독자는 하나만 받으며, 구독자가 취소하면 남은 요소를 버리고 FAIL_CANCELLED 를 반환한다")
+    void singleSubscriberAndCancel() {
+        MpscSink<Integer> sink = new MpscSink<>(8);
+        sink.tryEmitNext(1);
+        sink.tryEmitNext(2);
+
+        StepVerifier.create(sink.asFlux(), 1)
+            .expectNext(1)
+            .then(() -> StepVerifier.create(sink.asFlux())
+                .verifyErrorMessage("MpscSink allows only a single Subscriber"))
+            .then(() -> Assertions.assertEquals(1, sink.currentSubscriberCount()))
+            .thenCancel()
+            .verify();
+
+        Assertions.assertEquals(0, sink.size());
+        Assertions.assertEquals(0, sink.currentSubscriberCount());
+        Assertions.assertEquals(Sinks.EmitResult.FAIL_CANCELLED, sink.tryEmitNext(3));
+    }
+
+    @Test
+    @DisplayName("구독자가 취소하면 큐에 남은 요소는 discard 훅으로 넘어간다")
+    void cancelDiscardsQueued() {
+        MpscSink<Integer> sink = new MpscSink<>(8);
+        IntStream.rangeClosed(1, 4).forEach(sink::tryEmitNext);
+        List<Integer> discarded = new ArrayList<>();
+
+        StepVerifier.create(sink.asFlux().doOnDiscard(Integer.class, discarded::add), 1)
+            .expectNext(1)
+            .thenCancel()
+            .verify();
+
+        Assertions.assertEquals(List.of(2, 3, 4), discarded);
+        Assertions.assertEquals(0, sink.size());
+    }
+}
@@ -0,0 +1,174 @@
+package org.example.sink;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.reactivestreams.Subscription;
+import reactor.core.Exceptions;
+import reactor.core.publisher.BaseSubscriber;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Schedulers;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+public class RingBufferMulticastSinkTest
+{
+    @Test
+    @DisplayName("share() 처럼 구독한 이후의 요소만 받는다")
+    void hotLikeShare() {
+        RingBufferMulticastSink<String> sink = new RingBufferMulticastSink<>(16, SlowConsumerPolicy.BLOCK);
+        List<String> a = new ArrayList<>();
+        List<String> b = new ArrayList<>();
+
+        sink.asFlux().subscribe(a::add);
+        sink.tryEmitNext("로이킴");
+        sink.asFlux().subscribe(b::add); // 관객 B 는 늦게 들어왔다.
+        sink.tryEmitNext("뉴진스");
+        sink.tryEmitComplete();
+
+        Assertions.assertEquals(List.of("로이킴", "뉴진스"), a);
+        Assertions.assertEquals(List.of("뉴진스"), b);
+        Assertions.assertEquals(0, sink.currentSubscriberCount());
+    }
+
+    @Test
+    @DisplayName("BLOCK 정책 구독자가 한 바퀴 뒤처지면 tryEmitNext 는 FAIL_OVERFLOW 를 반환한다")
+    void blockPolicy() {
+        RingBufferMulticastSink<Integer> sink = new RingBufferMulticastSink<>(4, SlowConsumerPolicy.BLOCK);
+
+        StepVerifier.create(sink.asFlux(), 0)
+            .then(() -> IntStream.range(0, 4).forEach(i -> Assertions.assertEquals(Sinks.EmitResult.OK, sink.tryEmitNext(i))))
+            .then(() -> Assertions.assertEquals(Sinks.EmitResult.FAIL_OVERFLOW, sink.tryEmitNext(4)))
+            .thenRequest(1)
+            .expectNext(0)
+            .then(() -> Assertions.assertEquals(Sinks.EmitResult.OK, sink.tryEmitNext(4)))
+            .thenRequest(4)
+            .expectNext(1, 2, 3, 4)
+            .then(sink::tryEmitComplete)
+            .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("DROP_OLDEST 정책 구독자는 덮어쓰인 요소를 건너뛰고, 다른 구독자는 영향을 받지 않는다")
+    void dropOldestPolicy() {
+        RingBufferMulticastSink<Integer> sink = new RingBufferMulticastSink<>(4, SlowConsumerPolicy.DROP_OLDEST);
+        List<Integer> fast = new ArrayList<>();
+        sink.asFlux().subscribe(fast::add);
+
+        StepVerifier.create(sink.asFlux(), 0)
+            .then(() -> IntStream.range(0, 10).forEach(sink::tryEmitNext))
+            .thenRequest(10)
+            .expectNext(6, 7, 8, 9)
+            .then(sink::tryEmitComplete)
+            .verifyComplete();
+
+        Assertions.assertEquals(10, fast.size());
+        Assertions.assertEquals(6, sink.droppedCount());
+    }
+
+    @Test
+    @DisplayName("다른 스레드에서 onNext 가 오래 걸리는 구독자가 있어도 생산자와 다른 구독자는 기다리지 않는다")
+    void slowSubscriberDoesNotStallOthers() throws InterruptedException {
+        RingBufferMulticastSink<Integer> sink = new RingBufferMulticastSink<>(256, SlowConsumerPolicy.DROP_OLDEST);
+        List<Integer> fast = new ArrayList<>();
+        sink.asFlux().subscribe(fast::add);
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        List<Integer> slow = new ArrayList<>();
+        BaseSubscriber<Integer> slowSubscriber = new BaseSubscriber<>()
+        {
+            @Override
+            protected void hookOnSubscribe(Subscription subscription) {
+                // 요청은 아래의 다른 스레드에서 한다.
+            }
+
+            @Override
+            protected void hookOnNext(Integer value) {
+                synchronized (slow) {
+                    slow.add(value);
+                }
+                entered.countDown();
+                try {
+                    release.await();
+                }
+                catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+        sink.asFlux().subscribe(slowSubscriber);
+
+        sink.tryEmitNext(0);
+        Thread requester = new Thread(() -> slowSubscriber.request(Long.MAX_VALUE)); // 이 스레드에서 onNext(0) 이 멈춘다.
+        requester.start();
+        Assertions.assertTrue(entered.await(5, TimeUnit.SECONDS));
+
+        for (int i = 1; i <= 100; i++) {
+            Assertions.assertEquals(Sinks.EmitResult.OK, sink.tryEmitNext(i));
+        }
+        Assertions.assertEquals(101, fast.size()); // 느린 구독자의 onNext 가 끝나기 전에 모두 받았다.
+
+        release.countDown();
+        sink.tryEmitComplete();
+        requester.join(5_000);
+        synchronized (slow) {
+            Assertions.assertEquals(101, slow.size()); // 느린 구독자는 자기 스레드에서 나머지를 이어 받는다.
+        }
+    }
+
+    @Test
+    @DisplayName("DISCONNECT 정책 구독자는 뒤처지면 overflow 에러로 끊긴다")
+    void disconnectPolicy() {
+        RingBufferMulticastSink<Integer> sink = new RingBufferMulticastSink<>(4, SlowConsumerPolicy.BLOCK);
+        List<Integer> fast = new ArrayList<>();
+        sink.asFlux().subscribe(fast::add);
+
+        StepVerifier.create(sink.asFlux(SlowConsumerPolicy.DISCONNECT), 1)
+            .then(() -> IntStream.range(0, 6).forEach(sink::tryEmitNext))
+            .expectNext(0)
+            .verifyErrorMatches(Exceptions::isOverflow);
+
+        Assertions.assertEquals(6, fast.size());
+        Assertions.assertEquals(1, sink.currentSubscriberCount());
+    }
+
+    @Test
+    @DisplayName("다른 스레드의 구독자에게도 순서대로, 빠짐없이 전달된다 (BLOCK)")
+    void asyncSubscribers() {
+        RingBufferMulticastSink<Integer> sink = new RingBufferMulticastSink<>(64, SlowConsumerPolicy.BLOCK);
+        int count = 100_000;
+
+        var first = sink.asFlux().publishOn(Schedulers.parallel(), 32).reduce(0L, (acc, i) -> acc + i).toFuture();
+        var second = sink.asFlux().publishOn(Schedulers.boundedElastic(), 8).reduce(0L, (acc, i) -> acc + i).toFuture();
+
+        Schedulers.single().schedule(() -> {
+            for (int i = 0; i < count; i++) {
+                sink.emitNext(i);
+            }
+            sink.tryEmitComplete();
+        });
+
+        long expected = (long) count * (count - 1) / 2;
+        Assertions.assertEquals(expected, first.orTimeout(10, TimeUnit.SECONDS).join());
+        Assertions.assertEquals(expected, second.orTimeout(10, TimeUnit.SECONDS).join());
+    }
+
+    @Test
+    @DisplayName("종료 후 구독하면 종료 신호만 받는다")
+    void lateSubscriberAfterTermination() {
+        RingBufferMulticastSink<Integer> sink = new RingBufferMulticastSink<>(4, SlowConsumerPolicy.BLOCK);
+        sink.tryEmitNext(1);
+        sink.tryEmitError(new IllegalStateException("boom"));
+
+        StepVerifier.create(sink.asFlux())
+            .expectError(IllegalStateException.class)
+            .verify(Duration.ofSeconds(1));
+        Assertions.assertEquals(Sinks.EmitResult.FAIL_TERMINATED, sink.tryEmitNext(2));
+    }
+}
@@ -0,0 +1,105 @@
+package org.example.subscriber;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class BatchedDemandSubscriberTest
+{
+    static class CollectingSubscriber extends BatchedDemandSubscriber<Integer>
+    {
+        final List<Integer> items = new ArrayList<>();
+        boolean completed;
+
+        CollectingSubscriber(int highTide, int lowTide) {
+            super(highTide, lowTide);
+        }
+
+        CollectingSubscriber(int highTide) {
+            super(highTide);
+        }
+
+        @Override
+        protected void hookOnItem(Integer value) {
+            items.add(value);
+        }
+
+        @Override
+        protected void hookOnComplete() {
+            completed = true;
+        }
+    }
+
+    @Test
+    @DisplayName("highTide 만큼 최초 요청하고, lowTide 개를 소비할 때마다 lowTide 만큼 추가 요청한다")
+    void requestsInBatches() {
+        List<Long> requests = new ArrayList<>();
+        CollectingSubscriber subscriber = new CollectingSubscriber(256, 192);
+
+        Flux.range(0, 1000)
+            .doOnRequest(requests::add)
+            .subscribe(subscriber);
+
+        Assertions.assertEquals(1000, subscriber.items.size());
+        Assertions.assertTrue(subscriber.completed);
+        Assertions.assertEquals(256L, requests.get(0));
+        Assertions.assertTrue(requests.subList(1, requests.size()).stream().allMatch(n -> n == 192L));
+        Assertions.assertEquals(1 + 1000 / 192, requests.size());
+    }
+
+    @Test
+    @DisplayName("lowTide 를 생략하면 highTide 의 75% 를 사용한다")
+    void defaultLowTide() {
+        Assertions.assertEquals(192, new CollectingSubscriber(256).getLowTide());
+        Assertions.assertEquals(1, new CollectingSubscriber(1).getLowTide());
+    }
+
+    @Test
+    @DisplayName("highTide 가 Integer.MAX_VALUE 이면 무제한으로 한 번만 요청한다")
+    void unbounded() {
+        List<Long> requests = new ArrayList<>();
+        CollectingSubscriber subscriber = new CollectingSubscriber(Integer.MAX_VALUE);
+
+        Flux.range(0, 10)
+            .doOnRequest(requests::add)
+            .subscribe(subscriber);
+
+        Assertions.assertEquals(List.of(Long.MAX_VALUE), requests);
+        Assertions.assertEquals(10, subscriber.items.size());
+    }
+
+    @Test
+    @DisplayName("hookOnItem 에서 예외가 나면 BaseSubscriber 처럼 구독을 취소하고 onError 로 전달한다")
+    void errorInHookCancels() {
+        List<Throwable> errors = new ArrayList<>();
+        BatchedDemandSubscriber<Integer> subscriber = new BatchedDemandSubscriber<>(4) {
+            @Override
+            protected void hookOnItem(Integer value) {
+                if (value == 2) {
+                    throw new IllegalStateException("boom");
+                }
+            }
+
+            @Override
+            protected void hookOnError(Throwable throwable) {
+                errors.add(throwable);
+            }
+        };
+
+        Flux.range(0, 10).subscribe(subscriber);
+
+        Assertions.assertEquals(1, errors.size());
+        Assertions.assertTrue(subscriber.isDisposed());
+    }
+
+    @Test
+    void invalidArguments() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new CollectingSubscriber(0));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new CollectingSubscriber(8, 9));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new CollectingSubscriber(8, 0));
+    }
+}
@@ -0,0 +1,122 @@
+package org.example.trace;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import reactor.test.StepVerifier;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+public class SignalTracerTest
+{
+    @Test
+    @DisplayName("SubscribeOnTest 의 log() 처럼 request/onNext 흐름과 실행 스레드를 시간순으로 볼 수 있다")
+    void tracesSignalsLikeLog() {
+        SignalTracer tracer = SignalTracer.create();
+        Scheduler scheduler = Schedulers.newSingle("SUB");
+
+        StepVerifier.create(Flux.range(1, 6)
+                .transform(tracer.trace("range"))
+                .subscribeOn(scheduler)
+                .map(i -> i + 10)
+                .transform(tracer.trace("map")), 0)
+            .thenRequest(2)
+            .expectNext(11, 12)
+            .thenRequest(Long.MAX_VALUE)
+            .expectNextCount(4)
+            .verifyComplete();
+        scheduler.dispose();
+
+        List<String> lines = Arrays.asList(tracer.dumpText().split("\n"));
+        Assertions.assertTrue(lines.get(0).endsWith("map ON_SUBSCRIBE"), lines::toString); // subscribeOn 은 호출한 스레드에서 먼저 onSubscribe 한다.
+        Assertions.assertTrue(lines.stream().anyMatch(l -> l.contains("[SUB-") && l.endsWith("range ON_SUBSCRIBE")));
+        Assertions.assertTrue(lines.stream().anyMatch(l -> l.endsWith("map REQUEST(2)")));
+        Assertions.assertTrue(lines.stream().anyMatch(l -> l.contains("[SUB-") && l.endsWith("range REQUEST(2)")));
+        Assertions.assertTrue(lines.get(lines.size() - 1).endsWith("map ON_COMPLETE"));
+        Assertions.assertTrue(lines.stream().anyMatch(l -> l.endsWith("range REQUEST(unbounded)")));
+        Assertions.assertEquals(6, lines.stream().filter(l -> l.contains("[SUB-") && l.endsWith("map ON_NEXT")).count());
+        Assertions.assertEquals(5, tracer.onNextLatency("map").count());
+        Assertions.assertEquals(5, tracer.onNextLatency("range").count());
+    }
+
+    @Test
+    @DisplayName("sampleRate 가 n 이면 onNext 는 n 개 중 하나만 기록하고 바로 다음 onNext 와의 간격을 잰다")
+    void sampling() {
+        SignalTracer tracer = SignalTracer.create(1 << 16, 10);
+
+        StepVerifier.create(Flux.range(1, 10_000).transform(tracer.trace("range")))
+            .expectNextCount(10_000)
+            .verifyComplete();
+
+        String text = tracer.dumpText();
+        long onNext = text.lines().filter(l -> l.endsWith("ON_NEXT")).count();
+        Assertions.assertEquals(1_000, onNext); // 간격을 재는 바로 다음 onNext 는 기록하지 않는다.
+        Assertions.assertEquals(1_000, tracer.onNextLatency("range").count());
+        Assertions.assertTrue(text.lines().anyMatch(l -> l.endsWith("ON_COMPLETE")));
+    }
+
+    @Test
+    @DisplayName("버퍼가 차면 가장 오래된 레코드부터 덮어쓴다")
+    void overwritesOldestRecords() {
+        SignalTracer tracer = SignalTracer.create(16, 1);
+
+        StepVerifier.create(Flux.range(1, 100).transform(tracer.trace("range")))
+            .expectNextCount(100)
+            .verifyComplete();
+
+        List<String> lines = tracer.dumpText().lines().toList();
+        Assertions.assertEquals(16, lines.size());
+        Assertions.assertTrue(lines.get(15).endsWith("range ON_COMPLETE"));
+        Assertions.assertEquals(99, tracer.onNextLatency("range").count());
+    }
+
+    @Test
+    @DisplayName("바이너리로 저장한 덤프를 읽으면 dumpText 와 같은 내용이 나온다")
+    void binaryDump(@TempDir Path dir) throws IOException {
+        SignalTracer tracer = SignalTracer.create();
+        Scheduler parallel = Schedulers.newParallel("trace", 4);
+
+        StepVerifier.create(Flux.range(1, 1_000)
+                .transform(tracer.trace("source"))
+                .parallel(4)
+                .runOn(parallel)
+                .map(i -> i * 2)
+                .sequential()
+                .transform(tracer.trace("sequential")))
+            .expectNextCount(1_000)
+            .verifyComplete();
+        parallel.dispose();
+
+        Path file = dir.resolve("trace.bin");
+        tracer.dump(file);
+        StringBuilder decoded = new StringBuilder();
+        SignalTracer.readText(file, decoded);
+
+        Assertions.assertEquals(tracer.dumpText(), decoded.toString());
+        Assertions.assertEquals(List.of("source", "sequential"), List.copyOf(tracer.onNextLatencies().keySet()));
+    }
+
+    @Test
+    @DisplayName("취소와 에러도 기록한다")
+    void cancelAndError() {
+        SignalTracer tracer = SignalTracer.create();
+
+        StepVerifier.create(Flux.range(1, 10).transform(tracer.trace("take")).take(3))
+            .expectNextCount(3)
+            .verifyComplete();
+        StepVerifier.create(Flux.error(new IllegalStateException()).transform(tracer.trace("error")))
+            .verifyError(IllegalStateException.class);
+
+        String text = tracer.dumpText();
+        Assertions.assertTrue(text.contains("take CANCEL"), text);
+        Assertions.assertTrue(text.contains("error ON_ERROR"), text);
+        Assertions.assertEquals(0, tracer.onNextLatency("unknown").count());
+    }
+}
@@ -0,0 +1,195 @@
+package org.example.window;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+import reactor.test.publisher.TestPublisher;
+import reactor.test.scheduler.VirtualTimeScheduler;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+public class WindowedAggregationsTest
+{
+    @Test
+    @DisplayName("요소 수 텀블링 윈도우는 size 개마다 통계를 내고, 끝날 때 남은 요소로 하나 더 낸다")
+    void tumblingByCount() {
+        List<WindowStats> windows = Flux.range(1, 250)
+            .transform(WindowedAggregations.stats(WindowSpec.tumbling(100), Integer::doubleValue))
+            .collectList()
+            .block(Duration.ofSeconds(10));
+
+        Assertions.assertEquals(3, windows.size());
+        WindowStats first = windows.get(0);
+        Assertions.assertEquals(100, first.count());
+        Assertions.assertEquals(5050, first.sum());
+        Assertions.assertEquals(1, first.min());
+        Assertions.assertEquals(100, first.max());
+        Assertions.assertEquals(50.5, first.mean());
+        Assertions.assertEquals(50.5, first.quantile(0.5), 1.0);
+        Assertions.assertEquals(100, first.quantile(1.0));
+        WindowStats last = windows.get(2);
+        Assertions.assertEquals(50, last.count());
+        Assertions.assertEquals(201, last.min());
+        Assertions.assertEquals(250, last.max());
+    }
+
+    @Test
+    @DisplayName("요소 수 슬라이딩 윈도우는 step 마다 최근 size 개의 통계를 낸다")
+    void slidingByCount() {
+        Random random = new Random(42);
+        double[] values = new double[2_000];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = random.nextGaussian() * 10 + 100;
+        }
+
+        List<WindowStats> windows = Flux.range(0, values.length)
+            .map(i -> values[i])
+            .transform(WindowedAggregations.stats(WindowSpec.sliding(500, 50), Double::doubleValue))
+            .collectList()
+            .block(Duration.ofSeconds(10));
+
+        Assertions.assertEquals(values.length / 50, windows.size());
+        for (int w = 0; w < windows.size(); w++) {
+            int end = (w + 1) * 50;
+            double[] window = Arrays.copyOfRange(values, Math.max(0, end - 500), end);
+            WindowStats stats = windows.get(w);
+            Assertions.assertEquals(window.length, stats.count());
+            Assertions.assertEquals(Arrays.stream(window).sum(), stats.sum(), 1e-6);
+            Assertions.assertEquals(Arrays.stream(window).min().orElseThrow(), stats.min());
+            Assertions.assertEquals(Arrays.stream(window).max().orElseThrow(), stats.max());
+            Arrays.sort(window);
+            Assertions.assertEquals(window[window.length / 2], stats.quantile(0.5), 1.0);
+        }
+    }
+
+    @Test
+    @DisplayName("시간 윈도우는 요소가 없던 구간에도 결과를 내고, 슬라이딩은 최근 size 동안을 합친다")
+    void timeWindows() {
+        VirtualTimeScheduler vts = VirtualTimeScheduler.create();
+        TestPublisher<Integer> source = TestPublisher.create();
+
+        StepVerifier.create(source.flux()
+                .transform(WindowedAggregations.stats(WindowSpec.sliding(Duration.ofSeconds(3), Duration.ofSeconds(1)).on(vts), Integer::doubleValue)))
+            .then(() -> source.next(1, 2, 3))
+            .then(() -> vts.advanceTimeBy(Duration.ofSeconds(1)))
+            .assertNext(stats -> Assertions.assertEquals(6, stats.sum()))
+            .then(() -> vts.advanceTimeBy(Duration.ofSeconds(1)))
+            .assertNext(stats -> Assertions.assertEquals(6, stats.sum())) // 빈 pane
+            .then(() -> source.next(10))
+            .then(() -> vts.advanceTimeBy(Duration.ofSeconds(1)))
+            .assertNext(stats -> {
+                Assertions.assertEquals(4, stats.count());
+                Assertions.assertEquals(16, stats.sum());
+            })
+            .then(() -> vts.advanceTimeBy(Duration.ofSeconds(1)))
+            .assertNext(stats -> Assertions.assertEquals(10, stats.sum())) // 첫 pane 이 빠졌다.
+            .then(() -> vts.advanceTimeBy(Duration.ofSeconds(2)))
+            .assertNext(stats -> Assertions.assertEquals(10, stats.sum()))
+            .assertNext(stats -> {
+                Assertions.assertEquals(0, stats.count());
+                Assertions.assertTrue(Double.isNaN(stats.mean()));
+                Assertions.assertTrue(Double.isNaN(stats.quantile(0.5)));
+            })
+            .thenCancel()
+            .verify(Duration.ofSeconds(10));
+    }
+
+    @Test
+    @DisplayName("끝나지 않는 스트림에서도 윈도우 크기와 관계없이 일정한 메모리로 결과를 낸다")
+    void unboundedStream() {
+        StepVerifier.create(Flux.range(0, 5).repeat()
+                .transform(WindowedAggregations.stats(WindowSpec.tumbling(1_000_000), Integer::doubleValue))
+                .take(3))
+            .expectNextMatches(stats -> stats.count() == 1_000_000 && stats.sum() == 2_000_000 && stats.max() == 4)
+            .expectNextCount(2)
+            .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("t-digest 는 꼬리 분위수를 작은 순위 오차로 추정한다")
+    void tDigestAccuracy() {
+        Random random = new Random(7);
+        double[] values = new double[200_000];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = Math.exp(random.nextGaussian()); // 로그 정규 분포 (긴 꼬리)
+        }
+
+        TDigest digest = Flux.range(0, values.length)
+            .map(i -> values[i])
+            .transform(WindowedAggregations.quantiles(WindowSpec.tumbling(values.length), Double::doubleValue, 100))
+            .blockLast(Duration.ofSeconds(10));
+
+        Arrays.sort(values);
+        Assertions.assertEquals(values.length, digest.count());
+        Assertions.assertTrue(digest.centroidCount() <= 200, () -> "centroids=" + digest.centroidCount());
+        for (double q : new double[] {0.01, 0.1, 0.5, 0.9, 0.99, 0.999}) {
+            double estimate = digest.quantile(q);
+            int rank = Arrays.binarySearch(values, estimate);
+            double actualQ = (rank >= 0 ? rank : -rank - 1) / (double) values.length;
+            double tolerance = q == 0.5 ? 0.01 : 0.002;
+            Assertions.assertEquals(q, actualQ, tolerance, () -> "q=" + q);
+        }
+        Assertions.assertEquals(values[0], digest.min());
+        Assertions.assertEquals(values[values.length - 1], digest.quantile(1.0));
+    }
+
+    @Test
+    @DisplayName("HyperLogLog 는 서로 다른 키 수를 precision 에 맞는 오차로 세고, 슬라이딩 pane 을 합쳐도 같다")
+    void distinctCount() {
+        List<Long> tumbling = Flux.range(0, 300_000)
+            .map(i -> i % 100_000)
+            .transform(WindowedAggregations.distinctCountLong(WindowSpec.tumbling(300_000), Integer::longValue, 14))
+            .collectList()
+            .block(Duration.ofSeconds(10));
+        Assertions.assertEquals(1, tumbling.size());
+        Assertions.assertEquals(100_000, tumbling.get(0), 100_000 * 0.03);
+
+        // pane 마다 새 키 10,000 개, 윈도우는 pane 5 개
+        List<Long> sliding = Flux.range(0, 100_000)
+            .transform(WindowedAggregations.distinctCount(WindowSpec.sliding(50_000, 10_000), i -> "key-" + i, 12))
+            .collectList()
+            .block(Duration.ofSeconds(10));
+        Assertions.assertEquals(10, sliding.size());
+        Assertions.assertEquals(10_000, sliding.get(0), 10_000 * 0.06);
+        Assertions.assertEquals(50_000, sliding.get(9), 50_000 * 0.06);
+        Assertions.assertThrows(IllegalArgumentException.class, () -> WindowedAggregations.distinctCountLong(WindowSpec.tumbling(10), x -> 0, 3));
+    }
+
+    @Test
+    @DisplayName("heavyHitters 는 자주 나온 키를 많은 순서로 찾고, 횟수를 실제보다 작게 추정하지 않는다")
+    void heavyHitters() {
+        Random random = new Random(1);
+        List<String> keys = new ArrayList<>();
+        for (int i = 0; i < 100_000; i++) {
+            double r = random.nextDouble();
+            if (r < 0.2) {
+                keys.add("hot-0");
+            }
+            else if (r < 0.3) {
+                keys.add("hot-1");
+            }
+            else if (r < 0.35) {
+                keys.add("hot-2");
+            }
+            else {
+                keys.add("cold-" + random.nextInt(50_000));
+            }
+        }
+        long hot0 = keys.stream().filter("hot-0"::equals).count();
+
+        List<HeavyHitter<String>> top = Flux.fromIterable(keys)
+            .transform(WindowedAggregations.heavyHitters(WindowSpec.sliding(100_000, 25_000), key -> key, 3, 0.001, 0.01))
+            .blockLast(Duration.ofSeconds(10));
+
+        Assertions.assertEquals(List.of("hot-0", "hot-1", "hot-2"), top.stream().map(HeavyHitter::key).collect(Collectors.toList()));
+        Assertions.assertTrue(top.get(0).count() >= hot0);
+        Assertions.assertTrue(top.get(0).count() <= hot0 + 100_000 * 0.001 * 2, () -> "count=" + top.get(0).count() + " actual=" + hot0);
+    }
+}
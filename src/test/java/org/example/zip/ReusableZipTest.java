@@ -0,0 +1,128 @@
+package org.example.zip;
+
+import org.example.primitive.LongFlux;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+
+public class ReusableZipTest
+{
+    @Test
+    @DisplayName("Flux.zip 처럼 짝지어 내보내지만 모든 쌍에 같은 슬롯을 쓰고 onNext 가 끝나면 비운다")
+    void reusesOneSlot() {
+        Flux<String> characterFlux = Flux.just("Garfield", "Kojak", "Barbossa");
+        Flux<String> foodFlux = Flux.just("Lasagna", "Lollipops", "Apples", "Pizza");
+        Set<ZipSlot<String, String>> slots = new HashSet<>();
+        List<ZipSlot<String, String>> received = new ArrayList<>();
+
+        StepVerifier.create(ReusableZip.zip(characterFlux, foodFlux)
+                .doOnNext(slots::add)
+                .doOnNext(received::add)
+                .map(slot -> slot.getT1() + " eats " + slot.getT2()))
+            .expectNext("Garfield eats Lasagna")
+            .expectNext("Kojak eats Lollipops")
+            .expectNext("Barbossa eats Apples")
+            .verifyComplete();
+
+        Assertions.assertEquals(1, slots.size());
+        Assertions.assertNull(received.get(0).getT1()); // onNext 밖에서는 비어 있다.
+    }
+
+    @Test
+    @DisplayName("요청한 만큼만 짝지어 내보내고, 짧은 쪽이 끝나면 긴 쪽을 취소한다")
+    void respectsDemandAndCancelsLongerSource() {
+        AtomicInteger cancelled = new AtomicInteger();
+        Flux<Integer> longer = Flux.range(100, 1_000).doOnCancel(cancelled::incrementAndGet);
+
+        StepVerifier.create(ReusableZip.zip(Flux.range(0, 5), longer, 2).map(s -> s.getT1() + s.getT2()), 0)
+            .thenRequest(2)
+            .expectNext(100, 102)
+            .expectNoEvent(Duration.ofMillis(50))
+            .thenRequest(3)
+            .expectNext(104, 106, 108)
+            .verifyComplete();
+
+        Assertions.assertEquals(1, cancelled.get());
+    }
+
+    @Test
+    @DisplayName("다른 스레드에서 오는 소스도 순서대로 짝짓는다")
+    void asyncSources() {
+        Scheduler scheduler = Schedulers.newParallel("zip", 4);
+
+        StepVerifier.create(ReusableZip.zip(
+                    Flux.range(0, 10_000).subscribeOn(scheduler),
+                    Flux.range(0, 10_000).map(i -> -i).subscribeOn(scheduler))
+                .map(s -> s.getT1() + s.getT2()))
+            .expectNextSequence(IntStream.range(0, 10_000).map(i -> 0).boxed().toList())
+            .expectComplete()
+            .verify(Duration.ofSeconds(10));
+        scheduler.dispose();
+    }
+
+    @Test
+    @DisplayName("한쪽이 에러를 내면 다른 쪽을 취소하고 에러로 끝난다")
+    void errorCancelsOther() {
+        AtomicInteger cancelled = new AtomicInteger();
+        Flux<Integer> ok = Flux.range(0, 1_000).doOnCancel(cancelled::incrementAndGet);
+        Flux<Integer> failing = Flux.just(1, 2).concatWith(Flux.error(new IllegalStateException()));
+
+        StepVerifier.create(ReusableZip.zip(ok, failing).map(s -> s.getT1() + s.getT2()))
+            .expectNext(1, 3)
+            .verifyError(IllegalStateException.class);
+        Assertions.assertEquals(1, cancelled.get());
+
+        // Flux.range().map() 은 융합되어 drain 에서 map 이 실행된다. 거기서 던진 예외도 에러로 끝난다.
+        Flux<Integer> fusedFailing = Flux.range(0, 10).map(i -> {
+            if (i == 3) {
+                throw new IllegalStateException();
+            }
+            return i;
+        });
+        StepVerifier.create(ReusableZip.zip(fusedFailing, Flux.range(0, 10)).map(s -> s.getT1() + s.getT2()))
+            .expectNext(0, 2, 4)
+            .verifyError(IllegalStateException.class);
+
+        StepVerifier.create(ReusableZip.zipLongs(LongFlux.range(0, 1_000), LongFlux.fromChunks(Flux.error(new IllegalStateException()))))
+            .verifyError(IllegalStateException.class);
+    }
+
+    @Test
+    @DisplayName("zipLongs 는 청크 크기와 상관없이 batchSize 쌍씩 두 배열에 담아 내보내고, 남은 쌍은 마지막 배치로 내보낸다")
+    void zipLongsIntoColumns() {
+        LongFlux prices = LongFlux.range(0, 23, 7);
+        LongFlux quantities = LongFlux.range(1_000, 30, 5); // 더 길다. 23 쌍만 만든다.
+        List<long[]> firsts = new ArrayList<>();
+        List<long[]> seconds = new ArrayList<>();
+
+        StepVerifier.create(ReusableZip.zipLongs(prices, quantities, 10)
+                .doOnNext(batch -> {
+                    firsts.add(Arrays.copyOf(batch.t1(), batch.size()));
+                    seconds.add(Arrays.copyOf(batch.t2(), batch.size()));
+                }), 0)
+            .thenRequest(1)
+            .expectNextCount(1)
+            .expectNoEvent(Duration.ofMillis(50))
+            .thenRequest(Long.MAX_VALUE)
+            .expectNextCount(2)
+            .verifyComplete();
+
+        Assertions.assertEquals(List.of(10, 10, 3), firsts.stream().map(a -> a.length).toList());
+        Assertions.assertArrayEquals(LongStream.range(0, 23).toArray(), firsts.stream().flatMapToLong(LongStream::of).toArray());
+        Assertions.assertArrayEquals(LongStream.range(1_000, 1_023).toArray(), seconds.stream().flatMapToLong(LongStream::of).toArray());
+    }
+}